@@ -2,6 +2,7 @@ package ucb.app.esculapy;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Ponto de entrada principal para a aplicação Esculapy.
@@ -10,6 +11,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * da aplicação.
  */
 @SpringBootApplication
+@EnableScheduling
 public class EsculapyApplication {
     
 
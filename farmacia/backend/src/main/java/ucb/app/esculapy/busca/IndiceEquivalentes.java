@@ -0,0 +1,141 @@
+package ucb.app.esculapy.busca;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ucb.app.esculapy.event.CatalogoImportadoEvent;
+import ucb.app.esculapy.event.ProdutoCatalogoAlteradoEvent;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.model.enums.TipoReceita;
+import ucb.app.esculapy.repository.ProdutoRepository;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Grupos de equivalência do catálogo: produtos ativos com o mesmo princípio ativo (sem acentos,
+ * maiúsculas ou pontuação) e o mesmo {@link TipoReceita}, ou seja, intercambiáveis para o cliente.
+ * Os grupos são montados na inicialização e atualizados produto a produto após o commit de cada
+ * alteração do catálogo; as ofertas de cada produto vêm do {@link IndiceOfertas}.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndiceEquivalentes {
+
+    private static final int TAMANHO_LOTE_CARGA = 1000;
+
+    private final ProdutoRepository produtoRepository;
+
+    private record Grupo(String principioAtivo, TipoReceita tipoReceita) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Grupo, Set<Long>> produtosPorGrupo = new HashMap<>();
+    private final Map<Long, Grupo> grupoPorProduto = new HashMap<>();
+
+    /**
+     * Monta os grupos com todos os produtos ativos, em lotes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        lock.writeLock().lock();
+        try {
+            produtosPorGrupo.clear();
+            grupoPorProduto.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Page<Produto> pagina;
+        int numero = 0;
+        do {
+            pagina = produtoRepository.findAllByAtivoTrue(PageRequest.of(numero++, TAMANHO_LOTE_CARGA, Sort.by("id")));
+            lock.writeLock().lock();
+            try {
+                pagina.forEach(this::adicionarSemLock);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } while (pagina.hasNext());
+
+        System.out.println("LOG: Grupos de equivalência construídos: " + produtosPorGrupo.size() + " grupos.");
+    }
+
+    /**
+     * Reconstrói os grupos após uma importação em lote do catálogo.
+     *
+     * @param event O evento de importação.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogoImportado(CatalogoImportadoEvent event) {
+        construir();
+    }
+
+    /**
+     * Move o produto alterado para o seu grupo atual (ou o retira, se inativo ou removido), após o commit.
+     *
+     * @param event O evento de alteração do catálogo.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProdutoCatalogoAlterado(ProdutoCatalogoAlteradoEvent event) {
+        Optional<Produto> produto = produtoRepository.findById(event.produtoId());
+        lock.writeLock().lock();
+        try {
+            removerSemLock(event.produtoId());
+            if (produto.isPresent() && produto.get().isAtivo()) {
+                adicionarSemLock(produto.get());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retorna os produtos equivalentes a um produto (mesmo princípio ativo e tipo de receita), sem ele próprio.
+     *
+     * @param produtoId O ID do produto.
+     * @return Os IDs dos equivalentes; vazio se o produto não tiver princípio ativo ou não estiver no índice.
+     */
+    public List<Long> getEquivalentes(Long produtoId) {
+        lock.readLock().lock();
+        try {
+            Grupo grupo = grupoPorProduto.get(produtoId);
+            if (grupo == null) {
+                return List.of();
+            }
+            return produtosPorGrupo.get(grupo).stream()
+                    .filter(id -> !id.equals(produtoId))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void adicionarSemLock(Produto produto) {
+        String principioAtivo = String.join(" ", TextoBusca.tokenizar(produto.getPrincipioAtivo()));
+        if (principioAtivo.isEmpty()) {
+            return;
+        }
+        Grupo grupo = new Grupo(principioAtivo, produto.getTipoReceita());
+        grupoPorProduto.put(produto.getId(), grupo);
+        produtosPorGrupo.computeIfAbsent(grupo, g -> new HashSet<>()).add(produto.getId());
+    }
+
+    private void removerSemLock(Long produtoId) {
+        Grupo grupo = grupoPorProduto.remove(produtoId);
+        if (grupo == null) {
+            return;
+        }
+        Set<Long> produtos = produtosPorGrupo.get(grupo);
+        produtos.remove(produtoId);
+        if (produtos.isEmpty()) {
+            produtosPorGrupo.remove(grupo);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package ucb.app.esculapy.busca;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ucb.app.esculapy.dto.CatalogoFacetadoResponse.ContagemFaceta;
+import ucb.app.esculapy.event.CatalogoImportadoEvent;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
+import ucb.app.esculapy.event.ProdutoCatalogoAlteradoEvent;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.model.enums.TipoProduto;
+import ucb.app.esculapy.model.enums.TipoReceita;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.ProdutoRepository;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Índice de facetas do catálogo: para cada valor de faceta (tipo de produto, tipo de receita,
+ * laboratório e "em estoque") guarda um {@link BitSet} com os IDs dos produtos ativos que o possuem.
+ * A listagem filtrada é a interseção dos bitsets dos filtros, e a contagem de cada faceta é a
+ * cardinalidade da interseção com os demais filtros (o filtro da própria faceta é ignorado, para
+ * que o usuário veja as alternativas). Nenhuma consulta ao banco é feita, nem mesmo COUNT.
+ * Os bitsets são montados na inicialização e atualizados após o commit de cada alteração do
+ * catálogo ou do estoque.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndiceFacetas {
+
+    public static final String FACETA_TIPO_PRODUTO = "tipoProduto";
+    public static final String FACETA_TIPO_RECEITA = "tipoReceita";
+    public static final String FACETA_LABORATORIO = "laboratorio";
+    public static final String FACETA_EM_ESTOQUE = "emEstoque";
+
+    private static final int TAMANHO_LOTE_CARGA = 1000;
+    private static final int MAXIMO_LABORATORIOS = 100;
+    private static final BitSet VAZIO = new BitSet();
+
+    private final ProdutoRepository produtoRepository;
+    private final EstoqueLojistaRepository estoqueLojistaRepository;
+
+    /**
+     * Os filtros de uma listagem; campos nulos não filtram.
+     *
+     * @param tipoProduto O tipo de produto.
+     * @param tipoReceita O tipo de receita.
+     * @param laboratorio O laboratório (acentos, maiúsculas e pontuação são ignorados).
+     * @param emEstoque True para produtos com alguma oferta disponível, false para produtos sem nenhuma.
+     */
+    public record Filtro(TipoProduto tipoProduto, TipoReceita tipoReceita, String laboratorio, Boolean emEstoque) {
+    }
+
+    /**
+     * O resultado de uma listagem filtrada.
+     *
+     * @param produtoIds Os IDs dos produtos da página, em ordem de ID.
+     * @param total O total de produtos que satisfazem os filtros.
+     * @param facetas As contagens de cada faceta, do valor mais frequente para o menos.
+     */
+    public record Resultado(List<Long> produtoIds, int total, Map<String, List<ContagemFaceta>> facetas) {
+    }
+
+    /**
+     * Os valores de faceta de um produto indexado, para removê-lo dos bitsets.
+     */
+    private record Valores(TipoProduto tipoProduto, TipoReceita tipoReceita, String laboratorio) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final BitSet ativos = new BitSet();
+    private final BitSet emEstoque = new BitSet();
+    private final Map<TipoProduto, BitSet> porTipoProduto = new EnumMap<>(TipoProduto.class);
+    private final Map<TipoReceita, BitSet> porTipoReceita = new EnumMap<>(TipoReceita.class);
+    private final Map<String, BitSet> porLaboratorio = new HashMap<>();
+    private final Map<String, String> nomeLaboratorio = new HashMap<>();
+    private final Map<Long, Valores> valoresPorProduto = new HashMap<>();
+
+    /**
+     * Monta os bitsets com todos os produtos ativos, em lotes, e marca os que têm ofertas disponíveis.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        lock.writeLock().lock();
+        try {
+            ativos.clear();
+            emEstoque.clear();
+            porTipoProduto.clear();
+            porTipoReceita.clear();
+            porLaboratorio.clear();
+            nomeLaboratorio.clear();
+            valoresPorProduto.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Page<Produto> pagina;
+        int numero = 0;
+        do {
+            pagina = produtoRepository.findAllByAtivoTrue(PageRequest.of(numero++, TAMANHO_LOTE_CARGA, Sort.by("id")));
+            lock.writeLock().lock();
+            try {
+                pagina.forEach(this::adicionarSemLock);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } while (pagina.hasNext());
+
+        List<EstoqueLojistaRepository.OfertasPorProduto> ofertas = estoqueLojistaRepository.contarOfertasDisponiveisPorProduto();
+        lock.writeLock().lock();
+        try {
+            ofertas.forEach(o -> emEstoque.set(bit(o.getProdutoId())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        System.out.println("LOG: Índice de facetas construído: " + valoresPorProduto.size() + " produtos, "
+                + porLaboratorio.size() + " laboratórios.");
+    }
+
+    /**
+     * Reconstrói o índice após uma importação em lote do catálogo.
+     *
+     * @param event O evento de importação.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogoImportado(CatalogoImportadoEvent event) {
+        construir();
+    }
+
+    /**
+     * Reindexa o produto alterado (ou o retira, se inativo ou removido), após o commit.
+     *
+     * @param event O evento de alteração do catálogo.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProdutoCatalogoAlterado(ProdutoCatalogoAlteradoEvent event) {
+        Optional<Produto> produto = produtoRepository.findById(event.produtoId());
+        lock.writeLock().lock();
+        try {
+            removerSemLock(event.produtoId());
+            if (produto.isPresent() && produto.get().isAtivo()) {
+                adicionarSemLock(produto.get());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Atualiza a faceta "em estoque" dos produtos cujo estoque mudou, após o commit.
+     *
+     * @param event O evento de alteração de estoque.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEstoqueAlterado(EstoqueAlteradoEvent event) {
+        if (event.produtoIds().isEmpty()) {
+            return;
+        }
+        Set<Long> comOferta = new HashSet<>();
+        estoqueLojistaRepository.contarOfertasDisponiveisPorProduto(event.produtoIds())
+                .forEach(o -> comOferta.add(o.getProdutoId()));
+        lock.writeLock().lock();
+        try {
+            for (Long produtoId : event.produtoIds()) {
+                emEstoque.set(bit(produtoId), comOferta.contains(produtoId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Lista os produtos ativos que satisfazem os filtros e conta as facetas.
+     *
+     * @param filtro Os filtros.
+     * @param inicio A posição do primeiro produto da página.
+     * @param tamanho O tamanho da página.
+     * @return A página de IDs, o total e as contagens das facetas.
+     */
+    public Resultado filtrar(Filtro filtro, long inicio, int tamanho) {
+        lock.readLock().lock();
+        try {
+            BitSet tipoProduto = filtro.tipoProduto() == null ? null : porTipoProduto.getOrDefault(filtro.tipoProduto(), VAZIO);
+            BitSet tipoReceita = filtro.tipoReceita() == null ? null : porTipoReceita.getOrDefault(filtro.tipoReceita(), VAZIO);
+            BitSet laboratorio = filtro.laboratorio() == null || filtro.laboratorio().isBlank() ? null
+                    : porLaboratorio.getOrDefault(chaveLaboratorio(filtro.laboratorio()), VAZIO);
+            BitSet estoque = filtro.emEstoque() == null ? null : estoqueSemLock(filtro.emEstoque());
+
+            BitSet resultado = intersecao(tipoProduto, tipoReceita, laboratorio, estoque);
+            List<Long> produtoIds = new ArrayList<>(tamanho);
+            long posicao = 0;
+            for (int i = resultado.nextSetBit(0); i >= 0 && produtoIds.size() < tamanho; i = resultado.nextSetBit(i + 1)) {
+                if (posicao++ >= inicio) {
+                    produtoIds.add((long) i);
+                }
+            }
+
+            Map<String, List<ContagemFaceta>> facetas = new LinkedHashMap<>();
+            facetas.put(FACETA_TIPO_PRODUTO, contar(intersecao(tipoReceita, laboratorio, estoque), porTipoProduto, Enum::name));
+            facetas.put(FACETA_TIPO_RECEITA, contar(intersecao(tipoProduto, laboratorio, estoque), porTipoReceita, Enum::name));
+            List<ContagemFaceta> laboratorios = contar(intersecao(tipoProduto, tipoReceita, estoque), porLaboratorio, nomeLaboratorio::get);
+            facetas.put(FACETA_LABORATORIO, laboratorios.size() > MAXIMO_LABORATORIOS
+                    ? laboratorios.subList(0, MAXIMO_LABORATORIOS) : laboratorios);
+            facetas.put(FACETA_EM_ESTOQUE, contar(intersecao(tipoProduto, tipoReceita, laboratorio),
+                    Map.of("true", estoqueSemLock(true), "false", estoqueSemLock(false)), v -> v));
+
+            return new Resultado(produtoIds, resultado.cardinality(), facetas);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Interseção dos produtos ativos com os filtros informados (nulos são ignorados).
+     */
+    private BitSet intersecao(BitSet... filtros) {
+        BitSet resultado = (BitSet) ativos.clone();
+        for (BitSet filtro : filtros) {
+            if (filtro != null) {
+                resultado.and(filtro);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Conta, para cada valor da faceta, os produtos da base que o possuem; omite os valores sem produtos.
+     */
+    private static <K> List<ContagemFaceta> contar(BitSet base, Map<K, BitSet> bitsPorValor,
+                                                    Function<K, String> rotulo) {
+        List<ContagemFaceta> contagens = new ArrayList<>();
+        bitsPorValor.forEach((valor, bits) -> {
+            BitSet comValor = (BitSet) base.clone();
+            comValor.and(bits);
+            int total = comValor.cardinality();
+            if (total > 0) {
+                contagens.add(new ContagemFaceta(rotulo.apply(valor), total));
+            }
+        });
+        contagens.sort(Comparator.comparingInt(ContagemFaceta::getTotal).reversed()
+                .thenComparing(ContagemFaceta::getValor));
+        return contagens;
+    }
+
+    private BitSet estoqueSemLock(boolean comEstoque) {
+        if (comEstoque) {
+            return emEstoque;
+        }
+        BitSet semEstoque = (BitSet) ativos.clone();
+        semEstoque.andNot(emEstoque);
+        return semEstoque;
+    }
+
+    private void adicionarSemLock(Produto produto) {
+        int bit = bit(produto.getId());
+        String laboratorio = chaveLaboratorio(produto.getLaboratorio());
+        valoresPorProduto.put(produto.getId(), new Valores(produto.getTipoProduto(), produto.getTipoReceita(), laboratorio));
+
+        ativos.set(bit);
+        porTipoProduto.computeIfAbsent(produto.getTipoProduto(), t -> new BitSet()).set(bit);
+        porTipoReceita.computeIfAbsent(produto.getTipoReceita(), t -> new BitSet()).set(bit);
+        if (!laboratorio.isEmpty()) {
+            porLaboratorio.computeIfAbsent(laboratorio, l -> new BitSet()).set(bit);
+            nomeLaboratorio.putIfAbsent(laboratorio, produto.getLaboratorio().strip());
+        }
+    }
+
+    private void removerSemLock(Long produtoId) {
+        Valores valores = valoresPorProduto.remove(produtoId);
+        if (valores == null) {
+            return;
+        }
+        int bit = bit(produtoId);
+        ativos.clear(bit);
+        porTipoProduto.get(valores.tipoProduto()).clear(bit);
+        porTipoReceita.get(valores.tipoReceita()).clear(bit);
+        BitSet laboratorio = porLaboratorio.get(valores.laboratorio());
+        if (laboratorio != null) {
+            laboratorio.clear(bit);
+            if (laboratorio.isEmpty()) {
+                porLaboratorio.remove(valores.laboratorio());
+                nomeLaboratorio.remove(valores.laboratorio());
+            }
+        }
+    }
+
+    private static String chaveLaboratorio(String laboratorio) {
+        return String.join(" ", TextoBusca.tokenizar(laboratorio));
+    }
+
+    private static int bit(Long produtoId) {
+        return Math.toIntExact(produtoId);
+    }
+}
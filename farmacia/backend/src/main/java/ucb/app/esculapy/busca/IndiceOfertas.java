@@ -0,0 +1,322 @@
+package ucb.app.esculapy.busca;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
+import ucb.app.esculapy.event.ProdutoCatalogoAlteradoEvent;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice em memória das ofertas disponíveis de cada produto, ordenadas por menor preço e depois
+ * por farmácia. Contém apenas ofertas ativas, com quantidade em estoque e de produtos ativos, de
+ * modo que a tela de comparação de preços pagina sem consultar nem ordenar no banco.
+ * É construído na inicialização e atualizado item a item após o commit de cada alteração de
+ * estoque ({@link EstoqueAlteradoEvent}, incluindo as baixas e estornos dos pedidos) e de cada
+ * ativação/desativação de produto ({@link ProdutoCatalogoAlteradoEvent}).
+ * Os listeners leem o banco fora do bloqueio, então dois eventos do mesmo item podem ser aplicados
+ * fora de ordem: cada item guarda a versão (maior data de atualização entre o item e o produto) do
+ * último estado aplicado, e um estado lido com versão anterior é descartado.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndiceOfertas {
+
+    private static final int TAMANHO_LOTE_CARGA = 1000;
+
+    /** Versão dos itens excluídos: como os IDs não são reaproveitados, nenhum estado lido a supera. */
+    private static final LocalDateTime EXCLUIDO = LocalDateTime.MAX;
+
+    private static final Comparator<Oferta> ORDEM = Comparator
+            .comparing(Oferta::preco)
+            .thenComparing(Oferta::farmaciaId)
+            .thenComparing(Oferta::estoqueId);
+
+    private final EstoqueLojistaRepository estoqueLojistaRepository;
+
+    private record Oferta(Long estoqueId, Long produtoId, Long farmaciaId, BigDecimal preco) {
+    }
+
+    /**
+     * Uma página de ofertas: os IDs dos itens de estoque, já ordenados, e o total de ofertas.
+     *
+     * @param estoqueIds Os IDs dos itens de estoque da página.
+     * @param total O total de ofertas disponíveis.
+     */
+    public record Pagina(List<Long> estoqueIds, int total) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** ID do produto → ofertas disponíveis, da mais barata para a mais cara. */
+    private final Map<Long, TreeSet<Oferta>> porProduto = new HashMap<>();
+
+    /** ID do item de estoque → oferta indexada. */
+    private final Map<Long, Oferta> porEstoque = new HashMap<>();
+
+    /** ID do item de estoque → versão do último estado aplicado, disponível ou não. */
+    private final Map<Long, LocalDateTime> versoes = new HashMap<>();
+
+    /**
+     * Constrói o índice com todas as ofertas disponíveis, em lotes por ID.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        lock.writeLock().lock();
+        try {
+            porProduto.clear();
+            porEstoque.clear();
+            versoes.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<EstoqueLojistaRepository.OfertaResumo> lote;
+        long ultimoId = 0;
+        do {
+            lote = estoqueLojistaRepository.findOfertasResumoAposId(ultimoId, PageRequest.of(0, TAMANHO_LOTE_CARGA));
+            lock.writeLock().lock();
+            try {
+                lote.forEach(this::aplicarSemLock);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (!lote.isEmpty()) {
+                ultimoId = lote.get(lote.size() - 1).getId();
+            }
+        } while (lote.size() == TAMANHO_LOTE_CARGA);
+
+        System.out.println("LOG: Índice de ofertas construído com " + porEstoque.size() + " ofertas.");
+    }
+
+    /**
+     * Recarrega os itens de estoque alterados, após o commit. Itens desativados ou sem quantidade
+     * saem do índice; itens que não voltam da consulta foram excluídos e saem definitivamente.
+     *
+     * @param event O evento de alteração de estoque.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEstoqueAlterado(EstoqueAlteradoEvent event) {
+        if (event.estoqueIds().isEmpty()) {
+            return;
+        }
+        List<EstoqueLojistaRepository.OfertaResumo> itens = estoqueLojistaRepository.findOfertasResumoByIdIn(event.estoqueIds());
+        lock.writeLock().lock();
+        try {
+            Set<Long> excluidos = new HashSet<>(event.estoqueIds());
+            for (EstoqueLojistaRepository.OfertaResumo item : itens) {
+                excluidos.remove(item.getId());
+                aplicarSemLock(item);
+            }
+            excluidos.forEach(this::excluirSemLock);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recarrega as ofertas de um produto cuja visibilidade mudou (ativação, desativação, criação ou remoção).
+     *
+     * @param event O evento de alteração do catálogo.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProdutoCatalogoAlterado(ProdutoCatalogoAlteradoEvent event) {
+        if (!event.alteraListagem()) {
+            return;
+        }
+        List<EstoqueLojistaRepository.OfertaResumo> itens = estoqueLojistaRepository.findOfertasResumoByProdutoId(event.produtoId());
+        lock.writeLock().lock();
+        try {
+            TreeSet<Oferta> indexadas = porProduto.get(event.produtoId());
+            Set<Long> excluidos = new HashSet<>();
+            if (indexadas != null) {
+                indexadas.forEach(o -> excluidos.add(o.estoqueId()));
+            }
+            for (EstoqueLojistaRepository.OfertaResumo item : itens) {
+                excluidos.remove(item.getId());
+                aplicarSemLock(item);
+            }
+            excluidos.forEach(this::excluirSemLock);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retorna uma página das ofertas de um produto, da mais barata para a mais cara.
+     *
+     * @param produtoId O ID do produto.
+     * @param inicio A posição da primeira oferta da página.
+     * @param tamanho O tamanho da página.
+     * @return Os IDs dos itens de estoque da página e o total de ofertas.
+     */
+    public Pagina getPagina(Long produtoId, long inicio, int tamanho) {
+        lock.readLock().lock();
+        try {
+            TreeSet<Oferta> ofertas = porProduto.get(produtoId);
+            if (ofertas == null) {
+                return new Pagina(List.of(), 0);
+            }
+            return new Pagina(fatia(ofertas.iterator(), inicio, tamanho), ofertas.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retorna uma página das ofertas de vários produtos: primeiro todas as do primeiro produto
+     * (da mais barata para a mais cara), depois as do segundo, e assim por diante.
+     *
+     * @param produtoIds Os IDs dos produtos, na ordem desejada (ex: relevância da busca).
+     * @param inicio A posição da primeira oferta da página.
+     * @param tamanho O tamanho da página.
+     * @return Os IDs dos itens de estoque da página e o total de ofertas.
+     */
+    public Pagina getPagina(List<Long> produtoIds, long inicio, int tamanho) {
+        lock.readLock().lock();
+        try {
+            List<TreeSet<Oferta>> grupos = produtoIds.stream()
+                    .map(porProduto::get)
+                    .filter(Objects::nonNull)
+                    .toList();
+            int total = grupos.stream().mapToInt(TreeSet::size).sum();
+            Iterator<Oferta> ofertas = grupos.stream().flatMap(TreeSet::stream).iterator();
+            return new Pagina(fatia(ofertas, inicio, tamanho), total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retorna o menor preço entre as ofertas disponíveis de um produto.
+     *
+     * @param produtoId O ID do produto.
+     * @return O menor preço, ou nulo se o produto não tiver ofertas disponíveis.
+     */
+    public BigDecimal getMenorPreco(Long produtoId) {
+        lock.readLock().lock();
+        try {
+            TreeSet<Oferta> ofertas = porProduto.get(produtoId);
+            return ofertas == null ? null : ofertas.first().preco();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retorna as ofertas disponíveis de um produto indexadas pela farmácia (há no máximo uma por farmácia).
+     *
+     * @param produtoId O ID do produto.
+     * @return Mapa de ID da farmácia para o ID do item de estoque.
+     */
+    public Map<Long, Long> getOfertasPorFarmacia(Long produtoId) {
+        lock.readLock().lock();
+        try {
+            TreeSet<Oferta> ofertas = porProduto.get(produtoId);
+            if (ofertas == null) {
+                return Map.of();
+            }
+            Map<Long, Long> porFarmacia = new HashMap<>();
+            ofertas.forEach(o -> porFarmacia.put(o.farmaciaId(), o.estoqueId()));
+            return porFarmacia;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retorna as ofertas mais baratas entre vários produtos, abaixo de um preço de referência.
+     *
+     * @param produtoIds Os IDs dos produtos.
+     * @param precoMaximo O preço de referência (exclusivo); nulo para não limitar.
+     * @param limite O número máximo de ofertas.
+     * @return Os IDs dos itens de estoque, da oferta mais barata para a mais cara.
+     */
+    public List<Long> getOfertasMaisBaratas(Collection<Long> produtoIds, BigDecimal precoMaximo, int limite) {
+        lock.readLock().lock();
+        try {
+            List<Oferta> candidatas = new ArrayList<>();
+            for (Long produtoId : produtoIds) {
+                TreeSet<Oferta> ofertas = porProduto.get(produtoId);
+                if (ofertas == null) {
+                    continue;
+                }
+                // Cada conjunto já está ordenado: basta pegar até as primeiras ofertas de cada um.
+                int tomadas = 0;
+                for (Oferta oferta : ofertas) {
+                    if (tomadas++ == limite || (precoMaximo != null && oferta.preco().compareTo(precoMaximo) >= 0)) {
+                        break;
+                    }
+                    candidatas.add(oferta);
+                }
+            }
+            candidatas.sort(ORDEM);
+            return candidatas.stream()
+                    .limit(limite)
+                    .map(Oferta::estoqueId)
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static List<Long> fatia(Iterator<Oferta> ofertas, long inicio, int tamanho) {
+        for (long i = 0; i < inicio && ofertas.hasNext(); i++) {
+            ofertas.next();
+        }
+        List<Long> estoqueIds = new ArrayList<>(tamanho);
+        while (estoqueIds.size() < tamanho && ofertas.hasNext()) {
+            estoqueIds.add(ofertas.next().estoqueId());
+        }
+        return estoqueIds;
+    }
+
+    /**
+     * Aplica o estado lido de um item, a menos que seja anterior ao último já aplicado.
+     */
+    private void aplicarSemLock(EstoqueLojistaRepository.OfertaResumo resumo) {
+        LocalDateTime versao = versao(resumo);
+        LocalDateTime aplicada = versoes.get(resumo.getId());
+        if (aplicada != null && versao.isBefore(aplicada)) {
+            return;
+        }
+        versoes.put(resumo.getId(), versao);
+        removerSemLock(resumo.getId());
+        if (Boolean.TRUE.equals(resumo.getDisponivel())) {
+            Oferta oferta = new Oferta(resumo.getId(), resumo.getProdutoId(), resumo.getFarmaciaId(), resumo.getPreco());
+            porEstoque.put(oferta.estoqueId(), oferta);
+            porProduto.computeIfAbsent(oferta.produtoId(), id -> new TreeSet<>(ORDEM)).add(oferta);
+        }
+    }
+
+    private void excluirSemLock(Long estoqueId) {
+        versoes.put(estoqueId, EXCLUIDO);
+        removerSemLock(estoqueId);
+    }
+
+    private static LocalDateTime versao(EstoqueLojistaRepository.OfertaResumo resumo) {
+        LocalDateTime item = resumo.getDataAtualizacao() != null ? resumo.getDataAtualizacao() : LocalDateTime.MIN;
+        LocalDateTime produto = resumo.getDataAtualizacaoProduto();
+        return produto != null && produto.isAfter(item) ? produto : item;
+    }
+
+    private void removerSemLock(Long estoqueId) {
+        Oferta oferta = porEstoque.remove(estoqueId);
+        if (oferta == null) {
+            return;
+        }
+        TreeSet<Oferta> ofertas = porProduto.get(oferta.produtoId());
+        ofertas.remove(oferta);
+        if (ofertas.isEmpty()) {
+            porProduto.remove(oferta.produtoId());
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package ucb.app.esculapy.busca;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ucb.app.esculapy.event.CatalogoImportadoEvent;
+import ucb.app.esculapy.event.ProdutoCatalogoAlteradoEvent;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.repository.ProdutoRepository;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido em memória sobre os produtos ativos do catálogo, com ranking BM25.
+ * Indexa nome, princípio ativo, laboratório e descrição (com pesos por campo), sem acentos e
+ * sem diferenciar maiúsculas. O último termo da consulta também casa por prefixo, para a busca
+ * enquanto o usuário digita.
+ * O índice é construído na inicialização e atualizado produto a produto após o commit de cada
+ * alteração do catálogo ({@link ProdutoCatalogoAlteradoEvent}).
+ * A reconstrução (inicialização ou importação do catálogo) monta uma estrutura nova, fora do bloqueio,
+ * e a troca pela atual de uma vez: as buscas continuam vendo o índice anterior completo, e as
+ * alterações recebidas durante a carga são reaplicadas na estrutura nova antes da troca.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndiceProdutos {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double PESO_NOME = 3.0;
+    private static final double PESO_PRINCIPIO_ATIVO = 2.0;
+    private static final double PESO_LABORATORIO = 1.0;
+    private static final double PESO_DESCRICAO = 0.5;
+    private static final double PESO_PREFIXO = 0.7;
+    private static final int MAXIMO_EXPANSOES_PREFIXO = 50;
+    private static final int TAMANHO_LOTE_CARGA = 1000;
+
+    private final ProdutoRepository produtoRepository;
+
+    @Value("${busca.produtos.maximo-resultados:500}")
+    private int maximoResultados;
+
+    private record Documento(double comprimento, Set<String> termos) {
+    }
+
+    /**
+     * Postings, documentos e comprimento total de uma versão do índice.
+     */
+    private static final class Estrutura {
+
+        /** Termo → (ID do produto → frequência ponderada pelos pesos dos campos). */
+        private final TreeMap<String, Map<Long, Double>> postings = new TreeMap<>();
+
+        /** ID do produto → comprimento ponderado e termos do documento. */
+        private final Map<Long, Documento> documentos = new HashMap<>();
+
+        private double comprimentoTotal;
+
+        /**
+         * Aplica a versão mais recente de um produto: substitui o documento ou, se nulo, o remove.
+         */
+        private void aplicar(Long produtoId, Produto produto) {
+            remover(produtoId);
+            if (produto != null) {
+                indexar(produto);
+            }
+        }
+
+        private void indexar(Produto produto) {
+            Map<String, Double> frequencias = new HashMap<>();
+            double comprimento = 0;
+            comprimento += acumular(frequencias, produto.getNome(), PESO_NOME);
+            comprimento += acumular(frequencias, produto.getPrincipioAtivo(), PESO_PRINCIPIO_ATIVO);
+            comprimento += acumular(frequencias, produto.getLaboratorio(), PESO_LABORATORIO);
+            comprimento += acumular(frequencias, produto.getDescricao(), PESO_DESCRICAO);
+
+            frequencias.forEach((termo, frequencia) ->
+                    postings.computeIfAbsent(termo, t -> new HashMap<>()).put(produto.getId(), frequencia));
+            documentos.put(produto.getId(), new Documento(comprimento, frequencias.keySet()));
+            comprimentoTotal += comprimento;
+        }
+
+        private void remover(Long produtoId) {
+            Documento documento = documentos.remove(produtoId);
+            if (documento == null) {
+                return;
+            }
+            comprimentoTotal -= documento.comprimento();
+            for (String termo : documento.termos()) {
+                Map<Long, Double> postingsDoTermo = postings.get(termo);
+                if (postingsDoTermo != null && postingsDoTermo.remove(produtoId) != null && postingsDoTermo.isEmpty()) {
+                    postings.remove(termo);
+                }
+            }
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** A versão do índice usada pelas buscas; trocada inteira a cada reconstrução. */
+    private Estrutura estrutura = new Estrutura();
+
+    /**
+     * Alterações recebidas durante uma reconstrução (ID do produto → versão mais recente, ou nulo se removido),
+     * reaplicadas na estrutura nova antes da troca. Nulo fora de uma reconstrução.
+     */
+    private Map<Long, Produto> alteracoesDuranteConstrucao;
+
+    /**
+     * Constrói o índice com todos os produtos ativos, em lotes, e o troca pelo atual.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void construir() {
+        lock.writeLock().lock();
+        try {
+            alteracoesDuranteConstrucao = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Estrutura nova = null;
+        int total = 0;
+        try {
+            nova = carregar();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (nova != null) {
+                    alteracoesDuranteConstrucao.forEach(nova::aplicar);
+                    estrutura = nova;
+                    total = nova.documentos.size();
+                }
+                alteracoesDuranteConstrucao = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        System.out.println("LOG: Índice de busca de produtos construído com " + total + " produtos.");
+    }
+
+    private Estrutura carregar() {
+        Estrutura nova = new Estrutura();
+        Page<Produto> pagina;
+        int numero = 0;
+        do {
+            pagina = produtoRepository.findAllByAtivoTrue(PageRequest.of(numero++, TAMANHO_LOTE_CARGA, Sort.by("id")));
+            pagina.forEach(nova::indexar);
+        } while (pagina.hasNext());
+        return nova;
+    }
+
+    /**
+     * Reconstrói o índice após uma importação em lote do catálogo.
+     *
+     * @param event O evento de importação.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogoImportado(CatalogoImportadoEvent event) {
+        construir();
+    }
+
+    /**
+     * Reindexa (ou remove) o produto alterado, após o commit da alteração.
+     *
+     * @param event O evento de alteração do catálogo.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProdutoCatalogoAlterado(ProdutoCatalogoAlteradoEvent event) {
+        Optional<Produto> produto = produtoRepository.findById(event.produtoId());
+        if (produto.isPresent() && produto.get().isAtivo()) {
+            indexar(produto.get());
+        } else {
+            remover(event.produtoId());
+        }
+    }
+
+    /**
+     * Adiciona ou substitui um produto no índice.
+     *
+     * @param produto O produto (ativo) a ser indexado.
+     */
+    public void indexar(Produto produto) {
+        aplicar(produto.getId(), produto);
+    }
+
+    /**
+     * Remove um produto do índice.
+     *
+     * @param produtoId O ID do produto.
+     */
+    public void remover(Long produtoId) {
+        aplicar(produtoId, null);
+    }
+
+    /**
+     * Busca os produtos que casam com a consulta, ordenados por relevância (BM25).
+     *
+     * @param consulta O texto digitado pelo usuário.
+     * @return Os IDs dos produtos, do mais para o menos relevante (no máximo {@code busca.produtos.maximo-resultados}).
+     */
+    public List<Long> buscar(String consulta) {
+        List<String> termos = TextoBusca.tokenizar(consulta);
+        if (termos.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Double> pontuacoes = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            Estrutura estrutura = this.estrutura;
+            TreeMap<String, Map<Long, Double>> postings = estrutura.postings;
+            int totalDocumentos = estrutura.documentos.size();
+            if (totalDocumentos == 0) {
+                return List.of();
+            }
+            double comprimentoMedio = estrutura.comprimentoTotal / totalDocumentos;
+
+            for (int i = 0; i < termos.size(); i++) {
+                String termo = termos.get(i);
+                boolean ultimo = i == termos.size() - 1;
+                if (ultimo) {
+                    int expansoes = 0;
+                    for (Map.Entry<String, Map<Long, Double>> entrada : postings.tailMap(termo, true).entrySet()) {
+                        if (!entrada.getKey().startsWith(termo) || expansoes++ >= MAXIMO_EXPANSOES_PREFIXO) {
+                            break;
+                        }
+                        double peso = entrada.getKey().equals(termo) ? 1.0 : PESO_PREFIXO;
+                        pontuar(estrutura, entrada.getValue(), peso, totalDocumentos, comprimentoMedio, pontuacoes);
+                    }
+                } else {
+                    Map<Long, Double> postingsDoTermo = postings.get(termo);
+                    if (postingsDoTermo != null) {
+                        pontuar(estrutura, postingsDoTermo, 1.0, totalDocumentos, comprimentoMedio, pontuacoes);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return pontuacoes.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(maximoResultados)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private void aplicar(Long produtoId, Produto produto) {
+        lock.writeLock().lock();
+        try {
+            estrutura.aplicar(produtoId, produto);
+            if (alteracoesDuranteConstrucao != null) {
+                alteracoesDuranteConstrucao.put(produtoId, produto);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void pontuar(Estrutura estrutura, Map<Long, Double> postingsDoTermo, double peso, int totalDocumentos,
+                                double comprimentoMedio, Map<Long, Double> pontuacoes) {
+        int df = postingsDoTermo.size();
+        double idf = Math.log(1 + (totalDocumentos - df + 0.5) / (df + 0.5));
+        for (Map.Entry<Long, Double> posting : postingsDoTermo.entrySet()) {
+            double tf = posting.getValue();
+            double normalizacao = K1 * (1 - B + B * estrutura.documentos.get(posting.getKey()).comprimento() / comprimentoMedio);
+            double pontuacao = peso * idf * tf * (K1 + 1) / (tf + normalizacao);
+            pontuacoes.merge(posting.getKey(), pontuacao, Double::sum);
+        }
+    }
+
+    private static double acumular(Map<String, Double> frequencias, String texto, double peso) {
+        List<String> termos = TextoBusca.tokenizar(texto);
+        for (String termo : termos) {
+            frequencias.merge(termo, peso, Double::sum);
+        }
+        return termos.size() * peso;
+    }
+}
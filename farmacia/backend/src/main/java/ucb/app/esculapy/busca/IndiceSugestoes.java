@@ -0,0 +1,371 @@
+package ucb.app.esculapy.busca;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ucb.app.esculapy.dto.SugestaoResponse;
+import ucb.app.esculapy.event.CatalogoImportadoEvent;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
+import ucb.app.esculapy.event.ProdutoCatalogoAlteradoEvent;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.ProdutoRepository;
+
+import java.util.*;
+
+/**
+ * Trie em memória para o autocompletar do catálogo, sobre os nomes dos produtos ativos e seus
+ * princípios ativos. Cada texto é inserido a partir de cada uma de suas palavras (sem acentos e em
+ * minúsculas), então "sod" sugere "Dipirona Sódica".
+ * Cada nó guarda em cache as {@value #TAMANHO_TOPO} melhores sugestões da sua subárvore, ordenadas
+ * pelo número de ofertas disponíveis; a consulta apenas percorre o prefixo, sem acessar o banco.
+ * Alterações no catálogo e no estoque atualizam somente os nós do caminho das sugestões afetadas.
+ */
+@Component
+@RequiredArgsConstructor
+public class IndiceSugestoes {
+
+    /** Número máximo de sugestões retornadas por consulta (e guardadas em cache por nó). */
+    public static final int TAMANHO_TOPO = 20;
+
+    private static final int COMPRIMENTO_MAXIMO_CHAVE = 32;
+    private static final int TAMANHO_LOTE_CARGA = 1000;
+    private static final String TIPO_PRODUTO = "PRODUTO";
+    private static final String TIPO_PRINCIPIO_ATIVO = "PRINCIPIO_ATIVO";
+
+    private static final Comparator<Sugestao> ORDEM = Comparator
+            .comparingInt((Sugestao s) -> -s.ofertas)
+            .thenComparing(s -> s.texto)
+            .thenComparing(s -> s.tipo)
+            .thenComparing(s -> s.produtoId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final ProdutoRepository produtoRepository;
+    private final EstoqueLojistaRepository estoqueLojistaRepository;
+
+    private No raiz = new No();
+    private final Map<Long, Sugestao> porProduto = new HashMap<>();
+    private final Map<String, Sugestao> porPrincipioAtivo = new HashMap<>();
+    private final Map<Long, Integer> ofertasPorProduto = new HashMap<>();
+
+    private static final class Sugestao {
+        final String texto;
+        final String tipo;
+        final Long produtoId;
+        final List<String> chaves;
+        /** Para produtos: a chave do princípio ativo; para princípios ativos: nulo. */
+        String principioAtivo;
+        /** Para princípios ativos: os produtos que o contêm. */
+        final Set<Long> produtos = new HashSet<>();
+        int ofertas;
+
+        Sugestao(String texto, String tipo, Long produtoId, int ofertas) {
+            this.texto = texto;
+            this.tipo = tipo;
+            this.produtoId = produtoId;
+            this.ofertas = ofertas;
+            this.chaves = chavesPara(texto);
+        }
+    }
+
+    private static final class No {
+        char[] rotulos = new char[0];
+        No[] filhos = new No[0];
+        List<Sugestao> terminais;
+        /** As melhores sugestões da subárvore; nulo quando precisa ser recalculado. */
+        List<Sugestao> topo;
+
+        No filho(char c) {
+            for (int i = 0; i < rotulos.length; i++) {
+                if (rotulos[i] == c) {
+                    return filhos[i];
+                }
+            }
+            return null;
+        }
+
+        No filhoOuNovo(char c) {
+            No filho = filho(c);
+            if (filho == null) {
+                filho = new No();
+                rotulos = Arrays.copyOf(rotulos, rotulos.length + 1);
+                filhos = Arrays.copyOf(filhos, filhos.length + 1);
+                rotulos[rotulos.length - 1] = c;
+                filhos[filhos.length - 1] = filho;
+            }
+            return filho;
+        }
+    }
+
+    /**
+     * Constrói a trie com todos os produtos ativos e a contagem atual de ofertas.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        Map<Long, Integer> ofertas = new HashMap<>();
+        estoqueLojistaRepository.contarOfertasDisponiveisPorProduto()
+                .forEach(o -> ofertas.put(o.getProdutoId(), o.getOfertas().intValue()));
+
+        synchronized (this) {
+            raiz = new No();
+            porProduto.clear();
+            porPrincipioAtivo.clear();
+            ofertasPorProduto.clear();
+            ofertasPorProduto.putAll(ofertas);
+        }
+
+        Page<Produto> pagina;
+        int numero = 0;
+        do {
+            pagina = produtoRepository.findAllByAtivoTrue(PageRequest.of(numero++, TAMANHO_LOTE_CARGA, Sort.by("id")));
+            synchronized (this) {
+                pagina.forEach(this::inserirProduto);
+            }
+        } while (pagina.hasNext());
+    }
+
+    /**
+     * Reconstrói a trie após uma importação em lote do catálogo.
+     *
+     * @param event O evento de importação.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogoImportado(CatalogoImportadoEvent event) {
+        construir();
+    }
+
+    /**
+     * Insere, atualiza ou remove o produto alterado, após o commit da alteração.
+     *
+     * @param event O evento de alteração do catálogo.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProdutoCatalogoAlterado(ProdutoCatalogoAlteradoEvent event) {
+        Long produtoId = event.produtoId();
+        Optional<Produto> produto = produtoRepository.findById(produtoId);
+        int ofertas = contarOfertas(List.of(produtoId)).getOrDefault(produtoId, 0);
+        synchronized (this) {
+            removerProduto(produtoId);
+            ofertasPorProduto.put(produtoId, ofertas);
+            if (produto.isPresent() && produto.get().isAtivo()) {
+                inserirProduto(produto.get());
+            }
+        }
+    }
+
+    /**
+     * Atualiza a contagem de ofertas dos produtos cujo estoque mudou, após o commit.
+     *
+     * @param event O evento de alteração de estoque.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEstoqueAlterado(EstoqueAlteradoEvent event) {
+        if (event.produtoIds().isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> ofertas = contarOfertas(event.produtoIds());
+        synchronized (this) {
+            for (Long produtoId : event.produtoIds()) {
+                atualizarOfertasProduto(produtoId, ofertas.getOrDefault(produtoId, 0));
+            }
+        }
+    }
+
+    /**
+     * Retorna as melhores sugestões para o prefixo digitado.
+     *
+     * @param prefixo O texto digitado (acentos e maiúsculas são ignorados).
+     * @param limite O número máximo de sugestões (até {@link #TAMANHO_TOPO}).
+     * @return As sugestões, da com mais ofertas para a com menos.
+     */
+    public synchronized List<SugestaoResponse> sugerir(String prefixo, int limite) {
+        String chave = String.join(" ", TextoBusca.tokenizar(prefixo));
+        if (chave.isEmpty()) {
+            return List.of();
+        }
+        No no = raiz;
+        for (int i = 0; i < chave.length() && i < COMPRIMENTO_MAXIMO_CHAVE && no != null; i++) {
+            no = no.filho(chave.charAt(i));
+        }
+        if (no == null) {
+            return List.of();
+        }
+        if (no.topo == null) {
+            no.topo = calcularTopo(no);
+        }
+        return no.topo.stream()
+                .limit(Math.min(limite, TAMANHO_TOPO))
+                .map(s -> new SugestaoResponse(s.texto, s.tipo, s.produtoId, s.ofertas))
+                .toList();
+    }
+
+    // ========================================================================
+    // --- Manutenção incremental (chamada com o monitor adquirido) ---
+    // ========================================================================
+
+    private void inserirProduto(Produto produto) {
+        int ofertas = ofertasPorProduto.getOrDefault(produto.getId(), 0);
+        Sugestao sugestao = new Sugestao(produto.getNome(), TIPO_PRODUTO, produto.getId(), ofertas);
+        porProduto.put(produto.getId(), sugestao);
+        inserir(sugestao);
+
+        String principioAtivo = String.join(" ", TextoBusca.tokenizar(produto.getPrincipioAtivo()));
+        if (!principioAtivo.isEmpty()) {
+            sugestao.principioAtivo = principioAtivo;
+            Sugestao doPrincipio = porPrincipioAtivo.get(principioAtivo);
+            if (doPrincipio == null) {
+                doPrincipio = new Sugestao(produto.getPrincipioAtivo().trim(), TIPO_PRINCIPIO_ATIVO, null, 0);
+                porPrincipioAtivo.put(principioAtivo, doPrincipio);
+                inserir(doPrincipio);
+            }
+            doPrincipio.produtos.add(produto.getId());
+            atualizarOfertas(doPrincipio, doPrincipio.ofertas + ofertas);
+        }
+    }
+
+    private void removerProduto(Long produtoId) {
+        Sugestao sugestao = porProduto.remove(produtoId);
+        if (sugestao == null) {
+            return;
+        }
+        remover(sugestao);
+        if (sugestao.principioAtivo != null) {
+            Sugestao doPrincipio = porPrincipioAtivo.get(sugestao.principioAtivo);
+            doPrincipio.produtos.remove(produtoId);
+            if (doPrincipio.produtos.isEmpty()) {
+                porPrincipioAtivo.remove(sugestao.principioAtivo);
+                remover(doPrincipio);
+            } else {
+                atualizarOfertas(doPrincipio, doPrincipio.ofertas - sugestao.ofertas);
+            }
+        }
+    }
+
+    private void atualizarOfertasProduto(Long produtoId, int ofertas) {
+        ofertasPorProduto.put(produtoId, ofertas);
+        Sugestao sugestao = porProduto.get(produtoId);
+        if (sugestao == null || sugestao.ofertas == ofertas) {
+            return;
+        }
+        int diferenca = ofertas - sugestao.ofertas;
+        atualizarOfertas(sugestao, ofertas);
+        if (sugestao.principioAtivo != null) {
+            Sugestao doPrincipio = porPrincipioAtivo.get(sugestao.principioAtivo);
+            atualizarOfertas(doPrincipio, doPrincipio.ofertas + diferenca);
+        }
+    }
+
+    private void inserir(Sugestao sugestao) {
+        for (String chave : sugestao.chaves) {
+            No no = raiz;
+            for (int i = 0; i < chave.length(); i++) {
+                no = no.filhoOuNovo(chave.charAt(i));
+                if (no.topo != null && !no.topo.contains(sugestao)) {
+                    no.topo.add(sugestao);
+                    no.topo.sort(ORDEM);
+                    if (no.topo.size() > TAMANHO_TOPO) {
+                        no.topo.remove(TAMANHO_TOPO);
+                    }
+                }
+            }
+            if (no.terminais == null) {
+                no.terminais = new ArrayList<>(1);
+            }
+            if (!no.terminais.contains(sugestao)) {
+                no.terminais.add(sugestao);
+            }
+        }
+    }
+
+    private void remover(Sugestao sugestao) {
+        for (String chave : sugestao.chaves) {
+            No no = raiz;
+            for (int i = 0; i < chave.length() && no != null; i++) {
+                no = no.filho(chave.charAt(i));
+                if (no != null && no.topo != null) {
+                    boolean estavaCheio = no.topo.size() == TAMANHO_TOPO;
+                    if (no.topo.remove(sugestao) && estavaCheio) {
+                        no.topo = null;
+                    }
+                }
+            }
+            if (no != null && no.terminais != null) {
+                no.terminais.remove(sugestao);
+            }
+        }
+    }
+
+    /**
+     * Altera a contagem de ofertas de uma sugestão, mantendo válidos os caches dos nós do caminho.
+     * O cache de um nó só é descartado quando a sugestão caiu para a última posição de um cache cheio,
+     * pois então uma sugestão fora do cache pode ter passado à frente.
+     */
+    private void atualizarOfertas(Sugestao sugestao, int ofertas) {
+        int anterior = sugestao.ofertas;
+        sugestao.ofertas = ofertas;
+        Set<No> visitados = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String chave : sugestao.chaves) {
+            No no = raiz;
+            for (int i = 0; i < chave.length() && no != null; i++) {
+                no = no.filho(chave.charAt(i));
+                if (no == null || no.topo == null || !visitados.add(no)) {
+                    continue;
+                }
+                List<Sugestao> topo = no.topo;
+                if (topo.contains(sugestao)) {
+                    topo.sort(ORDEM);
+                    boolean cheio = topo.size() == TAMANHO_TOPO;
+                    if (ofertas < anterior && cheio && topo.get(topo.size() - 1) == sugestao) {
+                        no.topo = null;
+                    }
+                } else if (ORDEM.compare(sugestao, topo.get(topo.size() - 1)) < 0) {
+                    topo.add(sugestao);
+                    topo.sort(ORDEM);
+                    topo.remove(topo.size() - 1);
+                }
+            }
+        }
+    }
+
+    private static List<Sugestao> calcularTopo(No no) {
+        Set<Sugestao> subarvore = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<No> pilha = new ArrayDeque<>();
+        pilha.push(no);
+        while (!pilha.isEmpty()) {
+            No atual = pilha.pop();
+            if (atual.terminais != null) {
+                subarvore.addAll(atual.terminais);
+            }
+            for (No filho : atual.filhos) {
+                pilha.push(filho);
+            }
+        }
+        List<Sugestao> topo = new ArrayList<>(subarvore);
+        topo.sort(ORDEM);
+        return new ArrayList<>(topo.subList(0, Math.min(TAMANHO_TOPO, topo.size())));
+    }
+
+    private Map<Long, Integer> contarOfertas(Collection<Long> produtoIds) {
+        Map<Long, Integer> ofertas = new HashMap<>();
+        estoqueLojistaRepository.contarOfertasDisponiveisPorProduto(produtoIds)
+                .forEach(o -> ofertas.put(o.getProdutoId(), o.getOfertas().intValue()));
+        return ofertas;
+    }
+
+    /**
+     * Gera as chaves de um texto: o texto normalizado a partir de cada palavra, limitado em tamanho.
+     */
+    private static List<String> chavesPara(String texto) {
+        List<String> termos = TextoBusca.tokenizar(texto);
+        Set<String> chaves = new LinkedHashSet<>();
+        for (int i = 0; i < termos.size(); i++) {
+            String chave = String.join(" ", termos.subList(i, termos.size()));
+            chaves.add(chave.length() > COMPRIMENTO_MAXIMO_CHAVE ? chave.substring(0, COMPRIMENTO_MAXIMO_CHAVE) : chave);
+        }
+        return List.copyOf(chaves);
+    }
+}
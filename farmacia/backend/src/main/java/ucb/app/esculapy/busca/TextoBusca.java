@@ -0,0 +1,50 @@
+package ucb.app.esculapy.busca;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalização de texto para os índices de busca em memória: remove acentos
+ * (ex: "Dipirona Sódica" → "dipirona sodica"), converte para minúsculas e separa em termos.
+ */
+public final class TextoBusca {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{Alnum}]+");
+
+    private TextoBusca() {
+    }
+
+    /**
+     * Remove acentos e converte o texto para minúsculas.
+     *
+     * @param texto O texto original (pode ser nulo).
+     * @return O texto normalizado (vazio se nulo).
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String semAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return semAcentos.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Normaliza o texto e o separa em termos alfanuméricos.
+     *
+     * @param texto O texto original (pode ser nulo).
+     * @return A lista de termos, na ordem em que aparecem.
+     */
+    public static List<String> tokenizar(String texto) {
+        List<String> termos = new ArrayList<>();
+        for (String termo : SEPARADORES.split(normalizar(texto))) {
+            if (!termo.isEmpty()) {
+                termos.add(termo);
+            }
+        }
+        return termos;
+    }
+}
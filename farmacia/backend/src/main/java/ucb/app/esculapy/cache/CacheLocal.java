@@ -0,0 +1,176 @@
+package ucb.app.esculapy.cache;
+
+import ucb.app.esculapy.dto.CacheEstatisticasResponse;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cache em memória, limitado por tamanho (LRU) e por tempo de vida (TTL), para dados lidos com
+ * muito mais frequência do que são alterados. Registra acertos, faltas e remoções para monitoramento.
+ * Quem usa o cache é responsável por invalidar as entradas quando o dado de origem muda.
+ *
+ * @param <K> O tipo da chave.
+ * @param <V> O tipo do valor.
+ */
+public class CacheLocal<K, V> {
+
+    private final String nome;
+    private final int tamanhoMaximo;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entrada<V>> entradas;
+
+    private final AtomicLong acertos = new AtomicLong();
+    private final AtomicLong faltas = new AtomicLong();
+    private final AtomicLong remocoes = new AtomicLong();
+
+    /** Incrementada a cada invalidação; impede que um carregamento iniciado antes dela repovoe o cache. */
+    private long geracao;
+
+    private record Entrada<V>(V valor, long expiraEm) {
+    }
+
+    /**
+     * Cria um cache vazio.
+     *
+     * @param nome O nome do cache (usado nas estatísticas e nos logs).
+     * @param tamanhoMaximo O número máximo de entradas; a menos usada recentemente é removida ao exceder.
+     * @param ttl O tempo de vida de cada entrada.
+     */
+    public CacheLocal(String nome, int tamanhoMaximo, Duration ttl) {
+        this.nome = nome;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.ttlNanos = ttl.toNanos();
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entrada<V>> maisAntiga) {
+                if (size() > CacheLocal.this.tamanhoMaximo) {
+                    remocoes.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Retorna o valor em cache ou, na ausência (ou expiração), carrega-o e o armazena.
+     * Valores nulos retornados pelo carregador não são armazenados.
+     * O carregador roda fora do lock, então duas threads podem carregar a mesma chave ao mesmo tempo.
+     * Se houver uma invalidação durante o carregamento, o valor é retornado mas não armazenado.
+     *
+     * @param chave A chave.
+     * @param carregador A função que busca o valor na origem.
+     * @return O valor (possivelmente nulo).
+     */
+    public V get(K chave, Function<K, V> carregador) {
+        V valor = getSePresente(chave);
+        if (valor != null) {
+            return valor;
+        }
+        long geracaoInicial;
+        synchronized (entradas) {
+            geracaoInicial = geracao;
+        }
+        valor = carregador.apply(chave);
+        if (valor != null) {
+            synchronized (entradas) {
+                if (geracao == geracaoInicial) {
+                    entradas.put(chave, new Entrada<>(valor, System.nanoTime() + ttlNanos));
+                }
+            }
+        }
+        return valor;
+    }
+
+    /**
+     * Retorna o valor em cache, sem carregar da origem.
+     *
+     * @param chave A chave.
+     * @return O valor, ou nulo se ausente ou expirado.
+     */
+    public V getSePresente(K chave) {
+        synchronized (entradas) {
+            Entrada<V> entrada = entradas.get(chave);
+            if (entrada != null && entrada.expiraEm() - System.nanoTime() > 0) {
+                acertos.incrementAndGet();
+                return entrada.valor();
+            }
+            if (entrada != null) {
+                entradas.remove(chave);
+                remocoes.incrementAndGet();
+            }
+        }
+        faltas.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Armazena um valor no cache.
+     *
+     * @param chave A chave.
+     * @param valor O valor (não nulo).
+     */
+    public void put(K chave, V valor) {
+        synchronized (entradas) {
+            entradas.put(chave, new Entrada<>(valor, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    /**
+     * Remove uma entrada do cache.
+     *
+     * @param chave A chave a ser invalidada.
+     */
+    public void invalidar(K chave) {
+        synchronized (entradas) {
+            entradas.remove(chave);
+            geracao++;
+        }
+    }
+
+    /**
+     * Remove todas as entradas cujo valor satisfaz o predicado.
+     *
+     * @param predicado O critério de remoção.
+     */
+    public void invalidarSe(Predicate<V> predicado) {
+        synchronized (entradas) {
+            Iterator<Entrada<V>> it = entradas.values().iterator();
+            while (it.hasNext()) {
+                if (predicado.test(it.next().valor())) {
+                    it.remove();
+                }
+            }
+            geracao++;
+        }
+    }
+
+    /**
+     * Remove todas as entradas do cache.
+     */
+    public void invalidarTudo() {
+        synchronized (entradas) {
+            entradas.clear();
+            geracao++;
+        }
+    }
+
+    /**
+     * Retorna um retrato das estatísticas de uso do cache.
+     *
+     * @return O DTO {@link CacheEstatisticasResponse}.
+     */
+    public CacheEstatisticasResponse getEstatisticas() {
+        int tamanho;
+        synchronized (entradas) {
+            tamanho = entradas.size();
+        }
+        return new CacheEstatisticasResponse(nome, tamanho, tamanhoMaximo, acertos.get(), faltas.get(), remocoes.get());
+    }
+}
@@ -0,0 +1,136 @@
+package ucb.app.esculapy.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ucb.app.esculapy.dto.CacheEstatisticasResponse;
+import ucb.app.esculapy.event.CatalogoImportadoEvent;
+import ucb.app.esculapy.event.ProdutoCatalogoAlteradoEvent;
+import ucb.app.esculapy.model.Produto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Caches de leitura do catálogo mestre: produtos por ID, páginas do catálogo público e
+ * IDs de produto por EAN (usado pela sincronização de estoque das farmácias).
+ * A invalidação acontece somente após o commit das alterações feitas pelo admin
+ * (evento {@link ProdutoCatalogoAlteradoEvent}), para que uma leitura concorrente não
+ * repovoe o cache com a versão anterior do produto.
+ */
+@Component
+public class CatalogoCache {
+
+    private final CacheLocal<Long, Produto> produtos;
+    private final CacheLocal<Pageable, Page<Produto>> paginas;
+    private final CacheLocal<String, Long> produtoIdsPorEan;
+
+    public CatalogoCache(
+            @Value("${catalogo.cache.produtos.tamanho-maximo:5000}") int tamanhoMaximoProdutos,
+            @Value("${catalogo.cache.paginas.tamanho-maximo:500}") int tamanhoMaximoPaginas,
+            @Value("${catalogo.cache.eans.tamanho-maximo:100000}") int tamanhoMaximoEans,
+            @Value("${catalogo.cache.ttl-segundos:300}") long ttlSegundos
+    ) {
+        Duration ttl = Duration.ofSeconds(ttlSegundos);
+        this.produtos = new CacheLocal<>("catalogo.produtos", tamanhoMaximoProdutos, ttl);
+        this.paginas = new CacheLocal<>("catalogo.paginas", tamanhoMaximoPaginas, ttl);
+        this.produtoIdsPorEan = new CacheLocal<>("catalogo.eans", tamanhoMaximoEans, ttl);
+    }
+
+    /**
+     * Busca um produto no cache, carregando-o da origem na ausência.
+     *
+     * @param id O ID do produto.
+     * @param carregador A função que busca o produto no banco (retorna nulo se não existir).
+     * @return O produto, ou nulo se não existir.
+     */
+    public Produto getProduto(Long id, Function<Long, Produto> carregador) {
+        return produtos.get(id, carregador);
+    }
+
+    /**
+     * Busca uma página do catálogo público no cache, carregando-a da origem na ausência.
+     *
+     * @param pageable A página solicitada (número, tamanho e ordenação).
+     * @param carregador A função que busca a página no banco.
+     * @return A página do catálogo.
+     */
+    public Page<Produto> getPagina(Pageable pageable, Function<Pageable, Page<Produto>> carregador) {
+        return paginas.get(pageable, carregador);
+    }
+
+    /**
+     * Resolve EANs para IDs de produto, buscando na origem, em uma única chamada, apenas os ausentes do cache.
+     *
+     * @param eans Os EANs a resolver.
+     * @param carregador A função que busca no banco o ID de cada EAN (EANs desconhecidos ficam fora do mapa).
+     * @return Mapa de EAN para ID do produto, apenas com os EANs existentes.
+     */
+    public Map<String, Long> getProdutoIdsPorEan(Collection<String> eans, Function<Collection<String>, Map<String, Long>> carregador) {
+        Map<String, Long> ids = new HashMap<>();
+        List<String> ausentes = new ArrayList<>();
+        for (String ean : eans) {
+            Long id = produtoIdsPorEan.getSePresente(ean);
+            if (id != null) {
+                ids.put(ean, id);
+            } else {
+                ausentes.add(ean);
+            }
+        }
+        if (!ausentes.isEmpty()) {
+            carregador.apply(ausentes).forEach((ean, id) -> {
+                produtoIdsPorEan.put(ean, id);
+                ids.put(ean, id);
+            });
+        }
+        return ids;
+    }
+
+    /**
+     * Retorna as estatísticas dos caches do catálogo.
+     *
+     * @return Uma lista com as estatísticas de cada cache.
+     */
+    public List<CacheEstatisticasResponse> getEstatisticas() {
+        return List.of(produtos.getEstatisticas(), paginas.getEstatisticas(), produtoIdsPorEan.getEstatisticas());
+    }
+
+    /**
+     * Invalida as entradas afetadas por uma alteração no catálogo, após o commit.
+     * Alterações que mudam a listagem invalidam todas as páginas (a paginação se desloca);
+     * as demais invalidam apenas as páginas que contêm o produto.
+     *
+     * @param event O evento de alteração.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProdutoCatalogoAlterado(ProdutoCatalogoAlteradoEvent event) {
+        produtos.invalidar(event.produtoId());
+        produtoIdsPorEan.invalidarSe(id -> Objects.equals(id, event.produtoId()));
+        if (event.alteraListagem()) {
+            paginas.invalidarTudo();
+        } else {
+            paginas.invalidarSe(pagina -> pagina.getContent().stream()
+                    .anyMatch(p -> Objects.equals(p.getId(), event.produtoId())));
+        }
+    }
+
+    /**
+     * Descarta todo o cache após uma importação em lote do catálogo.
+     *
+     * @param event O evento de importação.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCatalogoImportado(CatalogoImportadoEvent event) {
+        produtos.invalidarTudo();
+        paginas.invalidarTudo();
+        produtoIdsPorEan.invalidarTudo();
+    }
+}
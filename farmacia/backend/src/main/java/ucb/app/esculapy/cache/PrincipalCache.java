@@ -0,0 +1,84 @@
+package ucb.app.esculapy.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ucb.app.esculapy.dto.CacheEstatisticasResponse;
+import ucb.app.esculapy.event.UsuarioAlteradoEvent;
+import ucb.app.esculapy.model.Usuario;
+import ucb.app.esculapy.security.jwt.UsuarioAutenticado;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Cache dos usuários autenticados pelo {@link ucb.app.esculapy.security.jwt.JwtAuthenticationFilter},
+ * evitando a consulta com JOIN de roles e perfis a cada requisição.
+ * Guarda apenas um retrato imutável ({@link UsuarioAutenticado}: ID, roles, habilitação e IDs dos perfis),
+ * nunca a entidade: as requisições que compartilham a entrada não enxergam alterações umas das outras,
+ * e quem precisa alterar o usuário ou um perfil carrega a entidade gerenciada pelo ID.
+ * A chave é o par (ID do usuário, instante de emissão do token): um novo login gera uma nova entrada.
+ * As entradas de um usuário são removidas após o commit de qualquer alteração publicada
+ * via {@link UsuarioAlteradoEvent}; o TTL curto limita a defasagem de alterações não sinalizadas.
+ */
+@Component
+public class PrincipalCache {
+
+    /**
+     * Chave do cache.
+     *
+     * @param usuarioId O ID do usuário (claim "userId" do token).
+     * @param emitidoEm O instante de emissão do token, em milissegundos.
+     */
+    public record Chave(Long usuarioId, long emitidoEm) {
+    }
+
+    private final CacheLocal<Chave, UsuarioAutenticado> usuarios;
+
+    public PrincipalCache(
+            @Value("${auth.cache.tamanho-maximo:10000}") int tamanhoMaximo,
+            @Value("${auth.cache.ttl-segundos:60}") long ttlSegundos
+    ) {
+        this.usuarios = new CacheLocal<>("auth.principais", tamanhoMaximo, Duration.ofSeconds(ttlSegundos));
+    }
+
+    /**
+     * Busca o retrato do usuário autenticado no cache, carregando o usuário da origem na ausência.
+     *
+     * @param chave A chave (usuário, emissão do token).
+     * @param carregador A função que carrega o usuário do banco, com roles e perfis.
+     * @return O retrato do usuário.
+     */
+    public UsuarioAutenticado get(Chave chave, Supplier<Usuario> carregador) {
+        return usuarios.get(chave, c -> new UsuarioAutenticado(carregador.get()));
+    }
+
+    /**
+     * Remove todas as entradas de um usuário.
+     *
+     * @param usuarioId O ID do usuário.
+     */
+    public void invalidar(Long usuarioId) {
+        usuarios.invalidarSe(usuario -> Objects.equals(usuario.getUserId(), usuarioId));
+    }
+
+    /**
+     * Retorna as estatísticas de uso do cache.
+     *
+     * @return O DTO {@link CacheEstatisticasResponse}.
+     */
+    public CacheEstatisticasResponse getEstatisticas() {
+        return usuarios.getEstatisticas();
+    }
+
+    /**
+     * Invalida as entradas do usuário alterado, após o commit da alteração.
+     *
+     * @param event O evento de alteração.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUsuarioAlterado(UsuarioAlteradoEvent event) {
+        invalidar(event.usuarioId());
+    }
+}
@@ -6,8 +6,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import ucb.app.esculapy.dto.ApiResponse;
+import ucb.app.esculapy.dto.OutboxEstatisticasResponse;
 import ucb.app.esculapy.model.Farmacia;
 import ucb.app.esculapy.model.Usuario;
+import ucb.app.esculapy.outbox.RelayOutbox;
 import ucb.app.esculapy.service.AdminService;
 
 /**
@@ -22,6 +24,7 @@ import ucb.app.esculapy.service.AdminService;
 public class AdminController {
 
     private final AdminService adminService;
+    private final RelayOutbox relayOutbox;
 
     /**
      * Obtém uma lista paginada de farmácias com base no status (ex: PENDENTE, ATIVA, SUSPENSA).
@@ -107,4 +110,15 @@ public class AdminController {
         Usuario usuario = adminService.setUsuarioEnabled(id, true);
         return ApiResponse.success(usuario);
     }
-}
\ No newline at end of file
+
+    /**
+     * Retorna as estatísticas de entrega dos eventos de pedidos aos consumidores externos
+     * (pendentes, atraso do mais antigo, entregues e falhas).
+     *
+     * @return Uma resposta de API contendo o {@link OutboxEstatisticasResponse}.
+     */
+    @GetMapping("/outbox/estatisticas")
+    public ApiResponse<OutboxEstatisticasResponse> getEstatisticasOutbox() {
+        return ApiResponse.success(relayOutbox.getEstatisticas());
+    }
+}
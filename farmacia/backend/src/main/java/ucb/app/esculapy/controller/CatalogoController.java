@@ -3,13 +3,26 @@ package ucb.app.esculapy.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ucb.app.esculapy.dto.ApiResponse;
+import ucb.app.esculapy.dto.CatalogoFacetadoResponse;
+import ucb.app.esculapy.dto.SugestaoResponse;
 import ucb.app.esculapy.model.Produto;
 import ucb.app.esculapy.service.CatalogoService;
+import ucb.app.esculapy.service.ExportacaoService;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Controlador REST para endpoints públicos relacionados ao catálogo de produtos.
@@ -21,6 +34,7 @@ import ucb.app.esculapy.service.CatalogoService;
 public class CatalogoController {
 
     private final CatalogoService catalogoService;
+    private final ExportacaoService exportacaoService;
 
     /**
      * Obtém o catálogo completo de produtos ativos, com suporte a paginação.
@@ -34,6 +48,30 @@ public class CatalogoController {
         return ApiResponse.success(catalogo);
     }
 
+    /**
+     * Lista o catálogo de produtos ativos filtrado por facetas, com as contagens de cada faceta
+     * para montar os filtros da página.
+     *
+     * @param tipoProduto O tipo de produto (opcional).
+     * @param tipoReceita O tipo de receita (opcional).
+     * @param laboratorio O laboratório (opcional).
+     * @param emEstoque Filtra produtos com (true) ou sem (false) ofertas disponíveis (opcional).
+     * @param pageable As informações de paginação.
+     * @return Uma resposta de API contendo o {@link CatalogoFacetadoResponse}.
+     */
+    @GetMapping("/filtro")
+    public ApiResponse<CatalogoFacetadoResponse> getCatalogoFiltrado(
+            @RequestParam(required = false) String tipoProduto,
+            @RequestParam(required = false) String tipoReceita,
+            @RequestParam(required = false) String laboratorio,
+            @RequestParam(required = false) Boolean emEstoque,
+            Pageable pageable
+    ) {
+        CatalogoFacetadoResponse catalogo = catalogoService.getCatalogoFiltrado(
+                tipoProduto, tipoReceita, laboratorio, emEstoque, pageable);
+        return ApiResponse.success(catalogo);
+    }
+
     /**
      * Obtém os detalhes de um produto específico do catálogo por seu ID.
      *
@@ -45,4 +83,41 @@ public class CatalogoController {
         Produto produto = catalogoService.getProdutoDoCatalogoPorId(id);
         return ApiResponse.success(produto);
     }
-}
\ No newline at end of file
+
+    /**
+     * Sugestões de autocompletar (produtos e princípios ativos) para o texto digitado.
+     *
+     * @param q O prefixo digitado.
+     * @param limite O número máximo de sugestões (opcional).
+     * @return Uma resposta de API contendo a lista de {@link SugestaoResponse}.
+     */
+    @GetMapping("/sugestoes")
+    public ApiResponse<List<SugestaoResponse>> getSugestoes(@RequestParam String q,
+                                                            @RequestParam(required = false) Integer limite) {
+        return ApiResponse.success(catalogoService.getSugestoes(q, limite));
+    }
+
+    /**
+     * Exporta o catálogo em NDJSON (um produto por linha), em streaming, para parceiros e indexadores.
+     * O cabeçalho {@code X-Proximo-Desde} traz o valor de {@code desde} para a próxima exportação incremental.
+     *
+     * @param desde Exporta apenas os produtos alterados a partir desta data, inclusive os desativados e os excluídos (opcional).
+     * @param acceptEncoding O cabeçalho Accept-Encoding; a resposta é comprimida se aceitar gzip.
+     * @return O corpo NDJSON escrito à medida que é lido do banco.
+     */
+    @GetMapping(value = "/exportacao", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarCatalogo(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header("X-Proximo-Desde", exportacaoService.getProximoDesde().toString());
+        if (gzip) {
+            resposta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return resposta.body(saida -> exportacaoService.exportarCatalogo(desde, gzip, saida));
+    }
+}
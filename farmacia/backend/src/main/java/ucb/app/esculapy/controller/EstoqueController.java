@@ -3,11 +3,22 @@ package ucb.app.esculapy.controller;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ucb.app.esculapy.dto.ApiResponse;
+import ucb.app.esculapy.dto.CursorPage;
 import ucb.app.esculapy.dto.EstoqueResponse;
+import ucb.app.esculapy.dto.OfertaProximaResponse;
 import ucb.app.esculapy.model.EstoqueLojista;
 import ucb.app.esculapy.service.CatalogoService;
+import ucb.app.esculapy.service.ExportacaoService;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * Controlador REST para endpoints públicos relacionados a itens de estoque.
@@ -19,9 +30,11 @@ import ucb.app.esculapy.service.CatalogoService;
 public class EstoqueController {
 
     private final CatalogoService catalogoService;
+    private final ExportacaoService exportacaoService;
 
     /**
-     * Busca itens de estoque pelo nome do produto, com suporte a paginação.
+     * Busca itens de estoque pelo nome, princípio ativo ou laboratório do produto (sem diferenciar acentos),
+     * ordenados por relevância, com suporte a paginação.
      *
      * @param nome O nome do produto a ser buscado.
      * @param pageable As informações de paginação.
@@ -46,6 +59,44 @@ public class EstoqueController {
         return ApiResponse.success(estoques);
     }
 
+    /**
+     * Obtém as ofertas de um produto nas farmácias mais próximas de um ponto, da mais próxima para a mais distante.
+     *
+     * @param catalogoId O ID do produto no catálogo.
+     * @param lat A latitude do ponto de referência.
+     * @param lon A longitude do ponto de referência.
+     * @param raioKm O raio da busca, em quilômetros (opcional).
+     * @param limite O número máximo de ofertas (opcional).
+     * @return Uma resposta de API contendo a lista de objetos {@link OfertaProximaResponse}.
+     */
+    @GetMapping("/buscar-por-catalogo/{catalogoId}/proximas")
+    public ApiResponse<List<OfertaProximaResponse>> getEstoqueProximoParaProduto(
+            @PathVariable Long catalogoId,
+            @RequestParam Double lat,
+            @RequestParam Double lon,
+            @RequestParam(required = false) Double raioKm,
+            @RequestParam(required = false) Integer limite
+    ) {
+        List<OfertaProximaResponse> ofertas = catalogoService.buscarEstoquePorProximidade(catalogoId, lat, lon, raioKm, limite);
+        return ApiResponse.success(ofertas);
+    }
+
+    /**
+     * Obtém ofertas mais baratas de produtos equivalentes (genéricos): mesmo princípio ativo e mesmo tipo de receita.
+     *
+     * @param catalogoId O ID do produto no catálogo.
+     * @param limite O número máximo de ofertas (opcional).
+     * @return Uma resposta de API contendo a lista de objetos {@link EstoqueResponse}, da mais barata para a mais cara.
+     */
+    @GetMapping("/buscar-por-catalogo/{catalogoId}/equivalentes")
+    public ApiResponse<List<EstoqueResponse>> getEquivalentesMaisBaratos(
+            @PathVariable Long catalogoId,
+            @RequestParam(required = false) Integer limite
+    ) {
+        List<EstoqueResponse> estoques = catalogoService.getEquivalentesMaisBaratos(catalogoId, limite);
+        return ApiResponse.success(estoques);
+    }
+
     /**
      * Obtém o estoque disponível de uma farmácia específica, acessível publicamente, com suporte a paginação.
      *
@@ -59,6 +110,24 @@ public class EstoqueController {
         return ApiResponse.success(estoque);
     }
 
+    /**
+     * Obtém por cursor o estoque disponível de uma farmácia específica, acessível publicamente.
+     *
+     * @param farmaciaId O ID da farmácia.
+     * @param cursor O cursor retornado pela página anterior (omitido na primeira página).
+     * @param tamanho O tamanho da página.
+     * @return Uma resposta de API contendo uma {@link CursorPage} de objetos {@link EstoqueLojista}.
+     */
+    @GetMapping("/farmacia/{farmaciaId}/cursor")
+    public ApiResponse<CursorPage<EstoqueLojista>> getEstoqueDaFarmaciaPorCursor(
+            @PathVariable Long farmaciaId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanho
+    ) {
+        CursorPage<EstoqueLojista> estoque = catalogoService.getEstoquePublicoDaFarmacia(farmaciaId, cursor, tamanho);
+        return ApiResponse.success(estoque);
+    }
+
     /**
      * Obtém os detalhes de um item de estoque específico por seu ID, acessível publicamente.
      *
@@ -70,4 +139,30 @@ public class EstoqueController {
         EstoqueLojista estoque = catalogoService.getEstoquePublicoPorId(estoqueId);
         return ApiResponse.success(estoque);
     }
-}
\ No newline at end of file
+
+    /**
+     * Exporta as ofertas em NDJSON (um item de estoque por linha), em streaming, para parceiros e indexadores.
+     * O cabeçalho {@code X-Proximo-Desde} traz o valor de {@code desde} para a próxima exportação incremental.
+     *
+     * @param desde Exporta apenas os itens alterados a partir desta data, inclusive os indisponíveis e os excluídos (opcional).
+     * @param farmaciaId Restringe a exportação a uma farmácia (opcional).
+     * @param acceptEncoding O cabeçalho Accept-Encoding; a resposta é comprimida se aceitar gzip.
+     * @return O corpo NDJSON escrito à medida que é lido do banco.
+     */
+    @GetMapping(value = "/exportacao", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarOfertas(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) Long farmaciaId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header("X-Proximo-Desde", exportacaoService.getProximoDesde().toString());
+        if (gzip) {
+            resposta.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return resposta.body(saida -> exportacaoService.exportarOfertas(desde, farmaciaId, gzip, saida));
+    }
+}
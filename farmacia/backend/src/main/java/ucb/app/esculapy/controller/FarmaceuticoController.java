@@ -4,11 +4,16 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ucb.app.esculapy.dto.ApiResponse;
+import ucb.app.esculapy.dto.CursorPage;
+import ucb.app.esculapy.dto.PedidoDetalheResponse;
+import ucb.app.esculapy.dto.PedidoResumoResponse;
 import ucb.app.esculapy.dto.ValidacaoReceitaRequest;
-import ucb.app.esculapy.model.Pedido;
+import ucb.app.esculapy.service.NotificacaoPedidoService;
 import ucb.app.esculapy.service.PedidoService;
 
 /**
@@ -23,28 +28,56 @@ import ucb.app.esculapy.service.PedidoService;
 public class FarmaceuticoController {
 
     private final PedidoService pedidoService;
+    private final NotificacaoPedidoService notificacaoPedidoService;
 
     /**
      * Lista os pedidos que estão pendentes de validação de receita pelo farmacêutico logado.
      *
      * @param pageable As informações de paginação.
-     * @return Uma resposta de API contendo uma página de objetos {@link Pedido}.
+     * @return Uma resposta de API contendo uma página de {@link PedidoResumoResponse}.
      */
     @GetMapping("/pedidos/pendentes")
-    public ApiResponse<Page<Pedido>> getPedidosPendentes(Pageable pageable) {
-        Page<Pedido> pedidos = pedidoService.getPedidosPendentesFarmaceutico(pageable);
+    public ApiResponse<Page<PedidoResumoResponse>> getPedidosPendentes(Pageable pageable) {
+        Page<PedidoResumoResponse> pedidos = pedidoService.getPedidosPendentesFarmaceutico(pageable);
         return ApiResponse.success(pedidos);
     }
 
+    /**
+     * Lista por cursor os pedidos pendentes do farmacêutico logado, do mais recente para o mais antigo.
+     *
+     * @param cursor O cursor retornado pela página anterior (omitido na primeira página).
+     * @param tamanho O tamanho da página.
+     * @return Uma resposta de API contendo uma {@link CursorPage} de {@link PedidoResumoResponse}.
+     */
+    @GetMapping("/pedidos/pendentes/cursor")
+    public ApiResponse<CursorPage<PedidoResumoResponse>> getPedidosPendentesPorCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanho
+    ) {
+        CursorPage<PedidoResumoResponse> pedidos = pedidoService.getPedidosPendentesFarmaceutico(cursor, tamanho);
+        return ApiResponse.success(pedidos);
+    }
+
+    /**
+     * Assina, por Server-Sent Events, as notificações de pedidos da farmácia do farmacêutico logado
+     * (pedido-criado, pedido-pago e receita-anexada), no lugar da consulta periódica dos pendentes.
+     *
+     * @return O {@link SseEmitter} da conexão.
+     */
+    @GetMapping(value = "/pedidos/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter assinarEventosDePedidos() {
+        return notificacaoPedidoService.assinarComoFarmaceutico();
+    }
+
     /**
      * Obtém os detalhes de um pedido específico para o farmacêutico.
      *
      * @param pedidoId O ID do pedido.
-     * @return Uma resposta de API contendo o objeto {@link Pedido}.
+     * @return Uma resposta de API contendo o {@link PedidoDetalheResponse}.
      */
     @GetMapping("/pedidos/{pedidoId}")
-    public ApiResponse<Pedido> getPedidoDetalhes(@PathVariable Long pedidoId) {
-        Pedido pedido = pedidoService.getPedidoDetalhesFarmaceutico(pedidoId);
+    public ApiResponse<PedidoDetalheResponse> getPedidoDetalhes(@PathVariable Long pedidoId) {
+        PedidoDetalheResponse pedido = pedidoService.getPedidoDetalhesFarmaceutico(pedidoId);
         return ApiResponse.success(pedido);
     }
 
@@ -52,11 +85,11 @@ public class FarmaceuticoController {
      * Aprova a receita médica associada a um pedido, permitindo que o pedido prossiga.
      *
      * @param pedidoId O ID do pedido cuja receita será aprovada.
-     * @return Uma resposta de API contendo o objeto {@link Pedido} atualizado.
+     * @return Uma resposta de API contendo o {@link PedidoDetalheResponse} atualizado.
      */
     @PostMapping("/pedidos/{pedidoId}/receita/aprovar")
-    public ApiResponse<Pedido> aprovarReceita(@PathVariable Long pedidoId) {
-        Pedido pedido = pedidoService.aprovarReceita(pedidoId);
+    public ApiResponse<PedidoDetalheResponse> aprovarReceita(@PathVariable Long pedidoId) {
+        PedidoDetalheResponse pedido = pedidoService.aprovarReceita(pedidoId);
         return ApiResponse.success(pedido);
     }
 
@@ -65,14 +98,14 @@ public class FarmaceuticoController {
      *
      * @param pedidoId O ID do pedido cuja receita será rejeitada.
      * @param request O DTO contendo a justificativa da rejeição.
-     * @return Uma resposta de API contendo o objeto {@link Pedido} atualizado.
+     * @return Uma resposta de API contendo o {@link PedidoDetalheResponse} atualizado.
      */
     @PostMapping("/pedidos/{pedidoId}/receita/rejeitar")
-    public ApiResponse<Pedido> rejeitarReceita(
+    public ApiResponse<PedidoDetalheResponse> rejeitarReceita(
             @PathVariable Long pedidoId,
             @Valid @RequestBody ValidacaoReceitaRequest request
     ) {
-        Pedido pedido = pedidoService.rejeitarReceita(pedidoId, request.getJustificativa());
+        PedidoDetalheResponse pedido = pedidoService.rejeitarReceita(pedidoId, request.getJustificativa());
         return ApiResponse.success(pedido);
     }
 }
\ No newline at end of file
@@ -4,13 +4,19 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ucb.app.esculapy.dto.*;
 import ucb.app.esculapy.model.*;
 import ucb.app.esculapy.service.CatalogoService;
 import ucb.app.esculapy.service.FarmaciaService;
+import ucb.app.esculapy.service.NotificacaoPedidoService;
 import ucb.app.esculapy.service.PedidoService;
+import ucb.app.esculapy.service.SincronizacaoEstoqueService;
+
+import java.io.InputStream;
 
 /**
  * Controlador REST para o administrador de uma farmácia (lojista).
@@ -26,6 +32,8 @@ public class FarmaciaAdminController {
     private final FarmaciaService farmaciaService;
     private final CatalogoService catalogoService;
     private final PedidoService pedidoService;
+    private final NotificacaoPedidoService notificacaoPedidoService;
+    private final SincronizacaoEstoqueService sincronizacaoEstoqueService;
 
     /**
      * Obtém os detalhes completos da farmácia administrada pelo usuário logado.
@@ -165,6 +173,31 @@ public class FarmaciaAdminController {
         return ApiResponse.success(novoItem);
     }
 
+    /**
+     * Sincroniza em lote o estoque da farmácia a partir de um array JSON de itens (ean, preco, quantidade, ativo).
+     * O corpo é lido em streaming; itens inválidos são reportados no resumo sem interromper os demais.
+     *
+     * @param corpo O corpo da requisição.
+     * @return Uma resposta de API contendo o resumo {@link SincronizacaoEstoqueResponse}.
+     */
+    @PostMapping(value = "/estoque/sincronizacao", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ApiResponse<SincronizacaoEstoqueResponse> sincronizarEstoque(InputStream corpo) {
+        SincronizacaoEstoqueResponse resumo = sincronizacaoEstoqueService.sincronizarJson(corpo);
+        return ApiResponse.success(resumo);
+    }
+
+    /**
+     * Sincroniza em lote o estoque da farmácia a partir de um feed NDJSON (um item JSON por linha).
+     *
+     * @param corpo O corpo da requisição.
+     * @return Uma resposta de API contendo o resumo {@link SincronizacaoEstoqueResponse}.
+     */
+    @PostMapping(value = "/estoque/sincronizacao", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ApiResponse<SincronizacaoEstoqueResponse> sincronizarEstoqueNdjson(InputStream corpo) {
+        SincronizacaoEstoqueResponse resumo = sincronizacaoEstoqueService.sincronizarNdjson(corpo);
+        return ApiResponse.success(resumo);
+    }
+
     /**
      * Lista o estoque privado (completo) da farmácia logada, com suporte a paginação.
      *
@@ -177,6 +210,22 @@ public class FarmaciaAdminController {
         return ApiResponse.success(estoque);
     }
 
+    /**
+     * Lista por cursor o estoque privado (completo) da farmácia logada, em ordem de ID.
+     *
+     * @param cursor O cursor retornado pela página anterior (omitido na primeira página).
+     * @param tamanho O tamanho da página.
+     * @return Uma resposta de API contendo uma {@link CursorPage} de objetos {@link EstoqueLojista}.
+     */
+    @GetMapping("/estoque/cursor")
+    public ApiResponse<CursorPage<EstoqueLojista>> getEstoqueDaFarmaciaPorCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanho
+    ) {
+        CursorPage<EstoqueLojista> estoque = catalogoService.getEstoquePrivadoDaFarmaciaLogada(cursor, tamanho);
+        return ApiResponse.success(estoque);
+    }
+
     /**
      * Atualiza um item de estoque existente.
      *
@@ -228,27 +277,67 @@ public class FarmaciaAdminController {
         return ApiResponse.success(item);
     }
 
+    /**
+     * Liga, ajusta ou desliga o modo fracionado de um item de estoque muito disputado (ex.: promoções relâmpago).
+     *
+     * @param estoqueId O ID do item de estoque.
+     * @param fracoes O número de frações (entre 2 e 64), ou 0 para voltar ao modo normal.
+     * @return Uma resposta de API contendo o objeto {@link EstoqueLojista} atualizado.
+     */
+    @PutMapping("/estoque/{estoqueId}/fracoes")
+    public ApiResponse<EstoqueLojista> setFracoesEstoque(@PathVariable Long estoqueId, @RequestParam int fracoes) {
+        EstoqueLojista item = catalogoService.setFracoesEstoque(estoqueId, fracoes);
+        return ApiResponse.success(item);
+    }
+
     /**
      * Lista os pedidos recebidos pela farmácia logada, com suporte a paginação.
      *
      * @param pageable As informações de paginação.
-     * @return Uma resposta de API contendo uma página de objetos {@link Pedido}.
+     * @return Uma resposta de API contendo uma página de {@link PedidoResumoResponse}.
      */
     @GetMapping("/pedidos")
-    public ApiResponse<Page<Pedido>> getPedidosDaFarmacia(Pageable pageable) {
-        Page<Pedido> pedidos = pedidoService.getPedidosDaFarmaciaLogada(pageable);
+    public ApiResponse<Page<PedidoResumoResponse>> getPedidosDaFarmacia(Pageable pageable) {
+        Page<PedidoResumoResponse> pedidos = pedidoService.getPedidosDaFarmaciaLogada(pageable);
+        return ApiResponse.success(pedidos);
+    }
+
+    /**
+     * Lista por cursor os pedidos recebidos pela farmácia logada, do mais recente para o mais antigo.
+     *
+     * @param cursor O cursor retornado pela página anterior (omitido na primeira página).
+     * @param tamanho O tamanho da página.
+     * @return Uma resposta de API contendo uma {@link CursorPage} de {@link PedidoResumoResponse}.
+     */
+    @GetMapping("/pedidos/cursor")
+    public ApiResponse<CursorPage<PedidoResumoResponse>> getPedidosDaFarmaciaPorCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanho
+    ) {
+        CursorPage<PedidoResumoResponse> pedidos = pedidoService.getPedidosDaFarmaciaLogada(cursor, tamanho);
         return ApiResponse.success(pedidos);
     }
 
+    /**
+     * Assina, por Server-Sent Events, as notificações de pedidos da farmácia logada
+     * (pedido-criado, pedido-pago e receita-anexada), no lugar da consulta periódica da lista de pedidos.
+     *
+     * @return O {@link SseEmitter} da conexão.
+     */
+    @GetMapping(value = "/pedidos/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter assinarEventosDePedidos() {
+        return notificacaoPedidoService.assinarComoLojista();
+    }
+
     /**
      * Obtém os detalhes de um pedido específico para o lojista.
      *
      * @param pedidoId O ID do pedido.
-     * @return Uma resposta de API contendo o objeto {@link Pedido}.
+     * @return Uma resposta de API contendo o {@link PedidoDetalheResponse}.
      */
     @GetMapping("/pedidos/{pedidoId}")
-    public ApiResponse<Pedido> getPedidoDetalhesLojista(@PathVariable Long pedidoId) {
-        Pedido pedido = pedidoService.getPedidoDetalhesLojista(pedidoId);
+    public ApiResponse<PedidoDetalheResponse> getPedidoDetalhesLojista(@PathVariable Long pedidoId) {
+        PedidoDetalheResponse pedido = pedidoService.getPedidoDetalhesLojista(pedidoId);
         return ApiResponse.success(pedido);
     }
 
@@ -257,13 +346,13 @@ public class FarmaciaAdminController {
      *
      * @param pedidoId O ID do pedido a ser atualizado.
      * @param request O DTO com o novo status.
-     * @return Uma resposta de API contendo o objeto {@link Pedido} atualizado.
+     * @return Uma resposta de API contendo o {@link PedidoDetalheResponse} atualizado.
      */
     @PutMapping("/pedidos/{pedidoId}/status")
-    public ApiResponse<Pedido> atualizarStatusPedido(
+    public ApiResponse<PedidoDetalheResponse> atualizarStatusPedido(
             @PathVariable Long pedidoId,
             @Valid @RequestBody PedidoStatusUpdateRequest request) {
-        Pedido pedidoAtualizado = pedidoService.updateStatusPedidoLojista(pedidoId, request);
+        PedidoDetalheResponse pedidoAtualizado = pedidoService.updateStatusPedidoLojista(pedidoId, request);
         return ApiResponse.success(pedidoAtualizado);
     }
 
@@ -271,11 +360,11 @@ public class FarmaciaAdminController {
      * Aceita um pedido pendente.
      *
      * @param pedidoId O ID do pedido a ser aceito.
-     * @return Uma resposta de API contendo o objeto {@link Pedido} atualizado.
+     * @return Uma resposta de API contendo o {@link PedidoDetalheResponse} atualizado.
      */
     @PostMapping("/pedidos/{pedidoId}/aceitar")
-    public ApiResponse<Pedido> aceitarPedido(@PathVariable Long pedidoId) {
-        Pedido pedido = pedidoService.aceitarPedido(pedidoId);
+    public ApiResponse<PedidoDetalheResponse> aceitarPedido(@PathVariable Long pedidoId) {
+        PedidoDetalheResponse pedido = pedidoService.aceitarPedido(pedidoId);
         return ApiResponse.success(pedido);
     }
 
@@ -284,14 +373,14 @@ public class FarmaciaAdminController {
      *
      * @param pedidoId O ID do pedido a ser recusado.
      * @param request O DTO contendo a justificativa da recusa.
-     * @return Uma resposta de API contendo o objeto {@link Pedido} atualizado.
+     * @return Uma resposta de API contendo o {@link PedidoDetalheResponse} atualizado.
      */
     @PostMapping("/pedidos/{pedidoId}/recusar")
-    public ApiResponse<Pedido> recusarPedido(
+    public ApiResponse<PedidoDetalheResponse> recusarPedido(
             @PathVariable Long pedidoId,
             @Valid @RequestBody PedidoRecusarRequest request
     ) {
-        Pedido pedido = pedidoService.recusarPedido(pedidoId, request.getJustificativa());
+        PedidoDetalheResponse pedido = pedidoService.recusarPedido(pedidoId, request.getJustificativa());
         return ApiResponse.success(pedido);
     }
 }
\ No newline at end of file
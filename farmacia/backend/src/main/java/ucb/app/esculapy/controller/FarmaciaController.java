@@ -6,11 +6,15 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import ucb.app.esculapy.dto.ApiResponse;
+import ucb.app.esculapy.dto.FarmaciaProximaResponse;
 import ucb.app.esculapy.dto.FarmaciaPublicaResponse;
 import ucb.app.esculapy.service.FarmaciaService;
 
+import java.util.List;
+
 /**
  * Controlador REST para endpoints públicos relacionados a farmácias.
  * Permite buscar listagens e detalhes de farmácias acessíveis ao público.
@@ -34,6 +38,24 @@ public class FarmaciaController {
         return ApiResponse.success(farmacias);
     }
 
+    /**
+     * Lista as farmácias ativas próximas de um ponto, da mais próxima para a mais distante.
+     *
+     * @param lat A latitude do ponto de referência.
+     * @param lon A longitude do ponto de referência.
+     * @param raioKm O raio da busca, em quilômetros (opcional).
+     * @return Uma resposta de API contendo a lista de objetos {@link FarmaciaProximaResponse}.
+     */
+    @GetMapping("/proximas")
+    public ApiResponse<List<FarmaciaProximaResponse>> listarFarmaciasProximas(
+            @RequestParam Double lat,
+            @RequestParam Double lon,
+            @RequestParam(required = false) Double raioKm
+    ) {
+        List<FarmaciaProximaResponse> farmacias = farmaciaService.listarFarmaciasProximas(lat, lon, raioKm);
+        return ApiResponse.success(farmacias);
+    }
+
     /**
      * Obtém os detalhes de uma farmácia específica por seu ID para consulta pública.
      *
@@ -9,8 +9,10 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import ucb.app.esculapy.dto.ApiResponse;
 import ucb.app.esculapy.dto.CriarPedidoRequest;
+import ucb.app.esculapy.dto.CursorPage;
 import ucb.app.esculapy.dto.PagamentoResponse;
-import ucb.app.esculapy.model.Pedido;
+import ucb.app.esculapy.dto.PedidoDetalheResponse;
+import ucb.app.esculapy.dto.PedidoResumoResponse;
 import ucb.app.esculapy.service.PagamentoService;
 import ucb.app.esculapy.service.PedidoService;
 
@@ -29,15 +31,17 @@ public class PedidoController {
 
     /**
      * Cria um novo pedido a partir dos itens e endereço de entrega fornecidos.
+     * Aceita o cabeçalho {@code Idempotency-Key} para que repetições não criem pedidos duplicados
+     * (ver {@link ucb.app.esculapy.idempotencia.IdempotenciaFilter}).
      *
      * @param request O DTO contendo a lista de itens e o ID do endereço.
-     * @return Uma resposta de API contendo o objeto {@link Pedido} criado.
+     * @return Uma resposta de API contendo o {@link PedidoDetalheResponse} criado.
      */
     @PostMapping
-    public ApiResponse<Pedido> criarPedido(
+    public ApiResponse<PedidoDetalheResponse> criarPedido(
             @Valid @RequestBody CriarPedidoRequest request
     ) {
-        Pedido pedidoCriado = pedidoService.criarPedido(request);
+        PedidoDetalheResponse pedidoCriado = pedidoService.criarPedido(request);
         return ApiResponse.success(pedidoCriado);
     }
 
@@ -46,14 +50,14 @@ public class PedidoController {
      *
      * @param pedidoId O ID do pedido.
      * @param arquivo O arquivo da receita.
-     * @return Uma resposta de API contendo o objeto {@link Pedido} atualizado.
+     * @return Uma resposta de API contendo o {@link PedidoDetalheResponse} atualizado.
      */
     @PostMapping("/{pedidoId}/receita")
-    public ApiResponse<Pedido> uploadReceita(
+    public ApiResponse<PedidoDetalheResponse> uploadReceita(
             @PathVariable Long pedidoId,
             @RequestParam("arquivo") MultipartFile arquivo
     ) {
-        Pedido pedido = pedidoService.anexarReceita(pedidoId, arquivo);
+        PedidoDetalheResponse pedido = pedidoService.anexarReceita(pedidoId, arquivo);
         return ApiResponse.success(pedido);
     }
 
@@ -61,11 +65,27 @@ public class PedidoController {
      * Lista todos os pedidos realizados pelo cliente logado, com suporte a paginação.
      *
      * @param pageable As informações de paginação.
-     * @return Uma resposta de API contendo uma página de objetos {@link Pedido}.
+     * @return Uma resposta de API contendo uma página de {@link PedidoResumoResponse}.
      */
     @GetMapping("/meus-pedidos")
-    public ApiResponse<Page<Pedido>> getMeusPedidos(Pageable pageable) {
-        Page<Pedido> pedidos = pedidoService.getMeusPedidos(pageable);
+    public ApiResponse<Page<PedidoResumoResponse>> getMeusPedidos(Pageable pageable) {
+        Page<PedidoResumoResponse> pedidos = pedidoService.getMeusPedidos(pageable);
+        return ApiResponse.success(pedidos);
+    }
+
+    /**
+     * Lista os pedidos do cliente logado por cursor (rolagem infinita), do mais recente para o mais antigo.
+     *
+     * @param cursor O cursor retornado pela página anterior (omitido na primeira página).
+     * @param tamanho O tamanho da página.
+     * @return Uma resposta de API contendo uma {@link CursorPage} de {@link PedidoResumoResponse}.
+     */
+    @GetMapping("/meus-pedidos/cursor")
+    public ApiResponse<CursorPage<PedidoResumoResponse>> getMeusPedidosPorCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanho
+    ) {
+        CursorPage<PedidoResumoResponse> pedidos = pedidoService.getMeusPedidos(cursor, tamanho);
         return ApiResponse.success(pedidos);
     }
 
@@ -73,16 +93,17 @@ public class PedidoController {
      * Obtém os detalhes de um pedido específico do cliente logado.
      *
      * @param pedidoId O ID do pedido.
-     * @return Uma resposta de API contendo o objeto {@link Pedido}.
+     * @return Uma resposta de API contendo o {@link PedidoDetalheResponse}.
      */
     @GetMapping("/{pedidoId}")
-    public ApiResponse<Pedido> getPedidoPorId(@PathVariable Long pedidoId) {
-        Pedido pedido = pedidoService.getPedidoDetalhesCliente(pedidoId);
+    public ApiResponse<PedidoDetalheResponse> getPedidoPorId(@PathVariable Long pedidoId) {
+        PedidoDetalheResponse pedido = pedidoService.getPedidoDetalhesCliente(pedidoId);
         return ApiResponse.success(pedido);
     }
 
     /**
      * Cria uma sessão de pagamento (checkout) para um pedido pendente.
+     * Aceita o cabeçalho {@code Idempotency-Key}, como a criação do pedido.
      *
      * @param pedidoId O ID do pedido a ser pago.
      * @return Uma resposta de API contendo o {@link PagamentoResponse} com os detalhes para iniciar o pagamento.
@@ -99,11 +120,11 @@ public class PedidoController {
      * Cancela um pedido que ainda está em um status que permite cancelamento.
      *
      * @param pedidoId O ID do pedido a ser cancelado.
-     * @return Uma resposta de API contendo o objeto {@link Pedido} atualizado para o status CANCELADO.
+     * @return Uma resposta de API contendo o {@link PedidoDetalheResponse} atualizado para o status CANCELADO.
      */
     @PostMapping("/{pedidoId}/cancelar")
-    public ApiResponse<Pedido> cancelarPedido(@PathVariable Long pedidoId) {
-        Pedido pedido = pedidoService.cancelarPedido(pedidoId);
+    public ApiResponse<PedidoDetalheResponse> cancelarPedido(@PathVariable Long pedidoId) {
+        PedidoDetalheResponse pedido = pedidoService.cancelarPedido(pedidoId);
         return ApiResponse.success(pedido);
     }
 }
\ No newline at end of file
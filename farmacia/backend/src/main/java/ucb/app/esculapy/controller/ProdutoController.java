@@ -4,10 +4,16 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import ucb.app.esculapy.dto.ApiResponse;
+import ucb.app.esculapy.dto.CacheEstatisticasResponse;
+import ucb.app.esculapy.dto.ImportacaoStatusResponse;
 import ucb.app.esculapy.dto.ProdutoRequest;
 import ucb.app.esculapy.model.Produto;
 import ucb.app.esculapy.service.CatalogoService;
+import ucb.app.esculapy.service.ImportacaoCatalogoService;
+
+import java.util.List;
 
 /**
  * Controlador REST para o gerenciamento de produtos no catálogo mestre.
@@ -21,6 +27,7 @@ import ucb.app.esculapy.service.CatalogoService;
 public class ProdutoController {
 
     private final CatalogoService catalogoService;
+    private final ImportacaoCatalogoService importacaoCatalogoService;
 
     /**
      * Cria um novo produto no catálogo mestre.
@@ -85,4 +92,38 @@ public class ProdutoController {
         catalogoService.deleteProdutoCatalogo(id);
         return ApiResponse.success("Produto do catálogo deletado com sucesso");
     }
-}
\ No newline at end of file
+
+    /**
+     * Retorna as estatísticas de uso (tamanho, acertos, faltas, taxa de acerto) dos caches do catálogo.
+     *
+     * @return Uma resposta de API contendo a lista de {@link CacheEstatisticasResponse}.
+     */
+    @GetMapping("/cache/estatisticas")
+    public ApiResponse<List<CacheEstatisticasResponse>> getEstatisticasCache() {
+        return ApiResponse.success(catalogoService.getEstatisticasCache());
+    }
+
+    /**
+     * Inicia a importação em lote de um arquivo de catálogo (CSV ou NDJSON), processada em segundo plano.
+     *
+     * @param arquivo O arquivo com os produtos.
+     * @return Uma resposta de API contendo o {@link ImportacaoStatusResponse} inicial, com o ID para acompanhamento.
+     */
+    @PostMapping("/importacoes")
+    public ApiResponse<ImportacaoStatusResponse> importarCatalogo(@RequestParam("arquivo") MultipartFile arquivo) {
+        ImportacaoStatusResponse status = importacaoCatalogoService.iniciarImportacao(arquivo);
+        return ApiResponse.success(status);
+    }
+
+    /**
+     * Consulta o progresso e as linhas rejeitadas de uma importação.
+     *
+     * @param id O ID da importação.
+     * @return Uma resposta de API contendo o {@link ImportacaoStatusResponse} atual.
+     */
+    @GetMapping("/importacoes/{id}")
+    public ApiResponse<ImportacaoStatusResponse> getStatusImportacao(@PathVariable String id) {
+        ImportacaoStatusResponse status = importacaoCatalogoService.getStatus(id);
+        return ApiResponse.success(status);
+    }
+}
@@ -4,13 +4,13 @@ import jakarta.validation.Valid;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import ucb.app.esculapy.dto.*;
 import ucb.app.esculapy.model.Cliente;
 import ucb.app.esculapy.model.Farmacia;
 import ucb.app.esculapy.model.Farmaceutico;
 import ucb.app.esculapy.model.Usuario;
+import ucb.app.esculapy.service.AuthenticationService;
 import ucb.app.esculapy.service.UserService;
 
 import java.util.List;
@@ -25,6 +25,7 @@ import java.util.stream.Collectors;
 public class UserController {
 
     private final UserService userService;
+    private final AuthenticationService authenticationService;
 
     // ========================================================================
     // --- Classes Internas (DTOs de Resposta Específicos para /me) ---
@@ -128,7 +129,7 @@ public class UserController {
      */
     @GetMapping("/me")
     public ApiResponse<MeResponse> getMyInfo() {
-        Usuario usuario = (Usuario) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        Usuario usuario = authenticationService.getUsuarioLogadoCompleto();
         MeResponse meResponse = new MeResponse(usuario);
         return ApiResponse.success(meResponse);
     }
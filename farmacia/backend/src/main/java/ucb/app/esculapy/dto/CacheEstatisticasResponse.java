@@ -0,0 +1,39 @@
+package ucb.app.esculapy.dto;
+
+import lombok.Data;
+
+/**
+ * DTO de resposta com as estatísticas de uso de um cache em memória.
+ */
+@Data
+public class CacheEstatisticasResponse {
+
+    private String nome;
+    private int tamanho;
+    private int tamanhoMaximo;
+    private long acertos;
+    private long faltas;
+    private long remocoes;
+    private double taxaDeAcerto;
+
+    /**
+     * Construtor que calcula a taxa de acerto a partir dos contadores.
+     *
+     * @param nome O nome do cache.
+     * @param tamanho O número atual de entradas.
+     * @param tamanhoMaximo O número máximo de entradas.
+     * @param acertos O número de leituras atendidas pelo cache.
+     * @param faltas O número de leituras que precisaram ir à origem.
+     * @param remocoes O número de entradas removidas por tamanho ou expiração.
+     */
+    public CacheEstatisticasResponse(String nome, int tamanho, int tamanhoMaximo, long acertos, long faltas, long remocoes) {
+        this.nome = nome;
+        this.tamanho = tamanho;
+        this.tamanhoMaximo = tamanhoMaximo;
+        this.acertos = acertos;
+        this.faltas = faltas;
+        this.remocoes = remocoes;
+        long leituras = acertos + faltas;
+        this.taxaDeAcerto = leituras == 0 ? 0.0 : (double) acertos / leituras;
+    }
+}
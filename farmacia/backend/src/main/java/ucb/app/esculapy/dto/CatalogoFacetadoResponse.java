@@ -0,0 +1,35 @@
+package ucb.app.esculapy.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Page;
+import ucb.app.esculapy.model.Produto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO de resposta da listagem filtrada do catálogo, com as contagens de cada faceta.
+ */
+@Data
+@AllArgsConstructor
+public class CatalogoFacetadoResponse {
+
+    private Page<Produto> produtos;
+
+    /**
+     * Contagens por faceta ("tipoProduto", "tipoReceita", "laboratorio" e "emEstoque"), considerando
+     * os demais filtros aplicados, mas não o da própria faceta.
+     */
+    private Map<String, List<ContagemFaceta>> facetas;
+
+    /**
+     * O número de produtos com um valor de faceta.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class ContagemFaceta {
+        private String valor;
+        private int total;
+    }
+}
@@ -0,0 +1,40 @@
+package ucb.app.esculapy.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * DTO de resposta para listagens paginadas por cursor (keyset).
+ * Diferente de {@link org.springframework.data.domain.Page}, não traz o total de elementos:
+ * o cliente segue o {@code nextCursor} até que {@code hasNext} seja falso.
+ *
+ * @param <T> O tipo dos elementos da página.
+ */
+@Data
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> content;
+    private String nextCursor;
+    private boolean hasNext;
+
+    /**
+     * Monta a página a partir de um {@link Slice}, gerando o cursor a partir do último elemento.
+     *
+     * @param slice O resultado da consulta.
+     * @param cursorDoElemento A função que codifica o cursor de um elemento.
+     * @param <T> O tipo dos elementos.
+     * @return A página com o cursor de continuação (nulo se não houver próxima página).
+     */
+    public static <T> CursorPage<T> of(Slice<T> slice, Function<T, String> cursorDoElemento) {
+        List<T> content = slice.getContent();
+        String nextCursor = slice.hasNext() && !content.isEmpty()
+                ? cursorDoElemento.apply(content.get(content.size() - 1))
+                : null;
+        return new CursorPage<>(content, nextCursor, slice.hasNext());
+    }
+}
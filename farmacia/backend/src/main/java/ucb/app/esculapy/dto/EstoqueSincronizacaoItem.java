@@ -0,0 +1,31 @@
+package ucb.app.esculapy.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * Um item do feed de sincronização de estoque enviado pelo ERP da farmácia.
+ * O produto é identificado pelo EAN do catálogo mestre.
+ */
+@Data
+public class EstoqueSincronizacaoItem {
+
+    @NotBlank(message = "O EAN não pode ser vazio.")
+    private String ean;
+
+    @NotNull(message = "O preço não pode ser nulo.")
+    @Positive(message = "O preço deve ser maior que zero.")
+    private BigDecimal preco;
+
+    @NotNull(message = "A quantidade não pode ser nula.")
+    @Min(value = 0, message = "A quantidade não pode ser negativa.")
+    private Integer quantidade;
+
+    /** Se omitido, o item fica ativo. */
+    private Boolean ativo;
+}
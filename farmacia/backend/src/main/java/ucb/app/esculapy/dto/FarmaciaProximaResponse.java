@@ -0,0 +1,27 @@
+package ucb.app.esculapy.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import ucb.app.esculapy.model.Farmacia;
+
+/**
+ * DTO de resposta da busca de farmácias por proximidade: os dados públicos da farmácia
+ * e a distância até o ponto informado.
+ */
+@Getter
+@Setter
+public class FarmaciaProximaResponse extends FarmaciaPublicaResponse {
+
+    private double distanciaKm;
+
+    /**
+     * Construtor que mapeia a entidade {@link Farmacia} e a distância calculada.
+     *
+     * @param farmacia A entidade Farmacia.
+     * @param distanciaKm A distância até o ponto de referência, em quilômetros.
+     */
+    public FarmaciaProximaResponse(Farmacia farmacia, double distanciaKm) {
+        super(farmacia);
+        this.distanciaKm = distanciaKm;
+    }
+}
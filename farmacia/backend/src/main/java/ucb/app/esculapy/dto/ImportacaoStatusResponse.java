@@ -0,0 +1,42 @@
+package ucb.app.esculapy.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO com o progresso e o resultado de uma importação em lote do catálogo.
+ */
+@Data
+@AllArgsConstructor
+public class ImportacaoStatusResponse {
+
+    private String id;
+
+    /** "EM_ANDAMENTO", "CONCLUIDA" ou "FALHOU". */
+    private String status;
+
+    private String arquivo;
+    private long linhasLidas;
+    private long inseridos;
+    private long atualizados;
+    private long comErro;
+
+    /** As primeiras linhas rejeitadas (a lista é limitada; {@code comErro} traz o total). */
+    private List<ErroLinha> erros;
+
+    private LocalDateTime iniciadaEm;
+    private LocalDateTime concluidaEm;
+
+    /**
+     * Uma linha rejeitada pela importação.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class ErroLinha {
+        private long linha;
+        private String mensagem;
+    }
+}
@@ -0,0 +1,27 @@
+package ucb.app.esculapy.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import ucb.app.esculapy.model.EstoqueLojista;
+
+/**
+ * DTO de resposta da busca de ofertas por proximidade: a oferta e a distância
+ * da farmácia até o ponto informado.
+ */
+@Getter
+@Setter
+public class OfertaProximaResponse extends EstoqueResponse {
+
+    private double distanciaKm;
+
+    /**
+     * Construtor que mapeia a entidade {@link EstoqueLojista} e a distância calculada.
+     *
+     * @param estoque A entidade EstoqueLojista.
+     * @param distanciaKm A distância da farmácia até o ponto de referência, em quilômetros.
+     */
+    public OfertaProximaResponse(EstoqueLojista estoque, double distanciaKm) {
+        super(estoque);
+        this.distanciaKm = distanciaKm;
+    }
+}
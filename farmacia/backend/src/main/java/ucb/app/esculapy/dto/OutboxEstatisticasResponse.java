@@ -0,0 +1,36 @@
+package ucb.app.esculapy.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO de resposta com as estatísticas de entrega da caixa de saída (outbox) de eventos dos pedidos.
+ */
+@Data
+@AllArgsConstructor
+public class OutboxEstatisticasResponse {
+
+    /** Os destinos habilitados. */
+    private List<String> destinos;
+
+    /** Número de eventos ainda não entregues. */
+    private long pendentes;
+
+    /** Há quanto tempo o evento pendente mais antigo espera (ms); 0 sem pendentes. */
+    private long atrasoPendenteMaisAntigoMs;
+
+    /** Maior tempo entre a gravação e a entrega no último lote entregue (ms). */
+    private long atrasoUltimaEntregaMs;
+
+    /** Data da última entrega bem-sucedida. */
+    private LocalDateTime ultimaEntrega;
+
+    /** Eventos entregues desde o início da aplicação. */
+    private long publicados;
+
+    /** Falhas de entrega desde o início da aplicação. */
+    private long falhas;
+}
@@ -0,0 +1,128 @@
+package ucb.app.esculapy.dto;
+
+import lombok.Getter;
+import ucb.app.esculapy.model.Endereco;
+import ucb.app.esculapy.model.ItemPedido;
+import ucb.app.esculapy.model.Pedido;
+import ucb.app.esculapy.model.Receita;
+import ucb.app.esculapy.model.enums.PedidoStatus;
+import ucb.app.esculapy.model.enums.ReceitaStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO de resposta com os detalhes de um pedido: cliente, endereço de entrega, itens e receita.
+ * Deve ser montado dentro da transação, a partir de um pedido carregado com
+ * {@link ucb.app.esculapy.repository.PedidoRepository#findDetalheById(Long)}, que traz todas
+ * as associações usadas aqui em uma única consulta.
+ */
+@Getter
+public class PedidoDetalheResponse {
+
+    private Long id;
+    private PedidoStatus status;
+    private BigDecimal valorTotal;
+    private LocalDateTime dataPedido;
+    private Long farmaciaId;
+    private Long clienteId;
+    private String clienteNome;
+    private EnderecoEntrega enderecoEntrega;
+    private List<Item> itens;
+    private ReceitaResumo receita;
+
+    /**
+     * Construtor que mapeia a entidade {@link Pedido} para este DTO.
+     *
+     * @param pedido A entidade Pedido, com cliente, endereço, itens (com estoque e produto) e receita carregados.
+     */
+    public PedidoDetalheResponse(Pedido pedido) {
+        this.id = pedido.getId();
+        this.status = pedido.getStatus();
+        this.valorTotal = pedido.getValorTotal();
+        this.dataPedido = pedido.getDataPedido();
+        this.farmaciaId = pedido.getFarmaciaId();
+        this.clienteId = pedido.getCliente().getId();
+        this.clienteNome = pedido.getCliente().getNome();
+        this.enderecoEntrega = pedido.getEnderecoEntrega() != null ? new EnderecoEntrega(pedido.getEnderecoEntrega()) : null;
+        this.itens = pedido.getItens().stream().map(Item::new).toList();
+        this.receita = pedido.getReceita() != null ? new ReceitaResumo(pedido.getReceita()) : null;
+    }
+
+    /**
+     * Um item do pedido, com o preço unitário do momento da compra.
+     */
+    @Getter
+    public static class Item {
+        private Long id;
+        private Long estoqueLojistaId;
+        private Long produtoId;
+        private String produtoNome;
+        private Integer quantidade;
+        private BigDecimal precoUnitario;
+        private BigDecimal subtotal;
+
+        private Item(ItemPedido item) {
+            this.id = item.getId();
+            this.estoqueLojistaId = item.getEstoqueLojista().getId();
+            this.produtoId = item.getEstoqueLojista().getProduto().getId();
+            this.produtoNome = item.getEstoqueLojista().getProduto().getNome();
+            this.quantidade = item.getQuantidade();
+            this.precoUnitario = item.getPrecoUnitario();
+            this.subtotal = item.getPrecoUnitario().multiply(BigDecimal.valueOf(item.getQuantidade()));
+        }
+    }
+
+    /**
+     * O endereço de entrega selecionado no momento da compra.
+     */
+    @Getter
+    public static class EnderecoEntrega {
+        private Long id;
+        private String cep;
+        private String logradouro;
+        private String numero;
+        private String complemento;
+        private String bairro;
+        private String cidade;
+        private String estado;
+
+        private EnderecoEntrega(Endereco endereco) {
+            this.id = endereco.getId();
+            this.cep = endereco.getCep();
+            this.logradouro = endereco.getLogradouro();
+            this.numero = endereco.getNumero();
+            this.complemento = endereco.getComplemento();
+            this.bairro = endereco.getBairro();
+            this.cidade = endereco.getCidade();
+            this.estado = endereco.getEstado();
+        }
+    }
+
+    /**
+     * A receita anexada ao pedido e o resultado da validação.
+     */
+    @Getter
+    public static class ReceitaResumo {
+        private Long id;
+        private String arquivoUrl;
+        private ReceitaStatus status;
+        private LocalDateTime dataUpload;
+        private Long farmaceuticoValidadorId;
+        private LocalDateTime dataValidacao;
+        private String justificativaRejeicao;
+
+        private ReceitaResumo(Receita receita) {
+            this.id = receita.getId();
+            this.arquivoUrl = receita.getArquivoUrl();
+            this.status = receita.getStatus();
+            this.dataUpload = receita.getDataUpload();
+            this.farmaceuticoValidadorId = receita.getFarmaceuticoValidador() != null
+                    ? receita.getFarmaceuticoValidador().getId()
+                    : null;
+            this.dataValidacao = receita.getDataValidacao();
+            this.justificativaRejeicao = receita.getJustificativaRejeicao();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ucb.app.esculapy.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ucb.app.esculapy.model.enums.PedidoStatus;
+import ucb.app.esculapy.model.enums.ReceitaStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO de resposta das listagens de pedidos: apenas o que a lista exibe, sem itens nem endereço.
+ * Preenchido diretamente pela consulta (projeção por construtor em {@link ucb.app.esculapy.repository.PedidoRepository}),
+ * em uma única consulta por página, sem carregar entidades.
+ */
+@Getter
+@AllArgsConstructor
+public class PedidoResumoResponse {
+
+    private Long id;
+    private PedidoStatus status;
+    private BigDecimal valorTotal;
+    private LocalDateTime dataPedido;
+    private Long farmaciaId;
+    private Long clienteId;
+    private String clienteNome;
+    private Long quantidadeItens;
+
+    /**
+     * O status da receita anexada, ou nulo se o pedido não tiver receita.
+     */
+    private ReceitaStatus receitaStatus;
+}
@@ -0,0 +1,29 @@
+package ucb.app.esculapy.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO com o resumo (diff) de uma sincronização de estoque em lote.
+ */
+@Data
+public class SincronizacaoEstoqueResponse {
+
+    private long recebidos;
+
+    /** Itens que não existiam no estoque da farmácia. */
+    private long inseridos;
+
+    /** Itens existentes com preço, quantidade ou status alterados. */
+    private long atualizados;
+
+    /** Itens existentes idênticos ao feed (não regravados). */
+    private long inalterados;
+
+    private long comErro;
+
+    /** Os primeiros itens rejeitados (a lista é limitada; {@code comErro} traz o total). */
+    private List<ImportacaoStatusResponse.ErroLinha> erros = new ArrayList<>();
+}
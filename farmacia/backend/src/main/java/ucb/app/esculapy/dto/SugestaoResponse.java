@@ -0,0 +1,24 @@
+package ucb.app.esculapy.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * DTO de resposta do autocompletar do catálogo.
+ */
+@Data
+@AllArgsConstructor
+public class SugestaoResponse {
+
+    /** O texto sugerido (nome do produto ou princípio ativo), com a grafia original. */
+    private String texto;
+
+    /** "PRODUTO" ou "PRINCIPIO_ATIVO". */
+    private String tipo;
+
+    /** O ID do produto, quando a sugestão é um produto. */
+    private Long produtoId;
+
+    /** Quantas ofertas disponíveis (ativas e com estoque) existem para a sugestão. */
+    private int ofertas;
+}
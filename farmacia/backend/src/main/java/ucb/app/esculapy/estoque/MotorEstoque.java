@@ -0,0 +1,415 @@
+package ucb.app.esculapy.estoque;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
+import ucb.app.esculapy.exception.ConflictException;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository.SaldoEstoque;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Motor de estoque com um único escritor por farmácia, alternativa aos bloqueios de linha na baixa.
+ * Todas as mutações de estoque de uma farmácia entram em uma fila própria, processada sequencialmente:
+ * cada baixa é validada contra um mapa de saldos em memória, sem bloqueio no banco, e as variações
+ * acumuladas em alguns milissegundos são gravadas juntas em uma única transação (group commit).
+ * Quem submete recebe um {@link CompletableFuture}, concluído após o commit do lote.
+ * <p>
+ * O banco continua sendo a fonte da verdade: a variação negativa de cada item é gravada com uma
+ * condição (item ativo e quantidade suficiente), e um saldo em memória divergente (alterado pelo
+ * lojista, pela sincronização ou por outra instância) só faz o lote ser regravado sem as baixas
+ * afetadas. Antes de recusar uma baixa por falta de estoque, o saldo do item é recarregado do banco.
+ * As edições do lojista (quantidade absoluta) não passam pela fila: são gravadas com a linha bloqueada
+ * e apenas invalidam o saldo em memória após o commit.
+ * <p>
+ * Desligado por padrão ({@code estoque.motor.habilitado}). Itens no modo fracionado não passam pelo motor.
+ */
+@Component
+@RequiredArgsConstructor
+public class MotorEstoque {
+
+    private final EstoqueLojistaRepository estoqueLojistaRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<Long, Fila> filas = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), tarefa -> {
+                Thread thread = new Thread(tarefa, "motor-estoque");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    @Value("${estoque.motor.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${estoque.motor.intervalo-ms:5}")
+    private long intervaloMs;
+
+    @Value("${estoque.motor.tamanho-maximo-lote:500}")
+    private int tamanhoMaximoLote;
+
+    @Value("${estoque.motor.timeout-ms:2000}")
+    private long timeoutMs;
+
+    private interface Mutacao {
+    }
+
+    private record Baixa(Map<Long, Integer> quantidades, CompletableFuture<List<Long>> resultado) implements Mutacao {
+    }
+
+    private record Estorno(Map<Long, Integer> quantidades, Set<Long> produtoIds,
+                           CompletableFuture<Void> resultado) implements Mutacao {
+    }
+
+    private record Invalidacao(Long estoqueId) implements Mutacao {
+    }
+
+    /**
+     * Saldo em memória de um item de estoque.
+     */
+    private static final class Saldo {
+        private int quantidade;
+        private final boolean disponivel;
+
+        private Saldo(int quantidade, boolean disponivel) {
+            this.quantidade = quantidade;
+            this.disponivel = disponivel;
+        }
+    }
+
+    /**
+     * Fila de mutações de uma farmácia. No máximo uma tarefa a processa por vez ({@code agendada}),
+     * e só essa tarefa acessa os saldos.
+     */
+    private static final class Fila {
+        private final Long farmaciaId;
+        private final ConcurrentLinkedQueue<Mutacao> pendentes = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean agendada = new AtomicBoolean();
+        private final Map<Long, Saldo> saldos = new HashMap<>();
+
+        private Fila(Long farmaciaId) {
+            this.farmaciaId = farmaciaId;
+        }
+    }
+
+    /**
+     * Indica se as baixas e estornos de estoque devem passar pelo motor.
+     *
+     * @return True se o motor estiver habilitado.
+     */
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Submete a baixa de itens de estoque de uma farmácia.
+     *
+     * @param farmaciaId O ID da farmácia dona dos itens.
+     * @param quantidades Mapa de ID do item de estoque para a quantidade a baixar.
+     * @return Um futuro com os IDs dos itens sem estoque suficiente (vazio se a baixa foi gravada);
+     *         a baixa é atômica, nada é gravado se algum item faltar.
+     */
+    public CompletableFuture<List<Long>> baixar(Long farmaciaId, Map<Long, Integer> quantidades) {
+        CompletableFuture<List<Long>> resultado = new CompletableFuture<>();
+        submeter(farmaciaId, new Baixa(Map.copyOf(quantidades), resultado));
+        return resultado;
+    }
+
+    /**
+     * Submete o estorno de itens de estoque de uma farmácia.
+     *
+     * @param farmaciaId O ID da farmácia dona dos itens.
+     * @param quantidades Mapa de ID do item de estoque para a quantidade a estornar.
+     * @param produtoIds Os IDs dos produtos dos itens, para sinalizar os índices em memória.
+     * @return Um futuro concluído após a gravação do estorno.
+     */
+    public CompletableFuture<Void> estornar(Long farmaciaId, Map<Long, Integer> quantidades, Set<Long> produtoIds) {
+        CompletableFuture<Void> resultado = new CompletableFuture<>();
+        submeter(farmaciaId, new Estorno(Map.copyOf(quantidades), Set.copyOf(produtoIds), resultado));
+        return resultado;
+    }
+
+    /**
+     * Baixa itens de estoque aguardando a gravação pelo motor, que grava em uma transação própria.
+     * Deve ser chamado fora de transação: a espera não pode reter uma conexão do pool enquanto o
+     * motor precisa de outra para gravar. Se a operação que depende da baixa falhar depois, cabe
+     * ao chamador submeter o estorno.
+     *
+     * @param farmaciaId O ID da farmácia dona dos itens.
+     * @param quantidades Mapa de ID do item de estoque para a quantidade a baixar.
+     * @param produtoIds Os IDs dos produtos dos itens.
+     * @return Os IDs dos itens sem estoque suficiente (vazio se a baixa foi gravada).
+     * @throws ConflictException Se o motor não responder dentro do prazo.
+     */
+    public List<Long> aguardarBaixa(Long farmaciaId, Map<Long, Integer> quantidades, Set<Long> produtoIds) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("A baixa pelo motor de estoque não pode aguardar dentro de uma transação.");
+        }
+        CompletableFuture<List<Long>> futuro = baixar(farmaciaId, quantidades);
+        try {
+            return futuro.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            // A baixa ainda pode ser gravada depois; nesse caso, é desfeita.
+            futuro.thenAccept(faltando -> {
+                if (faltando.isEmpty()) {
+                    estornar(farmaciaId, quantidades, produtoIds);
+                }
+            });
+            throw new ConflictException("O estoque da farmácia está sobrecarregado no momento. Tente novamente.");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha ao gravar a baixa de estoque.", e.getCause());
+        }
+    }
+
+    /**
+     * Submete o estorno de itens de estoque após o commit da transação corrente (ou imediatamente, sem transação).
+     *
+     * @param farmaciaId O ID da farmácia dona dos itens.
+     * @param quantidades Mapa de ID do item de estoque para a quantidade a estornar.
+     * @param produtoIds Os IDs dos produtos dos itens.
+     */
+    public void estornarAposCommit(Long farmaciaId, Map<Long, Integer> quantidades, Set<Long> produtoIds) {
+        aposCommit(() -> estornar(farmaciaId, quantidades, produtoIds));
+    }
+
+    /**
+     * Descarta o saldo em memória de itens alterados fora do motor (pelo lojista ou pela sincronização),
+     * após o commit da transação corrente. Sem efeito com o motor desligado.
+     *
+     * @param farmaciaId O ID da farmácia dona dos itens.
+     * @param estoqueIds Os IDs dos itens de estoque alterados.
+     */
+    public void invalidarAposCommit(Long farmaciaId, Collection<Long> estoqueIds) {
+        if (!habilitado || estoqueIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(estoqueIds);
+        aposCommit(() -> ids.forEach(id -> submeter(farmaciaId, new Invalidacao(id))));
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    private void aposCommit(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        } else {
+            acao.run();
+        }
+    }
+
+    private void submeter(Long farmaciaId, Mutacao mutacao) {
+        Fila fila = filas.computeIfAbsent(farmaciaId, Fila::new);
+        fila.pendentes.add(mutacao);
+        agendar(fila, intervaloMs);
+    }
+
+    private void agendar(Fila fila, long atrasoMs) {
+        if (fila.agendada.compareAndSet(false, true)) {
+            executor.schedule(() -> processar(fila), atrasoMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void processar(Fila fila) {
+        try {
+            List<Mutacao> lote = new ArrayList<>();
+            Mutacao mutacao;
+            while (lote.size() < tamanhoMaximoLote && (mutacao = fila.pendentes.poll()) != null) {
+                lote.add(mutacao);
+            }
+            if (!lote.isEmpty()) {
+                processarLote(fila, lote);
+            }
+        } finally {
+            fila.agendada.set(false);
+            // Com mutações acumuladas, o próximo lote sai sem esperar o intervalo.
+            if (!fila.pendentes.isEmpty()) {
+                agendar(fila, 0);
+            }
+        }
+    }
+
+    private void processarLote(Fila fila, List<Mutacao> lote) {
+        List<Baixa> aceitas = new ArrayList<>();
+        List<Estorno> estornos = new ArrayList<>();
+        try {
+            Set<Long> ausentes = new HashSet<>();
+            for (Mutacao mutacao : lote) {
+                if (mutacao instanceof Baixa baixa) {
+                    ausentes.addAll(baixa.quantidades().keySet());
+                }
+            }
+            ausentes.removeAll(fila.saldos.keySet());
+            carregar(fila, ausentes, Map.of());
+
+            // Variações ainda não gravadas, somadas ao saldo do banco quando um item é recarregado.
+            Map<Long, Integer> variacoes = new HashMap<>();
+            for (Mutacao mutacao : lote) {
+                if (mutacao instanceof Invalidacao invalidacao) {
+                    fila.saldos.remove(invalidacao.estoqueId());
+                } else if (mutacao instanceof Estorno estorno) {
+                    estorno.quantidades().forEach((id, quantidade) -> {
+                        Saldo saldo = fila.saldos.get(id);
+                        if (saldo != null) {
+                            saldo.quantidade += quantidade;
+                        }
+                        variacoes.merge(id, quantidade, Integer::sum);
+                    });
+                    estornos.add(estorno);
+                } else if (mutacao instanceof Baixa baixa) {
+                    List<Long> semEstoque = validar(fila, baixa.quantidades(), variacoes);
+                    if (semEstoque.isEmpty()) {
+                        baixa.quantidades().forEach((id, quantidade) -> {
+                            fila.saldos.get(id).quantidade -= quantidade;
+                            variacoes.merge(id, -quantidade, Integer::sum);
+                        });
+                        aceitas.add(baixa);
+                    } else {
+                        baixa.resultado().complete(semEstoque);
+                    }
+                }
+            }
+
+            gravar(fila, aceitas, estornos);
+        } catch (RuntimeException e) {
+            System.err.println("ERRO: Falha ao gravar o lote do motor de estoque da farmácia " + fila.farmaciaId + ": " + e.getMessage());
+            fila.saldos.clear();
+            for (Mutacao mutacao : lote) {
+                if (mutacao instanceof Baixa baixa) {
+                    baixa.resultado().completeExceptionally(e);
+                } else if (mutacao instanceof Estorno estorno) {
+                    estorno.resultado().completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Verifica o saldo em memória dos itens de uma baixa; os itens que faltarem são recarregados
+     * do banco uma vez antes da recusa.
+     */
+    private List<Long> validar(Fila fila, Map<Long, Integer> quantidades, Map<Long, Integer> variacoes) {
+        List<Long> semEstoque = verificar(fila, quantidades);
+        if (!semEstoque.isEmpty()) {
+            carregar(fila, semEstoque, variacoes);
+            semEstoque = verificar(fila, quantidades);
+        }
+        return semEstoque;
+    }
+
+    private List<Long> verificar(Fila fila, Map<Long, Integer> quantidades) {
+        List<Long> semEstoque = new ArrayList<>();
+        quantidades.forEach((id, quantidade) -> {
+            Saldo saldo = fila.saldos.get(id);
+            if (saldo == null || !saldo.disponivel || saldo.quantidade < quantidade) {
+                semEstoque.add(id);
+            }
+        });
+        return semEstoque;
+    }
+
+    private void carregar(Fila fila, Collection<Long> ids, Map<Long, Integer> variacoes) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        ids.forEach(fila.saldos::remove);
+        for (SaldoEstoque saldo : estoqueLojistaRepository.findSaldosByFarmaciaIdAndIdIn(fila.farmaciaId, ids)) {
+            // Itens fracionados têm o saldo nas frações; o motor os trata como indisponíveis.
+            boolean disponivel = Boolean.TRUE.equals(saldo.getAtivo()) && saldo.getFracoes() == 0;
+            int quantidade = saldo.getQuantidade() + variacoes.getOrDefault(saldo.getId(), 0);
+            fila.saldos.put(saldo.getId(), new Saldo(quantidade, disponivel));
+        }
+    }
+
+    /**
+     * Grava as variações líquidas do lote em uma transação. Se a variação de algum item não puder
+     * ser aplicada (saldo em memória divergente do banco), a transação é desfeita, as baixas que
+     * envolvem o item são recusadas e a gravação é refeita sem elas, com os estornos intactos.
+     * Só variações negativas falham: o repositório nunca recusa um estorno (o de um item fracionado
+     * segue pelas frações), então um item com falha sempre tem alguma baixa envolvida.
+     */
+    private void gravar(Fila fila, List<Baixa> aceitas, List<Estorno> estornos) {
+        List<Baixa> gravadas = new ArrayList<>(aceitas);
+        while (!gravadas.isEmpty() || !estornos.isEmpty()) {
+            Map<Long, Integer> variacoes = new HashMap<>();
+            gravadas.forEach(baixa -> baixa.quantidades().forEach((id, quantidade) -> variacoes.merge(id, -quantidade, Integer::sum)));
+            estornos.forEach(estorno -> estorno.quantidades().forEach((id, quantidade) -> variacoes.merge(id, quantidade, Integer::sum)));
+
+            List<Long> falhas = transactionTemplate.execute(status -> {
+                List<Long> naoAplicadas = estoqueLojistaRepository.aplicarVariacoesEmLote(variacoes);
+                if (!naoAplicadas.isEmpty()) {
+                    status.setRollbackOnly();
+                }
+                return naoAplicadas;
+            });
+            if (falhas == null || falhas.isEmpty()) {
+                break;
+            }
+
+            Set<Long> divergentes = new HashSet<>(falhas);
+            int antes = gravadas.size();
+            Iterator<Baixa> iterator = gravadas.iterator();
+            while (iterator.hasNext()) {
+                Baixa baixa = iterator.next();
+                List<Long> semEstoque = baixa.quantidades().keySet().stream().filter(divergentes::contains).toList();
+                if (!semEstoque.isEmpty()) {
+                    iterator.remove();
+                    baixa.quantidades().keySet().forEach(fila.saldos::remove);
+                    baixa.resultado().complete(semEstoque);
+                }
+            }
+            divergentes.forEach(fila.saldos::remove);
+            if (gravadas.size() == antes) {
+                throw new IllegalStateException("Variações de estoque não aplicadas: " + divergentes);
+            }
+        }
+
+        gravadas.forEach(baixa -> baixa.resultado().complete(List.of()));
+        if (estornos.isEmpty()) {
+            return;
+        }
+        Set<Long> estoqueIds = new HashSet<>();
+        Set<Long> produtoIds = new HashSet<>();
+        for (Estorno estorno : estornos) {
+            estoqueIds.addAll(estorno.quantidades().keySet());
+            produtoIds.addAll(estorno.produtoIds());
+            estorno.resultado().complete(null);
+        }
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(estoqueIds, produtoIds));
+    }
+}
@@ -0,0 +1,10 @@
+package ucb.app.esculapy.event;
+
+/**
+ * Evento publicado ao fim de uma importação em lote do catálogo. Como a importação grava via JDBC,
+ * sem eventos por produto, os caches e índices do catálogo devem ser reconstruídos por inteiro.
+ *
+ * @param produtosGravados O número de produtos inseridos ou atualizados.
+ */
+public record CatalogoImportadoEvent(int produtosGravados) {
+}
@@ -0,0 +1,13 @@
+package ucb.app.esculapy.event;
+
+import java.util.Set;
+
+/**
+ * Evento publicado quando itens de estoque ({@link ucb.app.esculapy.model.EstoqueLojista}) são criados,
+ * alterados, ativados/desativados ou removidos, ou quando sua quantidade muda.
+ *
+ * @param estoqueIds Os IDs dos itens de estoque afetados.
+ * @param produtoIds Os IDs dos produtos desses itens.
+ */
+public record EstoqueAlteradoEvent(Set<Long> estoqueIds, Set<Long> produtoIds) {
+}
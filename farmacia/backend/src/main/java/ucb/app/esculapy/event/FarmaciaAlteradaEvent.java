@@ -0,0 +1,9 @@
+package ucb.app.esculapy.event;
+
+/**
+ * Evento publicado quando o status ou o endereço comercial de uma farmácia muda.
+ *
+ * @param farmaciaId O ID da farmácia alterada.
+ */
+public record FarmaciaAlteradaEvent(Long farmaciaId) {
+}
@@ -0,0 +1,18 @@
+package ucb.app.esculapy.event;
+
+import ucb.app.esculapy.model.enums.PedidoStatus;
+
+import java.math.BigDecimal;
+
+/**
+ * Evento publicado quando um {@link ucb.app.esculapy.model.Pedido} é criado.
+ *
+ * @param pedidoId O ID do pedido.
+ * @param farmaciaId O ID da farmácia do pedido.
+ * @param clienteId O ID do cliente do pedido.
+ * @param status O status inicial do pedido.
+ * @param valorTotal O valor total do pedido.
+ */
+public record PedidoCriadoEvent(Long pedidoId, Long farmaciaId, Long clienteId,
+                                PedidoStatus status, BigDecimal valorTotal) {
+}
@@ -0,0 +1,17 @@
+package ucb.app.esculapy.event;
+
+import ucb.app.esculapy.model.enums.PedidoStatus;
+
+/**
+ * Evento publicado a cada transição de status de um {@link ucb.app.esculapy.model.Pedido}
+ * efetivada pelo {@link ucb.app.esculapy.service.TransicaoPedidoService}.
+ *
+ * @param pedidoId O ID do pedido.
+ * @param farmaciaId O ID da farmácia do pedido.
+ * @param clienteId O ID do cliente do pedido.
+ * @param statusAnterior O status antes da transição.
+ * @param novoStatus O status após a transição.
+ */
+public record PedidoStatusAlteradoEvent(Long pedidoId, Long farmaciaId, Long clienteId,
+                                        PedidoStatus statusAnterior, PedidoStatus novoStatus) {
+}
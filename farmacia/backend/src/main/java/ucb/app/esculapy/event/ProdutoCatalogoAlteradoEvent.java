@@ -0,0 +1,11 @@
+package ucb.app.esculapy.event;
+
+/**
+ * Evento publicado quando um produto do catálogo mestre é criado, alterado, ativado/desativado ou removido.
+ *
+ * @param produtoId O ID do produto afetado.
+ * @param alteraListagem True se a alteração muda quais produtos aparecem no catálogo público
+ *                       (criação, ativação, desativação ou remoção); false se apenas os dados do produto mudaram.
+ */
+public record ProdutoCatalogoAlteradoEvent(Long produtoId, boolean alteraListagem) {
+}
@@ -0,0 +1,10 @@
+package ucb.app.esculapy.event;
+
+/**
+ * Evento publicado quando os dados que compõem o principal autenticado de um usuário mudam
+ * (habilitação, senha, perfil ou farmácia associada).
+ *
+ * @param usuarioId O ID do usuário afetado.
+ */
+public record UsuarioAlteradoEvent(Long usuarioId) {
+}
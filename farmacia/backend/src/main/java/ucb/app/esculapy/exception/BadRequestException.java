@@ -0,0 +1,21 @@
+package ucb.app.esculapy.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exceção para ser usada quando um parâmetro da requisição é malformado
+ * (ex: um cursor de paginação adulterado ou expirado).
+ * Retorna HTTP 400 Bad Request.
+ */
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class BadRequestException extends RuntimeException {
+    /**
+     * Cria uma nova exceção com uma mensagem detalhada.
+     *
+     * @param message A mensagem de erro.
+     */
+    public BadRequestException(String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,7 @@
 package ucb.app.esculapy.exception;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -71,6 +72,24 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.FORBIDDEN);
     }
 
+    /**
+     * Trata a exceção {@link BadRequestException}, retornando HTTP 400.
+     *
+     * @param ex A exceção lançada.
+     * @param request A requisição HTTP.
+     * @return Uma resposta HTTP 400 com o corpo {@link ErrorResponse}.
+     */
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<ErrorResponse> handleBadRequest(BadRequestException ex, HttpServletRequest request) {
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.BAD_REQUEST.value(),
+                "Bad Request",
+                ex.getMessage(),
+                request.getRequestURI()
+        );
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
     /**
      * Captura erros de validação (@Valid) dos DTOs, retornando HTTP 400.
      * Junta todas as mensagens de erro em uma única string para o cliente.
@@ -94,6 +113,26 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Trata falhas de bloqueio do banco (deadlock ou espera esgotada), retornando HTTP 409.
+     * A transação já foi desfeita; o cliente pode repetir a operação.
+     *
+     * @param ex A exceção lançada.
+     * @param request A requisição HTTP.
+     * @return Uma resposta HTTP 409 com o corpo {@link ErrorResponse}.
+     */
+    @ExceptionHandler(PessimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleLockingFailure(PessimisticLockingFailureException ex, HttpServletRequest request) {
+        System.err.println("ERRO: Falha de bloqueio em " + request.getRequestURI() + ": " + ex.getMostSpecificCause().getMessage());
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.CONFLICT.value(),
+                "Conflict",
+                "O recurso está sendo alterado por outra operação. Tente novamente.",
+                request.getRequestURI()
+        );
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
     /**
      * Captura qualquer outra exceção não tratada, retornando HTTP 500.
      *
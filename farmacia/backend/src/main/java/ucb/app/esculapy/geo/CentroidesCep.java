@@ -0,0 +1,80 @@
+package ucb.app.esculapy.geo;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import ucb.app.esculapy.model.Endereco;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Geocodificação offline por CEP, a partir da base de centroides embutida em
+ * {@code geo/cep-centroides.csv}. O CEP é resolvido pelo prefixo mais longo presente na base,
+ * então a precisão vai do bairro (5 dígitos) até a região (2 dígitos), conforme a base disponível.
+ */
+@Component
+public class CentroidesCep {
+
+    private static final String ARQUIVO = "geo/cep-centroides.csv";
+
+    private final Map<String, Coordenada> porPrefixo = new HashMap<>();
+    private int maiorPrefixo;
+
+    @PostConstruct
+    void carregar() {
+        try (BufferedReader leitor = new BufferedReader(
+                new InputStreamReader(new ClassPathResource(ARQUIVO).getInputStream(), StandardCharsets.UTF_8))) {
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                linha = linha.strip();
+                if (linha.isEmpty() || linha.startsWith("#")) {
+                    continue;
+                }
+                String[] campos = linha.split(",");
+                porPrefixo.put(campos[0], new Coordenada(Double.parseDouble(campos[1]), Double.parseDouble(campos[2])));
+                maiorPrefixo = Math.max(maiorPrefixo, campos[0].length());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível carregar a base de CEPs " + ARQUIVO, e);
+        }
+        System.out.println("LOG: Base de centroides de CEP carregada com " + porPrefixo.size() + " prefixos.");
+    }
+
+    /**
+     * Resolve as coordenadas aproximadas de um CEP.
+     *
+     * @param cep O CEP, com ou sem máscara.
+     * @return O centroide do prefixo mais longo conhecido, ou vazio se nenhum prefixo casar.
+     */
+    public Optional<Coordenada> localizar(String cep) {
+        if (cep == null) {
+            return Optional.empty();
+        }
+        String digitos = cep.replaceAll("\\D", "");
+        for (int tamanho = Math.min(maiorPrefixo, digitos.length()); tamanho > 0; tamanho--) {
+            Coordenada coordenada = porPrefixo.get(digitos.substring(0, tamanho));
+            if (coordenada != null) {
+                return Optional.of(coordenada);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Preenche (ou limpa, se o CEP não for reconhecido) a latitude e a longitude de um endereço a partir do seu CEP.
+     *
+     * @param endereco O endereço, com o CEP já definido.
+     */
+    public void geolocalizar(Endereco endereco) {
+        Optional<Coordenada> coordenada = localizar(endereco.getCep());
+        endereco.setLatitude(coordenada.map(Coordenada::latitude).orElse(null));
+        endereco.setLongitude(coordenada.map(Coordenada::longitude).orElse(null));
+    }
+}
@@ -0,0 +1,27 @@
+package ucb.app.esculapy.geo;
+
+/**
+ * Um ponto geográfico (graus decimais) e o cálculo de distância entre pontos.
+ *
+ * @param latitude A latitude, em graus.
+ * @param longitude A longitude, em graus.
+ */
+public record Coordenada(double latitude, double longitude) {
+
+    private static final double RAIO_TERRA_KM = 6371.0;
+
+    /**
+     * Distância em linha reta até outro ponto, pela fórmula de haversine.
+     *
+     * @param outra O outro ponto.
+     * @return A distância, em quilômetros.
+     */
+    public double distanciaKm(Coordenada outra) {
+        double dLat = Math.toRadians(outra.latitude - latitude);
+        double dLon = Math.toRadians(outra.longitude - longitude);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude)) * Math.cos(Math.toRadians(outra.latitude))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * RAIO_TERRA_KM * Math.asin(Math.sqrt(a));
+    }
+}
@@ -0,0 +1,209 @@
+package ucb.app.esculapy.geo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ucb.app.esculapy.event.FarmaciaAlteradaEvent;
+import ucb.app.esculapy.exception.BadRequestException;
+import ucb.app.esculapy.model.Endereco;
+import ucb.app.esculapy.model.Farmacia;
+import ucb.app.esculapy.model.enums.LojistaStatus;
+import ucb.app.esculapy.repository.FarmaciaRepository;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice espacial em memória das farmácias ATIVAS com endereço geolocalizado, em uma grade de
+ * células de latitude/longitude. Uma busca por raio examina apenas as células que cobrem o
+ * círculo e calcula a distância exata só para as farmácias dessas células.
+ * É construído na inicialização e atualizado farmácia a farmácia após o commit de cada
+ * mudança de status ou de endereço ({@link FarmaciaAlteradaEvent}).
+ */
+@Component
+@RequiredArgsConstructor
+public class IndiceGeografico {
+
+    private static final double KM_POR_GRAU_LATITUDE = 111.32;
+    private static final int TAMANHO_LOTE_CARGA = 1000;
+
+    private final FarmaciaRepository farmaciaRepository;
+
+    @Value("${geo.grade.tamanho-celula-graus:0.05}")
+    private double tamanhoCelula;
+
+    @Value("${geo.busca.raio-padrao-km:5}")
+    private double raioPadraoKm;
+
+    @Value("${geo.busca.raio-maximo-km:50}")
+    private double raioMaximoKm;
+
+    /**
+     * Uma farmácia encontrada na busca por raio.
+     *
+     * @param farmaciaId O ID da farmácia.
+     * @param distanciaKm A distância até o ponto de referência, em quilômetros.
+     */
+    public record Proxima(Long farmaciaId, double distanciaKm) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Célula da grade → IDs das farmácias nela. */
+    private final Map<Long, Set<Long>> farmaciasPorCelula = new HashMap<>();
+
+    /** ID da farmácia → localização. */
+    private final Map<Long, Coordenada> localizacoes = new HashMap<>();
+
+    /**
+     * Constrói o índice com todas as farmácias ativas, em lotes.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void construir() {
+        lock.writeLock().lock();
+        try {
+            farmaciasPorCelula.clear();
+            localizacoes.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Page<Farmacia> pagina;
+        int numero = 0;
+        do {
+            pagina = farmaciaRepository.findAllByStatusComEndereco(LojistaStatus.ATIVO, PageRequest.of(numero++, TAMANHO_LOTE_CARGA, Sort.by("id")));
+            lock.writeLock().lock();
+            try {
+                pagina.forEach(this::adicionarSemLock);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } while (pagina.hasNext());
+
+        System.out.println("LOG: Índice geográfico construído com " + localizacoes.size() + " farmácias.");
+    }
+
+    /**
+     * Reposiciona (ou retira) a farmácia alterada, após o commit.
+     *
+     * @param event O evento de alteração da farmácia.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFarmaciaAlterada(FarmaciaAlteradaEvent event) {
+        Optional<Farmacia> farmacia = farmaciaRepository.findPublicaById(event.farmaciaId());
+        lock.writeLock().lock();
+        try {
+            removerSemLock(event.farmaciaId());
+            farmacia.ifPresent(this::adicionarSemLock);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Valida os parâmetros de uma busca por proximidade vindos da requisição e executa a busca.
+     * O raio é opcional ({@code geo.busca.raio-padrao-km}) e limitado a {@code geo.busca.raio-maximo-km}.
+     *
+     * @param latitude A latitude do ponto de referência.
+     * @param longitude A longitude do ponto de referência.
+     * @param raioKm O raio, em quilômetros (opcional).
+     * @return As farmácias encontradas, da mais próxima para a mais distante.
+     * @throws BadRequestException Se as coordenadas ou o raio forem inválidos.
+     */
+    public List<Proxima> buscarProximas(Double latitude, Double longitude, Double raioKm) {
+        if (latitude == null || longitude == null || Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+            throw new BadRequestException("Coordenadas inválidas. Informe lat entre -90 e 90 e lon entre -180 e 180.");
+        }
+        if (raioKm != null && !(raioKm > 0)) {
+            throw new BadRequestException("O raio da busca deve ser maior que zero.");
+        }
+        double raio = raioKm == null ? raioPadraoKm : Math.min(raioKm, raioMaximoKm);
+        return buscarProximas(new Coordenada(latitude, longitude), raio);
+    }
+
+    /**
+     * Busca as farmácias ativas dentro de um raio, da mais próxima para a mais distante.
+     *
+     * @param centro O ponto de referência.
+     * @param raioKm O raio, em quilômetros.
+     * @return As farmácias encontradas e suas distâncias.
+     */
+    public List<Proxima> buscarProximas(Coordenada centro, double raioKm) {
+        double deltaLat = raioKm / KM_POR_GRAU_LATITUDE;
+        double cosseno = Math.max(Math.cos(Math.toRadians(centro.latitude())), 0.01);
+        double deltaLon = raioKm / (KM_POR_GRAU_LATITUDE * cosseno);
+
+        int linhaMin = linha(centro.latitude() - deltaLat);
+        int linhaMax = linha(centro.latitude() + deltaLat);
+        int colunaMin = coluna(centro.longitude() - deltaLon);
+        int colunaMax = coluna(centro.longitude() + deltaLon);
+
+        List<Proxima> proximas = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int l = linhaMin; l <= linhaMax; l++) {
+                for (int c = colunaMin; c <= colunaMax; c++) {
+                    Set<Long> farmacias = farmaciasPorCelula.get(celula(l, c));
+                    if (farmacias == null) {
+                        continue;
+                    }
+                    for (Long farmaciaId : farmacias) {
+                        double distancia = centro.distanciaKm(localizacoes.get(farmaciaId));
+                        if (distancia <= raioKm) {
+                            proximas.add(new Proxima(farmaciaId, distancia));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        proximas.sort(Comparator.comparingDouble(Proxima::distanciaKm).thenComparing(Proxima::farmaciaId));
+        return proximas;
+    }
+
+    private void adicionarSemLock(Farmacia farmacia) {
+        Endereco endereco = farmacia.getEnderecoComercial();
+        if (endereco == null || endereco.getLatitude() == null || endereco.getLongitude() == null) {
+            return;
+        }
+        Coordenada coordenada = new Coordenada(endereco.getLatitude(), endereco.getLongitude());
+        localizacoes.put(farmacia.getId(), coordenada);
+        farmaciasPorCelula.computeIfAbsent(celulaDe(coordenada), c -> new HashSet<>()).add(farmacia.getId());
+    }
+
+    private void removerSemLock(Long farmaciaId) {
+        Coordenada coordenada = localizacoes.remove(farmaciaId);
+        if (coordenada == null) {
+            return;
+        }
+        long celula = celulaDe(coordenada);
+        Set<Long> farmacias = farmaciasPorCelula.get(celula);
+        farmacias.remove(farmaciaId);
+        if (farmacias.isEmpty()) {
+            farmaciasPorCelula.remove(celula);
+        }
+    }
+
+    private long celulaDe(Coordenada coordenada) {
+        return celula(linha(coordenada.latitude()), coluna(coordenada.longitude()));
+    }
+
+    private int linha(double latitude) {
+        return (int) Math.floor(latitude / tamanhoCelula);
+    }
+
+    private int coluna(double longitude) {
+        return (int) Math.floor(longitude / tamanhoCelula);
+    }
+
+    private static long celula(int linha, int coluna) {
+        return ((long) linha << 32) | (coluna & 0xffffffffL);
+    }
+}
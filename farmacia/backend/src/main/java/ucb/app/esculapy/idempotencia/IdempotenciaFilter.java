@@ -0,0 +1,191 @@
+package ucb.app.esculapy.idempotencia;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ucb.app.esculapy.dto.ErrorResponse;
+import ucb.app.esculapy.exception.BadRequestException;
+import ucb.app.esculapy.exception.ConflictException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Filtro que aplica o cabeçalho {@code Idempotency-Key} à criação de pedidos
+ * ({@code POST /api/pedidos}) e de sessões de pagamento ({@code POST /api/pedidos/{id}/pagar}),
+ * evitando que as repetições automáticas dos clientes móveis criem pedidos duplicados e baixem o
+ * estoque de novo. Sem o cabeçalho, a requisição segue normalmente.
+ * <p>
+ * Registrado como filtro de servlet, roda dentro da cadeia do Spring Security, depois da
+ * autenticação: a chave é separada por usuário. As regras de reserva e de
+ * armazenamento das respostas ficam no {@link IdempotenciaService}; uma resposta repetida
+ * é marcada com o cabeçalho {@code Idempotent-Replayed: true}.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotenciaFilter extends OncePerRequestFilter {
+
+    public static final String CABECALHO_CHAVE = "Idempotency-Key";
+    public static final String CABECALHO_REPETIDA = "Idempotent-Replayed";
+
+    private static final Pattern ROTAS = Pattern.compile("/api/pedidos(/\\d+/pagar)?/?");
+    private static final int TAMANHO_MAXIMO_CHAVE = 255;
+
+    private final IdempotenciaService idempotenciaService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || request.getHeader(CABECALHO_CHAVE) == null
+                || !ROTAS.matcher(request.getRequestURI().substring(request.getContextPath().length())).matches();
+    }
+
+    /**
+     * Executa a requisição uma única vez por chave, ou devolve a resposta já guardada.
+     *
+     * @param request A requisição HTTP.
+     * @param response A resposta HTTP.
+     * @param filterChain A cadeia de filtros.
+     * @throws ServletException Se ocorrer um erro de servlet.
+     * @throws IOException Se ocorrer um erro de I/O.
+     */
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        Authentication autenticacao = SecurityContextHolder.getContext().getAuthentication();
+        if (autenticacao == null || !autenticacao.isAuthenticated()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String chave = request.getHeader(CABECALHO_CHAVE).trim();
+        if (chave.isEmpty() || chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            escreverErro(request, response, HttpStatus.BAD_REQUEST,
+                    "O cabeçalho " + CABECALHO_CHAVE + " deve ter entre 1 e " + TAMANHO_MAXIMO_CHAVE + " caracteres.");
+            return;
+        }
+
+        RequisicaoEmMemoria requisicao = new RequisicaoEmMemoria(request);
+        String escopo = autenticacao.getName() + ":" + chave;
+        String hash = idempotenciaService.calcularHash(request.getMethod(), request.getRequestURI(), requisicao.corpo);
+
+        Optional<IdempotenciaService.Resposta> anterior;
+        try {
+            anterior = idempotenciaService.reservar(escopo, hash);
+        } catch (BadRequestException e) {
+            escreverErro(request, response, HttpStatus.BAD_REQUEST, e.getMessage());
+            return;
+        } catch (ConflictException e) {
+            escreverErro(request, response, HttpStatus.CONFLICT, e.getMessage());
+            return;
+        }
+
+        if (anterior.isPresent()) {
+            IdempotenciaService.Resposta resposta = anterior.get();
+            response.setStatus(resposta.status());
+            response.setContentType(resposta.tipoConteudo());
+            response.setHeader(CABECALHO_REPETIDA, "true");
+            response.getOutputStream().write(resposta.corpo());
+            return;
+        }
+
+        ContentCachingResponseWrapper respostaEmMemoria = new ContentCachingResponseWrapper(response);
+        IdempotenciaService.Resposta concluida = null;
+        try {
+            filterChain.doFilter(requisicao, respostaEmMemoria);
+            if (HttpStatus.valueOf(respostaEmMemoria.getStatus()).is2xxSuccessful()) {
+                concluida = new IdempotenciaService.Resposta(hash, respostaEmMemoria.getStatus(),
+                        respostaEmMemoria.getContentType(), respostaEmMemoria.getContentAsByteArray());
+            }
+        } finally {
+            idempotenciaService.concluir(escopo, concluida);
+            respostaEmMemoria.copyBodyToResponse();
+        }
+    }
+
+    private void escreverErro(HttpServletRequest request, HttpServletResponse response, HttpStatus status, String mensagem)
+            throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponse(status.value(), status.getReasonPhrase(), mensagem, request.getRequestURI()));
+    }
+
+    /**
+     * Requisição com o corpo lido antecipadamente, para calcular o hash antes da execução
+     * e ainda entregá-lo ao controlador.
+     */
+    private static final class RequisicaoEmMemoria extends HttpServletRequestWrapper {
+
+        private final byte[] corpo;
+
+        private RequisicaoEmMemoria(HttpServletRequest request) throws IOException {
+            super(request);
+            this.corpo = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream entrada = new ByteArrayInputStream(corpo);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return entrada.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return entrada.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return entrada.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
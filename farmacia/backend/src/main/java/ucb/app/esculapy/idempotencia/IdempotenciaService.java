@@ -0,0 +1,283 @@
+package ucb.app.esculapy.idempotencia;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ucb.app.esculapy.cache.CacheLocal;
+import ucb.app.esculapy.dto.CacheEstatisticasResponse;
+import ucb.app.esculapy.exception.BadRequestException;
+import ucb.app.esculapy.exception.ConflictException;
+import ucb.app.esculapy.model.ChaveIdempotencia;
+import ucb.app.esculapy.repository.ChaveIdempotenciaRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Serviço que controla as chaves de idempotência ({@code Idempotency-Key}) das requisições que
+ * criam pedidos e sessões de pagamento.
+ * <p>
+ * A primeira requisição com uma chave é executada e, se bem-sucedida (2xx), sua resposta fica
+ * guardada por um tempo de vida limitado, em um cache em memória limitado por tamanho; repetições
+ * recebem a resposta guardada sem executar nada. Uma repetição que chega enquanto a original ainda
+ * executa aguarda o seu término. Respostas de erro não são guardadas: a repetição é executada de novo.
+ * A mesma chave com outra requisição (método, caminho ou corpo diferentes) é recusada.
+ * <p>
+ * Com {@code idempotencia.persistencia.habilitada}, as chaves também são gravadas na tabela
+ * {@code chaves_idempotencia}, o que estende a garantia a reinícios e a mais de uma instância.
+ */
+@Service
+public class IdempotenciaService {
+
+    /** Prazo de uma chave reservada cuja requisição não terminou (ex.: queda da instância). */
+    private static final Duration PRAZO_EXECUCAO = Duration.ofMinutes(5);
+
+    private static final String MENSAGEM_EM_ANDAMENTO =
+            "Uma requisição com esta chave de idempotência ainda está em andamento. Tente novamente em instantes.";
+    private static final String MENSAGEM_DIVERGENTE =
+            "A chave de idempotência já foi usada com uma requisição diferente.";
+
+    /**
+     * A resposta guardada de uma requisição concluída.
+     *
+     * @param hash O hash da requisição original.
+     * @param status O status HTTP da resposta.
+     * @param tipoConteudo O Content-Type da resposta.
+     * @param corpo O corpo da resposta.
+     */
+    public record Resposta(String hash, int status, String tipoConteudo, byte[] corpo) {
+    }
+
+    /**
+     * Uma requisição em execução nesta instância.
+     */
+    private record Execucao(String hash, CompletableFuture<Void> fim) {
+    }
+
+    private final ChaveIdempotenciaRepository chaveIdempotenciaRepository;
+    private final CacheLocal<String, Resposta> respostas;
+    private final Map<String, Execucao> emAndamento = new ConcurrentHashMap<>();
+    private final Duration ttl;
+    private final long esperaMs;
+    private final boolean persistencia;
+
+    public IdempotenciaService(
+            ChaveIdempotenciaRepository chaveIdempotenciaRepository,
+            @Value("${idempotencia.tamanho-maximo:10000}") int tamanhoMaximo,
+            @Value("${idempotencia.ttl-horas:24}") long ttlHoras,
+            @Value("${idempotencia.espera-ms:10000}") long esperaMs,
+            @Value("${idempotencia.persistencia.habilitada:false}") boolean persistencia
+    ) {
+        this.chaveIdempotenciaRepository = chaveIdempotenciaRepository;
+        this.ttl = Duration.ofHours(ttlHoras);
+        this.respostas = new CacheLocal<>("idempotencia.respostas", tamanhoMaximo, ttl);
+        this.esperaMs = esperaMs;
+        this.persistencia = persistencia;
+    }
+
+    /**
+     * Calcula o hash que identifica uma requisição, usado para recusar a reutilização de uma chave
+     * com uma requisição diferente.
+     *
+     * @param metodo O método HTTP.
+     * @param caminho O caminho da requisição.
+     * @param corpo O corpo da requisição.
+     * @return O hash SHA-256, em hexadecimal.
+     */
+    public String calcularHash(String metodo, String caminho, byte[] corpo) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((metodo + " " + caminho + "\n").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(corpo));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível.", e);
+        }
+    }
+
+    /**
+     * Reserva uma chave para execução ou obtém a resposta já guardada para ela.
+     * Se outra requisição com a mesma chave estiver em execução nesta instância, aguarda o seu término.
+     * Toda reserva bem-sucedida deve ser encerrada com {@link #concluir(String, Resposta)}.
+     *
+     * @param chave A chave, já prefixada pelo usuário.
+     * @param hash O hash da requisição.
+     * @return A resposta guardada, ou vazio se a chave foi reservada e a requisição deve ser executada.
+     * @throws BadRequestException Se a chave já foi usada com uma requisição diferente.
+     * @throws ConflictException Se a requisição original não terminar dentro do prazo de espera.
+     */
+    public Optional<Resposta> reservar(String chave, String hash) {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMs);
+        while (true) {
+            Resposta resposta = respostas.getSePresente(chave);
+            if (resposta != null) {
+                return Optional.of(validar(resposta, hash));
+            }
+
+            Execucao execucao = new Execucao(hash, new CompletableFuture<>());
+            Execucao atual = emAndamento.putIfAbsent(chave, execucao);
+            if (atual == null) {
+                return reservarExecucao(chave, hash, execucao);
+            }
+
+            if (!atual.hash().equals(hash)) {
+                throw new BadRequestException(MENSAGEM_DIVERGENTE);
+            }
+            try {
+                atual.fim().get(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                throw new ConflictException(MENSAGEM_EM_ANDAMENTO);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ConflictException(MENSAGEM_EM_ANDAMENTO);
+            } catch (ExecutionException e) {
+                // Não ocorre: o término da execução nunca é concluído com exceção.
+            }
+            // A original terminou: a resposta está no cache (sucesso) ou a chave foi liberada (erro).
+        }
+    }
+
+    /**
+     * Encerra a execução de uma chave reservada, guardando a resposta em caso de sucesso
+     * ou liberando a chave em caso de erro.
+     *
+     * @param chave A chave reservada.
+     * @param resposta A resposta a ser guardada, ou nulo se a requisição falhou.
+     */
+    public void concluir(String chave, Resposta resposta) {
+        try {
+            if (persistencia) {
+                if (resposta != null) {
+                    gravarResposta(chave, resposta);
+                } else {
+                    chaveIdempotenciaRepository.deleteById(chave);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("ERRO: Falha ao gravar a chave de idempotência: " + e.getMessage());
+        } finally {
+            // A resposta entra no cache antes de a execução sair do mapa: quem aguarda sempre a encontra.
+            if (resposta != null) {
+                respostas.put(chave, resposta);
+            }
+            Execucao execucao = emAndamento.remove(chave);
+            if (execucao != null) {
+                execucao.fim().complete(null);
+            }
+        }
+    }
+
+    /**
+     * Retorna as estatísticas de uso do cache de respostas.
+     *
+     * @return O DTO {@link CacheEstatisticasResponse}.
+     */
+    public CacheEstatisticasResponse getEstatisticas() {
+        return respostas.getEstatisticas();
+    }
+
+    /**
+     * Remove periodicamente as chaves persistidas vencidas.
+     */
+    @Scheduled(fixedDelayString = "${idempotencia.limpeza.intervalo-ms:3600000}")
+    @Transactional
+    public void removerExpiradas() {
+        if (!persistencia) {
+            return;
+        }
+        int removidas = chaveIdempotenciaRepository.deleteExpiradas(LocalDateTime.now());
+        if (removidas > 0) {
+            System.out.println("LOG: [IdempotenciaService] " + removidas + " chave(s) de idempotência vencida(s) removida(s).");
+        }
+    }
+
+    private Optional<Resposta> reservarExecucao(String chave, String hash, Execucao execucao) {
+        try {
+            // Concluída entre a consulta ao cache e a reserva.
+            Resposta resposta = respostas.getSePresente(chave);
+            if (resposta == null && persistencia) {
+                resposta = reservarPersistida(chave, hash);
+            }
+            if (resposta != null) {
+                liberar(chave, execucao);
+                return Optional.of(validar(resposta, hash));
+            }
+            return Optional.empty();
+        } catch (RuntimeException e) {
+            liberar(chave, execucao);
+            throw e;
+        }
+    }
+
+    /**
+     * Reserva a chave na tabela, recusando-a se estiver em execução em outra instância.
+     *
+     * @return A resposta já gravada para a chave, ou nulo se a chave foi reservada.
+     */
+    private Resposta reservarPersistida(String chave, String hash) {
+        LocalDateTime agora = LocalDateTime.now();
+        Optional<ChaveIdempotencia> existente = chaveIdempotenciaRepository.findById(chave);
+        if (existente.isPresent()) {
+            ChaveIdempotencia registro = existente.get();
+            if (registro.getExpiraEm().isAfter(agora)) {
+                if (!registro.getHashRequisicao().equals(hash)) {
+                    throw new BadRequestException(MENSAGEM_DIVERGENTE);
+                }
+                if (registro.getStatusResposta() == null) {
+                    throw new ConflictException(MENSAGEM_EM_ANDAMENTO);
+                }
+                Resposta resposta = new Resposta(registro.getHashRequisicao(), registro.getStatusResposta(),
+                        registro.getTipoConteudo(), registro.getCorpoResposta());
+                respostas.put(chave, resposta);
+                return resposta;
+            }
+            chaveIdempotenciaRepository.delete(registro);
+        }
+
+        ChaveIdempotencia registro = new ChaveIdempotencia();
+        registro.setChave(chave);
+        registro.setHashRequisicao(hash);
+        registro.setExpiraEm(agora.plus(PRAZO_EXECUCAO));
+        try {
+            chaveIdempotenciaRepository.saveAndFlush(registro);
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException(MENSAGEM_EM_ANDAMENTO);
+        }
+        return null;
+    }
+
+    private void gravarResposta(String chave, Resposta resposta) {
+        ChaveIdempotencia registro = chaveIdempotenciaRepository.findById(chave).orElseGet(ChaveIdempotencia::new);
+        registro.setChave(chave);
+        registro.setHashRequisicao(resposta.hash());
+        registro.setStatusResposta(resposta.status());
+        registro.setTipoConteudo(resposta.tipoConteudo());
+        registro.setCorpoResposta(resposta.corpo());
+        registro.setExpiraEm(LocalDateTime.now().plus(ttl));
+        chaveIdempotenciaRepository.save(registro);
+    }
+
+    private void liberar(String chave, Execucao execucao) {
+        emAndamento.remove(chave, execucao);
+        execucao.fim().complete(null);
+    }
+
+    private static Resposta validar(Resposta resposta, String hash) {
+        if (!resposta.hash().equals(hash)) {
+            throw new BadRequestException(MENSAGEM_DIVERGENTE);
+        }
+        return resposta;
+    }
+}
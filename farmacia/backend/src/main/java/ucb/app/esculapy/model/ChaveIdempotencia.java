@@ -0,0 +1,47 @@
+package ucb.app.esculapy.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidade que guarda, de forma persistente, uma chave de idempotência ({@code Idempotency-Key})
+ * e a resposta da requisição que a usou, para que repetições da mesma requisição devolvam a
+ * resposta original em qualquer instância. Enquanto a requisição original está em execução,
+ * a resposta é nula. Usada apenas com {@code idempotencia.persistencia.habilitada=true}.
+ */
+@Entity
+@Table(name = "chaves_idempotencia", indexes = {
+        @Index(name = "idx_idempotencia_expiracao", columnList = "expira_em")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ChaveIdempotencia {
+
+    /** A chave informada pelo cliente, prefixada pelo usuário que a enviou. */
+    @Id
+    @Column(length = 320)
+    private String chave;
+
+    /** Hash SHA-256 do método, caminho e corpo da requisição original. */
+    @Column(nullable = false, length = 64)
+    private String hashRequisicao;
+
+    private Integer statusResposta;
+
+    private String tipoConteudo;
+
+    @Lob
+    @Column(length = 16777215)
+    private byte[] corpoResposta;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime criadaEm = LocalDateTime.now();
+
+    @Column(nullable = false)
+    private LocalDateTime expiraEm;
+}
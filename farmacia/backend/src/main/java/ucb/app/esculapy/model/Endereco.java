@@ -37,6 +37,13 @@ public class Endereco {
     private String cidade;
     private String estado;
 
+    /**
+     * Coordenadas aproximadas (centroide do CEP), preenchidas na gravação do endereço.
+     * Nulas quando o CEP não é reconhecido pela base embutida.
+     */
+    private Double latitude;
+    private Double longitude;
+
     /**
      * Tipo do endereço, ex: "CASA", "TRABALHO" (para Cliente)
      * ou "COMERCIAL" (para Farmacia).
@@ -0,0 +1,39 @@
+package ucb.app.esculapy.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+/**
+ * Entidade que representa uma fração (sub-contador) da quantidade de um item de estoque no modo fracionado.
+ * Em itens muito disputados, a quantidade é dividida entre várias frações para que baixas concorrentes
+ * bloqueiem linhas diferentes em vez de serializarem na linha de {@link EstoqueLojista}.
+ * A combinação estoque_lojista_id e indice é única.
+ */
+@Entity
+@Table(name = "estoque_fracoes", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"estoque_lojista_id", "indice"})
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class EstoqueFracao {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "estoque_lojista_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private EstoqueLojista estoqueLojista;
+
+    @Column(nullable = false)
+    private int indice;
+
+    @Column(nullable = false)
+    private int quantidade;
+}
@@ -7,7 +7,11 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
+
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 /**
  * Entidade que representa o estoque de um produto em uma farmácia específica.
@@ -16,6 +20,11 @@ import java.math.BigDecimal;
 @Entity
 @Table(name = "estoque_lojista", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"farmacia_id", "produto_id"})
+}, indexes = {
+        @Index(name = "idx_estoque_farmacia_id", columnList = "farmacia_id, id"),
+        @Index(name = "idx_estoque_atualizacao", columnList = "data_atualizacao, id"),
+        @Index(name = "idx_estoque_farmacia_atualizacao", columnList = "farmacia_id, data_atualizacao, id"),
+        @Index(name = "idx_estoque_fracoes", columnList = "fracoes")
 })
 @Getter
 @Setter
@@ -40,12 +49,40 @@ public class EstoqueLojista {
     @Column(nullable = false)
     private BigDecimal preco;
 
+    /**
+     * A quantidade disponível. No modo fracionado é um agregado da soma das {@link EstoqueFracao},
+     * mantido pela reconciliação periódica; a baixa real ocorre nas frações.
+     */
     @Column(nullable = false)
     private Integer quantidade;
 
+    /**
+     * Número de frações em que a quantidade está dividida (modo fracionado, para itens muito disputados);
+     * 0 no modo normal.
+     */
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int fracoes = 0;
+
     @Column(nullable = false)
     private boolean ativo = true;
 
+    /**
+     * Instante da última alteração (preço, quantidade ou ativação), usado pela exportação incremental de ofertas.
+     * As baixas, estornos e sincronizações JDBC em lote também mantêm esta coluna.
+     */
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime dataAtualizacao;
+
+    /**
+     * Indica se a quantidade do item está dividida em frações.
+     */
+    @JsonIgnore
+    public boolean isFracionado() {
+        return fracoes > 0;
+    }
+
     /**
      * Expõe o ID do produto na serialização JSON
      * Mantém o campo 'produto' com @JsonIgnore para evitar lazy loading issues
@@ -0,0 +1,55 @@
+package ucb.app.esculapy.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidade da caixa de saída (transactional outbox) dos eventos do ciclo de vida dos pedidos.
+ * Cada evento é gravado na mesma transação da alteração do pedido e depois entregue aos destinos
+ * externos (ERP, notificações, analytics) pelo {@link ucb.app.esculapy.outbox.RelayOutbox}.
+ * O ID crescente define a ordem de entrega; {@code publicadoEm} nulo indica um evento pendente.
+ */
+@Entity
+@Table(name = "outbox_eventos", indexes = {
+        @Index(name = "idx_outbox_pendentes", columnList = "publicado_em, id"),
+        @Index(name = "idx_outbox_pedido", columnList = "pedido_id, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class EventoOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** O tipo do evento (ex: PEDIDO_CRIADO, PEDIDO_STATUS_ALTERADO). */
+    @Column(nullable = false, length = 60)
+    private String tipo;
+
+    @Column(nullable = false)
+    private Long pedidoId;
+
+    private Long farmaciaId;
+
+    /** O corpo do evento, em JSON. */
+    @Lob
+    @Column(nullable = false, length = 65535)
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime criadoEm;
+
+    private LocalDateTime publicadoEm;
+
+    /** Número de entregas que falharam. */
+    @Column(nullable = false)
+    private int tentativas = 0;
+
+    @Column(length = 500)
+    private String ultimoErro;
+}
@@ -0,0 +1,50 @@
+package ucb.app.esculapy.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ucb.app.esculapy.model.enums.TipoRegistroExportado;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidade que registra a exclusão permanente de um produto ou de uma oferta (tombstone).
+ * É gravada na mesma transação da exclusão e lida pela exportação incremental, já que a linha
+ * excluída não existe mais para aparecer no delta por data de atualização.
+ */
+@Entity
+@Table(name = "exportacao_exclusoes", indexes = {
+        @Index(name = "idx_exclusao_tipo_data", columnList = "tipo, data_exclusao, id"),
+        @Index(name = "idx_exclusao_tipo_farmacia_data", columnList = "tipo, farmacia_id, data_exclusao, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+public class ExclusaoExportacao {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private TipoRegistroExportado tipo;
+
+    /** O ID do produto ou da oferta excluída. */
+    @Column(nullable = false)
+    private Long registroId;
+
+    /** A farmácia da oferta excluída (nulo para produtos). */
+    private Long farmaciaId;
+
+    @Column(nullable = false)
+    private LocalDateTime dataExclusao;
+
+    public ExclusaoExportacao(TipoRegistroExportado tipo, Long registroId, Long farmaciaId) {
+        this.tipo = tipo;
+        this.registroId = registroId;
+        this.farmaciaId = farmaciaId;
+        this.dataExclusao = LocalDateTime.now();
+    }
+}
@@ -1,6 +1,8 @@
 package ucb.app.esculapy.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import ucb.app.esculapy.model.enums.PedidoStatus;
 import jakarta.persistence.*;
 import lombok.Getter;
@@ -13,9 +15,16 @@ import java.util.List;
 
 /**
  * Entidade que representa um Pedido feito por um Cliente.
+ * Todo pedido pertence a uma única farmácia; a coluna farmacia_id é indexada
+ * para que as listagens e verificações de posse da farmácia não precisem de JOIN com os itens.
+ * Os índices terminados em (data_pedido, id) atendem à paginação por cursor das listagens.
  */
 @Entity
-@Table(name = "pedidos")
+@Table(name = "pedidos", indexes = {
+        @Index(name = "idx_pedido_farmacia_status", columnList = "farmacia_id, status, data_pedido, id"),
+        @Index(name = "idx_pedido_farmacia_data", columnList = "farmacia_id, data_pedido, id"),
+        @Index(name = "idx_pedido_cliente_data", columnList = "cliente_id, data_pedido, id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -30,8 +39,20 @@ public class Pedido {
     @JoinColumn(name = "cliente_id")
     private Cliente cliente;
 
+    /**
+     * A farmácia dona de todos os itens do pedido.
+     */
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "farmacia_id")
+    private Farmacia farmacia;
+
+    /**
+     * O status atual. A coluna não é atualizada pelo dirty checking: após a inserção, o status só
+     * muda pelo UPDATE condicional do {@link ucb.app.esculapy.service.TransicaoPedidoService}.
+     */
     @Enumerated(EnumType.STRING)
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private PedidoStatus status;
 
     @Column(nullable = false)
@@ -51,4 +72,13 @@ public class Pedido {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "endereco_entrega_id")
     private Endereco enderecoEntrega;
-}
\ No newline at end of file
+
+    /**
+     * Expõe o ID da farmácia na serialização JSON
+     * Mantém o campo 'farmacia' com @JsonIgnore para evitar lazy loading issues
+     */
+    @JsonProperty("farmaciaId")
+    public Long getFarmaciaId() {
+        return farmacia != null ? farmacia.getId() : null;
+    }
+}
@@ -7,6 +7,9 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
 
 /**
  * Entidade que representa um Produto no Catálogo Mestre da plataforma.
@@ -15,6 +18,8 @@ import lombok.Setter;
 @Table(name = "produtos_catalogo", uniqueConstraints = {
         @UniqueConstraint(columnNames = "ean"),
         @UniqueConstraint(columnNames = "codigoRegistroMS")
+}, indexes = {
+        @Index(name = "idx_produto_atualizacao", columnList = "data_atualizacao, id")
 })
 @Getter
 @Setter
@@ -54,4 +59,12 @@ public class Produto {
 
     @Column(nullable = false)
     private boolean ativo = true;
+
+    /**
+     * Instante da última alteração, usado pela exportação incremental do catálogo.
+     * As gravações JDBC em lote também mantêm esta coluna.
+     */
+    @UpdateTimestamp
+    @Column(nullable = false)
+    private LocalDateTime dataAtualizacao;
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+package ucb.app.esculapy.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import ucb.app.esculapy.model.enums.ReservaStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidade que representa a retenção temporária do estoque baixado por um Pedido
+ * enquanto ele aguarda receita ou pagamento.
+ * O índice em (status, expira_em) permite que a liberação de reservas vencidas
+ * percorra apenas as reservas ativas, sem varrer a tabela de pedidos.
+ */
+@Entity
+@Table(name = "reservas_estoque", indexes = {
+        @Index(name = "idx_reserva_status_expiracao", columnList = "status, expira_em")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+public class ReservaEstoque {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "pedido_id", referencedColumnName = "id", unique = true)
+    private Pedido pedido;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReservaStatus status = ReservaStatus.ATIVA;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime criadaEm = LocalDateTime.now();
+
+    @Column(nullable = false)
+    private LocalDateTime expiraEm;
+}
@@ -1,7 +1,15 @@
 package ucb.app.esculapy.model.enums;
 
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
- * Define os estados possíveis de um Pedido.
+ * Define os estados possíveis de um Pedido e a tabela de transições permitidas entre eles.
+ * Toda mudança de status passa pelo {@link ucb.app.esculapy.service.TransicaoPedidoService},
+ * que aplica esta tabela.
  */
 public enum PedidoStatus {
     /**
@@ -52,5 +60,48 @@ public enum PedidoStatus {
     /**
      * O pedido foi recusado pela farmácia (ex: falta de estoque).
      */
-    RECUSADO
-}
\ No newline at end of file
+    RECUSADO;
+
+    private static final Map<PedidoStatus, Set<PedidoStatus>> TRANSICOES = new EnumMap<>(PedidoStatus.class);
+
+    static {
+        TRANSICOES.put(AGUARDANDO_RECEITA, EnumSet.of(AGUARDANDO_PAGAMENTO, CANCELADO));
+        TRANSICOES.put(AGUARDANDO_PAGAMENTO, EnumSet.of(AGUARDANDO_CONFIRMACAO, CANCELADO));
+        TRANSICOES.put(AGUARDANDO_CONFIRMACAO, EnumSet.of(CONFIRMADO, RECUSADO, CANCELADO));
+        TRANSICOES.put(CONFIRMADO, EnumSet.of(EM_PREPARACAO, PRONTO_PARA_ENTREGA, EM_TRANSPORTE, ENTREGUE));
+        TRANSICOES.put(EM_PREPARACAO, EnumSet.of(PRONTO_PARA_ENTREGA, EM_TRANSPORTE, ENTREGUE));
+        TRANSICOES.put(PRONTO_PARA_ENTREGA, EnumSet.of(EM_TRANSPORTE, ENTREGUE));
+        TRANSICOES.put(EM_TRANSPORTE, EnumSet.of(ENTREGUE));
+        TRANSICOES.put(ENTREGUE, EnumSet.noneOf(PedidoStatus.class));
+        TRANSICOES.put(CANCELADO, EnumSet.noneOf(PedidoStatus.class));
+        TRANSICOES.put(RECUSADO, EnumSet.noneOf(PedidoStatus.class));
+    }
+
+    /**
+     * Retorna os status para os quais um pedido neste status pode ir.
+     *
+     * @return O conjunto (imutável) de status de destino; vazio para os status finais.
+     */
+    public Set<PedidoStatus> getTransicoesPermitidas() {
+        return Collections.unmodifiableSet(TRANSICOES.get(this));
+    }
+
+    /**
+     * Indica se um pedido neste status pode ir para o status informado.
+     *
+     * @param destino O status de destino.
+     * @return True se a transição estiver na tabela.
+     */
+    public boolean podeTransicionarPara(PedidoStatus destino) {
+        return TRANSICOES.get(this).contains(destino);
+    }
+
+    /**
+     * Indica se o status é final (entregue, cancelado ou recusado), sem transições de saída.
+     *
+     * @return True se o status for final.
+     */
+    public boolean isFinal() {
+        return TRANSICOES.get(this).isEmpty();
+    }
+}
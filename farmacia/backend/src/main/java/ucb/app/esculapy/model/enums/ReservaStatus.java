@@ -0,0 +1,21 @@
+package ucb.app.esculapy.model.enums;
+
+/**
+ * Define os estados de uma reserva de estoque vinculada a um Pedido.
+ */
+public enum ReservaStatus {
+    /**
+     * O estoque está retido para o pedido até o horário de expiração.
+     */
+    ATIVA,
+
+    /**
+     * O pagamento foi confirmado e a baixa de estoque passou a ser definitiva.
+     */
+    CONFIRMADA,
+
+    /**
+     * A reserva foi desfeita (expiração, cancelamento ou recusa) e o estoque foi estornado.
+     */
+    LIBERADA
+}
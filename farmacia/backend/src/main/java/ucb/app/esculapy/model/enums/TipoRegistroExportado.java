@@ -0,0 +1,16 @@
+package ucb.app.esculapy.model.enums;
+
+/**
+ * Define o tipo de registro exportado a parceiros e indexadores.
+ */
+public enum TipoRegistroExportado {
+    /**
+     * Produto do catálogo.
+     */
+    PRODUTO,
+
+    /**
+     * Oferta (item de estoque de uma farmácia).
+     */
+    OFERTA
+}
@@ -0,0 +1,198 @@
+package ucb.app.esculapy.notificacao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ucb.app.esculapy.event.PedidoCriadoEvent;
+import ucb.app.esculapy.event.PedidoStatusAlteradoEvent;
+import ucb.app.esculapy.exception.ConflictException;
+import ucb.app.esculapy.model.enums.PedidoStatus;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hub em memória que envia, por Server-Sent Events, os eventos de pedidos de cada farmácia aos painéis
+ * conectados do lojista e dos farmacêuticos, no lugar da consulta periódica das listas de pedidos.
+ * <p>
+ * As conexões são assíncronas ({@link SseEmitter}): uma conexão ociosa não ocupa thread nem conexão
+ * com o banco, apenas a entrada no mapa por farmácia. Os eventos são enviados depois do commit, por uma
+ * thread própria, para que clientes lentos não atrasem quem alterou o pedido; a mesma thread envia
+ * periodicamente um comentário de keep-alive, que também descarta as conexões já fechadas.
+ * <p>
+ * Cada instância notifica apenas os painéis conectados a ela sobre os eventos que ela mesma processou.
+ * Os eventos não são guardados: ao reconectar, o painel deve recarregar a lista de pedidos uma vez.
+ */
+@Component
+@RequiredArgsConstructor
+public class HubPedidosFarmacia {
+
+    public static final String PEDIDO_CRIADO = "pedido-criado";
+    public static final String PEDIDO_PAGO = "pedido-pago";
+    public static final String RECEITA_ANEXADA = "receita-anexada";
+
+    private final ObjectMapper objectMapper;
+
+    private final Map<Long, Set<SseEmitter>> assinantes = new ConcurrentHashMap<>();
+    private final AtomicInteger conexoes = new AtomicInteger();
+    private final AtomicLong sequencia = new AtomicLong();
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+        Thread thread = new Thread(tarefa, "hub-pedidos");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${notificacoes.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${notificacoes.sse.keep-alive-ms:25000}")
+    private long keepAliveMs;
+
+    @Value("${notificacoes.sse.maximo-conexoes:10000}")
+    private int maximoConexoes;
+
+    @Value("${notificacoes.sse.maximo-conexoes-por-farmacia:100}")
+    private int maximoConexoesPorFarmacia;
+
+    @PostConstruct
+    void iniciar() {
+        executor.scheduleWithFixedDelay(this::enviarKeepAlive, keepAliveMs, keepAliveMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+        assinantes.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+        assinantes.clear();
+    }
+
+    /**
+     * Abre uma assinatura dos eventos de pedidos de uma farmácia.
+     *
+     * @param farmaciaId O ID da farmácia.
+     * @return O {@link SseEmitter} da conexão.
+     * @throws ConflictException Se o limite de conexões (total ou da farmácia) tiver sido atingido.
+     */
+    public SseEmitter assinar(Long farmaciaId) {
+        if (conexoes.incrementAndGet() > maximoConexoes) {
+            conexoes.decrementAndGet();
+            throw new ConflictException("Limite de conexões de notificação atingido. Tente novamente mais tarde.");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        try {
+            assinantes.compute(farmaciaId, (id, emitters) -> {
+                Set<SseEmitter> daFarmacia = emitters != null ? emitters : ConcurrentHashMap.newKeySet();
+                if (daFarmacia.size() >= maximoConexoesPorFarmacia) {
+                    throw new ConflictException("Limite de conexões de notificação da farmácia atingido.");
+                }
+                daFarmacia.add(emitter);
+                return daFarmacia;
+            });
+        } catch (ConflictException e) {
+            conexoes.decrementAndGet();
+            throw e;
+        }
+
+        emitter.onCompletion(() -> remover(farmaciaId, emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(erro -> remover(farmaciaId, emitter));
+        enviar(farmaciaId, emitter, SseEmitter.event().comment("conectado"));
+        return emitter;
+    }
+
+    /**
+     * Notifica os painéis da farmácia sobre um pedido criado.
+     *
+     * @param evento O evento de criação.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoCriarPedido(PedidoCriadoEvent evento) {
+        publicar(evento.farmaciaId(), PEDIDO_CRIADO, new NotificacaoPedido(evento.pedidoId(), evento.status(), LocalDateTime.now()));
+    }
+
+    /**
+     * Notifica os painéis da farmácia sobre um pedido pago ou com receita anexada.
+     *
+     * @param evento O evento de transição de status.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarStatus(PedidoStatusAlteradoEvent evento) {
+        String tipo;
+        if (evento.novoStatus() == PedidoStatus.AGUARDANDO_CONFIRMACAO) {
+            tipo = PEDIDO_PAGO;
+        } else if (evento.statusAnterior() == PedidoStatus.AGUARDANDO_RECEITA && evento.novoStatus() == PedidoStatus.AGUARDANDO_PAGAMENTO) {
+            tipo = RECEITA_ANEXADA;
+        } else {
+            return;
+        }
+        publicar(evento.farmaciaId(), tipo, new NotificacaoPedido(evento.pedidoId(), evento.novoStatus(), LocalDateTime.now()));
+    }
+
+    private void publicar(Long farmaciaId, String tipo, NotificacaoPedido notificacao) {
+        Set<SseEmitter> emitters = assinantes.get(farmaciaId);
+        if (emitters == null || emitters.isEmpty()) {
+            return;
+        }
+        String dados;
+        try {
+            // Serializado uma única vez para todas as conexões da farmácia.
+            dados = objectMapper.writeValueAsString(notificacao);
+        } catch (JsonProcessingException e) {
+            System.err.println("ERRO: [HubPedidosFarmacia] Falha ao serializar a notificação do pedido " + notificacao.pedidoId() + ": " + e.getMessage());
+            return;
+        }
+        String id = String.valueOf(sequencia.incrementAndGet());
+        executor.execute(() -> {
+            for (SseEmitter emitter : List.copyOf(emitters)) {
+                enviar(farmaciaId, emitter, SseEmitter.event().id(id).name(tipo).data(dados));
+            }
+        });
+    }
+
+    private void enviarKeepAlive() {
+        assinantes.forEach((farmaciaId, emitters) -> {
+            for (SseEmitter emitter : List.copyOf(emitters)) {
+                enviar(farmaciaId, emitter, SseEmitter.event().comment("keep-alive"));
+            }
+        });
+    }
+
+    private void enviar(Long farmaciaId, SseEmitter emitter, SseEmitter.SseEventBuilder evento) {
+        try {
+            emitter.send(evento);
+        } catch (IOException | IllegalStateException e) {
+            // Conexão fechada pelo cliente ou já encerrada.
+            remover(farmaciaId, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void remover(Long farmaciaId, SseEmitter emitter) {
+        AtomicBoolean removido = new AtomicBoolean();
+        assinantes.computeIfPresent(farmaciaId, (id, emitters) -> {
+            removido.set(emitters.remove(emitter));
+            return emitters.isEmpty() ? null : emitters;
+        });
+        if (removido.get()) {
+            conexoes.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ucb.app.esculapy.notificacao;
+
+import ucb.app.esculapy.model.enums.PedidoStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Os dados de uma notificação de pedido enviada aos painéis da farmácia. Contém apenas o
+ * necessário para o painel decidir se deve buscar o detalhe do pedido.
+ *
+ * @param pedidoId O ID do pedido.
+ * @param status O status do pedido após o evento.
+ * @param ocorridoEm A data do evento.
+ */
+public record NotificacaoPedido(Long pedidoId, PedidoStatus status, LocalDateTime ocorridoEm) {
+}
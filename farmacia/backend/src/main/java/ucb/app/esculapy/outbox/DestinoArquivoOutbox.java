@@ -0,0 +1,56 @@
+package ucb.app.esculapy.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Destino local que acrescenta os eventos a um arquivo NDJSON (um objeto JSON por linha).
+ * Serve como substituto dos consumidores externos em desenvolvimento e testes.
+ */
+@Component
+@RequiredArgsConstructor
+public class DestinoArquivoOutbox implements DestinoOutbox {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${outbox.destino.arquivo.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${outbox.destino.arquivo.caminho:outbox/eventos.ndjson}")
+    private String caminho;
+
+    @Override
+    public String getNome() {
+        return "arquivo";
+    }
+
+    @Override
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    @Override
+    public synchronized void publicar(List<MensagemOutbox> mensagens) throws IOException {
+        Path arquivo = Path.of(caminho);
+        if (arquivo.getParent() != null) {
+            Files.createDirectories(arquivo.getParent());
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (MensagemOutbox mensagem : mensagens) {
+                writer.write(objectMapper.writeValueAsString(mensagem));
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ucb.app.esculapy.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Destino que envia cada lote de eventos como um array JSON em um {@code POST} para a URL
+ * configurada em {@code outbox.destino.http.url}. Qualquer resposta fora da faixa 2xx é tratada
+ * como falha e o lote é reenviado. Desabilitado quando a URL não é informada.
+ */
+@Component
+public class DestinoHttpOutbox implements DestinoOutbox {
+
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final String url;
+    private final Duration timeout;
+
+    public DestinoHttpOutbox(
+            ObjectMapper objectMapper,
+            @Value("${outbox.destino.http.url:}") String url,
+            @Value("${outbox.destino.http.timeout-ms:5000}") long timeoutMs
+    ) {
+        this.objectMapper = objectMapper;
+        this.url = url;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public String getNome() {
+        return "http";
+    }
+
+    @Override
+    public boolean isHabilitado() {
+        return url != null && !url.isBlank();
+    }
+
+    @Override
+    public void publicar(List<MensagemOutbox> mensagens) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(mensagens)))
+                .build();
+        HttpResponse<Void> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Envio interrompido.", e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("O destino respondeu com o status HTTP " + response.statusCode() + ".");
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ucb.app.esculapy.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destino externo dos eventos da caixa de saída (ex: ERP, serviço de notificações, analytics).
+ * Todo bean que implementa esta interface e está habilitado recebe todos os eventos, em lotes
+ * ordenados por ID, pelo {@link RelayOutbox}.
+ */
+public interface DestinoOutbox {
+
+    /**
+     * Retorna o nome do destino, usado nos logs e nas estatísticas.
+     *
+     * @return O nome do destino.
+     */
+    String getNome();
+
+    /**
+     * Indica se o destino está configurado para receber eventos.
+     *
+     * @return True se habilitado.
+     */
+    boolean isHabilitado();
+
+    /**
+     * Entrega um lote de mensagens, na ordem recebida. Só deve retornar depois que o destino
+     * confirmou o recebimento de todo o lote; um lote que falhou pode ser reenviado.
+     *
+     * @param mensagens As mensagens, em ordem de ID.
+     * @throws IOException Se a entrega falhar.
+     */
+    void publicar(List<MensagemOutbox> mensagens) throws IOException;
+}
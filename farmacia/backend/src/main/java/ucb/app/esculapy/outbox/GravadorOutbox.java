@@ -0,0 +1,64 @@
+package ucb.app.esculapy.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ucb.app.esculapy.event.PedidoCriadoEvent;
+import ucb.app.esculapy.event.PedidoStatusAlteradoEvent;
+import ucb.app.esculapy.model.EventoOutbox;
+import ucb.app.esculapy.repository.EventoOutboxRepository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Grava os eventos do ciclo de vida dos pedidos na caixa de saída ({@link EventoOutbox}).
+ * A gravação ocorre antes do commit, na mesma transação da alteração do pedido: o evento existe
+ * se, e somente se, a alteração foi confirmada. Fora de uma transação, o evento não é gravado.
+ */
+@Component
+@RequiredArgsConstructor
+public class GravadorOutbox {
+
+    public static final String PEDIDO_CRIADO = "PEDIDO_CRIADO";
+    public static final String PEDIDO_STATUS_ALTERADO = "PEDIDO_STATUS_ALTERADO";
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Grava a criação de um pedido.
+     *
+     * @param evento O evento de criação.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void aoCriarPedido(PedidoCriadoEvent evento) {
+        gravar(PEDIDO_CRIADO, evento.pedidoId(), evento.farmaciaId(), evento);
+    }
+
+    /**
+     * Grava uma transição de status de um pedido.
+     *
+     * @param evento O evento de transição.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void aoAlterarStatus(PedidoStatusAlteradoEvent evento) {
+        gravar(PEDIDO_STATUS_ALTERADO, evento.pedidoId(), evento.farmaciaId(), evento);
+    }
+
+    private void gravar(String tipo, Long pedidoId, Long farmaciaId, Object evento) {
+        EventoOutbox registro = new EventoOutbox();
+        registro.setTipo(tipo);
+        registro.setPedidoId(pedidoId);
+        registro.setFarmaciaId(farmaciaId);
+        registro.setCriadoEm(LocalDateTime.now());
+        try {
+            registro.setPayload(objectMapper.writeValueAsString(evento));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar o evento " + tipo + " do pedido " + pedidoId + ".", e);
+        }
+        eventoOutboxRepository.save(registro);
+    }
+}
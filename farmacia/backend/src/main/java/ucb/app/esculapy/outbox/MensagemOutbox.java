@@ -0,0 +1,33 @@
+package ucb.app.esculapy.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import ucb.app.esculapy.model.EventoOutbox;
+
+import java.time.LocalDateTime;
+
+/**
+ * A mensagem entregue aos destinos: o envelope do evento com o corpo JSON original.
+ * O ID é único e crescente; como a entrega é "pelo menos uma vez", os consumidores devem
+ * usá-lo para descartar repetições.
+ *
+ * @param id O ID do evento na caixa de saída.
+ * @param tipo O tipo do evento.
+ * @param pedidoId O ID do pedido.
+ * @param farmaciaId O ID da farmácia do pedido.
+ * @param criadoEm A data de gravação do evento.
+ * @param payload O corpo do evento, em JSON.
+ */
+public record MensagemOutbox(Long id, String tipo, Long pedidoId, Long farmaciaId, LocalDateTime criadoEm,
+                             @JsonRawValue String payload) {
+
+    /**
+     * Cria a mensagem a partir do registro da caixa de saída.
+     *
+     * @param evento O registro.
+     * @return A {@link MensagemOutbox}.
+     */
+    public static MensagemOutbox de(EventoOutbox evento) {
+        return new MensagemOutbox(evento.getId(), evento.getTipo(), evento.getPedidoId(), evento.getFarmaciaId(),
+                evento.getCriadoEm(), evento.getPayload());
+    }
+}
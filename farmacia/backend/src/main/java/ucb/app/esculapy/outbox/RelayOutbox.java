@@ -0,0 +1,228 @@
+package ucb.app.esculapy.outbox;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ucb.app.esculapy.dto.OutboxEstatisticasResponse;
+import ucb.app.esculapy.model.EventoOutbox;
+import ucb.app.esculapy.repository.EventoOutboxRepository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relay que drena a caixa de saída ({@link EventoOutbox}) para os {@link DestinoOutbox} habilitados.
+ * <p>
+ * Os eventos pendentes são lidos em lotes, em ordem de ID, e entregues a cada destino sem transação
+ * aberta; só depois da confirmação de todos os destinos são marcados como publicados, em uma
+ * transação curta. A entrega é "pelo menos uma vez": uma queda entre a entrega e a marcação, ou a
+ * falha de um dos destinos, faz o lote ser reenviado.
+ * <p>
+ * Se o lote inteiro falhar, os eventos são reenviados um a um; quando um evento falha, os eventos
+ * seguintes do mesmo pedido ficam para a próxima execução, preservando a ordem por pedido sem travar
+ * os demais pedidos. O relay roda em thread própria, para que destinos lentos não atrasem as outras
+ * tarefas agendadas, e deve estar habilitado em uma única instância.
+ */
+@Component
+@RequiredArgsConstructor
+public class RelayOutbox {
+
+    private static final int TAMANHO_MAXIMO_ERRO = 500;
+
+    private final EventoOutboxRepository eventoOutboxRepository;
+    private final List<DestinoOutbox> destinos;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+        Thread thread = new Thread(tarefa, "relay-outbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong publicados = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+    private volatile long atrasoUltimaEntregaMs;
+    private volatile LocalDateTime ultimaEntrega;
+
+    @Value("${outbox.relay.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${outbox.relay.intervalo-ms:1000}")
+    private long intervaloMs;
+
+    @Value("${outbox.relay.tamanho-lote:200}")
+    private int tamanhoLote;
+
+    @Value("${outbox.retencao-horas:72}")
+    private long retencaoHoras;
+
+    @PostConstruct
+    void iniciar() {
+        if (habilitado) {
+            executor.scheduleWithFixedDelay(this::executar, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Entrega os eventos pendentes, lote a lote, até esvaziar a caixa de saída ou até um lote ter falhas.
+     */
+    public void drenar() {
+        List<DestinoOutbox> habilitados = getDestinosHabilitados();
+        if (habilitados.isEmpty()) {
+            return;
+        }
+        boolean continuar = true;
+        while (continuar) {
+            continuar = processarLote(habilitados);
+        }
+    }
+
+    /**
+     * Remove periodicamente os eventos já publicados há mais tempo que a retenção configurada.
+     */
+    @Scheduled(fixedDelayString = "${outbox.limpeza.intervalo-ms:3600000}")
+    @Transactional
+    public void removerPublicados() {
+        int removidos = eventoOutboxRepository.deletePublicadosAntesDe(LocalDateTime.now().minusHours(retencaoHoras));
+        if (removidos > 0) {
+            System.out.println("LOG: [RelayOutbox] " + removidos + " evento(s) publicado(s) removido(s) da caixa de saída.");
+        }
+    }
+
+    /**
+     * Retorna as estatísticas de entrega, incluindo o atraso dos eventos pendentes.
+     *
+     * @return O DTO {@link OutboxEstatisticasResponse}.
+     */
+    public OutboxEstatisticasResponse getEstatisticas() {
+        LocalDateTime maisAntigo = eventoOutboxRepository.findCriacaoDoPendenteMaisAntigo();
+        long atrasoPendente = maisAntigo == null ? 0 : Math.max(0, Duration.between(maisAntigo, LocalDateTime.now()).toMillis());
+        return new OutboxEstatisticasResponse(
+                getDestinosHabilitados().stream().map(DestinoOutbox::getNome).toList(),
+                eventoOutboxRepository.countByPublicadoEmIsNull(),
+                atrasoPendente,
+                atrasoUltimaEntregaMs,
+                ultimaEntrega,
+                publicados.get(),
+                falhas.get());
+    }
+
+    private void executar() {
+        try {
+            drenar();
+        } catch (RuntimeException e) {
+            System.err.println("ERRO: [RelayOutbox] Falha ao drenar a caixa de saída: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Entrega um lote de eventos pendentes.
+     *
+     * @return True se o lote estava cheio e foi entregue por completo (pode haver mais eventos pendentes).
+     */
+    private boolean processarLote(List<DestinoOutbox> habilitados) {
+        List<EventoOutbox> pendentes = eventoOutboxRepository.findPendentes(PageRequest.of(0, tamanhoLote));
+        if (pendentes.isEmpty()) {
+            return false;
+        }
+        List<MensagemOutbox> mensagens = pendentes.stream().map(MensagemOutbox::de).toList();
+
+        List<MensagemOutbox> entregues = new ArrayList<>();
+        Map<Long, String> falhasDoLote = new LinkedHashMap<>();
+        try {
+            entregar(habilitados, mensagens);
+            entregues.addAll(mensagens);
+        } catch (IOException e) {
+            System.err.println("ERRO: [RelayOutbox] Falha ao entregar um lote de " + mensagens.size() + " evento(s): " + e.getMessage());
+            entregarUmAUm(habilitados, mensagens, entregues, falhasDoLote);
+        }
+
+        registrar(entregues, falhasDoLote);
+        return pendentes.size() == tamanhoLote && falhasDoLote.isEmpty();
+    }
+
+    /**
+     * Reenvia as mensagens uma a uma; a falha de um evento adia os eventos seguintes do mesmo pedido.
+     */
+    private void entregarUmAUm(List<DestinoOutbox> habilitados, List<MensagemOutbox> mensagens,
+                               List<MensagemOutbox> entregues, Map<Long, String> falhasDoLote) {
+        Set<Long> pedidosBloqueados = new HashSet<>();
+        for (MensagemOutbox mensagem : mensagens) {
+            if (pedidosBloqueados.contains(mensagem.pedidoId())) {
+                continue;
+            }
+            try {
+                entregar(habilitados, List.of(mensagem));
+                entregues.add(mensagem);
+            } catch (IOException e) {
+                pedidosBloqueados.add(mensagem.pedidoId());
+                falhasDoLote.put(mensagem.id(), e.getMessage());
+            }
+        }
+    }
+
+    private void registrar(List<MensagemOutbox> entregues, Map<Long, String> falhasDoLote) {
+        LocalDateTime agora = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!entregues.isEmpty()) {
+                eventoOutboxRepository.marcarPublicados(entregues.stream().map(MensagemOutbox::id).toList(), agora);
+            }
+            falhasDoLote.forEach((id, erro) -> eventoOutboxRepository.registrarFalha(List.of(id), resumir(erro)));
+        });
+
+        if (!entregues.isEmpty()) {
+            publicados.addAndGet(entregues.size());
+            atrasoUltimaEntregaMs = entregues.stream()
+                    .mapToLong(mensagem -> Duration.between(mensagem.criadoEm(), agora).toMillis())
+                    .max().orElse(0);
+            ultimaEntrega = agora;
+        }
+        if (!falhasDoLote.isEmpty()) {
+            falhas.addAndGet(falhasDoLote.size());
+            System.err.println("ERRO: [RelayOutbox] " + falhasDoLote.size() + " evento(s) não entregue(s); nova tentativa na próxima execução.");
+        }
+    }
+
+    private static void entregar(List<DestinoOutbox> habilitados, List<MensagemOutbox> mensagens) throws IOException {
+        for (DestinoOutbox destino : habilitados) {
+            try {
+                destino.publicar(mensagens);
+            } catch (IOException | RuntimeException e) {
+                throw new IOException("Destino '" + destino.getNome() + "': " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private List<DestinoOutbox> getDestinosHabilitados() {
+        return destinos.stream().filter(DestinoOutbox::isHabilitado).toList();
+    }
+
+    private static String resumir(String erro) {
+        if (erro == null) {
+            return null;
+        }
+        return erro.length() <= TAMANHO_MAXIMO_ERRO ? erro : erro.substring(0, TAMANHO_MAXIMO_ERRO);
+    }
+}
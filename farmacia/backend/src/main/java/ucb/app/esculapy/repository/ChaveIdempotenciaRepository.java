@@ -0,0 +1,25 @@
+package ucb.app.esculapy.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ucb.app.esculapy.model.ChaveIdempotencia;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repositório JPA para a entidade {@link ChaveIdempotencia}.
+ */
+public interface ChaveIdempotenciaRepository extends JpaRepository<ChaveIdempotencia, String> {
+
+    /**
+     * Remove as chaves de idempotência vencidas.
+     *
+     * @param agora O instante de referência para a expiração.
+     * @return O número de chaves removidas.
+     */
+    @Modifying
+    @Query("DELETE FROM ChaveIdempotencia c WHERE c.expiraEm < :agora")
+    int deleteExpiradas(@Param("agora") LocalDateTime agora);
+}
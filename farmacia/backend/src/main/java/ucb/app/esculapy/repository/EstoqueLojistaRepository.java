@@ -3,10 +3,16 @@ package ucb.app.esculapy.repository;
 import ucb.app.esculapy.model.EstoqueLojista;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,7 +20,7 @@ import java.util.Optional;
  * Repositório JPA para a entidade {@link EstoqueLojista}.
  * Inclui métodos para consultas privadas (Admin Farmácia) e públicas (Cliente).
  */
-public interface EstoqueLojistaRepository extends JpaRepository<EstoqueLojista, Long> {
+public interface EstoqueLojistaRepository extends JpaRepository<EstoqueLojista, Long>, EstoqueLojistaRepositoryCustom {
 
     /**
      * Lista paginada do estoque privado (completo, independente de status ativo/quantidade) da farmácia.
@@ -25,6 +31,21 @@ public interface EstoqueLojistaRepository extends JpaRepository<EstoqueLojista,
      */
     Page<EstoqueLojista> findByFarmaciaId(Long farmaciaId, Pageable pageable);
 
+    /**
+     * Paginação por cursor do estoque privado da farmácia, em ordem crescente de ID.
+     *
+     * @param farmaciaId O ID da farmácia.
+     * @param id O ID do último item já entregue ao cliente (0 para a primeira página).
+     * @param pageable O tamanho da página (sem offset).
+     * @return Uma fatia de itens de estoque.
+     */
+    @Query("SELECT el FROM EstoqueLojista el WHERE el.farmacia.id = :farmaciaId AND el.id > :id ORDER BY el.id")
+    Slice<EstoqueLojista> findByFarmaciaIdAposId(
+            @Param("farmaciaId") Long farmaciaId,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
     /**
      * Verifica se existe algum item de estoque ativo/inativo para um dado produto.
      *
@@ -42,35 +63,147 @@ public interface EstoqueLojistaRepository extends JpaRepository<EstoqueLojista,
      */
     Optional<EstoqueLojista> findByFarmaciaIdAndProduto_Id(Long farmaciaId, Long produtoId);
 
+    /**
+     * Busca, em uma única consulta, os itens de estoque de um carrinho com o produto já carregado.
+     *
+     * @param ids Os IDs dos itens de estoque.
+     * @return A lista de itens encontrados (itens inexistentes são omitidos).
+     */
+    @Query("SELECT el FROM EstoqueLojista el JOIN FETCH el.produto WHERE el.id IN :ids")
+    List<EstoqueLojista> findAllComProdutoByIdIn(@Param("ids") Collection<Long> ids);
 
     /**
-     * Busca ofertas públicas (ativo=true, quantidade > 0) para um produto específico em todas as farmácias.
-     * Faz um JOIN FETCH para produto e farmácia para evitar o problema N+1.
+     * Busca um item de estoque bloqueando a linha para escrita até o fim da transação,
+     * o que aguarda as baixas em andamento no modo normal.
+     *
+     * @param id O ID do item de estoque.
+     * @return Um Optional contendo o item, se encontrado.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT el FROM EstoqueLojista el WHERE el.id = :id")
+    Optional<EstoqueLojista> findByIdParaAtualizacao(@Param("id") Long id);
+
+
+    /**
+     * Projeção leve de um item de estoque, usada pelo índice de ofertas em memória.
+     * As datas de atualização do item e do produto formam a versão do estado lido, usada pelo índice
+     * para descartar leituras feitas antes de outra já aplicada.
+     */
+    interface OfertaResumo {
+        Long getId();
+        Long getProdutoId();
+        Long getFarmaciaId();
+        BigDecimal getPreco();
+        /** Se o item é uma oferta pública (ativo=true, quantidade > 0, produto ativo). */
+        Boolean getDisponivel();
+        LocalDateTime getDataAtualizacao();
+        LocalDateTime getDataAtualizacaoProduto();
+    }
+
+    /**
+     * Lista, em lotes por ID, as ofertas públicas (ativo=true, quantidade > 0, produto ativo).
+     * Usado para construir o índice de ofertas.
+     *
+     * @param id O ID da última oferta do lote anterior (0 para o primeiro lote).
+     * @param pageable O tamanho do lote (sem offset).
+     * @return As ofertas resumidas, em ordem crescente de ID.
+     */
+    @Query("SELECT el.id AS id, el.produto.id AS produtoId, el.farmacia.id AS farmaciaId, el.preco AS preco, " +
+            "true AS disponivel, el.dataAtualizacao AS dataAtualizacao, el.produto.dataAtualizacao AS dataAtualizacaoProduto " +
+            "FROM EstoqueLojista el " +
+            "WHERE el.id > :id AND el.ativo = true AND el.quantidade > 0 AND el.produto.ativo = true " +
+            "ORDER BY el.id")
+    List<OfertaResumo> findOfertasResumoAposId(@Param("id") Long id, Pageable pageable);
+
+    /**
+     * Lista os itens de estoque informados, disponíveis ou não. Os itens ausentes do resultado foram excluídos.
+     *
+     * @param ids Os IDs dos itens de estoque.
+     * @return Os itens resumidos, com a indicação de disponibilidade.
+     */
+    @Query("SELECT el.id AS id, el.produto.id AS produtoId, el.farmacia.id AS farmaciaId, el.preco AS preco, " +
+            "CASE WHEN el.ativo = true AND el.quantidade > 0 AND el.produto.ativo = true THEN true ELSE false END AS disponivel, " +
+            "el.dataAtualizacao AS dataAtualizacao, el.produto.dataAtualizacao AS dataAtualizacaoProduto " +
+            "FROM EstoqueLojista el " +
+            "WHERE el.id IN :ids")
+    List<OfertaResumo> findOfertasResumoByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Lista os itens de estoque de um produto, disponíveis ou não.
      *
      * @param produtoId O ID do produto.
-     * @param pageable As informações de paginação.
-     * @return Uma página de ofertas de estoque.
+     * @return Os itens resumidos, com a indicação de disponibilidade.
      */
-    @Query(value = "SELECT el FROM EstoqueLojista el " +
-            "JOIN FETCH el.produto p " +
-            "JOIN FETCH el.farmacia f " +
-            "WHERE el.produto.id = :produtoId AND el.ativo = true AND el.quantidade > 0 AND p.ativo = true",
-            countQuery = "SELECT COUNT(el) FROM EstoqueLojista el WHERE el.produto.id = :produtoId AND el.ativo = true AND el.quantidade > 0 AND el.produto.ativo = true")
-    Page<EstoqueLojista> findOfertasByProdutoId(@Param("produtoId") Long produtoId, Pageable pageable);
+    @Query("SELECT el.id AS id, el.produto.id AS produtoId, el.farmacia.id AS farmaciaId, el.preco AS preco, " +
+            "CASE WHEN el.ativo = true AND el.quantidade > 0 AND el.produto.ativo = true THEN true ELSE false END AS disponivel, " +
+            "el.dataAtualizacao AS dataAtualizacao, el.produto.dataAtualizacao AS dataAtualizacaoProduto " +
+            "FROM EstoqueLojista el " +
+            "WHERE el.produto.id = :produtoId")
+    List<OfertaResumo> findOfertasResumoByProdutoId(@Param("produtoId") Long produtoId);
+
+    /**
+     * Projeção da contagem de ofertas disponíveis de um produto.
+     */
+    interface OfertasPorProduto {
+        Long getProdutoId();
+        Long getOfertas();
+    }
 
     /**
-     * Busca estoque público (ativo=true, quantidade > 0) por nome do produto.
+     * Conta as ofertas disponíveis (ativo=true, quantidade > 0) de todos os produtos que possuem alguma.
      *
-     * @param nomeProduto O nome ou parte do nome do produto.
-     * @param pageable As informações de paginação.
-     * @return Uma página de itens de estoque.
+     * @return A contagem por produto.
      */
-    @Query(value = "SELECT el FROM EstoqueLojista el " +
-            "JOIN FETCH el.produto p " +
-            "JOIN FETCH el.farmacia f " +
-            "WHERE p.nome LIKE %:nomeProduto% AND el.ativo = true AND el.quantidade > 0 AND p.ativo = true",
-            countQuery = "SELECT COUNT(el) FROM EstoqueLojista el JOIN el.produto p WHERE p.nome LIKE %:nomeProduto% AND el.ativo = true AND el.quantidade > 0 AND p.ativo = true")
-    Page<EstoqueLojista> findByProdutoNomeContendo(@Param("nomeProduto") String nomeProduto, Pageable pageable);
+    @Query("SELECT el.produto.id AS produtoId, COUNT(el) AS ofertas FROM EstoqueLojista el " +
+            "WHERE el.ativo = true AND el.quantidade > 0 GROUP BY el.produto.id")
+    List<OfertasPorProduto> contarOfertasDisponiveisPorProduto();
+
+    /**
+     * Conta as ofertas disponíveis (ativo=true, quantidade > 0) de um conjunto de produtos.
+     * Produtos sem nenhuma oferta disponível não aparecem no resultado.
+     *
+     * @param produtoIds Os IDs dos produtos.
+     * @return A contagem por produto.
+     */
+    @Query("SELECT el.produto.id AS produtoId, COUNT(el) AS ofertas FROM EstoqueLojista el " +
+            "WHERE el.produto.id IN :produtoIds AND el.ativo = true AND el.quantidade > 0 GROUP BY el.produto.id")
+    List<OfertasPorProduto> contarOfertasDisponiveisPorProduto(@Param("produtoIds") Collection<Long> produtoIds);
+
+    /**
+     * Projeção com o estado atual de um item de estoque, usada para calcular o diff da sincronização.
+     */
+    interface EstadoEstoque {
+        Long getId();
+        Long getProdutoId();
+        BigDecimal getPreco();
+        Integer getQuantidade();
+        Boolean getAtivo();
+        Integer getFracoes();
+    }
+
+    /**
+     * Busca o estado atual dos itens de estoque de uma farmácia para os produtos informados.
+     *
+     * @param farmaciaId O ID da farmácia.
+     * @param produtoIds Os IDs dos produtos.
+     * @return O estado de cada item existente.
+     */
+    @Query("SELECT el.id AS id, el.produto.id AS produtoId, el.preco AS preco, el.quantidade AS quantidade, el.ativo AS ativo, " +
+            "el.fracoes AS fracoes " +
+            "FROM EstoqueLojista el WHERE el.farmacia.id = :farmaciaId AND el.produto.id IN :produtoIds")
+    List<EstadoEstoque> findEstadoByFarmaciaIdAndProdutoIdIn(
+            @Param("farmaciaId") Long farmaciaId,
+            @Param("produtoIds") Collection<Long> produtoIds
+    );
+
+    /**
+     * Carrega itens de estoque com produto e farmácia, para montar respostas públicas.
+     *
+     * @param ids Os IDs dos itens de estoque.
+     * @return Os itens encontrados, em ordem indefinida.
+     */
+    @Query("SELECT el FROM EstoqueLojista el JOIN FETCH el.produto JOIN FETCH el.farmacia WHERE el.id IN :ids")
+    List<EstoqueLojista> findAllComProdutoEFarmaciaByIdIn(@Param("ids") Collection<Long> ids);
 
     /**
      * Busca todo o estoque público (ativo=true) de uma farmácia específica.
@@ -85,6 +218,24 @@ public interface EstoqueLojistaRepository extends JpaRepository<EstoqueLojista,
             countQuery = "SELECT COUNT(el) FROM EstoqueLojista el WHERE el.farmacia.id = :farmaciaId AND el.ativo = true AND el.produto.ativo = true")
     Page<EstoqueLojista> findPublicoByFarmaciaId(@Param("farmaciaId") Long farmaciaId, Pageable pageable);
 
+    /**
+     * Paginação por cursor do estoque público (ativo=true) de uma farmácia, em ordem crescente de ID.
+     *
+     * @param farmaciaId O ID da farmácia.
+     * @param id O ID do último item já entregue ao cliente (0 para a primeira página).
+     * @param pageable O tamanho da página (sem offset).
+     * @return Uma fatia de itens de estoque.
+     */
+    @Query("SELECT el FROM EstoqueLojista el " +
+            "JOIN FETCH el.produto p " +
+            "WHERE el.farmacia.id = :farmaciaId AND el.id > :id AND el.ativo = true AND p.ativo = true " +
+            "ORDER BY el.id")
+    Slice<EstoqueLojista> findPublicoByFarmaciaIdAposId(
+            @Param("farmaciaId") Long farmaciaId,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
     /**
      * Busca um item de estoque específico para consulta pública (ativo=true).
      *
@@ -95,4 +246,29 @@ public interface EstoqueLojistaRepository extends JpaRepository<EstoqueLojista,
             "JOIN FETCH el.produto p " +
             "WHERE el.id = :estoqueId AND el.ativo = true AND p.ativo = true")
     Optional<EstoqueLojista> findPublicoById(@Param("estoqueId") Long estoqueId);
-}
\ No newline at end of file
+
+    /**
+     * Projeção com o saldo de um item de estoque, usada pelo motor de estoque em memória.
+     */
+    interface SaldoEstoque {
+        Long getId();
+        Long getProdutoId();
+        Integer getQuantidade();
+        Boolean getAtivo();
+        Integer getFracoes();
+    }
+
+    /**
+     * Busca o saldo dos itens de estoque informados que pertencem à farmácia.
+     *
+     * @param farmaciaId O ID da farmácia.
+     * @param ids Os IDs dos itens de estoque.
+     * @return Os saldos encontrados (itens de outras farmácias ou inexistentes são omitidos).
+     */
+    @Query("SELECT el.id AS id, el.produto.id AS produtoId, el.quantidade AS quantidade, el.ativo AS ativo, " +
+            "el.fracoes AS fracoes FROM EstoqueLojista el WHERE el.farmacia.id = :farmaciaId AND el.id IN :ids")
+    List<SaldoEstoque> findSaldosByFarmaciaIdAndIdIn(
+            @Param("farmaciaId") Long farmaciaId,
+            @Param("ids") Collection<Long> ids
+    );
+}
@@ -0,0 +1,117 @@
+package ucb.app.esculapy.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operações em lote sobre o estoque (escrita e exportação) que não são expressáveis por métodos derivados do Spring Data.
+ * Implementadas via JDBC em {@link EstoqueLojistaRepositoryCustomImpl}.
+ */
+public interface EstoqueLojistaRepositoryCustom {
+
+    /**
+     * Baixa, em um único lote JDBC, as quantidades informadas para cada item de estoque.
+     * Cada linha só é alterada se o item estiver ativo e possuir quantidade suficiente
+     * ({@code quantidade >= :q}), o que torna a baixa atômica frente a pedidos concorrentes.
+     *
+     * @param quantidadesPorEstoque Mapa de ID do item de estoque para a quantidade a ser baixada.
+     * Itens no modo fracionado são baixados nas suas frações, sem bloquear a linha do item.
+     *
+     * @return Os IDs dos itens cuja baixa não afetou nenhuma linha (estoque insuficiente ou inativo).
+     */
+    List<Long> baixarEstoqueEmLote(Map<Long, Integer> quantidadesPorEstoque);
+
+    /**
+     * Devolve ao estoque, em um único lote JDBC, as quantidades informadas para cada item.
+     *
+     * @param quantidadesPorEstoque Mapa de ID do item de estoque para a quantidade a ser estornada.
+     */
+    void estornarEstoqueEmLote(Map<Long, Integer> quantidadesPorEstoque);
+
+    /**
+     * Aplica, em lote, variações líquidas de quantidade acumuladas pelo motor de estoque.
+     * Variações negativas só são aplicadas se o item estiver ativo, fora do modo fracionado e com
+     * quantidade suficiente; variações positivas de itens fracionados vão para as frações.
+     *
+     * @param variacoes Mapa de ID do item de estoque para a variação líquida de quantidade.
+     * @return Os IDs dos itens cuja variação negativa não pôde ser aplicada.
+     */
+    List<Long> aplicarVariacoesEmLote(Map<Long, Integer> variacoes);
+
+    /**
+     * Os dados de um item de estoque a serem gravados pela sincronização em lote.
+     *
+     * @param produtoId O ID do produto.
+     * @param preco O preço de venda.
+     * @param quantidade A quantidade disponível.
+     * @param ativo Se o item está visível ao público.
+     */
+    record LinhaEstoque(Long produtoId, BigDecimal preco, int quantidade, boolean ativo) {
+    }
+
+    /**
+     * Insere ou atualiza, em um único lote JDBC, os itens de estoque de uma farmácia,
+     * usando a restrição única (farmacia_id, produto_id) como chave.
+     *
+     * @param farmaciaId O ID da farmácia.
+     * @param linhas Os itens a gravar (no máximo um por produto).
+     */
+    void upsertEmLote(Long farmaciaId, List<LinhaEstoque> linhas);
+
+    /**
+     * Uma linha da exportação de ofertas.
+     *
+     * @param id O ID do item de estoque.
+     * @param produtoId O ID do produto.
+     * @param farmaciaId O ID da farmácia.
+     * @param preco O preço de venda.
+     * @param quantidade A quantidade disponível.
+     * @param disponivel Se o item é uma oferta pública (ativo, com quantidade e produto ativo).
+     * @param dataAtualizacao O instante da última alteração do item.
+     */
+    record OfertaExportada(Long id, Long produtoId, Long farmaciaId, BigDecimal preco, int quantidade,
+                           boolean disponivel, LocalDateTime dataAtualizacao) {
+    }
+
+    /**
+     * Lista, via JDBC e sem carregar entidades, a próxima página da exportação de ofertas,
+     * em ordem de (data_atualizacao, id) a partir da posição informada (exclusiva).
+     *
+     * @param farmaciaId O ID da farmácia, ou {@code null} para todas.
+     * @param aposData A data de atualização da última linha já exportada.
+     * @param aposId O ID da última linha já exportada (0 para começar em {@code aposData}, inclusive).
+     * @param somenteDisponiveis Se apenas as ofertas públicas devem ser listadas.
+     * @param limite O número máximo de linhas.
+     * @return As linhas da página.
+     */
+    List<OfertaExportada> findOfertasParaExportacao(Long farmaciaId, LocalDateTime aposData, Long aposId,
+                                                    boolean somenteDisponiveis, int limite);
+
+    /**
+     * Soma as frações de um item fracionado, bloqueando-as para escrita até o fim da transação.
+     *
+     * @param estoqueId O ID do item de estoque.
+     * @return A quantidade total nas frações (0 se não houver frações).
+     */
+    int somarFracoes(Long estoqueId);
+
+    /**
+     * Substitui as frações de um item pela quantidade informada, dividida igualmente entre elas.
+     * Não altera a linha de estoque_lojista (número de frações e agregado ficam a cargo do chamador).
+     *
+     * @param estoqueId O ID do item de estoque.
+     * @param fracoes O novo número de frações (0 apenas remove as existentes).
+     * @param quantidade A quantidade total a distribuir.
+     */
+    void redistribuirFracoes(Long estoqueId, int fracoes, int quantidade);
+
+    /**
+     * Atualiza a quantidade agregada dos itens fracionados cuja soma das frações divergiu dela.
+     * A leitura das frações é feita sem bloqueio, então as baixas em andamento não são interrompidas.
+     *
+     * @return Mapa do ID de cada item atualizado para o ID do seu produto.
+     */
+    Map<Long, Long> reconciliarAgregadosFracionados();
+}
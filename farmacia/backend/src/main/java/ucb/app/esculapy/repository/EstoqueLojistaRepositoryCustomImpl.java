@@ -0,0 +1,368 @@
+package ucb.app.esculapy.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Implementação JDBC de {@link EstoqueLojistaRepositoryCustom}.
+ * As gravações atualizam {@code data_atualizacao} explicitamente, já que não passam pelo Hibernate.
+ * Participa da mesma transação JPA corrente, pois o {@link JdbcTemplate} usa a conexão já vinculada à thread.
+ * Os lotes percorrem os itens em ordem crescente de ID, de modo que transações concorrentes bloqueiam
+ * as linhas na mesma ordem e não entram em deadlock.
+ */
+@RequiredArgsConstructor
+class EstoqueLojistaRepositoryCustomImpl implements EstoqueLojistaRepositoryCustom {
+
+    private static final String SQL_BAIXA_CONDICIONAL =
+            "UPDATE estoque_lojista SET quantidade = quantidade - ?, data_atualizacao = ? " +
+            "WHERE id = ? AND quantidade >= ? AND ativo = true AND fracoes = 0";
+
+    private static final String SQL_ESTORNO =
+            "UPDATE estoque_lojista SET quantidade = quantidade + ?, data_atualizacao = ? WHERE id = ?";
+
+    private static final String SQL_VARIACAO_NEGATIVA =
+            "UPDATE estoque_lojista SET quantidade = quantidade + ?, data_atualizacao = ? " +
+            "WHERE id = ? AND quantidade + ? >= 0 AND ativo = true AND fracoes = 0";
+
+    private static final String SQL_VARIACAO_POSITIVA =
+            "UPDATE estoque_lojista SET quantidade = quantidade + ?, data_atualizacao = ? WHERE id = ? AND fracoes = 0";
+
+    // Leitura sem bloqueio: as baixas de itens fracionados não tocam a linha de estoque_lojista.
+    private static final String SQL_FRACIONADOS =
+            "SELECT id, fracoes, ativo FROM estoque_lojista WHERE fracoes > 0 AND id IN (%s)";
+
+    // Leitura sem bloqueio: escolhe a fração a baixar, e só ela é bloqueada pela baixa condicional.
+    private static final String SQL_FRACOES =
+            "SELECT indice, quantidade FROM estoque_fracoes WHERE estoque_lojista_id = ?";
+
+    private static final String SQL_BAIXA_FRACAO =
+            "UPDATE estoque_fracoes SET quantidade = quantidade - ? " +
+            "WHERE estoque_lojista_id = ? AND indice = ? AND quantidade >= ?";
+
+    private static final String SQL_FRACOES_PARA_ATUALIZACAO =
+            "SELECT indice, quantidade FROM estoque_fracoes WHERE estoque_lojista_id = ? ORDER BY indice FOR UPDATE";
+
+    private static final String SQL_BAIXA_FRACAO_PARCIAL =
+            "UPDATE estoque_fracoes SET quantidade = quantidade - ? WHERE estoque_lojista_id = ? AND indice = ?";
+
+    private static final String SQL_ESTORNO_FRACAO =
+            "UPDATE estoque_fracoes SET quantidade = quantidade + ? WHERE estoque_lojista_id = ? AND indice = ?";
+
+    private static final String SQL_SOMA_FRACOES =
+            "SELECT COALESCE(SUM(quantidade), 0) FROM estoque_fracoes WHERE estoque_lojista_id = ? FOR UPDATE";
+
+    private static final String SQL_REMOVE_FRACOES =
+            "DELETE FROM estoque_fracoes WHERE estoque_lojista_id = ?";
+
+    private static final String SQL_INSERE_FRACAO =
+            "INSERT INTO estoque_fracoes (estoque_lojista_id, indice, quantidade) VALUES (?, ?, ?)";
+
+    private static final String SQL_AGREGADOS_DIVERGENTES =
+            "SELECT e.id, e.produto_id, COALESCE(SUM(f.quantidade), 0) AS total " +
+            "FROM estoque_lojista e LEFT JOIN estoque_fracoes f ON f.estoque_lojista_id = e.id " +
+            "WHERE e.fracoes > 0 GROUP BY e.id, e.produto_id, e.quantidade HAVING total <> e.quantidade";
+
+    private static final String SQL_ATUALIZA_AGREGADO =
+            "UPDATE estoque_lojista SET quantidade = ?, data_atualizacao = ? WHERE id = ? AND fracoes > 0";
+
+    private static final String SQL_UPSERT =
+            "INSERT INTO estoque_lojista (farmacia_id, produto_id, preco, quantidade, ativo, data_atualizacao) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE preco = VALUES(preco), quantidade = VALUES(quantidade), ativo = VALUES(ativo), " +
+            "data_atualizacao = VALUES(data_atualizacao)";
+
+    private static final String SQL_EXPORTACAO =
+            "SELECT e.id, e.produto_id, e.farmacia_id, e.preco, e.quantidade, " +
+            "(e.ativo AND e.quantidade > 0 AND p.ativo) AS disponivel, e.data_atualizacao " +
+            "FROM estoque_lojista e JOIN produtos_catalogo p ON p.id = e.produto_id " +
+            "WHERE (e.data_atualizacao > ? OR (e.data_atualizacao = ? AND e.id > ?))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private record ItemFracionado(int fracoes, boolean ativo) {
+    }
+
+    /**
+     * {@inheritDoc}
+     * Itens no modo fracionado são baixados nas frações; os demais, em um único lote na própria linha.
+     */
+    @Override
+    public List<Long> baixarEstoqueEmLote(Map<Long, Integer> quantidadesPorEstoque) {
+        if (quantidadesPorEstoque.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ItemFracionado> fracionados = carregarFracionados(quantidadesPorEstoque.keySet());
+
+        List<Map.Entry<Long, Integer>> itens = new ArrayList<>();
+        List<Long> semEstoque = new ArrayList<>();
+        for (Map.Entry<Long, Integer> item : new TreeMap<>(quantidadesPorEstoque).entrySet()) {
+            ItemFracionado fracionado = fracionados.get(item.getKey());
+            if (fracionado == null) {
+                itens.add(item);
+            } else if (!fracionado.ativo() || !baixarFracionado(item.getKey(), item.getValue())) {
+                semEstoque.add(item.getKey());
+            }
+        }
+        if (itens.isEmpty()) {
+            return semEstoque;
+        }
+
+        LocalDateTime agora = LocalDateTime.now();
+        int[][] linhasAfetadas = jdbcTemplate.batchUpdate(SQL_BAIXA_CONDICIONAL, itens, itens.size(), (ps, item) -> {
+            ps.setInt(1, item.getValue());
+            ps.setObject(2, agora);
+            ps.setLong(3, item.getKey());
+            ps.setInt(4, item.getValue());
+        });
+
+        for (int i = 0; i < itens.size(); i++) {
+            // Statement.SUCCESS_NO_INFO (-2) não indica falha; apenas 0 significa que a condição não foi satisfeita.
+            if (linhasAfetadas[0][i] == 0) {
+                semEstoque.add(itens.get(i).getKey());
+            }
+        }
+        return semEstoque;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Itens no modo fracionado recebem o estorno em uma fração sorteada.
+     */
+    @Override
+    public void estornarEstoqueEmLote(Map<Long, Integer> quantidadesPorEstoque) {
+        if (quantidadesPorEstoque.isEmpty()) {
+            return;
+        }
+        Map<Long, ItemFracionado> fracionados = carregarFracionados(quantidadesPorEstoque.keySet());
+
+        List<Map.Entry<Long, Integer>> itens = new ArrayList<>();
+        for (Map.Entry<Long, Integer> item : new TreeMap<>(quantidadesPorEstoque).entrySet()) {
+            ItemFracionado fracionado = fracionados.get(item.getKey());
+            int indice = fracionado == null ? -1 : ThreadLocalRandom.current().nextInt(fracionado.fracoes());
+            // Se o item voltou ao modo normal após a leitura, a fração não existe mais e o estorno vai para a linha.
+            if (fracionado == null || jdbcTemplate.update(SQL_ESTORNO_FRACAO, item.getValue(), item.getKey(), indice) == 0) {
+                itens.add(item);
+            }
+        }
+        if (itens.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime agora = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(SQL_ESTORNO, itens, itens.size(), (ps, item) -> {
+            ps.setInt(1, item.getValue());
+            ps.setObject(2, agora);
+            ps.setLong(3, item.getKey());
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> aplicarVariacoesEmLote(Map<Long, Integer> variacoes) {
+        List<Map.Entry<Long, Integer>> negativas = new ArrayList<>();
+        List<Map.Entry<Long, Integer>> positivas = new ArrayList<>();
+        for (Map.Entry<Long, Integer> variacao : new TreeMap<>(variacoes).entrySet()) {
+            if (variacao.getValue() < 0) {
+                negativas.add(variacao);
+            } else if (variacao.getValue() > 0) {
+                positivas.add(variacao);
+            }
+        }
+
+        LocalDateTime agora = LocalDateTime.now();
+        List<Long> falhas = new ArrayList<>();
+        if (!negativas.isEmpty()) {
+            int[][] linhasAfetadas = jdbcTemplate.batchUpdate(SQL_VARIACAO_NEGATIVA, negativas, negativas.size(), (ps, v) -> {
+                ps.setInt(1, v.getValue());
+                ps.setObject(2, agora);
+                ps.setLong(3, v.getKey());
+                ps.setInt(4, v.getValue());
+            });
+            for (int i = 0; i < negativas.size(); i++) {
+                if (linhasAfetadas[0][i] == 0) {
+                    falhas.add(negativas.get(i).getKey());
+                }
+            }
+        }
+        if (!positivas.isEmpty()) {
+            int[][] linhasAfetadas = jdbcTemplate.batchUpdate(SQL_VARIACAO_POSITIVA, positivas, positivas.size(), (ps, v) -> {
+                ps.setInt(1, v.getValue());
+                ps.setObject(2, agora);
+                ps.setLong(3, v.getKey());
+            });
+            // Nenhuma linha afetada: o item está no modo fracionado (ou foi removido), e o estorno segue pelas frações.
+            Map<Long, Integer> fracionadas = new TreeMap<>();
+            for (int i = 0; i < positivas.size(); i++) {
+                if (linhasAfetadas[0][i] == 0) {
+                    fracionadas.put(positivas.get(i).getKey(), positivas.get(i).getValue());
+                }
+            }
+            estornarEstoqueEmLote(fracionadas);
+        }
+        return falhas;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void upsertEmLote(Long farmaciaId, List<LinhaEstoque> linhas) {
+        if (linhas.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime agora = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(SQL_UPSERT, linhas, linhas.size(), (ps, linha) -> {
+            ps.setLong(1, farmaciaId);
+            ps.setLong(2, linha.produtoId());
+            ps.setBigDecimal(3, linha.preco());
+            ps.setInt(4, linha.quantidade());
+            ps.setBoolean(5, linha.ativo());
+            ps.setObject(6, agora);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<OfertaExportada> findOfertasParaExportacao(Long farmaciaId, LocalDateTime aposData, Long aposId,
+                                                           boolean somenteDisponiveis, int limite) {
+        StringBuilder sql = new StringBuilder(SQL_EXPORTACAO);
+        List<Object> parametros = new ArrayList<>(List.of(aposData, aposData, aposId));
+        if (farmaciaId != null) {
+            sql.append(" AND e.farmacia_id = ?");
+            parametros.add(farmaciaId);
+        }
+        if (somenteDisponiveis) {
+            sql.append(" AND e.ativo = true AND e.quantidade > 0 AND p.ativo = true");
+        }
+        sql.append(" ORDER BY e.data_atualizacao, e.id LIMIT ?");
+        parametros.add(limite);
+
+        return jdbcTemplate.query(sql.toString(), (rs, i) -> new OfertaExportada(
+                rs.getLong("id"),
+                rs.getLong("produto_id"),
+                rs.getLong("farmacia_id"),
+                rs.getBigDecimal("preco"),
+                rs.getInt("quantidade"),
+                rs.getBoolean("disponivel"),
+                rs.getObject("data_atualizacao", LocalDateTime.class)
+        ), parametros.toArray());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int somarFracoes(Long estoqueId) {
+        Integer total = jdbcTemplate.queryForObject(SQL_SOMA_FRACOES, Integer.class, estoqueId);
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void redistribuirFracoes(Long estoqueId, int fracoes, int quantidade) {
+        jdbcTemplate.update(SQL_REMOVE_FRACOES, estoqueId);
+        if (fracoes <= 0) {
+            return;
+        }
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < fracoes; i++) {
+            indices.add(i);
+        }
+        jdbcTemplate.batchUpdate(SQL_INSERE_FRACAO, indices, fracoes, (ps, indice) -> {
+            ps.setLong(1, estoqueId);
+            ps.setInt(2, indice);
+            ps.setInt(3, quantidade / fracoes + (indice < quantidade % fracoes ? 1 : 0));
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Long, Long> reconciliarAgregadosFracionados() {
+        record Divergente(Long id, Long produtoId, int total) {
+        }
+        List<Divergente> divergentes = jdbcTemplate.query(SQL_AGREGADOS_DIVERGENTES,
+                (rs, i) -> new Divergente(rs.getLong("id"), rs.getLong("produto_id"), rs.getInt("total")));
+        if (divergentes.isEmpty()) {
+            return Map.of();
+        }
+
+        LocalDateTime agora = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(SQL_ATUALIZA_AGREGADO, divergentes, divergentes.size(), (ps, divergente) -> {
+            ps.setInt(1, divergente.total());
+            ps.setObject(2, agora);
+            ps.setLong(3, divergente.id());
+        });
+        Map<Long, Long> produtoPorEstoque = new HashMap<>();
+        divergentes.forEach(d -> produtoPorEstoque.put(d.id(), d.produtoId()));
+        return produtoPorEstoque;
+    }
+
+    /**
+     * Lê, sem bloqueio, quais dos itens informados estão no modo fracionado.
+     */
+    private Map<Long, ItemFracionado> carregarFracionados(Collection<Long> estoqueIds) {
+        String sql = String.format(SQL_FRACIONADOS, String.join(", ", Collections.nCopies(estoqueIds.size(), "?")));
+        Map<Long, ItemFracionado> fracionados = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            fracionados.put(rs.getLong("id"), new ItemFracionado(rs.getInt("fracoes"), rs.getBoolean("ativo")));
+        }, estoqueIds.toArray());
+        return fracionados;
+    }
+
+    /**
+     * Baixa a quantidade de um item fracionado. As frações são lidas sem bloqueio e uma das que têm a
+     * quantidade sozinhas é sorteada; só ela é bloqueada, pela baixa condicional. Se nenhuma fração
+     * bastar ou a sorteada tiver sido consumida por outra baixa, todas são bloqueadas em ordem de índice
+     * e a quantidade é retirada de várias.
+     * <p>
+     * Nesse caminho a fração sorteada já está bloqueada, fora de ordem; duas baixas que percam a corrida
+     * ao mesmo tempo ainda podem entrar em deadlock, e a vítima é desfeita e respondida com HTTP 409.
+     *
+     * @return {@code false} se a soma das frações for insuficiente (ou o item tiver voltado ao modo normal).
+     */
+    private boolean baixarFracionado(Long estoqueId, int quantidade) {
+        List<int[]> lidas = jdbcTemplate.query(SQL_FRACOES,
+                (rs, i) -> new int[]{rs.getInt("indice"), rs.getInt("quantidade")}, estoqueId);
+        List<Integer> candidatas = lidas.stream().filter(f -> f[1] >= quantidade).map(f -> f[0]).toList();
+        if (!candidatas.isEmpty()) {
+            int indice = candidatas.get(ThreadLocalRandom.current().nextInt(candidatas.size()));
+            if (jdbcTemplate.update(SQL_BAIXA_FRACAO, quantidade, estoqueId, indice, quantidade) == 1) {
+                return true;
+            }
+        }
+
+        List<int[]> atuais = jdbcTemplate.query(SQL_FRACOES_PARA_ATUALIZACAO,
+                (rs, i) -> new int[]{rs.getInt("indice"), rs.getInt("quantidade")}, estoqueId);
+        if (atuais.stream().mapToInt(f -> f[1]).sum() < quantidade) {
+            return false;
+        }
+        int restante = quantidade;
+        for (int[] fracao : atuais) {
+            int retirada = Math.min(restante, fracao[1]);
+            if (retirada > 0) {
+                jdbcTemplate.update(SQL_BAIXA_FRACAO_PARCIAL, retirada, estoqueId, fracao[0]);
+                restante -= retirada;
+            }
+        }
+        return true;
+    }
+}
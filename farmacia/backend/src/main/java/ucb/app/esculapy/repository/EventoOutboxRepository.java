@@ -0,0 +1,74 @@
+package ucb.app.esculapy.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ucb.app.esculapy.model.EventoOutbox;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositório JPA para a entidade {@link EventoOutbox}.
+ */
+public interface EventoOutboxRepository extends JpaRepository<EventoOutbox, Long> {
+
+    /**
+     * Busca os eventos ainda não publicados, na ordem em que foram gravados.
+     *
+     * @param pageable O tamanho do lote (a ordenação é ignorada).
+     * @return Uma lista de {@link EventoOutbox} pendentes, em ordem de ID.
+     */
+    @Query("SELECT e FROM EventoOutbox e WHERE e.publicadoEm IS NULL ORDER BY e.id")
+    List<EventoOutbox> findPendentes(Pageable pageable);
+
+    /**
+     * Conta os eventos ainda não publicados.
+     *
+     * @return O número de eventos pendentes.
+     */
+    long countByPublicadoEmIsNull();
+
+    /**
+     * Busca a data de gravação do evento pendente mais antigo.
+     *
+     * @return A data, ou nulo se não houver eventos pendentes.
+     */
+    @Query("SELECT MIN(e.criadoEm) FROM EventoOutbox e WHERE e.publicadoEm IS NULL")
+    LocalDateTime findCriacaoDoPendenteMaisAntigo();
+
+    /**
+     * Marca um lote de eventos como publicados.
+     *
+     * @param ids Os IDs dos eventos.
+     * @param agora A data da publicação.
+     * @return O número de eventos marcados.
+     */
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.publicadoEm = :agora, e.ultimoErro = NULL WHERE e.id IN :ids")
+    int marcarPublicados(@Param("ids") Collection<Long> ids, @Param("agora") LocalDateTime agora);
+
+    /**
+     * Registra uma falha de entrega em um lote de eventos.
+     *
+     * @param ids Os IDs dos eventos.
+     * @param erro A mensagem do erro.
+     * @return O número de eventos atualizados.
+     */
+    @Modifying
+    @Query("UPDATE EventoOutbox e SET e.tentativas = e.tentativas + 1, e.ultimoErro = :erro WHERE e.id IN :ids")
+    int registrarFalha(@Param("ids") Collection<Long> ids, @Param("erro") String erro);
+
+    /**
+     * Remove os eventos publicados antes da data informada.
+     *
+     * @param limite A data limite de publicação.
+     * @return O número de eventos removidos.
+     */
+    @Modifying
+    @Query("DELETE FROM EventoOutbox e WHERE e.publicadoEm < :limite")
+    int deletePublicadosAntesDe(@Param("limite") LocalDateTime limite);
+}
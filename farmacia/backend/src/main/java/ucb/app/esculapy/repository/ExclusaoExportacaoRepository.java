@@ -0,0 +1,37 @@
+package ucb.app.esculapy.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ucb.app.esculapy.model.ExclusaoExportacao;
+import ucb.app.esculapy.model.enums.TipoRegistroExportado;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositório JPA para a entidade {@link ExclusaoExportacao}.
+ */
+public interface ExclusaoExportacaoRepository extends JpaRepository<ExclusaoExportacao, Long> {
+
+    /**
+     * Busca a próxima página de exclusões para a exportação incremental, por keyset sobre (data_exclusao, id).
+     *
+     * @param tipo O tipo de registro excluído.
+     * @param farmaciaId Restringe às ofertas de uma farmácia, ou {@code null} para todas.
+     * @param aposData A data de exclusão da última linha exportada.
+     * @param aposId O ID da última linha exportada.
+     * @param pageable O tamanho da página (a ordenação é ignorada).
+     * @return Uma lista de {@link ExclusaoExportacao} em ordem de (data de exclusão, ID).
+     */
+    @Query("SELECT e FROM ExclusaoExportacao e WHERE e.tipo = :tipo " +
+            "AND (:farmaciaId IS NULL OR e.farmaciaId = :farmaciaId) " +
+            "AND (e.dataExclusao > :aposData OR (e.dataExclusao = :aposData AND e.id > :aposId)) " +
+            "ORDER BY e.dataExclusao, e.id")
+    List<ExclusaoExportacao> findParaExportacao(@Param("tipo") TipoRegistroExportado tipo,
+                                                @Param("farmaciaId") Long farmaciaId,
+                                                @Param("aposData") LocalDateTime aposData,
+                                                @Param("aposId") Long aposId,
+                                                Pageable pageable);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -49,4 +50,13 @@ public interface FarmaciaRepository extends JpaRepository<Farmacia, Long> {
      */
     @Query("SELECT f FROM Farmacia f LEFT JOIN FETCH f.enderecoComercial WHERE f.id = :id AND f.status = 'ATIVO'")
     Optional<Farmacia> findPublicaById(@Param("id") Long id);
+
+    /**
+     * Busca farmácias ATIVAS por ID, incluindo o endereço comercial.
+     *
+     * @param ids Os IDs das farmácias.
+     * @return As farmácias ativas encontradas, em ordem indefinida.
+     */
+    @Query("SELECT f FROM Farmacia f LEFT JOIN FETCH f.enderecoComercial WHERE f.id IN :ids AND f.status = 'ATIVO'")
+    List<Farmacia> findAllPublicasByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
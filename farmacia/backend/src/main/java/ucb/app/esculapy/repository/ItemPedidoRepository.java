@@ -1,10 +1,38 @@
 package ucb.app.esculapy.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ucb.app.esculapy.model.ItemPedido;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Repositório JPA para a entidade {@link ItemPedido}.
  */
 public interface ItemPedidoRepository extends JpaRepository<ItemPedido, Long> {
-}
\ No newline at end of file
+
+    /**
+     * Projeção com a quantidade total de um item de estoque somada entre vários pedidos.
+     */
+    interface QuantidadePorEstoque {
+        Long getEstoqueLojistaId();
+        Long getProdutoId();
+        Long getFarmaciaId();
+        Long getQuantidade();
+    }
+
+    /**
+     * Soma, por item de estoque, as quantidades de todos os itens dos pedidos informados.
+     * Usado para estornar o estoque de um lote de pedidos sem carregar as entidades.
+     *
+     * @param pedidoIds Os IDs dos pedidos.
+     * @return A quantidade total por item de estoque (com o produto e a farmácia do item).
+     */
+    @Query("SELECT i.estoqueLojista.id AS estoqueLojistaId, i.estoqueLojista.produto.id AS produtoId, " +
+            "i.estoqueLojista.farmacia.id AS farmaciaId, SUM(i.quantidade) AS quantidade " +
+            "FROM ItemPedido i WHERE i.pedido.id IN :pedidoIds " +
+            "GROUP BY i.estoqueLojista.id, i.estoqueLojista.produto.id, i.estoqueLojista.farmacia.id")
+    List<QuantidadePorEstoque> somarQuantidadesPorEstoque(@Param("pedidoIds") Collection<Long> pedidoIds);
+}
@@ -2,12 +2,18 @@ package ucb.app.esculapy.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import ucb.app.esculapy.dto.PedidoResumoResponse;
 import ucb.app.esculapy.model.Pedido;
 import ucb.app.esculapy.model.enums.PedidoStatus;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -16,46 +22,128 @@ import java.util.Optional;
 public interface PedidoRepository extends JpaRepository<Pedido, Long> {
 
     /**
-     * Lista paginada de pedidos realizados por um cliente específico.
+     * Projeção {@link PedidoResumoResponse} dos pedidos, com o cliente e o status da receita.
+     * Os filtros são acrescentados por cada consulta.
+     */
+    String SELECT_RESUMO = "SELECT new ucb.app.esculapy.dto.PedidoResumoResponse(" +
+            "p.id, p.status, p.valorTotal, p.dataPedido, p.farmacia.id, c.id, c.nome, " +
+            "(SELECT COUNT(i) FROM ItemPedido i WHERE i.pedido = p), r.status) " +
+            "FROM Pedido p JOIN p.cliente c LEFT JOIN p.receita r ";
+
+    /**
+     * Lista paginada dos resumos dos pedidos realizados por um cliente específico.
      *
      * @param clienteId O ID do cliente.
      * @param pageable As informações de paginação.
-     * @return Uma página de pedidos.
+     * @return Uma página de resumos de pedidos.
      */
-    Page<Pedido> findByClienteId(Long clienteId, Pageable pageable);
+    @Query(value = SELECT_RESUMO + "WHERE c.id = :clienteId",
+            countQuery = "SELECT COUNT(p) FROM Pedido p WHERE p.cliente.id = :clienteId")
+    Page<PedidoResumoResponse> findResumosByClienteId(@Param("clienteId") Long clienteId, Pageable pageable);
 
     /**
-     * Busca pedidos que estão em um status específico e pertencem a uma farmácia, com suporte a paginação.
+     * Paginação por cursor dos resumos dos pedidos de um cliente, do mais recente para o mais antigo.
+     * Retorna apenas os pedidos anteriores à chave (dataPedido, id) informada, sem consulta de COUNT.
+     *
+     * @param clienteId O ID do cliente.
+     * @param dataPedido A data do último pedido já entregue ao cliente.
+     * @param id O ID do último pedido já entregue ao cliente.
+     * @param pageable O tamanho da página (sem offset).
+     * @return Uma fatia de resumos de pedidos.
+     */
+    @Query(SELECT_RESUMO + "WHERE c.id = :clienteId " +
+            "AND (p.dataPedido < :dataPedido OR (p.dataPedido = :dataPedido AND p.id < :id)) " +
+            "ORDER BY p.dataPedido DESC, p.id DESC")
+    Slice<PedidoResumoResponse> findResumosByClienteIdAntesDe(
+            @Param("clienteId") Long clienteId,
+            @Param("dataPedido") LocalDateTime dataPedido,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    /**
+     * Busca os resumos dos pedidos que estão em um status específico e pertencem a uma farmácia, com suporte a paginação.
      *
      * @param status O status do pedido (ex: AGUARDANDO_RECEITA).
      * @param farmaciaId O ID da farmácia.
      * @param pageable As informações de paginação.
-     * @return Uma página de pedidos filtrados.
+     * @return Uma página de resumos de pedidos filtrados.
      */
-    @Query(value = "SELECT DISTINCT p FROM Pedido p " +
-            "JOIN p.itens i " +
-            "JOIN i.estoqueLojista el " +
-            "WHERE p.status = :status AND el.farmacia.id = :farmaciaId",
-            countQuery = "SELECT COUNT(DISTINCT p) FROM Pedido p JOIN p.itens i JOIN i.estoqueLojista el WHERE p.status = :status AND el.farmacia.id = :farmaciaId")
-    Page<Pedido> findPedidosPorStatusEFarmacia(
+    @Query(value = SELECT_RESUMO + "WHERE p.status = :status AND p.farmacia.id = :farmaciaId",
+            countQuery = "SELECT COUNT(p) FROM Pedido p WHERE p.status = :status AND p.farmacia.id = :farmaciaId")
+    Page<PedidoResumoResponse> findResumosPorStatusEFarmacia(
             @Param("status") PedidoStatus status,
             @Param("farmaciaId") Long farmaciaId,
             Pageable pageable
     );
 
     /**
-     * Busca todos os pedidos associados a uma farmácia, com suporte a paginação.
+     * Paginação por cursor dos resumos dos pedidos de uma farmácia em um status, do mais recente para o mais antigo.
+     *
+     * @param status O status do pedido.
+     * @param farmaciaId O ID da farmácia.
+     * @param dataPedido A data do último pedido já entregue ao cliente.
+     * @param id O ID do último pedido já entregue ao cliente.
+     * @param pageable O tamanho da página (sem offset).
+     * @return Uma fatia de resumos de pedidos.
+     */
+    @Query(SELECT_RESUMO + "WHERE p.status = :status AND p.farmacia.id = :farmaciaId " +
+            "AND (p.dataPedido < :dataPedido OR (p.dataPedido = :dataPedido AND p.id < :id)) " +
+            "ORDER BY p.dataPedido DESC, p.id DESC")
+    Slice<PedidoResumoResponse> findResumosPorStatusEFarmaciaAntesDe(
+            @Param("status") PedidoStatus status,
+            @Param("farmaciaId") Long farmaciaId,
+            @Param("dataPedido") LocalDateTime dataPedido,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    /**
+     * Busca os resumos de todos os pedidos associados a uma farmácia, com suporte a paginação.
      *
      * @param farmaciaId O ID da farmácia.
      * @param pageable As informações de paginação.
-     * @return Uma página de todos os pedidos da farmácia.
+     * @return Uma página de resumos de todos os pedidos da farmácia.
+     */
+    @Query(value = SELECT_RESUMO + "WHERE p.farmacia.id = :farmaciaId",
+            countQuery = "SELECT COUNT(p) FROM Pedido p WHERE p.farmacia.id = :farmaciaId")
+    Page<PedidoResumoResponse> findResumosByFarmaciaId(@Param("farmaciaId") Long farmaciaId, Pageable pageable);
+
+    /**
+     * Paginação por cursor dos resumos de todos os pedidos de uma farmácia, do mais recente para o mais antigo.
+     *
+     * @param farmaciaId O ID da farmácia.
+     * @param dataPedido A data do último pedido já entregue ao cliente.
+     * @param id O ID do último pedido já entregue ao cliente.
+     * @param pageable O tamanho da página (sem offset).
+     * @return Uma fatia de resumos de pedidos.
+     */
+    @Query(SELECT_RESUMO + "WHERE p.farmacia.id = :farmaciaId " +
+            "AND (p.dataPedido < :dataPedido OR (p.dataPedido = :dataPedido AND p.id < :id)) " +
+            "ORDER BY p.dataPedido DESC, p.id DESC")
+    Slice<PedidoResumoResponse> findResumosByFarmaciaIdAntesDe(
+            @Param("farmaciaId") Long farmaciaId,
+            @Param("dataPedido") LocalDateTime dataPedido,
+            @Param("id") Long id,
+            Pageable pageable
+    );
+
+    /**
+     * Busca um pedido com tudo o que o {@link ucb.app.esculapy.dto.PedidoDetalheResponse} exibe
+     * (cliente, endereço de entrega, receita e itens com estoque e produto) em uma única consulta.
+     *
+     * @param id O ID do pedido.
+     * @return Um Optional contendo o pedido, se encontrado.
      */
-    @Query(value = "SELECT DISTINCT p FROM Pedido p " +
-            "JOIN p.itens i " +
-            "JOIN i.estoqueLojista el " +
-            "WHERE el.farmacia.id = :farmaciaId",
-            countQuery = "SELECT COUNT(DISTINCT p) FROM Pedido p JOIN p.itens i JOIN i.estoqueLojista el WHERE el.farmacia.id = :farmaciaId")
-    Page<Pedido> findAllByFarmaciaId(@Param("farmaciaId") Long farmaciaId, Pageable pageable);
+    @Query("SELECT DISTINCT p FROM Pedido p " +
+            "JOIN FETCH p.cliente " +
+            "LEFT JOIN FETCH p.enderecoEntrega " +
+            "LEFT JOIN FETCH p.receita " +
+            "LEFT JOIN FETCH p.itens i " +
+            "LEFT JOIN FETCH i.estoqueLojista el " +
+            "LEFT JOIN FETCH el.produto " +
+            "WHERE p.id = :id")
+    Optional<Pedido> findDetalheById(@Param("id") Long id);
 
     /**
      * Busca um pedido específico para validação, garantindo que ele esteja no status correto
@@ -72,10 +160,62 @@ public interface PedidoRepository extends JpaRepository<Pedido, Long> {
             "JOIN FETCH i.estoqueLojista el " +
             "WHERE p.id = :pedidoId " +
             "AND p.status = :status " +
-            "AND el.farmacia.id = :farmaciaId")
+            "AND p.farmacia.id = :farmaciaId")
     Optional<Pedido> findPedidoParaValidacao(
             @Param("pedidoId") Long pedidoId,
             @Param("status") PedidoStatus status,
             @Param("farmaciaId") Long farmaciaId
     );
-}
\ No newline at end of file
+
+    /**
+     * Altera o status de um pedido somente se ele ainda estiver no status esperado (compare-and-set).
+     *
+     * @param id O ID do pedido.
+     * @param statusEsperado O status lido antes da alteração.
+     * @param novoStatus O novo status.
+     * @return 1 se o pedido foi alterado, 0 se outro fluxo alterou o status antes.
+     */
+    @Modifying
+    @Query("UPDATE Pedido p SET p.status = :novoStatus WHERE p.id = :id AND p.status = :statusEsperado")
+    int atualizarStatus(
+            @Param("id") Long id,
+            @Param("statusEsperado") PedidoStatus statusEsperado,
+            @Param("novoStatus") PedidoStatus novoStatus
+    );
+
+    /**
+     * Busca o status atual e os donos (farmácia e cliente) de um lote de pedidos, sem carregar as entidades.
+     *
+     * @param ids Os IDs dos pedidos.
+     * @return Uma lista de {@link SituacaoPedido}.
+     */
+    @Query("SELECT p.id AS id, p.status AS status, p.farmacia.id AS farmaciaId, p.cliente.id AS clienteId " +
+            "FROM Pedido p WHERE p.id IN :ids")
+    List<SituacaoPedido> findSituacoesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Altera o status de um lote de pedidos que ainda estejam em um dos status esperados.
+     *
+     * @param ids Os IDs dos pedidos.
+     * @param statusEsperados Os status a partir dos quais a alteração é permitida.
+     * @param novoStatus O novo status.
+     * @return O número de pedidos alterados.
+     */
+    @Modifying
+    @Query("UPDATE Pedido p SET p.status = :novoStatus WHERE p.id IN :ids AND p.status IN :statusEsperados")
+    int atualizarStatusEmLote(
+            @Param("ids") Collection<Long> ids,
+            @Param("statusEsperados") Collection<PedidoStatus> statusEsperados,
+            @Param("novoStatus") PedidoStatus novoStatus
+    );
+
+    /**
+     * Projeção com o status atual de um pedido e os IDs de seus donos.
+     */
+    interface SituacaoPedido {
+        Long getId();
+        PedidoStatus getStatus();
+        Long getFarmaciaId();
+        Long getClienteId();
+    }
+}
@@ -4,13 +4,17 @@ import ucb.app.esculapy.model.Produto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Repositório JPA para a entidade {@link Produto} (Catálogo Mestre).
  */
-public interface ProdutoRepository extends JpaRepository<Produto, Long> {
+public interface ProdutoRepository extends JpaRepository<Produto, Long>, ProdutoRepositoryCustom {
     Optional<Produto> findByEan(String ean);
     Optional<Produto> findByCodigoRegistroMS(String codigo);
 
@@ -21,4 +25,38 @@ public interface ProdutoRepository extends JpaRepository<Produto, Long> {
      * @return Uma página de produtos ativos.
      */
     Page<Produto> findAllByAtivoTrue(Pageable pageable);
-}
\ No newline at end of file
+
+    /**
+     * Projeção com o ID e o EAN de um produto.
+     */
+    interface IdPorEan {
+        Long getId();
+        String getEan();
+    }
+
+    /**
+     * Busca os IDs dos produtos com os EANs informados.
+     *
+     * @param eans Os EANs.
+     * @return O ID e o EAN de cada produto encontrado.
+     */
+    @Query("SELECT p.id AS id, p.ean AS ean FROM Produto p WHERE p.ean IN :eans")
+    List<IdPorEan> findIdsByEanIn(@Param("eans") Collection<String> eans);
+
+    /**
+     * Projeção com as chaves únicas de um produto.
+     */
+    interface ChaveProduto {
+        String getEan();
+        String getCodigoRegistroMS();
+    }
+
+    /**
+     * Lista as chaves únicas (EAN e registro MS) de todo o catálogo, ativo ou não.
+     * Usado pela importação em lote para validar unicidade em memória.
+     *
+     * @return As chaves de todos os produtos.
+     */
+    @Query("SELECT p.ean AS ean, p.codigoRegistroMS AS codigoRegistroMS FROM Produto p")
+    List<ChaveProduto> findAllChaves();
+}
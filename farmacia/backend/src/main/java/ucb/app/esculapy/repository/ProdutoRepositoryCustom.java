@@ -0,0 +1,35 @@
+package ucb.app.esculapy.repository;
+
+import ucb.app.esculapy.model.Produto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Operações em lote sobre o catálogo (escrita e exportação) que não são expressáveis por métodos derivados do Spring Data.
+ * Implementadas via JDBC em {@link ProdutoRepositoryCustomImpl}.
+ */
+public interface ProdutoRepositoryCustom {
+
+    /**
+     * Insere ou atualiza (pelo EAN), em um único lote JDBC, os produtos informados.
+     * Produtos novos entram ativos; produtos existentes têm os dados cadastrais substituídos,
+     * mantendo o ID e o status de ativação.
+     * A unicidade do registro MS entre EANs diferentes deve ser validada antes da chamada.
+     *
+     * @param produtos Os produtos (não gerenciados) com os dados a gravar.
+     */
+    void upsertEmLote(List<Produto> produtos);
+
+    /**
+     * Lista, via JDBC e sem gerenciar as entidades, a próxima página da exportação do catálogo,
+     * em ordem de (data_atualizacao, id) a partir da posição informada (exclusiva).
+     *
+     * @param aposData A data de atualização da última linha já exportada.
+     * @param aposId O ID da última linha já exportada (0 para começar em {@code aposData}, inclusive).
+     * @param somenteAtivos Se apenas os produtos ativos devem ser listados.
+     * @param limite O número máximo de linhas.
+     * @return Os produtos (não gerenciados) da página.
+     */
+    List<Produto> findParaExportacao(LocalDateTime aposData, Long aposId, boolean somenteAtivos, int limite);
+}
@@ -0,0 +1,88 @@
+package ucb.app.esculapy.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.model.enums.TipoProduto;
+import ucb.app.esculapy.model.enums.TipoReceita;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Implementação JDBC de {@link ProdutoRepositoryCustom}.
+ * As gravações atualizam {@code data_atualizacao} explicitamente, já que não passam pelo Hibernate.
+ * Participa da mesma transação corrente, pois o {@link JdbcTemplate} usa a conexão já vinculada à thread.
+ */
+@RequiredArgsConstructor
+class ProdutoRepositoryCustomImpl implements ProdutoRepositoryCustom {
+
+    private static final String SQL_UPSERT =
+            "INSERT INTO produtos_catalogo (ean, nome, principio_ativo, laboratorio, descricao, codigo_registroms, " +
+            "bula_url, tipo_produto, tipo_receita, ativo, data_atualizacao) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, true, ?) " +
+            // Avaliada antes das demais atribuições: só avança a data se algum dado cadastral mudou.
+            "ON DUPLICATE KEY UPDATE data_atualizacao = IF(nome <=> VALUES(nome) " +
+            "AND principio_ativo <=> VALUES(principio_ativo) AND laboratorio <=> VALUES(laboratorio) " +
+            "AND descricao <=> VALUES(descricao) AND codigo_registroms <=> VALUES(codigo_registroms) " +
+            "AND bula_url <=> VALUES(bula_url) AND tipo_produto <=> VALUES(tipo_produto) " +
+            "AND tipo_receita <=> VALUES(tipo_receita), data_atualizacao, VALUES(data_atualizacao)), " +
+            "nome = VALUES(nome), principio_ativo = VALUES(principio_ativo), " +
+            "laboratorio = VALUES(laboratorio), descricao = VALUES(descricao), " +
+            "codigo_registroms = VALUES(codigo_registroms), bula_url = VALUES(bula_url), " +
+            "tipo_produto = VALUES(tipo_produto), tipo_receita = VALUES(tipo_receita)";
+
+    private static final String SQL_EXPORTACAO =
+            "SELECT id, ean, nome, principio_ativo, laboratorio, descricao, codigo_registroms, bula_url, " +
+            "tipo_produto, tipo_receita, ativo, data_atualizacao FROM produtos_catalogo " +
+            "WHERE (data_atualizacao > ? OR (data_atualizacao = ? AND id > ?))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void upsertEmLote(List<Produto> produtos) {
+        if (produtos.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime agora = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(SQL_UPSERT, produtos, produtos.size(), (ps, produto) -> {
+            ps.setString(1, produto.getEan());
+            ps.setString(2, produto.getNome());
+            ps.setString(3, produto.getPrincipioAtivo());
+            ps.setString(4, produto.getLaboratorio());
+            ps.setString(5, produto.getDescricao());
+            ps.setString(6, produto.getCodigoRegistroMS());
+            ps.setString(7, produto.getBulaUrl());
+            ps.setString(8, produto.getTipoProduto().name());
+            ps.setString(9, produto.getTipoReceita().name());
+            ps.setObject(10, agora);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Produto> findParaExportacao(LocalDateTime aposData, Long aposId, boolean somenteAtivos, int limite) {
+        String sql = SQL_EXPORTACAO + (somenteAtivos ? " AND ativo = true" : "") + " ORDER BY data_atualizacao, id LIMIT ?";
+        return jdbcTemplate.query(sql, (rs, i) -> {
+            Produto produto = new Produto();
+            produto.setId(rs.getLong("id"));
+            produto.setEan(rs.getString("ean"));
+            produto.setNome(rs.getString("nome"));
+            produto.setPrincipioAtivo(rs.getString("principio_ativo"));
+            produto.setLaboratorio(rs.getString("laboratorio"));
+            produto.setDescricao(rs.getString("descricao"));
+            produto.setCodigoRegistroMS(rs.getString("codigo_registroms"));
+            produto.setBulaUrl(rs.getString("bula_url"));
+            produto.setTipoProduto(TipoProduto.valueOf(rs.getString("tipo_produto")));
+            produto.setTipoReceita(TipoReceita.valueOf(rs.getString("tipo_receita")));
+            produto.setAtivo(rs.getBoolean("ativo"));
+            produto.setDataAtualizacao(rs.getObject("data_atualizacao", LocalDateTime.class));
+            return produto;
+        }, aposData, aposData, aposId, limite);
+    }
+}
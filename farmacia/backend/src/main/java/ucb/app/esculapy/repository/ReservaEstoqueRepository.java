@@ -0,0 +1,75 @@
+package ucb.app.esculapy.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ucb.app.esculapy.model.ReservaEstoque;
+import ucb.app.esculapy.model.enums.ReservaStatus;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositório JPA para a entidade {@link ReservaEstoque}.
+ */
+public interface ReservaEstoqueRepository extends JpaRepository<ReservaEstoque, Long> {
+
+    /**
+     * Busca um lote de reservas ativas já vencidas, bloqueando as linhas para escrita.
+     * Linhas já bloqueadas por outra transação são ignoradas (SKIP LOCKED), permitindo
+     * que mais de uma instância execute a liberação sem disputa.
+     *
+     * @param agora O instante de referência para a expiração.
+     * @param pageable O tamanho do lote.
+     * @return As reservas vencidas do lote.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM ReservaEstoque r WHERE r.status = 'ATIVA' AND r.expiraEm < :agora ORDER BY r.expiraEm")
+    List<ReservaEstoque> findAtivasExpiradas(@Param("agora") LocalDateTime agora, Pageable pageable);
+
+    /**
+     * Altera o status da reserva de um pedido, somente se ela estiver no status esperado.
+     *
+     * @param pedidoId O ID do pedido.
+     * @param statusAtual O status esperado.
+     * @param novoStatus O novo status.
+     * @return O número de reservas alteradas (0 ou 1).
+     */
+    @Modifying
+    @Query("UPDATE ReservaEstoque r SET r.status = :novoStatus WHERE r.pedido.id = :pedidoId AND r.status = :statusAtual")
+    int atualizarStatusPorPedidoId(@Param("pedidoId") Long pedidoId,
+                                   @Param("statusAtual") ReservaStatus statusAtual,
+                                   @Param("novoStatus") ReservaStatus novoStatus);
+
+    /**
+     * Marca como LIBERADA a reserva de um pedido que ainda não tenha sido liberada.
+     *
+     * @param pedidoId O ID do pedido.
+     * @return O número de reservas alteradas (0 ou 1).
+     */
+    @Modifying
+    @Query("UPDATE ReservaEstoque r SET r.status = 'LIBERADA' WHERE r.pedido.id = :pedidoId AND r.status <> 'LIBERADA'")
+    int liberarPorPedidoId(@Param("pedidoId") Long pedidoId);
+
+    /**
+     * Marca como LIBERADAS as reservas informadas.
+     *
+     * @param ids Os IDs das reservas.
+     * @return O número de reservas alteradas.
+     */
+    @Modifying
+    @Query("UPDATE ReservaEstoque r SET r.status = 'LIBERADA' WHERE r.id IN :ids")
+    int liberarEmLote(@Param("ids") Collection<Long> ids);
+
+    boolean existsByPedidoId(Long pedidoId);
+
+    boolean existsByPedidoIdAndStatus(Long pedidoId, ReservaStatus status);
+}
@@ -1,5 +1,6 @@
 package ucb.app.esculapy.security;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -44,6 +45,10 @@ public class SecurityConfig {
                 .cors(cors -> {})
 
                 .authorizeHttpRequests(authz -> authz
+                        // Despachos assíncronos (fim de Server-Sent Events e de respostas em streaming):
+                        // a requisição original já foi autorizada e o filtro JWT não roda de novo neles
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // --- ROTAS PÚBLICAS ---
 
                         // Autenticação (Login, Registro, Recuperação de Senha)
@@ -5,6 +5,7 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -13,12 +14,17 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
+import ucb.app.esculapy.cache.PrincipalCache;
+import ucb.app.esculapy.model.Usuario;
 
 import java.io.IOException;
 
 /**
  * Filtro que intercepta todas as requisições para extrair e validar o JWT.
- * Se o token for válido, autentica o usuário no contexto do Spring Security.
+ * O token é verificado (assinatura e expiração) com um único parse; se for válido,
+ * autentica o usuário no contexto do Spring Security.
+ * O usuário é obtido do {@link PrincipalCache} para não consultar o banco a cada requisição;
+ * o principal é então um {@link UsuarioAutenticado}, e não a entidade.
  */
 @Component
 @RequiredArgsConstructor
@@ -26,6 +32,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final PrincipalCache principalCache;
+
+    /**
+     * Modo stateless: o principal é montado a partir das claims, sem consultar o banco.
+     * Nesse modo, a desativação de um usuário só tem efeito quando o token dele expira.
+     */
+    @Value("${auth.stateless:false}")
+    private boolean stateless;
 
     /**
      * Lógica de filtragem interna.
@@ -45,7 +59,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String userEmail;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -55,12 +68,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
 
         try {
-            userEmail = jwtService.extractUsername(jwt);
+            JwtClaims claims = jwtService.verificarToken(jwt);
 
-            if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            if (claims.email() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                UserDetails userDetails = carregarUsuario(claims);
 
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+                if (userDetails.isEnabled() && claims.email().equals(userDetails.getUsername())) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -78,4 +91,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Carrega o usuário do token. No modo stateless, monta um {@link UsuarioAutenticado} direto das claims;
+     * caso contrário, passa pelo {@link PrincipalCache} quando o token traz o ID do usuário.
+     *
+     * @param claims As claims do token já verificado.
+     * @return Os detalhes do usuário.
+     */
+    private UserDetails carregarUsuario(JwtClaims claims) {
+        if (stateless && claims.userId() != null) {
+            return new UsuarioAutenticado(claims);
+        }
+        if (claims.userId() == null || claims.emitidoEm() == null) {
+            return userDetailsService.loadUserByUsername(claims.email());
+        }
+        PrincipalCache.Chave chave = new PrincipalCache.Chave(claims.userId(), claims.emitidoEm().getTime());
+        return principalCache.get(chave, () -> (Usuario) userDetailsService.loadUserByUsername(claims.email()));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package ucb.app.esculapy.security.jwt;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Visão tipada das claims de um token JWT já verificado (assinatura e expiração).
+ *
+ * @param email O e-mail do usuário (subject).
+ * @param userId O ID do usuário (claim "userId"), ou nulo em tokens que não o possuem.
+ * @param roles Os nomes das roles do usuário (claim "roles").
+ * @param clienteId O ID do perfil de cliente, se houver.
+ * @param farmaciaId O ID da farmácia administrada pelo usuário, se houver.
+ * @param farmaceuticoId O ID do perfil de farmacêutico, se houver.
+ * @param emitidoEm A data de emissão do token.
+ * @param expiraEm A data de expiração do token.
+ */
+public record JwtClaims(
+        String email,
+        Long userId,
+        List<String> roles,
+        Long clienteId,
+        Long farmaciaId,
+        Long farmaceuticoId,
+        Date emitidoEm,
+        Date expiraEm
+) {
+}
@@ -3,21 +3,29 @@ package ucb.app.esculapy.security.jwt;
 import java.nio.charset.StandardCharsets;
 import ucb.app.esculapy.model.Usuario;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
 /**
  * Serviço responsável por gerar, extrair informações e validar JSON Web Tokens (JWT).
+ * A chave HMAC e o parser (imutável e thread-safe) são criados uma única vez na inicialização.
  */
 @Service
 public class JwtService {
@@ -28,6 +36,39 @@ public class JwtService {
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    private Key signInKey;
+    private JwtParser parser;
+
+    /**
+     * Pré-calcula a chave de assinatura e o parser a partir do segredo configurado.
+     */
+    @PostConstruct
+    void init() {
+        this.signInKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+    }
+
+    /**
+     * Verifica o token (assinatura e expiração) com um único parse e retorna suas claims tipadas.
+     *
+     * @param token O token JWT.
+     * @return A visão {@link JwtClaims} do token.
+     * @throws JwtException Se o token for inválido, adulterado ou estiver expirado.
+     */
+    public JwtClaims verificarToken(String token) {
+        Claims claims = extractAllClaims(token);
+        return new JwtClaims(
+                claims.getSubject(),
+                claims.get("userId", Long.class),
+                extractRoles(claims),
+                claims.get("clienteId", Long.class),
+                claims.get("farmaciaId", Long.class),
+                claims.get("farmaceuticoId", Long.class),
+                claims.getIssuedAt(),
+                claims.getExpiration()
+        );
+    }
+
     /**
      * Extrai o nome de usuário (subject) do token JWT.
      *
@@ -52,7 +93,8 @@ public class JwtService {
     }
 
     /**
-     * Gera um token JWT com claims padrão (ID e roles) para um {@link UserDetails}.
+     * Gera um token JWT com claims padrão (ID, roles e IDs dos perfis existentes) para um {@link UserDetails}.
+     * Os IDs de perfil (clienteId, farmaciaId, farmaceuticoId) permitem o modo de autenticação stateless.
      *
      * @param userDetails Os detalhes do usuário (deve ser uma instância de {@link Usuario}).
      * @return O token JWT gerado.
@@ -63,6 +105,15 @@ public class JwtService {
             Usuario usuario = (Usuario) userDetails;
             claims.put("userId", usuario.getId());
             claims.put("roles", usuario.getAuthorities());
+            if (usuario.getCliente() != null) {
+                claims.put("clienteId", usuario.getCliente().getId());
+            }
+            if (usuario.getFarmaciaAdmin() != null) {
+                claims.put("farmaciaId", usuario.getFarmaciaAdmin().getId());
+            }
+            if (usuario.getFarmaceutico() != null) {
+                claims.put("farmaceuticoId", usuario.getFarmaceutico().getId());
+            }
         }
         return generateToken(claims, userDetails);
     }
@@ -81,7 +132,7 @@ public class JwtService {
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -93,28 +144,8 @@ public class JwtService {
      * @return True se o token for válido, false caso contrário.
      */
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    /**
-     * Verifica se o token JWT expirou.
-     *
-     * @param token O token JWT.
-     * @return True se expirado, false caso contrário.
-     */
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
-
-    /**
-     * Extrai a data de expiração do token.
-     *
-     * @param token O token JWT.
-     * @return A data de expiração.
-     */
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        final Claims claims = extractAllClaims(token);
+        return claims.getSubject().equals(userDetails.getUsername()) && claims.getExpiration().after(new Date());
     }
 
     /**
@@ -124,21 +155,29 @@ public class JwtService {
      * @return As claims (payload) do token.
      */
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     /**
-     * Gera a chave de assinatura (Key) a partir do segredo configurado.
+     * Extrai os nomes das roles da claim "roles", que pode conter strings
+     * ou objetos {@code {"authority": "ROLE_X"}} (formato serializado de {@link GrantedAuthority}).
      *
-     * @return A chave de assinatura.
+     * @param claims As claims do token.
+     * @return A lista de nomes das roles (vazia se a claim não existir).
      */
-    private Key getSignInKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private List<String> extractRoles(Claims claims) {
+        Object roles = claims.get("roles");
+        if (!(roles instanceof Collection<?> colecao)) {
+            return List.of();
+        }
+        List<String> nomes = new ArrayList<>(colecao.size());
+        for (Object role : colecao) {
+            if (role instanceof Map<?, ?> mapa && mapa.get("authority") != null) {
+                nomes.add(mapa.get("authority").toString());
+            } else if (role != null) {
+                nomes.add(role.toString());
+            }
+        }
+        return nomes;
     }
 }
\ No newline at end of file
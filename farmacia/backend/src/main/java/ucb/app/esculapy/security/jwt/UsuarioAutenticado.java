@@ -0,0 +1,82 @@
+package ucb.app.esculapy.security.jwt;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import ucb.app.esculapy.model.Usuario;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Principal leve e imutável: apenas o ID, as roles, a habilitação e os IDs dos perfis do usuário.
+ * No modo stateless ({@code auth.stateless=true}) é montado a partir das claims de um token verificado,
+ * sem consultar o banco; nos demais modos é o retrato do {@link Usuario} guardado no
+ * {@link ucb.app.esculapy.cache.PrincipalCache}, que pode ser compartilhado entre requisições.
+ * As entidades de perfil são resolvidas sob demanda pelo
+ * {@link ucb.app.esculapy.service.AuthenticationService} a partir dos IDs aqui guardados.
+ */
+@Getter
+public class UsuarioAutenticado implements UserDetails {
+
+    private final Long userId;
+    private final String email;
+    private final List<SimpleGrantedAuthority> authorities;
+    private final Long clienteId;
+    private final Long farmaciaId;
+    private final Long farmaceuticoId;
+    private final boolean enabled;
+
+    /**
+     * Cria o principal a partir das claims do token.
+     *
+     * @param claims As claims de um token já verificado (o token deve conter "userId").
+     */
+    public UsuarioAutenticado(JwtClaims claims) {
+        this.userId = claims.userId();
+        this.email = claims.email();
+        this.authorities = claims.roles().stream().map(SimpleGrantedAuthority::new).toList();
+        this.clienteId = claims.clienteId();
+        this.farmaciaId = claims.farmaciaId();
+        this.farmaceuticoId = claims.farmaceuticoId();
+        this.enabled = true;
+    }
+
+    /**
+     * Cria o principal como retrato de um usuário carregado com roles e perfis.
+     *
+     * @param usuario O usuário carregado.
+     */
+    public UsuarioAutenticado(Usuario usuario) {
+        this.userId = usuario.getId();
+        this.email = usuario.getEmail();
+        this.authorities = usuario.getAuthorities().stream()
+                .map(authority -> new SimpleGrantedAuthority(authority.getAuthority()))
+                .toList();
+        this.clienteId = usuario.getCliente() != null ? usuario.getCliente().getId() : null;
+        this.farmaciaId = usuario.getFarmaciaAdmin() != null ? usuario.getFarmaciaAdmin().getId() : null;
+        this.farmaceuticoId = usuario.getFarmaceutico() != null ? usuario.getFarmaceutico().getId() : null;
+        this.enabled = usuario.isEnabled();
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    /**
+     * O principal stateless não carrega a senha.
+     *
+     * @return Sempre nulo.
+     */
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
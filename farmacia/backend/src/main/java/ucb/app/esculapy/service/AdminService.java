@@ -1,10 +1,13 @@
 package ucb.app.esculapy.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ucb.app.esculapy.event.FarmaciaAlteradaEvent;
+import ucb.app.esculapy.event.UsuarioAlteradoEvent;
 import ucb.app.esculapy.exception.ConflictException;
 import ucb.app.esculapy.exception.ResourceNotFoundException;
 import ucb.app.esculapy.model.Farmacia;
@@ -23,6 +26,7 @@ public class AdminService {
 
     private final FarmaciaRepository farmaciaRepository;
     private final UsuarioRepository usuarioRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Busca uma lista paginada de farmácias com um status específico.
@@ -60,7 +64,7 @@ public class AdminService {
         }
 
         farmacia.setStatus(LojistaStatus.ATIVO);
-        return farmaciaRepository.save(farmacia);
+        return salvarFarmacia(farmacia);
     }
 
     /**
@@ -81,7 +85,7 @@ public class AdminService {
         }
 
         farmacia.setStatus(LojistaStatus.SUSPENSO);
-        return farmaciaRepository.save(farmacia);
+        return salvarFarmacia(farmacia);
     }
 
     /**
@@ -102,7 +106,7 @@ public class AdminService {
         }
 
         farmacia.setStatus(LojistaStatus.ATIVO);
-        return farmaciaRepository.save(farmacia);
+        return salvarFarmacia(farmacia);
     }
 
     /**
@@ -132,6 +136,24 @@ public class AdminService {
                 .orElseThrow(() -> new ResourceNotFoundException("Usuário com ID " + usuarioId + " não encontrado."));
 
         usuario.setEnabled(isEnabled);
-        return usuarioRepository.save(usuario);
+        Usuario salvo = usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioAlteradoEvent(usuarioId));
+        return salvo;
     }
-}
\ No newline at end of file
+
+    /**
+     * Salva a farmácia e sinaliza a alteração para o usuário administrador dela,
+     * cujo principal em cache carrega a farmácia (e seu status), e para o índice geográfico.
+     *
+     * @param farmacia A farmácia alterada.
+     * @return A {@link Farmacia} salva.
+     */
+    private Farmacia salvarFarmacia(Farmacia farmacia) {
+        Farmacia salva = farmaciaRepository.save(farmacia);
+        if (farmacia.getUsuarioAdmin() != null) {
+            eventPublisher.publishEvent(new UsuarioAlteradoEvent(farmacia.getUsuarioAdmin().getId()));
+        }
+        eventPublisher.publishEvent(new FarmaciaAlteradaEvent(farmacia.getId()));
+        return salva;
+    }
+}
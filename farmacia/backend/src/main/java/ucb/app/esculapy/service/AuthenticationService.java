@@ -1,5 +1,6 @@
 package ucb.app.esculapy.service;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -8,14 +9,32 @@ import ucb.app.esculapy.model.Cliente;
 import ucb.app.esculapy.model.Farmacia;
 import ucb.app.esculapy.model.Farmaceutico;
 import ucb.app.esculapy.model.Usuario;
+import ucb.app.esculapy.repository.ClienteRepository;
+import ucb.app.esculapy.repository.FarmaceuticoRepository;
+import ucb.app.esculapy.repository.FarmaciaRepository;
+import ucb.app.esculapy.repository.UsuarioRepository;
+import ucb.app.esculapy.security.jwt.UsuarioAutenticado;
+
+import java.util.function.Function;
 
 /**
  * Serviço auxiliar para obter o principal de segurança (usuário logado)
  * e seus perfis de forma segura e centralizada.
+ * O principal é um {@link UsuarioAutenticado} (retrato imutável, vindo das claims ou do cache de principais)
+ * ou, para tokens sem o ID do usuário, a própria entidade {@link Usuario}. Em ambos os casos as entidades
+ * são devolvidas como referências gerenciadas pela transação corrente (getReferenceById), carregadas
+ * só quando algum atributo além do ID é acessado; assim, alterações feitas pelos serviços nunca
+ * tocam um objeto compartilhado entre requisições.
  */
 @Component
+@RequiredArgsConstructor
 public class AuthenticationService {
 
+    private final UsuarioRepository usuarioRepository;
+    private final ClienteRepository clienteRepository;
+    private final FarmaciaRepository farmaciaRepository;
+    private final FarmaceuticoRepository farmaceuticoRepository;
+
     /**
      * Busca a autenticação atual do Spring Security.
      *
@@ -26,17 +45,24 @@ public class AuthenticationService {
     }
 
     /**
-     * Retorna a entidade {@link Usuario} completa do usuário logado.
+     * Retorna a entidade {@link Usuario} do usuário logado, gerenciada pela transação corrente.
      *
      * @return O objeto {@link Usuario}.
      * @throws ForbiddenException Se não houver usuário autenticado.
      */
     public Usuario getUsuarioLogado() {
-        Authentication authentication = getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated() || authentication.getPrincipal() instanceof String) {
-            throw new ForbiddenException("Nenhum usuário autenticado encontrado. Acesso negado.");
-        }
-        return (Usuario) authentication.getPrincipal();
+        return usuarioRepository.getReferenceById(getPrincipal().getUserId());
+    }
+
+    /**
+     * Retorna a entidade {@link Usuario} do usuário logado com roles e perfis carregados.
+     *
+     * @return O objeto {@link Usuario} com os perfis inicializados.
+     * @throws ForbiddenException Se não houver usuário autenticado.
+     */
+    public Usuario getUsuarioLogadoCompleto() {
+        return usuarioRepository.findByEmail(getPrincipal().getEmail())
+                .orElseThrow(() -> new ForbiddenException("Nenhum usuário autenticado encontrado. Acesso negado."));
     }
 
     /**
@@ -46,9 +72,7 @@ public class AuthenticationService {
      * @throws ForbiddenException Se o usuário logado não for um cliente.
      */
     public Cliente getClienteLogado() {
-        Usuario usuario = getUsuarioLogado();
-        Cliente cliente = usuario.getCliente();
-
+        Cliente cliente = referencia(getPrincipal().getClienteId(), clienteRepository::getReferenceById);
         if (cliente == null) {
             throw new ForbiddenException("O usuário logado não possui um perfil de cliente.");
         }
@@ -62,9 +86,7 @@ public class AuthenticationService {
      * @throws ForbiddenException Se o usuário logado não for um dono de farmácia.
      */
     public Farmacia getFarmaciaAdminLogada() {
-        Usuario usuario = getUsuarioLogado();
-        Farmacia farmacia = usuario.getFarmaciaAdmin();
-
+        Farmacia farmacia = referencia(getPrincipal().getFarmaciaId(), farmaciaRepository::getReferenceById);
         if (farmacia == null) {
             throw new ForbiddenException("O usuário logado não possui um perfil de administrador de farmácia.");
         }
@@ -78,12 +100,34 @@ public class AuthenticationService {
      * @throws ForbiddenException Se o usuário logado não for um farmacêutico.
      */
     public Farmaceutico getFarmaceuticoLogado() {
-        Usuario usuario = getUsuarioLogado();
-        Farmaceutico farmaceutico = usuario.getFarmaceutico();
-
+        Farmaceutico farmaceutico = referencia(getPrincipal().getFarmaceuticoId(), farmaceuticoRepository::getReferenceById);
         if (farmaceutico == null) {
             throw new ForbiddenException("O usuário logado não possui um perfil de farmacêutico.");
         }
         return farmaceutico;
     }
-}
\ No newline at end of file
+
+    /**
+     * Retorna o principal autenticado como {@link UsuarioAutenticado}.
+     *
+     * @return O principal.
+     * @throws ForbiddenException Se não houver usuário autenticado.
+     */
+    private UsuarioAutenticado getPrincipal() {
+        Authentication authentication = getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()) {
+            Object principal = authentication.getPrincipal();
+            if (principal instanceof UsuarioAutenticado usuarioAutenticado) {
+                return usuarioAutenticado;
+            }
+            if (principal instanceof Usuario usuario) {
+                return new UsuarioAutenticado(usuario);
+            }
+        }
+        throw new ForbiddenException("Nenhum usuário autenticado encontrado. Acesso negado.");
+    }
+
+    private static <T> T referencia(Long id, Function<Long, T> getReferenceById) {
+        return id == null ? null : getReferenceById.apply(id);
+    }
+}
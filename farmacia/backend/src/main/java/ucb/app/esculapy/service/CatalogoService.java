@@ -1,23 +1,58 @@
 package ucb.app.esculapy.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ucb.app.esculapy.busca.IndiceEquivalentes;
+import ucb.app.esculapy.busca.IndiceFacetas;
+import ucb.app.esculapy.busca.IndiceOfertas;
+import ucb.app.esculapy.busca.IndiceProdutos;
+import ucb.app.esculapy.busca.IndiceSugestoes;
+import ucb.app.esculapy.cache.CatalogoCache;
+import ucb.app.esculapy.dto.CacheEstatisticasResponse;
+import ucb.app.esculapy.dto.CatalogoFacetadoResponse;
+import ucb.app.esculapy.dto.CursorPage;
 import ucb.app.esculapy.dto.EstoqueRequest;
 import ucb.app.esculapy.dto.EstoqueResponse;
+import ucb.app.esculapy.dto.OfertaProximaResponse;
 import ucb.app.esculapy.dto.ProdutoRequest;
+import ucb.app.esculapy.dto.SugestaoResponse;
+import ucb.app.esculapy.estoque.MotorEstoque;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
+import ucb.app.esculapy.event.ProdutoCatalogoAlteradoEvent;
+import ucb.app.esculapy.exception.BadRequestException;
 import ucb.app.esculapy.exception.ConflictException;
 import ucb.app.esculapy.exception.ForbiddenException;
 import ucb.app.esculapy.exception.ResourceNotFoundException;
+import ucb.app.esculapy.geo.IndiceGeografico;
 import ucb.app.esculapy.model.EstoqueLojista;
+import ucb.app.esculapy.model.ExclusaoExportacao;
 import ucb.app.esculapy.model.Farmacia;
 import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.model.enums.TipoProduto;
+import ucb.app.esculapy.model.enums.TipoReceita;
+import ucb.app.esculapy.model.enums.TipoRegistroExportado;
 import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.ExclusaoExportacaoRepository;
 import ucb.app.esculapy.repository.FarmaciaRepository;
 import ucb.app.esculapy.repository.ProdutoRepository;
 
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * Serviço responsável por toda a lógica de Catálogo Mestre (Admin) e Estoque (Lojista/Público).
  */
@@ -25,10 +60,30 @@ import ucb.app.esculapy.repository.ProdutoRepository;
 @RequiredArgsConstructor
 public class CatalogoService {
 
+    private static final int SUGESTOES_PADRAO = 8;
+    private static final int OFERTAS_PADRAO = 20;
+    private static final int MAXIMO_FRACOES = 64;
+
     private final ProdutoRepository produtoRepository;
     private final EstoqueLojistaRepository estoqueLojistaRepository;
     private final FarmaciaRepository farmaciaRepository;
+    private final ExclusaoExportacaoRepository exclusaoExportacaoRepository;
     private final AuthenticationService authenticationService;
+    private final CatalogoCache catalogoCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IndiceProdutos indiceProdutos;
+    private final IndiceSugestoes indiceSugestoes;
+    private final IndiceOfertas indiceOfertas;
+    private final IndiceEquivalentes indiceEquivalentes;
+    private final IndiceFacetas indiceFacetas;
+    private final IndiceGeografico indiceGeografico;
+    private final MotorEstoque motorEstoque;
+
+    @Value("${geo.busca.maximo-ofertas:100}")
+    private int maximoOfertasProximas;
+
+    @Value("${catalogo.equivalentes.maximo-ofertas:100}")
+    private int maximoOfertasEquivalentes;
 
     // ========================================================================
     // --- Lógica PÚBLICA (Paginada) ---
@@ -36,43 +91,105 @@ public class CatalogoService {
 
     /**
      * Obtém o catálogo mestre de produtos ativos para visualização pública.
+     * As páginas são servidas pelo {@link CatalogoCache}; sem transação própria, um acerto
+     * no cache não chega a obter conexão do pool.
      *
      * @param pageable As informações de paginação.
      * @return Uma página de {@link Produto} ativos.
      */
-    @Transactional(readOnly = true)
     public Page<Produto> getCatalogoCompletoAtivo(Pageable pageable) {
-        return produtoRepository.findAllByAtivoTrue(pageable);
+        return catalogoCache.getPagina(pageable, produtoRepository::findAllByAtivoTrue);
+    }
+
+    /**
+     * Lista o catálogo de produtos ativos filtrado por facetas, com as contagens de cada faceta.
+     * Filtragem e contagens são servidas pelo {@link IndiceFacetas} (interseção de bitsets);
+     * apenas os produtos da página são carregados do banco, em ordem de ID.
+     *
+     * @param tipoProduto O tipo de produto (opcional).
+     * @param tipoReceita O tipo de receita (opcional).
+     * @param laboratorio O laboratório (opcional).
+     * @param emEstoque Filtra produtos com (true) ou sem (false) ofertas disponíveis (opcional).
+     * @param pageable As informações de paginação (a ordenação é ignorada).
+     * @return A página de produtos e as contagens das facetas.
+     * @throws BadRequestException Se o tipo de produto ou de receita for inválido.
+     */
+    public CatalogoFacetadoResponse getCatalogoFiltrado(String tipoProduto, String tipoReceita, String laboratorio,
+                                                        Boolean emEstoque, Pageable pageable) {
+        IndiceFacetas.Filtro filtro = new IndiceFacetas.Filtro(
+                converterEnum(TipoProduto.class, tipoProduto, "Tipo de produto"),
+                converterEnum(TipoReceita.class, tipoReceita, "Tipo de receita"),
+                laboratorio, emEstoque);
+        IndiceFacetas.Resultado resultado = indiceFacetas.filtrar(filtro, pageable.getOffset(), pageable.getPageSize());
+
+        Map<Long, Produto> produtos = produtoRepository.findAllById(resultado.produtoIds()).stream()
+                .collect(Collectors.toMap(Produto::getId, Function.identity()));
+        List<Produto> pagina = resultado.produtoIds().stream()
+                .map(produtos::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new CatalogoFacetadoResponse(new PageImpl<>(pagina, pageable, resultado.total()), resultado.facetas());
     }
 
     /**
      * Obtém os detalhes de um produto do catálogo por ID.
+     * O produto é servido pelo {@link CatalogoCache} e não deve ser alterado pelo chamador.
      *
      * @param id O ID do produto.
      * @return O objeto {@link Produto}.
      * @throws ResourceNotFoundException Se o produto não for encontrado.
      */
-    @Transactional(readOnly = true)
     public Produto getProdutoDoCatalogoPorId(Long id) {
-        return produtoRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Produto com ID " + id + " não encontrado no catálogo."));
+        Produto produto = catalogoCache.getProduto(id, produtoId -> produtoRepository.findById(produtoId).orElse(null));
+        if (produto == null) {
+            throw new ResourceNotFoundException("Produto com ID " + id + " não encontrado no catálogo.");
+        }
+        return produto;
     }
 
     /**
-     * Busca o estoque disponível em todas as farmácias por nome do produto.
+     * Retorna as estatísticas (tamanho, acertos, faltas) dos caches do catálogo.
      *
-     * @param nome O nome do produto.
+     * @return Uma lista de {@link CacheEstatisticasResponse}.
+     */
+    public List<CacheEstatisticasResponse> getEstatisticasCache() {
+        return catalogoCache.getEstatisticas();
+    }
+
+    /**
+     * Sugere produtos e princípios ativos para o autocompletar da busca.
+     * Servido inteiramente pelo {@link IndiceSugestoes}, sem acesso ao banco.
+     *
+     * @param prefixo O texto digitado pelo usuário.
+     * @param limite O número máximo de sugestões (padrão 8, máximo {@value IndiceSugestoes#TAMANHO_TOPO}).
+     * @return As sugestões, priorizando as com mais ofertas disponíveis.
+     */
+    public List<SugestaoResponse> getSugestoes(String prefixo, Integer limite) {
+        return indiceSugestoes.sugerir(prefixo, limitar(limite, SUGESTOES_PADRAO, IndiceSugestoes.TAMANHO_TOPO));
+    }
+
+    /**
+     * Busca o estoque disponível em todas as farmácias por nome, princípio ativo, laboratório ou descrição.
+     * Os produtos vêm do {@link IndiceProdutos} (BM25, sem acentos) e as ofertas do {@link IndiceOfertas}:
+     * ordenadas pela relevância do produto e depois pelo menor preço. A ordenação do {@code pageable} é ignorada.
+     *
+     * @param nome O texto buscado.
      * @param pageable As informações de paginação.
      * @return Uma página de {@link EstoqueResponse}.
      */
     @Transactional(readOnly = true)
     public Page<EstoqueResponse> buscarEstoquePorNomeProduto(String nome, Pageable pageable) {
-        Page<EstoqueLojista> estoques = estoqueLojistaRepository.findByProdutoNomeContendo(nome, pageable);
-        return estoques.map(EstoqueResponse::new);
+        List<Long> produtoIds = indiceProdutos.buscar(nome);
+        if (produtoIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return montarPaginaDeOfertas(indiceOfertas.getPagina(produtoIds, pageable.getOffset(), pageable.getPageSize()), pageable);
     }
 
     /**
-     * Busca todas as ofertas de estoque para um produto específico no catálogo.
+     * Busca todas as ofertas de estoque para um produto específico no catálogo, da mais barata para a mais cara.
+     * A ordem e o total vêm do {@link IndiceOfertas}; apenas os itens da página são carregados do banco.
+     * A ordenação do {@code pageable} é ignorada.
      *
      * @param catalogoId O ID do produto no catálogo.
      * @param pageable As informações de paginação.
@@ -81,11 +198,73 @@ public class CatalogoService {
      */
     @Transactional(readOnly = true)
     public Page<EstoqueResponse> buscarEstoquePorCatalogoId(Long catalogoId, Pageable pageable) {
-        if (!produtoRepository.existsById(catalogoId)) {
-            throw new ResourceNotFoundException("Produto com ID " + catalogoId + " não encontrado no catálogo.");
+        getProdutoDoCatalogoPorId(catalogoId);
+        return montarPaginaDeOfertas(indiceOfertas.getPagina(catalogoId, pageable.getOffset(), pageable.getPageSize()), pageable);
+    }
+
+    /**
+     * Busca as ofertas de um produto nas farmácias dentro de um raio, da mais próxima para a mais distante
+     * (e, à mesma distância, da mais barata). Cruza o {@link IndiceGeografico} com o {@link IndiceOfertas};
+     * apenas as ofertas retornadas são carregadas do banco.
+     *
+     * @param catalogoId O ID do produto no catálogo.
+     * @param latitude A latitude do ponto de referência.
+     * @param longitude A longitude do ponto de referência.
+     * @param raioKm O raio, em quilômetros (opcional).
+     * @param limite O número máximo de ofertas (padrão 20, máximo {@code geo.busca.maximo-ofertas}).
+     * @return A lista de {@link OfertaProximaResponse}.
+     * @throws ResourceNotFoundException Se o produto não for encontrado no catálogo.
+     */
+    @Transactional(readOnly = true)
+    public List<OfertaProximaResponse> buscarEstoquePorProximidade(Long catalogoId, Double latitude, Double longitude,
+                                                                   Double raioKm, Integer limite) {
+        getProdutoDoCatalogoPorId(catalogoId);
+        List<IndiceGeografico.Proxima> proximas = indiceGeografico.buscarProximas(latitude, longitude, raioKm);
+        Map<Long, Long> ofertasPorFarmacia = indiceOfertas.getOfertasPorFarmacia(catalogoId);
+        int tamanho = limitar(limite, OFERTAS_PADRAO, maximoOfertasProximas);
+
+        Map<Long, Double> distanciaPorEstoque = new LinkedHashMap<>();
+        for (IndiceGeografico.Proxima proxima : proximas) {
+            Long estoqueId = ofertasPorFarmacia.get(proxima.farmaciaId());
+            if (estoqueId != null) {
+                distanciaPorEstoque.put(estoqueId, proxima.distanciaKm());
+                if (distanciaPorEstoque.size() == tamanho) {
+                    break;
+                }
+            }
+        }
+        if (distanciaPorEstoque.isEmpty()) {
+            return List.of();
+        }
+
+        return estoqueLojistaRepository.findAllComProdutoEFarmaciaByIdIn(distanciaPorEstoque.keySet()).stream()
+                .map(e -> new OfertaProximaResponse(e, distanciaPorEstoque.get(e.getId())))
+                .sorted(Comparator.comparingDouble(OfertaProximaResponse::getDistanciaKm)
+                        .thenComparing(OfertaProximaResponse::getPreco))
+                .toList();
+    }
+
+    /**
+     * Busca ofertas de produtos equivalentes (mesmo princípio ativo e tipo de receita) mais baratas
+     * que a oferta mais barata do produto informado. Se o produto não tiver ofertas disponíveis,
+     * retorna as ofertas mais baratas dos equivalentes.
+     * Servido pelos índices em memória; apenas as ofertas retornadas são carregadas do banco.
+     *
+     * @param catalogoId O ID do produto no catálogo.
+     * @param limite O número máximo de ofertas (padrão 20, máximo {@code catalogo.equivalentes.maximo-ofertas}).
+     * @return A lista de {@link EstoqueResponse}, da oferta mais barata para a mais cara.
+     * @throws ResourceNotFoundException Se o produto não for encontrado no catálogo.
+     */
+    @Transactional(readOnly = true)
+    public List<EstoqueResponse> getEquivalentesMaisBaratos(Long catalogoId, Integer limite) {
+        getProdutoDoCatalogoPorId(catalogoId);
+        List<Long> equivalentes = indiceEquivalentes.getEquivalentes(catalogoId);
+        if (equivalentes.isEmpty()) {
+            return List.of();
         }
-        Page<EstoqueLojista> estoques = estoqueLojistaRepository.findOfertasByProdutoId(catalogoId, pageable);
-        return estoques.map(EstoqueResponse::new);
+        List<Long> estoqueIds = indiceOfertas.getOfertasMaisBaratas(
+                equivalentes, indiceOfertas.getMenorPreco(catalogoId), limitar(limite, OFERTAS_PADRAO, maximoOfertasEquivalentes));
+        return carregarOfertas(estoqueIds);
     }
 
     /**
@@ -104,6 +283,25 @@ public class CatalogoService {
         return estoqueLojistaRepository.findPublicoByFarmaciaId(farmaciaId, pageable);
     }
 
+    /**
+     * Obtém por cursor o estoque público (ativo) de uma farmácia específica, em ordem de ID.
+     *
+     * @param farmaciaId O ID da farmácia.
+     * @param cursor O cursor retornado pela página anterior (nulo na primeira página).
+     * @param tamanho O tamanho da página.
+     * @return Uma {@link CursorPage} de {@link EstoqueLojista}.
+     * @throws ResourceNotFoundException Se a farmácia não for encontrada.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<EstoqueLojista> getEstoquePublicoDaFarmacia(Long farmaciaId, String cursor, Integer tamanho) {
+        if (!farmaciaRepository.existsById(farmaciaId)) {
+            throw new ResourceNotFoundException("Farmácia com ID " + farmaciaId + " não encontrada.");
+        }
+        Slice<EstoqueLojista> estoque = estoqueLojistaRepository.findPublicoByFarmaciaIdAposId(
+                farmaciaId, CursorCodec.decodificarId(cursor), CursorCodec.pagina(tamanho));
+        return CursorPage.of(estoque, item -> CursorCodec.codificar(item.getId()));
+    }
+
     /**
      * Obtém um item de estoque específico, garantindo que ele esteja ativo (para o público).
      *
@@ -139,7 +337,9 @@ public class CatalogoService {
 
         Produto produto = new Produto();
         produto.setAtivo(true);
-        return mapDtoToProduto(produto, request);
+        Produto salvo = mapDtoToProduto(produto, request);
+        eventPublisher.publishEvent(new ProdutoCatalogoAlteradoEvent(salvo.getId(), true));
+        return salvo;
     }
 
     /**
@@ -153,7 +353,7 @@ public class CatalogoService {
      */
     @Transactional
     public Produto updateProdutoCatalogo(Long id, ProdutoRequest request) {
-        Produto produto = getProdutoDoCatalogoPorId(id);
+        Produto produto = getProdutoGerenciado(id);
 
         produtoRepository.findByEan(request.getEan()).ifPresent(p -> {
             if (!p.getId().equals(id)) {
@@ -166,7 +366,9 @@ public class CatalogoService {
             }
         });
 
-        return mapDtoToProduto(produto, request);
+        Produto salvo = mapDtoToProduto(produto, request);
+        eventPublisher.publishEvent(new ProdutoCatalogoAlteradoEvent(id, false));
+        return salvo;
     }
 
     /**
@@ -195,6 +397,7 @@ public class CatalogoService {
 
     /**
      * Deleta permanentemente um produto do catálogo.
+     * A exclusão é registrada para que a exportação incremental a entregue aos parceiros.
      *
      * @param id O ID do produto.
      * @throws ResourceNotFoundException Se o produto não for encontrado.
@@ -202,11 +405,13 @@ public class CatalogoService {
      */
     @Transactional
     public void deleteProdutoCatalogo(Long id) {
-        Produto produto = getProdutoDoCatalogoPorId(id);
+        Produto produto = getProdutoGerenciado(id);
         if (estoqueLojistaRepository.existsByProduto_Id(id)) {
             throw new ConflictException("Este produto não pode ser excluído permanentemente pois está em uso no estoque de uma ou mais farmácias. Considere desativá-lo.");
         }
         produtoRepository.delete(produto);
+        exclusaoExportacaoRepository.save(new ExclusaoExportacao(TipoRegistroExportado.PRODUTO, id, null));
+        eventPublisher.publishEvent(new ProdutoCatalogoAlteradoEvent(id, true));
     }
 
     // ========================================================================
@@ -225,6 +430,21 @@ public class CatalogoService {
         return estoqueLojistaRepository.findByFarmaciaId(farmacia.getId(), pageable);
     }
 
+    /**
+     * Lista por cursor o estoque privado (completo, ativo/inativo) da farmácia do lojista logado.
+     *
+     * @param cursor O cursor retornado pela página anterior (nulo na primeira página).
+     * @param tamanho O tamanho da página.
+     * @return Uma {@link CursorPage} de {@link EstoqueLojista}.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<EstoqueLojista> getEstoquePrivadoDaFarmaciaLogada(String cursor, Integer tamanho) {
+        Farmacia farmacia = authenticationService.getFarmaciaAdminLogada();
+        Slice<EstoqueLojista> estoque = estoqueLojistaRepository.findByFarmaciaIdAposId(
+                farmacia.getId(), CursorCodec.decodificarId(cursor), CursorCodec.pagina(tamanho));
+        return CursorPage.of(estoque, item -> CursorCodec.codificar(item.getId()));
+    }
+
     /**
      * Adiciona um novo item de estoque para a farmácia logada.
      *
@@ -236,7 +456,7 @@ public class CatalogoService {
     @Transactional
     public EstoqueLojista adicionarItemEstoque(EstoqueRequest request) {
         Farmacia farmacia = authenticationService.getFarmaciaAdminLogada();
-        Produto produto = getProdutoDoCatalogoPorId(request.getProdutoId());
+        Produto produto = getProdutoGerenciado(request.getProdutoId());
 
         estoqueLojistaRepository.findByFarmaciaIdAndProduto_Id(farmacia.getId(), produto.getId())
                 .ifPresent(estoque -> {
@@ -249,11 +469,18 @@ public class CatalogoService {
         novoItem.setPreco(request.getPreco());
         novoItem.setQuantidade(request.getQuantidade());
 
-        return estoqueLojistaRepository.save(novoItem);
+        EstoqueLojista salvo = estoqueLojistaRepository.save(novoItem);
+        publicarEstoqueAlterado(salvo);
+        return salvo;
     }
 
     /**
      * Atualiza o preço e/ou quantidade de um item de estoque existente.
+     * <p>
+     * A edição não passa pela fila do {@link MotorEstoque}, que só aplica variações relativas: a quantidade
+     * informada é absoluta (contagem do lojista). O item é lido com bloqueio de escrita, então uma gravação
+     * do motor em andamento termina antes da leitura, ou espera o commit da edição e aplica sua variação
+     * condicional sobre a nova quantidade. O saldo em memória do motor é descartado após o commit.
      *
      * @param estoqueId O ID do item de estoque.
      * @param request O DTO {@link EstoqueRequest}.
@@ -265,7 +492,8 @@ public class CatalogoService {
     @Transactional
     public EstoqueLojista updateEstoque(Long estoqueId, EstoqueRequest request) {
         Farmacia farmacia = authenticationService.getFarmaciaAdminLogada();
-        EstoqueLojista item = getEstoquePrivadoValidado(estoqueId, farmacia.getId());
+        EstoqueLojista item = getEstoquePrivadoValidado(
+                estoqueLojistaRepository.findByIdParaAtualizacao(estoqueId), estoqueId, farmacia.getId());
 
         if (!item.getProduto().getId().equals(request.getProdutoId())) {
             throw new ConflictException("Não é permitido alterar o ProdutoId de um item de estoque. Crie um novo item.");
@@ -273,12 +501,18 @@ public class CatalogoService {
 
         item.setPreco(request.getPreco());
         item.setQuantidade(request.getQuantidade());
+        if (item.isFracionado()) {
+            estoqueLojistaRepository.redistribuirFracoes(item.getId(), item.getFracoes(), request.getQuantidade());
+        }
 
-        return estoqueLojistaRepository.save(item);
+        EstoqueLojista salvo = estoqueLojistaRepository.save(item);
+        publicarEstoqueAlterado(salvo);
+        return salvo;
     }
 
     /**
      * Deleta um item de estoque.
+     * A exclusão é registrada para que a exportação incremental a entregue aos parceiros.
      *
      * @param estoqueId O ID do item de estoque.
      * @throws ResourceNotFoundException Se o item não for encontrado.
@@ -289,6 +523,8 @@ public class CatalogoService {
         Farmacia farmacia = authenticationService.getFarmaciaAdminLogada();
         EstoqueLojista item = getEstoquePrivadoValidado(estoqueId, farmacia.getId());
         estoqueLojistaRepository.delete(item);
+        exclusaoExportacaoRepository.save(new ExclusaoExportacao(TipoRegistroExportado.OFERTA, estoqueId, farmacia.getId()));
+        publicarEstoqueAlterado(item);
     }
 
     /**
@@ -303,9 +539,46 @@ public class CatalogoService {
     @Transactional
     public EstoqueLojista setEstoqueAtivo(Long estoqueId, boolean ativo) {
         Farmacia farmacia = authenticationService.getFarmaciaAdminLogada();
-        EstoqueLojista item = getEstoquePrivadoValidado(estoqueId, farmacia.getId());
+        // A gravação da entidade reescreve a quantidade: a leitura bloqueada evita sobrescrever uma baixa concorrente.
+        EstoqueLojista item = getEstoquePrivadoValidado(
+                estoqueLojistaRepository.findByIdParaAtualizacao(estoqueId), estoqueId, farmacia.getId());
         item.setAtivo(ativo);
-        return estoqueLojistaRepository.save(item);
+        EstoqueLojista salvo = estoqueLojistaRepository.save(item);
+        publicarEstoqueAlterado(salvo);
+        return salvo;
+    }
+
+    /**
+     * Liga, ajusta ou desliga o modo fracionado de um item de estoque muito disputado (ex.: promoções relâmpago).
+     * No modo fracionado a quantidade é dividida em frações e cada baixa bloqueia apenas uma delas,
+     * de modo que pedidos concorrentes do mesmo item não serializam na mesma linha.
+     * A quantidade atual é preservada: é redistribuída entre as novas frações ou, ao desligar, somada de volta.
+     *
+     * @param estoqueId O ID do item de estoque.
+     * @param fracoes O número de frações (entre 2 e {@value #MAXIMO_FRACOES}), ou 0 para voltar ao modo normal.
+     * @return O objeto {@link EstoqueLojista} atualizado.
+     * @throws BadRequestException Se o número de frações for inválido.
+     * @throws ResourceNotFoundException Se o item não for encontrado.
+     * @throws ForbiddenException Se o item não pertencer à farmácia logada.
+     */
+    @Transactional
+    public EstoqueLojista setFracoesEstoque(Long estoqueId, int fracoes) {
+        if (fracoes != 0 && (fracoes < 2 || fracoes > MAXIMO_FRACOES)) {
+            throw new BadRequestException("O número de frações deve ser 0 (modo normal) ou estar entre 2 e " + MAXIMO_FRACOES + ".");
+        }
+        Farmacia farmacia = authenticationService.getFarmaciaAdminLogada();
+        EstoqueLojista item = getEstoquePrivadoValidado(
+                estoqueLojistaRepository.findByIdParaAtualizacao(estoqueId), estoqueId, farmacia.getId());
+
+        int quantidade = item.isFracionado() ? estoqueLojistaRepository.somarFracoes(estoqueId) : item.getQuantidade();
+        estoqueLojistaRepository.redistribuirFracoes(estoqueId, fracoes, quantidade);
+        item.setFracoes(fracoes);
+        item.setQuantidade(quantidade);
+
+        EstoqueLojista salvo = estoqueLojistaRepository.save(item);
+        publicarEstoqueAlterado(salvo);
+        System.out.println("LOG: Item de estoque " + estoqueId + " agora com " + fracoes + " fração(ões) (quantidade " + quantidade + ").");
+        return salvo;
     }
 
     // ========================================================================
@@ -322,7 +595,21 @@ public class CatalogoService {
      * @throws ForbiddenException Se o item não pertencer à farmácia.
      */
     private EstoqueLojista getEstoquePrivadoValidado(Long estoqueId, Long farmaciaId) {
-        EstoqueLojista item = estoqueLojistaRepository.findById(estoqueId)
+        return getEstoquePrivadoValidado(estoqueLojistaRepository.findById(estoqueId), estoqueId, farmaciaId);
+    }
+
+    /**
+     * Valida se o item de estoque já buscado existe e pertence à farmácia especificada.
+     *
+     * @param encontrado O resultado da busca do item.
+     * @param estoqueId O ID do item de estoque.
+     * @param farmaciaId O ID da farmácia esperada.
+     * @return O objeto {@link EstoqueLojista}.
+     * @throws ResourceNotFoundException Se o item de estoque não for encontrado.
+     * @throws ForbiddenException Se o item não pertencer à farmácia.
+     */
+    private EstoqueLojista getEstoquePrivadoValidado(Optional<EstoqueLojista> encontrado, Long estoqueId, Long farmaciaId) {
+        EstoqueLojista item = encontrado
                 .orElseThrow(() -> new ResourceNotFoundException("Item de estoque com ID " + estoqueId + " não encontrado."));
 
         if (!item.getFarmacia().getId().equals(farmaciaId)) {
@@ -331,6 +618,71 @@ public class CatalogoService {
         return item;
     }
 
+    /**
+     * Carrega, com produto e farmácia, os itens de uma página de ofertas já ordenada pelo índice.
+     *
+     * @param pagina A página de IDs vinda do {@link IndiceOfertas}.
+     * @param pageable As informações de paginação.
+     * @return Uma página de {@link EstoqueResponse}, na ordem do índice.
+     */
+    private Page<EstoqueResponse> montarPaginaDeOfertas(IndiceOfertas.Pagina pagina, Pageable pageable) {
+        return new PageImpl<>(carregarOfertas(pagina.estoqueIds()), pageable, pagina.total());
+    }
+
+    /**
+     * Carrega, com produto e farmácia, os itens de estoque informados, preservando a ordem recebida.
+     * Itens removidos desde a consulta ao índice são ignorados.
+     *
+     * @param estoqueIds Os IDs dos itens de estoque, já ordenados.
+     * @return A lista de {@link EstoqueResponse}, na mesma ordem.
+     */
+    private List<EstoqueResponse> carregarOfertas(List<Long> estoqueIds) {
+        if (estoqueIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, EstoqueLojista> estoques = estoqueLojistaRepository.findAllComProdutoEFarmaciaByIdIn(estoqueIds).stream()
+                .collect(Collectors.toMap(EstoqueLojista::getId, Function.identity()));
+        return estoqueIds.stream()
+                .map(estoques::get)
+                .filter(Objects::nonNull)
+                .map(EstoqueResponse::new)
+                .toList();
+    }
+
+    /**
+     * Sinaliza a alteração de um item de estoque para os índices em memória e para o motor de
+     * estoque da farmácia (aplicada após o commit).
+     *
+     * @param item O item de estoque alterado.
+     */
+    private void publicarEstoqueAlterado(EstoqueLojista item) {
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(Set.of(item.getId()), Set.of(item.getProduto().getId())));
+        motorEstoque.invalidarAposCommit(item.getFarmacia().getId(), Set.of(item.getId()));
+    }
+
+    /**
+     * Converte o valor de um filtro para a constante do enum (ignorando maiúsculas), ou {@code null} se ausente.
+     *
+     * @throws BadRequestException Se o valor não corresponder a nenhuma constante.
+     */
+    private static <E extends Enum<E>> E converterEnum(Class<E> tipo, String valor, String descricao) {
+        if (valor == null || valor.isBlank()) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(tipo, valor.strip().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(descricao + " '" + valor + "' é inválido.");
+        }
+    }
+
+    /**
+     * Aplica o padrão a um limite ausente ou não positivo e o restringe ao máximo da funcionalidade.
+     */
+    private static int limitar(Integer limite, int padrao, int maximo) {
+        return limite == null || limite < 1 ? padrao : Math.min(limite, maximo);
+    }
+
     /**
      * Mapeia os dados de um {@link ProdutoRequest} para um objeto {@link Produto} e o salva.
      *
@@ -360,8 +712,23 @@ public class CatalogoService {
      * @throws ResourceNotFoundException Se o produto não for encontrado.
      */
     private Produto setProdutoAtivo(Long id, boolean ativo) {
-        Produto produto = getProdutoDoCatalogoPorId(id);
+        Produto produto = getProdutoGerenciado(id);
         produto.setAtivo(ativo);
-        return produtoRepository.save(produto);
+        Produto salvo = produtoRepository.save(produto);
+        eventPublisher.publishEvent(new ProdutoCatalogoAlteradoEvent(id, true));
+        return salvo;
+    }
+
+    /**
+     * Busca um produto direto no banco (sem cache) para ser alterado ou referenciado na transação corrente.
+     * A instância em cache é compartilhada entre requisições e nunca deve ser modificada.
+     *
+     * @param id O ID do produto.
+     * @return O objeto {@link Produto} gerenciado.
+     * @throws ResourceNotFoundException Se o produto não for encontrado.
+     */
+    private Produto getProdutoGerenciado(Long id) {
+        return produtoRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Produto com ID " + id + " não encontrado no catálogo."));
     }
 }
\ No newline at end of file
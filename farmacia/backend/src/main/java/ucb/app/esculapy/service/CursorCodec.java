@@ -0,0 +1,120 @@
+package ucb.app.esculapy.service;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import ucb.app.esculapy.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Codifica e decodifica os cursores opacos usados na paginação por keyset.
+ * O cursor é a chave de ordenação do último elemento entregue, em Base64 URL-safe,
+ * nos formatos {@code dataPedido|id} (pedidos) ou {@code id} (estoque).
+ */
+final class CursorCodec {
+
+    /** Tamanho padrão de uma página por cursor. */
+    static final int TAMANHO_PADRAO = 20;
+
+    /** Tamanho máximo aceito para uma página por cursor. */
+    static final int TAMANHO_MAXIMO = 100;
+
+    /** Limite superior usado na primeira página de listagens ordenadas por data decrescente. */
+    static final LocalDateTime DATA_INICIAL = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private static final String SEPARADOR = "|";
+
+    private CursorCodec() {
+    }
+
+    /**
+     * Chave de um cursor composto por data e ID.
+     *
+     * @param data A data do último elemento entregue.
+     * @param id O ID do último elemento entregue.
+     */
+    record DataId(LocalDateTime data, Long id) {
+    }
+
+    /**
+     * Cria o {@link Pageable} (sem ordenação, sem offset) para uma consulta por cursor.
+     *
+     * @param tamanho O tamanho solicitado pelo cliente.
+     * @return A primeira "página" com o tamanho limitado a {@link #TAMANHO_MAXIMO}.
+     */
+    static Pageable pagina(Integer tamanho) {
+        int limite = tamanho == null || tamanho < 1 ? TAMANHO_PADRAO : Math.min(tamanho, TAMANHO_MAXIMO);
+        return PageRequest.of(0, limite);
+    }
+
+    static String codificar(LocalDateTime data, Long id) {
+        return base64(data + SEPARADOR + id);
+    }
+
+    static String codificar(Long id) {
+        return base64(String.valueOf(id));
+    }
+
+    /**
+     * Decodifica um cursor {@code dataPedido|id}. Cursor nulo ou vazio representa a primeira página.
+     *
+     * @param cursor O cursor recebido do cliente.
+     * @return A chave a partir da qual a listagem deve continuar.
+     * @throws BadRequestException Se o cursor for inválido.
+     */
+    static DataId decodificarDataId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new DataId(DATA_INICIAL, Long.MAX_VALUE);
+        }
+        String valor = decodificar(cursor);
+        int separador = valor.indexOf(SEPARADOR);
+        if (separador < 0) {
+            throw cursorInvalido();
+        }
+        try {
+            return new DataId(
+                    LocalDateTime.parse(valor.substring(0, separador)),
+                    Long.parseLong(valor.substring(separador + 1))
+            );
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw cursorInvalido();
+        }
+    }
+
+    /**
+     * Decodifica um cursor {@code id}. Cursor nulo ou vazio representa a primeira página.
+     *
+     * @param cursor O cursor recebido do cliente.
+     * @return O ID a partir do qual a listagem deve continuar.
+     * @throws BadRequestException Se o cursor for inválido.
+     */
+    static Long decodificarId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(decodificar(cursor));
+        } catch (NumberFormatException e) {
+            throw cursorInvalido();
+        }
+    }
+
+    private static String base64(String valor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodificar(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw cursorInvalido();
+        }
+    }
+
+    private static BadRequestException cursorInvalido() {
+        return new BadRequestException("Cursor de paginação inválido.");
+    }
+}
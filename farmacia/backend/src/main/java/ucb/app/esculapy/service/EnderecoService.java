@@ -7,6 +7,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ucb.app.esculapy.dto.EnderecoRequest;
 import ucb.app.esculapy.exception.ResourceNotFoundException;
+import ucb.app.esculapy.geo.CentroidesCep;
 import ucb.app.esculapy.model.Cliente;
 import ucb.app.esculapy.model.Endereco;
 import ucb.app.esculapy.repository.ClienteRepository;
@@ -22,6 +23,7 @@ public class EnderecoService {
     private final EnderecoRepository enderecoRepository;
     private final AuthenticationService authenticationService;
     private final ClienteRepository clienteRepository;
+    private final CentroidesCep centroidesCep;
 
     /**
      * Lista paginada dos endereços do cliente logado.
@@ -103,5 +105,6 @@ public class EnderecoService {
         endereco.setCidade(request.getCidade());
         endereco.setEstado(request.getEstado());
         endereco.setTipo(request.getTipo());
+        centroidesCep.geolocalizar(endereco);
     }
 }
\ No newline at end of file
@@ -0,0 +1,172 @@
+package ucb.app.esculapy.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import ucb.app.esculapy.model.ExclusaoExportacao;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.model.enums.TipoRegistroExportado;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.EstoqueLojistaRepositoryCustom.OfertaExportada;
+import ucb.app.esculapy.repository.ExclusaoExportacaoRepository;
+import ucb.app.esculapy.repository.ProdutoRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serviço de exportação em streaming (NDJSON, um objeto JSON por linha) do catálogo e das ofertas,
+ * destinado a parceiros e indexadores de busca.
+ * As linhas são lidas via JDBC em páginas por keyset sobre (data_atualizacao, id), sem COUNT e sem
+ * entidades gerenciadas, e escritas diretamente na resposta: a memória usada é a de uma página,
+ * independente do volume exportado, e nenhuma conexão fica presa enquanto o cliente consome a resposta.
+ * <p>
+ * Sem {@code desde}, exporta apenas os registros ativos (carga completa). Com {@code desde}, exporta
+ * todas as alterações a partir da data, inclusive desativações, para que o consumidor aplique o delta.
+ * Uma linha alterada durante a exportação pode aparecer duas vezes; a última ocorrência prevalece.
+ * <p>
+ * As exclusões permanentes não deixam linha a exportar: cada uma é registrada em
+ * {@link ExclusaoExportacao} e, no delta, entregue depois das alterações como uma linha
+ * {@code {"id": ..., "excluido": true, "dataExclusao": ...}}, que o consumidor aplica removendo o registro.
+ * Os IDs não são reaproveitados, então a exclusão é definitiva independentemente da ordem das linhas.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportacaoService {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final int TAMANHO_BUFFER_GZIP = 64 * 1024;
+
+    private final ProdutoRepository produtoRepository;
+    private final EstoqueLojistaRepository estoqueLojistaRepository;
+    private final ExclusaoExportacaoRepository exclusaoExportacaoRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${exportacao.tamanho-lote:1000}")
+    private int tamanhoLote;
+
+    @Value("${exportacao.margem-segundos:60}")
+    private long margemSegundos;
+
+    /**
+     * Lê a próxima página a partir da posição (data de atualização, ID) da última linha exportada.
+     */
+    @FunctionalInterface
+    private interface Leitor<T> {
+        List<T> ler(LocalDateTime aposData, Long aposId);
+    }
+
+    /**
+     * Linha exportada para um registro excluído permanentemente.
+     */
+    record Exclusao(Long id, boolean excluido, LocalDateTime dataExclusao) {
+        static Exclusao de(ExclusaoExportacao exclusao) {
+            return new Exclusao(exclusao.getRegistroId(), true, exclusao.getDataExclusao());
+        }
+    }
+
+    /**
+     * Calcula o valor de {@code desde} que o consumidor deve usar na próxima exportação incremental.
+     * Deve ser obtido antes do início da exportação; a margem cobre transações que gravaram a data
+     * de atualização antes desse instante, mas só foram confirmadas depois.
+     *
+     * @return O instante a partir do qual a próxima exportação deve começar.
+     */
+    public LocalDateTime getProximoDesde() {
+        return LocalDateTime.now().minusSeconds(margemSegundos);
+    }
+
+    /**
+     * Exporta os produtos do catálogo.
+     *
+     * @param desde A data a partir da qual exportar as alterações, ou {@code null} para a carga completa.
+     * @param gzip Se a saída deve ser comprimida com gzip.
+     * @param saida O corpo da resposta.
+     * @throws IOException Se a escrita falhar (ex.: cliente desconectado).
+     */
+    public void exportarCatalogo(LocalDateTime desde, boolean gzip, OutputStream saida) throws IOException {
+        boolean cargaCompleta = desde == null;
+        exportar("catálogo", desde, gzip, saida,
+                (aposData, aposId) -> produtoRepository.findParaExportacao(aposData, aposId, cargaCompleta, tamanhoLote),
+                Produto::getDataAtualizacao, Produto::getId,
+                exclusoes(TipoRegistroExportado.PRODUTO, null));
+    }
+
+    /**
+     * Exporta as ofertas (itens de estoque), de todas as farmácias ou de uma só.
+     *
+     * @param desde A data a partir da qual exportar as alterações, ou {@code null} para a carga completa.
+     * @param farmaciaId O ID da farmácia, ou {@code null} para todas.
+     * @param gzip Se a saída deve ser comprimida com gzip.
+     * @param saida O corpo da resposta.
+     * @throws IOException Se a escrita falhar (ex.: cliente desconectado).
+     */
+    public void exportarOfertas(LocalDateTime desde, Long farmaciaId, boolean gzip, OutputStream saida) throws IOException {
+        boolean cargaCompleta = desde == null;
+        exportar("ofertas", desde, gzip, saida,
+                (aposData, aposId) -> estoqueLojistaRepository.findOfertasParaExportacao(
+                        farmaciaId, aposData, aposId, cargaCompleta, tamanhoLote),
+                OfertaExportada::dataAtualizacao, OfertaExportada::id,
+                exclusoes(TipoRegistroExportado.OFERTA, farmaciaId));
+    }
+
+    private Leitor<ExclusaoExportacao> exclusoes(TipoRegistroExportado tipo, Long farmaciaId) {
+        return (aposData, aposId) -> exclusaoExportacaoRepository.findParaExportacao(
+                tipo, farmaciaId, aposData, aposId, PageRequest.of(0, tamanhoLote));
+    }
+
+    private <T> void exportar(String nome, LocalDateTime desde, boolean gzip, OutputStream saida, Leitor<T> leitor,
+                              Function<T, LocalDateTime> dataAtualizacao, Function<T, Long> id,
+                              Leitor<ExclusaoExportacao> exclusoes) throws IOException {
+        long inicio = System.currentTimeMillis();
+        long linhas;
+        long excluidas = 0;
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        OutputStream destino = gzip ? new GZIPOutputStream(saida, TAMANHO_BUFFER_GZIP) : saida;
+
+        // Fechar o gerador fecha o destino, o que grava o rodapé do gzip.
+        try (JsonGenerator gerador = objectMapper.getFactory().createGenerator(destino)) {
+            gerador.setRootValueSeparator(null);
+            linhas = escrever(gerador, writer, desde, leitor, dataAtualizacao, id, Function.identity());
+            if (desde != null) {
+                excluidas = escrever(gerador, writer, desde, exclusoes,
+                        ExclusaoExportacao::getDataExclusao, ExclusaoExportacao::getId, Exclusao::de);
+            }
+        }
+        System.out.println("LOG: Exportação de " + nome + (desde != null ? " desde " + desde : " (completa)")
+                + ": " + linhas + " linhas e " + excluidas + " exclusões em " + (System.currentTimeMillis() - inicio) + " ms.");
+    }
+
+    private <T> long escrever(JsonGenerator gerador, ObjectWriter writer, LocalDateTime desde, Leitor<T> leitor,
+                              Function<T, LocalDateTime> dataAtualizacao, Function<T, Long> id,
+                              Function<T, ?> conversor) throws IOException {
+        long linhas = 0;
+        LocalDateTime aposData = desde != null ? desde : INICIO;
+        Long aposId = 0L;
+        List<T> pagina;
+        do {
+            pagina = leitor.ler(aposData, aposId);
+            for (T linha : pagina) {
+                writer.writeValue(gerador, conversor.apply(linha));
+                gerador.writeRaw('\n');
+            }
+            if (!pagina.isEmpty()) {
+                T ultima = pagina.get(pagina.size() - 1);
+                aposData = dataAtualizacao.apply(ultima);
+                aposId = id.apply(ultima);
+                linhas += pagina.size();
+            }
+            gerador.flush();
+        } while (pagina.size() == tamanhoLote);
+        return linhas;
+    }
+}
@@ -1,15 +1,21 @@
 package ucb.app.esculapy.service;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ucb.app.esculapy.dto.*;
+import ucb.app.esculapy.event.FarmaciaAlteradaEvent;
+import ucb.app.esculapy.event.UsuarioAlteradoEvent;
 import ucb.app.esculapy.exception.ConflictException;
 import ucb.app.esculapy.exception.ForbiddenException;
 import ucb.app.esculapy.exception.ResourceNotFoundException;
+import ucb.app.esculapy.geo.CentroidesCep;
+import ucb.app.esculapy.geo.IndiceGeografico;
 import ucb.app.esculapy.model.*;
 import ucb.app.esculapy.model.enums.LojistaStatus;
 import ucb.app.esculapy.repository.FarmaciaRepository;
@@ -18,7 +24,9 @@ import ucb.app.esculapy.repository.RoleRepository;
 import ucb.app.esculapy.repository.UsuarioRepository;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -35,6 +43,9 @@ public class FarmaciaService {
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationService authenticationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CentroidesCep centroidesCep;
+    private final IndiceGeografico indiceGeografico;
 
     // ========================================================================
     // --- LÓGICA PÚBLICA ---
@@ -52,6 +63,31 @@ public class FarmaciaService {
         return farmacias.map(FarmaciaPublicaResponse::new);
     }
 
+    /**
+     * Lista as farmácias ativas dentro de um raio, da mais próxima para a mais distante.
+     * As distâncias vêm do {@link IndiceGeografico}; apenas as farmácias encontradas são carregadas do banco.
+     *
+     * @param latitude A latitude do ponto de referência.
+     * @param longitude A longitude do ponto de referência.
+     * @param raioKm O raio, em quilômetros (opcional).
+     * @return A lista de {@link FarmaciaProximaResponse}.
+     */
+    @Transactional(readOnly = true)
+    public List<FarmaciaProximaResponse> listarFarmaciasProximas(Double latitude, Double longitude, Double raioKm) {
+        List<IndiceGeografico.Proxima> proximas = indiceGeografico.buscarProximas(latitude, longitude, raioKm);
+        if (proximas.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Farmacia> farmacias = farmaciaRepository.findAllPublicasByIdIn(
+                        proximas.stream().map(IndiceGeografico.Proxima::farmaciaId).toList())
+                .stream()
+                .collect(Collectors.toMap(Farmacia::getId, Function.identity()));
+        return proximas.stream()
+                .filter(p -> farmacias.containsKey(p.farmaciaId()))
+                .map(p -> new FarmaciaProximaResponse(farmacias.get(p.farmaciaId()), p.distanciaKm()))
+                .toList();
+    }
+
     /**
      * Obtém os detalhes de uma farmácia ativa por ID para consulta pública.
      *
@@ -72,12 +108,14 @@ public class FarmaciaService {
 
     /**
      * Obtém os detalhes completos da farmácia do usuário logado.
+     * A farmácia do usuário logado é uma referência preguiçosa: ela é inicializada aqui, dentro
+     * da transação, pois a serialização da resposta ocorre depois que a sessão já foi fechada.
      *
      * @return O objeto {@link Farmacia}.
      */
     @Transactional(readOnly = true)
     public Farmacia getMinhaFarmaciaCompleta() {
-        return authenticationService.getFarmaciaAdminLogada();
+        return Hibernate.unproxy(authenticationService.getFarmaciaAdminLogada(), Farmacia.class);
     }
 
     /**
@@ -93,6 +131,7 @@ public class FarmaciaService {
         farmacia.setEmailContato(request.getEmailContato());
         farmacia.setNumeroCelularContato(request.getNumeroCelularContato());
         farmaciaRepository.save(farmacia);
+        eventPublisher.publishEvent(new UsuarioAlteradoEvent(authenticationService.getUsuarioLogado().getId()));
         return request;
     }
 
@@ -117,8 +156,11 @@ public class FarmaciaService {
         endereco.setCidade(request.getCidade());
         endereco.setEstado(request.getEstado());
         endereco.setTipo("COMERCIAL");
+        centroidesCep.geolocalizar(endereco);
         farmacia.setEnderecoComercial(endereco);
         farmaciaRepository.save(farmacia);
+        eventPublisher.publishEvent(new UsuarioAlteradoEvent(authenticationService.getUsuarioLogado().getId()));
+        eventPublisher.publishEvent(new FarmaciaAlteradaEvent(farmacia.getId()));
         return endereco;
     }
 
@@ -144,6 +186,7 @@ public class FarmaciaService {
         conta.setNomeTitular(request.getNomeTitular());
         farmacia.setContaBancaria(conta);
         farmaciaRepository.save(farmacia);
+        eventPublisher.publishEvent(new UsuarioAlteradoEvent(authenticationService.getUsuarioLogado().getId()));
         return conta;
     }
 
@@ -258,7 +301,9 @@ public class FarmaciaService {
         Farmacia farmaciaDono = authenticationService.getFarmaciaAdminLogada();
         Farmaceutico farmaceutico = getFarmaceuticoValidado(farmaceuticoId, farmaciaDono.getId());
 
+        Long usuarioId = farmaceutico.getUsuario().getId();
         usuarioRepository.delete(farmaceutico.getUsuario());
+        eventPublisher.publishEvent(new UsuarioAlteradoEvent(usuarioId));
     }
 
     // --- Métodos Auxiliares ---
@@ -276,6 +321,7 @@ public class FarmaciaService {
         Usuario usuario = farmaceutico.getUsuario();
         usuario.setEnabled(ativo);
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioAlteradoEvent(usuario.getId()));
     }
 
     /**
@@ -0,0 +1,38 @@
+package ucb.app.esculapy.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Tarefa agendada que mantém a quantidade agregada dos itens de estoque no modo fracionado.
+ * As baixas desses itens alteram apenas as frações, então a coluna {@code quantidade} (usada pelas
+ * consultas e índices que filtram {@code quantidade > 0}) é atualizada aqui, fora do caminho do pedido,
+ * e os itens cujo agregado mudou são sinalizados para os índices em memória.
+ */
+@Component
+@RequiredArgsConstructor
+public class FracoesEstoqueScheduler {
+
+    private final EstoqueLojistaRepository estoqueLojistaRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Atualiza os agregados que divergiram da soma das frações.
+     */
+    @Scheduled(fixedDelayString = "${estoque.fracoes.intervalo-ms:1000}")
+    public void reconciliarAgregados() {
+        Map<Long, Long> produtoPorEstoque = estoqueLojistaRepository.reconciliarAgregadosFracionados();
+        if (produtoPorEstoque.isEmpty()) {
+            return;
+        }
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(
+                new HashSet<>(produtoPorEstoque.keySet()), new HashSet<>(produtoPorEstoque.values())));
+    }
+}
@@ -0,0 +1,409 @@
+package ucb.app.esculapy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+import ucb.app.esculapy.dto.ImportacaoStatusResponse;
+import ucb.app.esculapy.dto.ProdutoRequest;
+import ucb.app.esculapy.event.CatalogoImportadoEvent;
+import ucb.app.esculapy.exception.BadRequestException;
+import ucb.app.esculapy.exception.ResourceNotFoundException;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.repository.ProdutoRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Serviço de importação em lote do catálogo mestre a partir de arquivos CSV ou NDJSON
+ * (ex: a base nacional de registros de medicamentos).
+ * O arquivo é lido em streaming, linha a linha, em segundo plano. Cada linha é validada
+ * (campos obrigatórios e unicidade de EAN/registro MS contra um conjunto de chaves em memória)
+ * e as válidas são gravadas por EAN (insert ou update) em lotes JDBC, cada lote em sua própria transação.
+ * As linhas rejeitadas e o progresso ficam disponíveis pela consulta de status da importação.
+ */
+@Service
+@RequiredArgsConstructor
+public class ImportacaoCatalogoService {
+
+    private static final int MAXIMO_ERROS_REPORTADOS = 1000;
+    private static final int MAXIMO_IMPORTACOES_RETIDAS = 20;
+
+    private final ProdutoRepository produtoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${catalogo.importacao.tamanho-lote:500}")
+    private int tamanhoLote;
+
+    /** Uma importação por vez: as chaves em memória de uma não concorrem com as de outra. */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(tarefa -> {
+        Thread thread = new Thread(tarefa, "importacao-catalogo");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, Importacao> importacoes = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Importacao> maisAntiga) {
+            return size() > MAXIMO_IMPORTACOES_RETIDAS && maisAntiga.getValue().isFinalizada();
+        }
+    });
+
+    /**
+     * Recebe um arquivo de catálogo e agenda sua importação em segundo plano.
+     * O formato é NDJSON para arquivos .ndjson/.jsonl/.json (ou content-type JSON) e CSV nos demais casos.
+     * O CSV deve ter cabeçalho com os nomes dos campos de {@link ProdutoRequest}, separados por vírgula ou ponto e vírgula.
+     *
+     * @param arquivo O arquivo enviado.
+     * @return O status inicial da importação (NA_FILA), com o ID para acompanhamento.
+     * @throws BadRequestException Se o arquivo estiver vazio.
+     */
+    public ImportacaoStatusResponse iniciarImportacao(MultipartFile arquivo) {
+        if (arquivo == null || arquivo.isEmpty()) {
+            throw new BadRequestException("Arquivo de importação vazio.");
+        }
+        String nome = Objects.requireNonNullElse(arquivo.getOriginalFilename(), "catalogo");
+        boolean ndjson = isNdjson(nome, arquivo.getContentType());
+
+        Path temporario;
+        try {
+            temporario = Files.createTempFile("importacao-catalogo-", ndjson ? ".ndjson" : ".csv");
+            arquivo.transferTo(temporario);
+        } catch (IOException e) {
+            throw new RuntimeException("Falha ao receber o arquivo de importação.", e);
+        }
+
+        Importacao importacao = new Importacao(UUID.randomUUID().toString(), nome);
+        importacoes.put(importacao.id, importacao);
+        executor.submit(() -> executar(importacao, temporario, ndjson));
+        return importacao.snapshot();
+    }
+
+    /**
+     * Consulta o progresso de uma importação.
+     *
+     * @param id O ID da importação.
+     * @return O status atual da importação.
+     * @throws ResourceNotFoundException Se a importação não existir (ou já tiver sido descartada).
+     */
+    public ImportacaoStatusResponse getStatus(String id) {
+        Importacao importacao = importacoes.get(id);
+        if (importacao == null) {
+            throw new ResourceNotFoundException("Importação com ID " + id + " não encontrada.");
+        }
+        return importacao.snapshot();
+    }
+
+    @PreDestroy
+    void encerrar() {
+        executor.shutdownNow();
+    }
+
+    // ========================================================================
+    // --- Processamento ---
+    // ========================================================================
+
+    private void executar(Importacao importacao, Path arquivo, boolean ndjson) {
+        importacao.iniciar();
+        System.out.println("LOG: Importação de catálogo " + importacao.id + " iniciada (" + importacao.arquivo + ").");
+        List<LinhaValida> lote = new ArrayList<>(tamanhoLote);
+
+        try (BufferedReader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            Chaves chaves = carregarChaves();
+            String linha;
+            long numero = 0;
+            List<String> cabecalho = null;
+            char separador = ',';
+
+            while ((linha = leitor.readLine()) != null) {
+                numero++;
+                if (numero == 1 && linha.startsWith("\uFEFF")) {
+                    linha = linha.substring(1);
+                }
+                if (linha.isBlank()) {
+                    continue;
+                }
+                if (!ndjson && cabecalho == null) {
+                    separador = linha.contains(";") && !linha.contains(",") ? ';' : ',';
+                    cabecalho = dividirCsv(linha, separador).stream().map(String::strip).toList();
+                    continue;
+                }
+
+                importacao.registrarLida();
+                try {
+                    ProdutoRequest request = ndjson
+                            ? objectMapper.readValue(linha, ProdutoRequest.class)
+                            : lerCsv(linha, cabecalho, separador);
+                    validar(request);
+                    lote.add(new LinhaValida(numero, chaves.reservar(request, numero), paraProduto(request)));
+                } catch (BadRequestException e) {
+                    importacao.registrarErro(numero, e.getMessage());
+                } catch (IOException | IllegalArgumentException e) {
+                    importacao.registrarErro(numero, "Registro inválido: " + MensagensErro.primeiraLinha(e.getMessage()));
+                }
+
+                if (lote.size() >= tamanhoLote) {
+                    gravar(importacao, lote, chaves);
+                }
+            }
+            gravar(importacao, lote, chaves);
+            importacao.concluir();
+        } catch (Exception e) {
+            importacao.falhar(e.getMessage());
+            System.out.println("LOG: Importação de catálogo " + importacao.id + " falhou: " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(arquivo);
+            } catch (IOException ignored) {
+                // O arquivo temporário é descartado pelo sistema operacional.
+            }
+        }
+
+        long gravados = importacao.getGravados();
+        System.out.println("LOG: Importação de catálogo " + importacao.id + " finalizada: " + gravados + " produtos gravados.");
+        if (gravados > 0) {
+            eventPublisher.publishEvent(new CatalogoImportadoEvent((int) gravados));
+        }
+    }
+
+    /**
+     * Grava o lote em uma transação própria. Se o banco rejeitar o lote, todas as suas linhas são
+     * reportadas com erro e as chaves em memória são recarregadas do banco.
+     */
+    private void gravar(Importacao importacao, List<LinhaValida> lote, Chaves chaves) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        List<Produto> produtos = lote.stream().map(LinhaValida::produto).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> produtoRepository.upsertEmLote(produtos));
+            long inseridos = lote.stream().filter(LinhaValida::novo).count();
+            importacao.registrarGravados(inseridos, lote.size() - inseridos);
+        } catch (DataAccessException e) {
+            String mensagem = "Falha ao gravar o lote: " + MensagensErro.primeiraLinha(e.getMostSpecificCause().getMessage());
+            lote.forEach(l -> importacao.registrarErro(l.linha(), mensagem));
+            chaves.recarregar(produtoRepository.findAllChaves());
+        }
+        lote.clear();
+    }
+
+    private Chaves carregarChaves() {
+        Chaves chaves = new Chaves();
+        chaves.recarregar(produtoRepository.findAllChaves());
+        return chaves;
+    }
+
+    private ProdutoRequest lerCsv(String linha, List<String> cabecalho, char separador) {
+        List<String> campos = dividirCsv(linha, separador);
+        if (campos.size() != cabecalho.size()) {
+            throw new BadRequestException("Esperadas " + cabecalho.size() + " colunas, encontradas " + campos.size() + ".");
+        }
+        Map<String, String> valores = new HashMap<>();
+        for (int i = 0; i < campos.size(); i++) {
+            String valor = campos.get(i).strip();
+            valores.put(cabecalho.get(i), valor.isEmpty() ? null : valor);
+        }
+        return objectMapper.convertValue(valores, ProdutoRequest.class);
+    }
+
+    private void validar(ProdutoRequest request) {
+        Set<ConstraintViolation<ProdutoRequest>> violacoes = validator.validate(request);
+        if (!violacoes.isEmpty()) {
+            throw new BadRequestException(violacoes.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+    }
+
+    private static Produto paraProduto(ProdutoRequest request) {
+        Produto produto = new Produto();
+        produto.setEan(request.getEan().strip());
+        produto.setNome(request.getNome());
+        produto.setPrincipioAtivo(request.getPrincipioAtivo());
+        produto.setLaboratorio(request.getLaboratorio());
+        produto.setDescricao(request.getDescricao());
+        produto.setCodigoRegistroMS(request.getCodigoRegistroMS().strip());
+        produto.setBulaUrl(request.getBulaUrl());
+        produto.setTipoProduto(request.getTipoProduto());
+        produto.setTipoReceita(request.getTipoReceita());
+        return produto;
+    }
+
+    /**
+     * Divide uma linha CSV, respeitando campos entre aspas (com aspas internas escapadas como "").
+     * Campos com quebra de linha não são suportados.
+     */
+    private static List<String> dividirCsv(String linha, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c == '"' && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    atual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreAspas = false;
+                } else {
+                    atual.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == separador) {
+                campos.add(atual.toString());
+                atual.setLength(0);
+            } else {
+                atual.append(c);
+            }
+        }
+        campos.add(atual.toString());
+        return campos;
+    }
+
+    private static boolean isNdjson(String nome, String contentType) {
+        String arquivo = nome.toLowerCase(Locale.ROOT);
+        return arquivo.endsWith(".ndjson") || arquivo.endsWith(".jsonl") || arquivo.endsWith(".json")
+                || (contentType != null && contentType.contains("json"));
+    }
+
+    // ========================================================================
+    // --- Estado ---
+    // ========================================================================
+
+    private record LinhaValida(long linha, boolean novo, Produto produto) {
+    }
+
+    /**
+     * Chaves únicas do catálogo (banco + linhas já aceitas do arquivo), para validar unicidade sem consultas.
+     */
+    private static final class Chaves {
+
+        private final Map<String, String> registroPorEan = new HashMap<>();
+        private final Map<String, String> eanPorRegistro = new HashMap<>();
+        private final Map<String, Long> linhaPorEan = new HashMap<>();
+
+        void recarregar(List<ProdutoRepository.ChaveProduto> chaves) {
+            registroPorEan.clear();
+            eanPorRegistro.clear();
+            for (ProdutoRepository.ChaveProduto chave : chaves) {
+                registroPorEan.put(chave.getEan(), chave.getCodigoRegistroMS());
+                eanPorRegistro.put(chave.getCodigoRegistroMS(), chave.getEan());
+            }
+        }
+
+        /**
+         * Valida a unicidade da linha e registra suas chaves.
+         *
+         * @return Se o EAN é novo no catálogo (insert) ou já existia (update).
+         */
+        boolean reservar(ProdutoRequest request, long linha) {
+            String ean = request.getEan().strip();
+            String registro = request.getCodigoRegistroMS().strip();
+
+            Long linhaAnterior = linhaPorEan.get(ean);
+            if (linhaAnterior != null) {
+                throw new BadRequestException("EAN " + ean + " repetido no arquivo (linha " + linhaAnterior + ").");
+            }
+            String donoDoRegistro = eanPorRegistro.get(registro);
+            if (donoDoRegistro != null && !donoDoRegistro.equals(ean)) {
+                throw new BadRequestException("Registro MS " + registro + " já pertence ao produto de EAN " + donoDoRegistro + ".");
+            }
+
+            String registroAnterior = registroPorEan.put(ean, registro);
+            if (registroAnterior != null && !registroAnterior.equals(registro)) {
+                eanPorRegistro.remove(registroAnterior);
+            }
+            eanPorRegistro.put(registro, ean);
+            linhaPorEan.put(ean, linha);
+            return registroAnterior == null;
+        }
+    }
+
+    /**
+     * Progresso de uma importação, atualizado pela thread de importação e lido pelas requisições de status.
+     */
+    private static final class Importacao {
+
+        private final String id;
+        private final String arquivo;
+        private String status = "NA_FILA";
+        private long linhasLidas;
+        private long inseridos;
+        private long atualizados;
+        private long comErro;
+        private final List<ImportacaoStatusResponse.ErroLinha> erros = new ArrayList<>();
+        private LocalDateTime iniciadaEm;
+        private LocalDateTime concluidaEm;
+
+        Importacao(String id, String arquivo) {
+            this.id = id;
+            this.arquivo = arquivo;
+        }
+
+        synchronized void iniciar() {
+            status = "EM_ANDAMENTO";
+            iniciadaEm = LocalDateTime.now();
+        }
+
+        synchronized void registrarLida() {
+            linhasLidas++;
+        }
+
+        synchronized void registrarGravados(long novos, long existentes) {
+            inseridos += novos;
+            atualizados += existentes;
+        }
+
+        synchronized void registrarErro(long linha, String mensagem) {
+            comErro++;
+            if (erros.size() < MAXIMO_ERROS_REPORTADOS) {
+                erros.add(new ImportacaoStatusResponse.ErroLinha(linha, mensagem));
+            }
+        }
+
+        synchronized void concluir() {
+            status = "CONCLUIDA";
+            concluidaEm = LocalDateTime.now();
+        }
+
+        synchronized void falhar(String motivo) {
+            status = "FALHOU";
+            concluidaEm = LocalDateTime.now();
+            erros.add(new ImportacaoStatusResponse.ErroLinha(linhasLidas, "Importação interrompida: " + motivo));
+        }
+
+        synchronized long getGravados() {
+            return inseridos + atualizados;
+        }
+
+        synchronized boolean isFinalizada() {
+            return concluidaEm != null;
+        }
+
+        synchronized ImportacaoStatusResponse snapshot() {
+            return new ImportacaoStatusResponse(id, status, arquivo, linhasLidas, inseridos, atualizados, comErro,
+                    List.copyOf(erros), iniciadaEm, concluidaEm);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ucb.app.esculapy.service;
+
+/**
+ * Utilitários para as mensagens de erro registradas por linha nas importações e sincronizações em lote.
+ */
+final class MensagensErro {
+
+    private MensagensErro() {
+    }
+
+    /**
+     * Reduz a mensagem de uma exceção à primeira linha, descartando detalhes como o SQL ou a posição no JSON.
+     *
+     * @param mensagem A mensagem da exceção (pode ser nula).
+     * @return A primeira linha da mensagem, ou "erro desconhecido" se for nula.
+     */
+    static String primeiraLinha(String mensagem) {
+        if (mensagem == null) {
+            return "erro desconhecido";
+        }
+        int quebra = mensagem.indexOf('\n');
+        return quebra < 0 ? mensagem : mensagem.substring(0, quebra);
+    }
+}
@@ -0,0 +1,45 @@
+package ucb.app.esculapy.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ucb.app.esculapy.exception.ConflictException;
+import ucb.app.esculapy.exception.ForbiddenException;
+import ucb.app.esculapy.notificacao.HubPedidosFarmacia;
+
+/**
+ * Serviço que abre as assinaturas de notificações de pedidos (Server-Sent Events) dos painéis
+ * do lojista e do farmacêutico, sempre para a farmácia do usuário logado.
+ */
+@Service
+@RequiredArgsConstructor
+public class NotificacaoPedidoService {
+
+    private final AuthenticationService authenticationService;
+    private final HubPedidosFarmacia hubPedidosFarmacia;
+
+    /**
+     * Assina as notificações de pedidos da farmácia do lojista logado.
+     *
+     * @return O {@link SseEmitter} da conexão.
+     * @throws ForbiddenException Se o usuário logado não for um dono de farmácia.
+     * @throws ConflictException Se o limite de conexões tiver sido atingido.
+     */
+    public SseEmitter assinarComoLojista() {
+        return hubPedidosFarmacia.assinar(authenticationService.getFarmaciaAdminLogada().getId());
+    }
+
+    /**
+     * Assina as notificações de pedidos da farmácia do farmacêutico logado.
+     *
+     * @return O {@link SseEmitter} da conexão.
+     * @throws ForbiddenException Se o usuário logado não for um farmacêutico.
+     * @throws ConflictException Se o limite de conexões tiver sido atingido.
+     */
+    @Transactional(readOnly = true)
+    public SseEmitter assinarComoFarmaceutico() {
+        Long farmaciaId = authenticationService.getFarmaceuticoLogado().getFarmacia().getId();
+        return hubPedidosFarmacia.assinar(farmaciaId);
+    }
+}
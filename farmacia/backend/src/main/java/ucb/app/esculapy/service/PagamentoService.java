@@ -24,6 +24,8 @@ public class PagamentoService {
 
     private final PedidoRepository pedidoRepository;
     private final AuthenticationService authenticationService;
+    private final ReservaEstoqueService reservaEstoqueService;
+    private final TransicaoPedidoService transicaoPedidoService;
 
     @Value("${pagamento.webhook.secret}")
     private String webhookSecretaCorreta;
@@ -60,11 +62,14 @@ public class PagamentoService {
 
     /**
      * Processa um webhook de pagamento recebido do gateway.
+     * A confirmação converte a reserva de estoque do pedido em baixa definitiva; a mudança de status é
+     * condicional, de modo que um cancelamento simultâneo não é sobrescrito. Se o status mudar entre a
+     * leitura e a transição, a transação inteira é desfeita, inclusive a confirmação da reserva.
      *
      * @param request O DTO {@link WebhookPagamentoRequest} contendo o status e a chave secreta.
      * @throws ForbiddenException Se a chave secreta for inválida.
      * @throws ResourceNotFoundException Se o pedido não for encontrado.
-     * @throws ConflictException Se o pedido não estiver no status correto.
+     * @throws ConflictException Se outra operação alterar o status do pedido durante a confirmação.
      */
     @Transactional
     public void processarWebhook(WebhookPagamentoRequest request) {
@@ -84,7 +89,11 @@ public class PagamentoService {
             return;
         }
 
-        pedido.setStatus(PedidoStatus.AGUARDANDO_CONFIRMACAO);
-        pedidoRepository.save(pedido);
+        if (!reservaEstoqueService.confirmarReserva(pedido.getId())) {
+            System.out.println("LOG: [PagamentoService] Pagamento recebido para o Pedido ID " + pedido.getId() + " após a expiração da reserva de estoque.");
+            return;
+        }
+
+        transicaoPedidoService.transicionar(pedido, PedidoStatus.AGUARDANDO_CONFIRMACAO);
     }
 }
\ No newline at end of file
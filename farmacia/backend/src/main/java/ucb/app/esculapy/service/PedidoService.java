@@ -1,14 +1,23 @@
 package ucb.app.esculapy.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import ucb.app.esculapy.dto.CriarPedidoRequest;
+import ucb.app.esculapy.dto.CursorPage;
 import ucb.app.esculapy.dto.ItemCarrinho;
+import ucb.app.esculapy.dto.PedidoDetalheResponse;
+import ucb.app.esculapy.dto.PedidoResumoResponse;
 import ucb.app.esculapy.dto.PedidoStatusUpdateRequest;
+import ucb.app.esculapy.estoque.MotorEstoque;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
+import ucb.app.esculapy.event.PedidoCriadoEvent;
 import ucb.app.esculapy.exception.ConflictException;
 import ucb.app.esculapy.exception.ForbiddenException;
 import ucb.app.esculapy.exception.ResourceNotFoundException;
@@ -24,8 +33,14 @@ import ucb.app.esculapy.repository.ReceitaRepository;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Serviço responsável por toda a lógica de negócios relacionada a Pedidos,
@@ -35,12 +50,23 @@ import java.util.Objects;
 @RequiredArgsConstructor
 public class PedidoService {
 
+    /**
+     * Status que o lojista pode definir diretamente, nas etapas de atendimento do pedido.
+     */
+    private static final Set<PedidoStatus> STATUS_DE_ATENDIMENTO = EnumSet.of(
+            PedidoStatus.EM_PREPARACAO, PedidoStatus.PRONTO_PARA_ENTREGA, PedidoStatus.EM_TRANSPORTE, PedidoStatus.ENTREGUE);
+
     private final PedidoRepository pedidoRepository;
     private final EstoqueLojistaRepository estoqueLojistaRepository;
     private final ReceitaRepository receitaRepository;
     private final EnderecoRepository enderecoRepository;
     private final AuthenticationService authenticationService;
     private final StorageService storageService;
+    private final ReservaEstoqueService reservaEstoqueService;
+    private final TransicaoPedidoService transicaoPedidoService;
+    private final MotorEstoque motorEstoque;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ========================================================================
     // --- Lógica de CLIENTE ---
@@ -49,14 +75,63 @@ public class PedidoService {
     /**
      * Cria um novo pedido, verifica estoque, calcula o valor total, baixa o estoque
      * e define o status inicial (AGUARDANDO_RECEITA ou AGUARDANDO_PAGAMENTO).
+     * Os itens são carregados em uma única consulta e a baixa é feita em um único lote condicional.
+     * O estoque baixado fica retido por uma reserva com prazo de validade até o pagamento.
+     * <p>
+     * Com o {@link MotorEstoque} habilitado, a baixa é aguardada entre duas transações curtas (validação
+     * e gravação do pedido), sem reter conexão enquanto o motor grava; se a gravação do pedido falhar,
+     * a baixa é estornada.
      *
      * @param request O DTO {@link CriarPedidoRequest}.
-     * @return O objeto {@link Pedido} criado.
+     * @return O {@link PedidoDetalheResponse} do pedido criado.
      * @throws ResourceNotFoundException Se o endereço ou item de estoque não for encontrado.
-     * @throws ConflictException Se houver estoque insuficiente.
+     * @throws ConflictException Se houver estoque insuficiente ou itens de farmácias diferentes.
      */
-    @Transactional
-    public Pedido criarPedido(CriarPedidoRequest request) {
+    public PedidoDetalheResponse criarPedido(CriarPedidoRequest request) {
+        if (motorEstoque.isHabilitado()) {
+            PedidoMontado previa = transactionTemplate.execute(status -> montarPedido(request, true));
+            if (previa.estoques().values().stream().noneMatch(EstoqueLojista::isFracionado)) {
+                return criarPedidoComMotor(request, previa);
+            }
+        }
+        return transactionTemplate.execute(status -> {
+            PedidoMontado montado = montarPedido(request, true);
+            // Baixa atômica e em lote: qualquer linha sem estoque suficiente desfaz o pedido inteiro (rollback).
+            verificarBaixa(montado, estoqueLojistaRepository.baixarEstoqueEmLote(montado.quantidades()));
+            return salvarPedido(montado);
+        });
+    }
+
+    /**
+     * Baixa o estoque do pedido pelo {@link MotorEstoque}, fora de transação, e grava o pedido em seguida.
+     * Os itens são recarregados na gravação; a quantidade não é verificada de novo, pois já foi baixada.
+     */
+    private PedidoDetalheResponse criarPedidoComMotor(CriarPedidoRequest request, PedidoMontado previa) {
+        Long farmaciaId = previa.pedido().getFarmacia().getId();
+        verificarBaixa(previa, motorEstoque.aguardarBaixa(farmaciaId, previa.quantidades(), previa.produtoIds()));
+        try {
+            return transactionTemplate.execute(status -> salvarPedido(montarPedido(request, false)));
+        } catch (RuntimeException e) {
+            motorEstoque.estornar(farmaciaId, previa.quantidades(), previa.produtoIds());
+            throw e;
+        }
+    }
+
+    /**
+     * Pedido montado a partir do carrinho, ainda não salvo, com os itens de estoque envolvidos.
+     */
+    private record PedidoMontado(Pedido pedido, Map<Long, Integer> quantidades,
+                                 Map<Long, EstoqueLojista> estoques, Set<Long> produtoIds) {
+    }
+
+    /**
+     * Valida o carrinho e monta o pedido: itens, farmácia, valor total e status inicial.
+     *
+     * @param request O DTO {@link CriarPedidoRequest}.
+     * @param verificarQuantidade Se a quantidade lida deve ser verificada (falha rápida antes da baixa).
+     * @return O {@link PedidoMontado}.
+     */
+    private PedidoMontado montarPedido(CriarPedidoRequest request, boolean verificarQuantidade) {
         Cliente cliente = authenticationService.getClienteLogado();
         Endereco endereco = enderecoRepository.findByIdAndClienteId(request.getEnderecoId(), cliente.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("Endereço com ID " + request.getEnderecoId() + " não encontrado ou não pertence a você."));
@@ -70,30 +145,44 @@ public class PedidoService {
         List<ItemPedido> itensPedido = new ArrayList<>();
         boolean receitaExigida = false;
 
-        for (ItemCarrinho itemDTO : request.getItens()) {
-            EstoqueLojista estoque = estoqueLojistaRepository.findById(itemDTO.getEstoqueLojistaId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Item de estoque " + itemDTO.getEstoqueLojistaId() + " não encontrado."));
+        Map<Long, Integer> quantidadesPorEstoque = agruparQuantidadesPorEstoque(request.getItens());
+        Map<Long, EstoqueLojista> estoques = estoqueLojistaRepository.findAllComProdutoByIdIn(quantidadesPorEstoque.keySet())
+                .stream()
+                .collect(Collectors.toMap(EstoqueLojista::getId, Function.identity()));
 
-            if (estoque.getQuantidade() < itemDTO.getQuantidade()) {
-                // Reverte o estoque de todos os itens já processados em caso de falha.
+        for (Map.Entry<Long, Integer> entrada : quantidadesPorEstoque.entrySet()) {
+            Long estoqueId = entrada.getKey();
+            int quantidade = entrada.getValue();
+
+            EstoqueLojista estoque = estoques.get(estoqueId);
+            if (estoque == null) {
+                throw new ResourceNotFoundException("Item de estoque " + estoqueId + " não encontrado.");
+            }
+            if (pedido.getFarmacia() == null) {
+                pedido.setFarmacia(estoque.getFarmacia());
+            } else if (!Objects.equals(pedido.getFarmacia().getId(), estoque.getFarmacia().getId())) {
+                throw new ConflictException("Todos os itens de um pedido devem ser da mesma farmácia. Crie um pedido separado para cada farmácia.");
+            }
+            if (!estoque.isAtivo()) {
+                throw new ConflictException("O produto " + estoque.getProduto().getNome() + " não está disponível nesta farmácia.");
+            }
+            // Verificação antecipada apenas para falhar rápido; a garantia real é a baixa condicional.
+            // No modo fracionado a quantidade é um agregado defasado, então a decisão fica só com a baixa.
+            if (verificarQuantidade && !estoque.isFracionado() && estoque.getQuantidade() < quantidade) {
                 throw new ConflictException("Estoque insuficiente para o produto " + estoque.getProduto().getNome());
             }
             if (estoque.getProduto().getTipoReceita() != TipoReceita.NAO_EXIGIDO) {
                 receitaExigida = true;
             }
 
-            // Baixa no estoque
-            estoque.setQuantidade(estoque.getQuantidade() - itemDTO.getQuantidade());
-            estoqueLojistaRepository.save(estoque);
-
             ItemPedido itemPedido = new ItemPedido();
             itemPedido.setPedido(pedido);
             itemPedido.setEstoqueLojista(estoque);
-            itemPedido.setQuantidade(itemDTO.getQuantidade());
+            itemPedido.setQuantidade(quantidade);
             itemPedido.setPrecoUnitario(estoque.getPreco());
             itensPedido.add(itemPedido);
 
-            valorTotal = valorTotal.add(estoque.getPreco().multiply(new BigDecimal(itemDTO.getQuantidade())));
+            valorTotal = valorTotal.add(estoque.getPreco().multiply(new BigDecimal(quantidade)));
         }
 
         pedido.setItens(itensPedido);
@@ -105,7 +194,39 @@ public class PedidoService {
             pedido.setStatus(PedidoStatus.AGUARDANDO_PAGAMENTO);
         }
 
-        return pedidoRepository.save(pedido);
+        Set<Long> produtoIds = estoques.values().stream().map(EstoqueLojista::getProdutoId).collect(Collectors.toSet());
+        return new PedidoMontado(pedido, quantidadesPorEstoque, estoques, produtoIds);
+    }
+
+    /**
+     * Recusa o pedido se a baixa não afetou algum item.
+     *
+     * @param montado O pedido montado.
+     * @param semEstoque Os IDs dos itens sem estoque suficiente.
+     * @throws ConflictException Se algum item ficou sem estoque.
+     */
+    private void verificarBaixa(PedidoMontado montado, List<Long> semEstoque) {
+        if (!semEstoque.isEmpty()) {
+            EstoqueLojista estoque = montado.estoques().get(semEstoque.get(0));
+            throw new ConflictException("Estoque insuficiente para o produto " + estoque.getProduto().getNome());
+        }
+    }
+
+    /**
+     * Salva o pedido montado, cria a reserva do estoque baixado e publica os eventos da criação.
+     *
+     * @param montado O pedido montado, com o estoque já baixado.
+     * @return O {@link PedidoDetalheResponse} do pedido criado.
+     */
+    private PedidoDetalheResponse salvarPedido(PedidoMontado montado) {
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(Set.copyOf(montado.quantidades().keySet()), montado.produtoIds()));
+
+        Pedido pedidoSalvo = pedidoRepository.save(montado.pedido());
+        reservaEstoqueService.criarReserva(pedidoSalvo);
+        eventPublisher.publishEvent(new PedidoCriadoEvent(pedidoSalvo.getId(), pedidoSalvo.getFarmaciaId(),
+                pedidoSalvo.getCliente().getId(), pedidoSalvo.getStatus(), pedidoSalvo.getValorTotal()));
+        // Itens, estoques e produtos já estão carregados: o mapeamento não dispara consultas.
+        return new PedidoDetalheResponse(pedidoSalvo);
     }
 
     /**
@@ -113,19 +234,20 @@ public class PedidoService {
      *
      * @param pedidoId O ID do pedido.
      * @param arquivo O arquivo da receita.
-     * @return O objeto {@link Pedido} atualizado para AGUARDANDO_PAGAMENTO.
+     * @return O {@link PedidoDetalheResponse} do pedido atualizado para AGUARDANDO_PAGAMENTO.
      * @throws ResourceNotFoundException Se o pedido não for encontrado.
      * @throws ForbiddenException Se o pedido não pertencer ao cliente.
      * @throws ConflictException Se o pedido não estiver no status correto.
      */
     @Transactional
-    public Pedido anexarReceita(Long pedidoId, MultipartFile arquivo) {
+    public PedidoDetalheResponse anexarReceita(Long pedidoId, MultipartFile arquivo) {
         Cliente cliente = authenticationService.getClienteLogado();
         Pedido pedido = getPedidoValidadoCliente(pedidoId, cliente.getId());
 
         if (pedido.getStatus() != PedidoStatus.AGUARDANDO_RECEITA) {
             throw new ConflictException("Este pedido não está aguardando anexo de receita.");
         }
+        transicaoPedidoService.transicionar(pedido, PedidoStatus.AGUARDANDO_PAGAMENTO);
 
         String urlArquivo = storageService.upload(arquivo);
 
@@ -137,61 +259,73 @@ public class PedidoService {
         receitaRepository.save(receita);
 
         pedido.setReceita(receita);
-        pedido.setStatus(PedidoStatus.AGUARDANDO_PAGAMENTO);
-
-        return pedidoRepository.save(pedido);
+        return new PedidoDetalheResponse(pedido);
     }
 
     /**
      * Lista paginada dos pedidos do cliente logado.
      *
      * @param pageable As informações de paginação.
-     * @return Uma página de {@link Pedido}.
+     * @return Uma página de {@link PedidoResumoResponse}.
+     */
+    @Transactional(readOnly = true)
+    public Page<PedidoResumoResponse> getMeusPedidos(Pageable pageable) {
+        Cliente cliente = authenticationService.getClienteLogado();
+        return pedidoRepository.findResumosByClienteId(cliente.getId(), pageable);
+    }
+
+    /**
+     * Lista os pedidos do cliente logado por cursor (do mais recente para o mais antigo),
+     * sem offset nem consulta de COUNT. Usado pela rolagem infinita do app.
+     *
+     * @param cursor O cursor retornado pela página anterior (nulo na primeira página).
+     * @param tamanho O tamanho da página.
+     * @return Uma {@link CursorPage} de {@link PedidoResumoResponse}.
      */
     @Transactional(readOnly = true)
-    public Page<Pedido> getMeusPedidos(Pageable pageable) {
+    public CursorPage<PedidoResumoResponse> getMeusPedidos(String cursor, Integer tamanho) {
         Cliente cliente = authenticationService.getClienteLogado();
-        return pedidoRepository.findByClienteId(cliente.getId(), pageable);
+        CursorCodec.DataId chave = CursorCodec.decodificarDataId(cursor);
+        Slice<PedidoResumoResponse> pedidos = pedidoRepository.findResumosByClienteIdAntesDe(
+                cliente.getId(), chave.data(), chave.id(), CursorCodec.pagina(tamanho));
+        return CursorPage.of(pedidos, PedidoService::cursorDoPedido);
     }
 
     /**
      * Obtém os detalhes de um pedido específico para o cliente logado.
      *
      * @param pedidoId O ID do pedido.
-     * @return O objeto {@link Pedido}.
+     * @return O {@link PedidoDetalheResponse} do pedido.
      * @throws ResourceNotFoundException Se o pedido não for encontrado.
      * @throws ForbiddenException Se o pedido não pertencer ao cliente.
      */
     @Transactional(readOnly = true)
-    public Pedido getPedidoDetalhesCliente(Long pedidoId) {
+    public PedidoDetalheResponse getPedidoDetalhesCliente(Long pedidoId) {
         Cliente cliente = authenticationService.getClienteLogado();
-        return getPedidoValidadoCliente(pedidoId, cliente.getId());
+        return new PedidoDetalheResponse(getPedidoValidadoCliente(pedidoId, cliente.getId()));
     }
 
     /**
      * Cancela um pedido, se ele estiver em um status elegível para cancelamento.
      *
      * @param pedidoId O ID do pedido.
-     * @return O objeto {@link Pedido} atualizado para CANCELADO.
+     * @return O {@link PedidoDetalheResponse} do pedido atualizado para CANCELADO.
      * @throws ResourceNotFoundException Se o pedido não for encontrado.
      * @throws ForbiddenException Se o pedido não pertencer ao cliente.
      * @throws ConflictException Se o pedido não puder mais ser cancelado.
      */
     @Transactional
-    public Pedido cancelarPedido(Long pedidoId) {
+    public PedidoDetalheResponse cancelarPedido(Long pedidoId) {
         Cliente cliente = authenticationService.getClienteLogado();
         Pedido pedido = getPedidoValidadoCliente(pedidoId, cliente.getId());
 
-        if (pedido.getStatus() != PedidoStatus.AGUARDANDO_PAGAMENTO &&
-                pedido.getStatus() != PedidoStatus.AGUARDANDO_RECEITA &&
-                pedido.getStatus() != PedidoStatus.AGUARDANDO_CONFIRMACAO)
-        {
+        if (!pedido.getStatus().podeTransicionarPara(PedidoStatus.CANCELADO)) {
             throw new ConflictException("Este pedido não pode mais ser cancelado pelo cliente. Status: " + pedido.getStatus());
         }
 
-        estornarEstoquePedido(pedido);
-        pedido.setStatus(PedidoStatus.CANCELADO);
-        return pedidoRepository.save(pedido);
+        transicaoPedidoService.transicionar(pedido, PedidoStatus.CANCELADO);
+        reservaEstoqueService.liberarReserva(pedido);
+        return new PedidoDetalheResponse(pedido);
     }
 
 
@@ -203,29 +337,50 @@ public class PedidoService {
      * Lista paginada dos pedidos da farmácia que precisam de atenção do farmacêutico.
      *
      * @param pageable As informações de paginação.
-     * @return Uma página de {@link Pedido}.
+     * @return Uma página de {@link PedidoResumoResponse}.
      */
     @Transactional(readOnly = true)
-    public Page<Pedido> getPedidosPendentesFarmaceutico(Pageable pageable) {
+    public Page<PedidoResumoResponse> getPedidosPendentesFarmaceutico(Pageable pageable) {
         Farmaceutico farmaceutico = authenticationService.getFarmaceuticoLogado();
         Long farmaciaId = farmaceutico.getFarmacia().getId();
 
-        return pedidoRepository.findPedidosPorStatusEFarmacia(
+        return pedidoRepository.findResumosPorStatusEFarmacia(
                 PedidoStatus.AGUARDANDO_PAGAMENTO,
                 farmaciaId,
                 pageable
         );
     }
 
+    /**
+     * Lista por cursor os pedidos da farmácia que precisam de atenção do farmacêutico.
+     *
+     * @param cursor O cursor retornado pela página anterior (nulo na primeira página).
+     * @param tamanho O tamanho da página.
+     * @return Uma {@link CursorPage} de {@link PedidoResumoResponse}.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<PedidoResumoResponse> getPedidosPendentesFarmaceutico(String cursor, Integer tamanho) {
+        Farmaceutico farmaceutico = authenticationService.getFarmaceuticoLogado();
+        CursorCodec.DataId chave = CursorCodec.decodificarDataId(cursor);
+        Slice<PedidoResumoResponse> pedidos = pedidoRepository.findResumosPorStatusEFarmaciaAntesDe(
+                PedidoStatus.AGUARDANDO_PAGAMENTO,
+                farmaceutico.getFarmacia().getId(),
+                chave.data(),
+                chave.id(),
+                CursorCodec.pagina(tamanho)
+        );
+        return CursorPage.of(pedidos, PedidoService::cursorDoPedido);
+    }
+
     /**
      * Aprova a receita anexada a um pedido.
      *
      * @param pedidoId O ID do pedido.
-     * @return O objeto {@link Pedido}.
+     * @return O {@link PedidoDetalheResponse} do pedido.
      * @throws ResourceNotFoundException Se o pedido ou a receita não for encontrada.
      */
     @Transactional
-    public Pedido aprovarReceita(Long pedidoId) {
+    public PedidoDetalheResponse aprovarReceita(Long pedidoId) {
         Farmaceutico farmaceutico = authenticationService.getFarmaceuticoLogado();
         Pedido pedido = getPedidoValidadoFarmaceutico(pedidoId, farmaceutico);
         Receita receita = getReceitaDoPedido(pedido);
@@ -236,7 +391,7 @@ public class PedidoService {
         receita.setJustificativaRejeicao(null);
         receitaRepository.save(receita);
 
-        return pedido;
+        return new PedidoDetalheResponse(pedido);
     }
 
     /**
@@ -244,16 +399,17 @@ public class PedidoService {
      *
      * @param pedidoId O ID do pedido.
      * @param justificativa A justificativa para a rejeição.
-     * @return O objeto {@link Pedido} atualizado para CANCELADO.
+     * @return O {@link PedidoDetalheResponse} do pedido atualizado para CANCELADO.
      * @throws ResourceNotFoundException Se o pedido ou a receita não for encontrada.
      */
     @Transactional
-    public Pedido rejeitarReceita(Long pedidoId, String justificativa) {
+    public PedidoDetalheResponse rejeitarReceita(Long pedidoId, String justificativa) {
         Farmaceutico farmaceutico = authenticationService.getFarmaceuticoLogado();
         Pedido pedido = getPedidoValidadoFarmaceutico(pedidoId, farmaceutico);
         Receita receita = getReceitaDoPedido(pedido);
 
-        estornarEstoquePedido(pedido);
+        transicaoPedidoService.transicionar(pedido, PedidoStatus.CANCELADO);
+        reservaEstoqueService.liberarReserva(pedido);
 
         receita.setStatus(ReceitaStatus.REJEITADA);
         receita.setFarmaceuticoValidador(farmaceutico);
@@ -261,21 +417,20 @@ public class PedidoService {
         receita.setJustificativaRejeicao(justificativa);
         receitaRepository.save(receita);
 
-        pedido.setStatus(PedidoStatus.CANCELADO);
-        return pedidoRepository.save(pedido);
+        return new PedidoDetalheResponse(pedido);
     }
 
     /**
      * Obtém os detalhes de um pedido específico para o farmacêutico.
      *
      * @param pedidoId O ID do pedido.
-     * @return O objeto {@link Pedido}.
+     * @return O {@link PedidoDetalheResponse} do pedido.
      * @throws ResourceNotFoundException Se o pedido não for encontrado ou não pertencer à farmácia.
      */
     @Transactional(readOnly = true)
-    public Pedido getPedidoDetalhesFarmaceutico(Long pedidoId) {
+    public PedidoDetalheResponse getPedidoDetalhesFarmaceutico(Long pedidoId) {
         Farmaceutico farmaceutico = authenticationService.getFarmaceuticoLogado();
-        return getPedidoValidadoFarmaceutico(pedidoId, farmaceutico);
+        return new PedidoDetalheResponse(getPedidoValidadoFarmaceutico(pedidoId, farmaceutico));
     }
 
 
@@ -287,64 +442,76 @@ public class PedidoService {
      * Lista paginada de todos os pedidos da farmácia do lojista logado.
      *
      * @param pageable As informações de paginação.
-     * @return Uma página de {@link Pedido}.
+     * @return Uma página de {@link PedidoResumoResponse}.
+     */
+    @Transactional(readOnly = true)
+    public Page<PedidoResumoResponse> getPedidosDaFarmaciaLogada(Pageable pageable) {
+        Farmacia farmacia = authenticationService.getFarmaciaAdminLogada();
+        return pedidoRepository.findResumosByFarmaciaId(farmacia.getId(), pageable);
+    }
+
+    /**
+     * Lista por cursor todos os pedidos da farmácia do lojista logado.
+     *
+     * @param cursor O cursor retornado pela página anterior (nulo na primeira página).
+     * @param tamanho O tamanho da página.
+     * @return Uma {@link CursorPage} de {@link PedidoResumoResponse}.
      */
     @Transactional(readOnly = true)
-    public Page<Pedido> getPedidosDaFarmaciaLogada(Pageable pageable) {
+    public CursorPage<PedidoResumoResponse> getPedidosDaFarmaciaLogada(String cursor, Integer tamanho) {
         Farmacia farmacia = authenticationService.getFarmaciaAdminLogada();
-        return pedidoRepository.findAllByFarmaciaId(farmacia.getId(), pageable);
+        CursorCodec.DataId chave = CursorCodec.decodificarDataId(cursor);
+        Slice<PedidoResumoResponse> pedidos = pedidoRepository.findResumosByFarmaciaIdAntesDe(
+                farmacia.getId(), chave.data(), chave.id(), CursorCodec.pagina(tamanho));
+        return CursorPage.of(pedidos, PedidoService::cursorDoPedido);
     }
 
     /**
-     * Atualiza o status de um pedido pelo lojista (a partir de CONFIRMADO).
+     * Atualiza o status de um pedido pelo lojista nas etapas de atendimento (a partir de CONFIRMADO).
+     * Aceite, recusa e cancelamento têm fluxos próprios, que também tratam a receita e o estoque.
      *
      * @param pedidoId O ID do pedido.
      * @param request O DTO {@link PedidoStatusUpdateRequest}.
-     * @return O objeto {@link Pedido} atualizado.
-     * @throws ForbiddenException Se o status for inválido (tentativa de regredir o fluxo) ou se o pedido estiver finalizado.
+     * @return O {@link PedidoDetalheResponse} do pedido atualizado.
+     * @throws ForbiddenException Se o novo status não for uma etapa de atendimento.
+     * @throws ConflictException Se a transição não for permitida a partir do status atual (ex: pedido finalizado).
      */
     @Transactional
-    public Pedido updateStatusPedidoLojista(Long pedidoId, PedidoStatusUpdateRequest request) {
+    public PedidoDetalheResponse updateStatusPedidoLojista(Long pedidoId, PedidoStatusUpdateRequest request) {
         Farmacia farmacia = authenticationService.getFarmaciaAdminLogada();
         Pedido pedido = getPedidoValidadoLojista(pedidoId, farmacia.getId());
         PedidoStatus novoStatus = request.getStatus();
 
-        if (pedido.getStatus() == PedidoStatus.CANCELADO || pedido.getStatus() == PedidoStatus.RECUSADO || pedido.getStatus() == PedidoStatus.ENTREGUE) {
-            throw new ForbiddenException("Pedido finalizado/cancelado/recusado não pode ter o status alterado.");
+        if (!STATUS_DE_ATENDIMENTO.contains(novoStatus)) {
+            throw new ForbiddenException("Transição de status inválida para lojista. Use os fluxos de aceite, recusa ou cancelamento para os demais status.");
         }
 
-        if (novoStatus == PedidoStatus.AGUARDANDO_RECEITA ||
-                novoStatus == PedidoStatus.AGUARDANDO_PAGAMENTO ||
-                novoStatus == PedidoStatus.AGUARDANDO_CONFIRMACAO) {
-            throw new ForbiddenException("Transição de status inválida para lojista. Status não pode ser regredido ou pulado para inicial.");
-        }
-
-        pedido.setStatus(novoStatus);
-        return pedidoRepository.save(pedido);
+        transicaoPedidoService.transicionar(pedido, novoStatus);
+        return new PedidoDetalheResponse(pedido);
     }
 
     /**
      * Obtém os detalhes de um pedido específico para o lojista.
      *
      * @param pedidoId O ID do pedido.
-     * @return O objeto {@link Pedido}.
+     * @return O {@link PedidoDetalheResponse} do pedido.
      * @throws ForbiddenException Se o pedido não pertencer à farmácia.
      */
     @Transactional(readOnly = true)
-    public Pedido getPedidoDetalhesLojista(Long pedidoId) {
+    public PedidoDetalheResponse getPedidoDetalhesLojista(Long pedidoId) {
         Farmacia farmacia = authenticationService.getFarmaciaAdminLogada();
-        return getPedidoValidadoLojista(pedidoId, farmacia.getId());
+        return new PedidoDetalheResponse(getPedidoValidadoLojista(pedidoId, farmacia.getId()));
     }
 
     /**
      * Aceita um pedido que está em AGUARDANDO_CONFIRMACAO (após pagamento e aprovação de receita).
      *
      * @param pedidoId O ID do pedido.
-     * @return O objeto {@link Pedido} atualizado para CONFIRMADO.
+     * @return O {@link PedidoDetalheResponse} do pedido atualizado para CONFIRMADO.
      * @throws ConflictException Se o status não for AGUARDANDO_CONFIRMACAO ou se a receita não tiver sido aprovada.
      */
     @Transactional
-    public Pedido aceitarPedido(Long pedidoId) {
+    public PedidoDetalheResponse aceitarPedido(Long pedidoId) {
         Farmacia farmacia = authenticationService.getFarmaciaAdminLogada();
         Pedido pedido = getPedidoValidadoLojista(pedidoId, farmacia.getId());
 
@@ -356,8 +523,8 @@ public class PedidoService {
             throw new ConflictException("Não é possível aceitar o pedido pois a receita ainda não foi aprovada.");
         }
 
-        pedido.setStatus(PedidoStatus.CONFIRMADO);
-        return pedidoRepository.save(pedido);
+        transicaoPedidoService.transicionar(pedido, PedidoStatus.CONFIRMADO);
+        return new PedidoDetalheResponse(pedido);
     }
 
     /**
@@ -365,11 +532,11 @@ public class PedidoService {
      *
      * @param pedidoId O ID do pedido.
      * @param justificativa A justificativa da recusa.
-     * @return O objeto {@link Pedido} atualizado para RECUSADO.
+     * @return O {@link PedidoDetalheResponse} do pedido atualizado para RECUSADO.
      * @throws ConflictException Se o status não for AGUARDANDO_CONFIRMACAO.
      */
     @Transactional
-    public Pedido recusarPedido(Long pedidoId, String justificativa) {
+    public PedidoDetalheResponse recusarPedido(Long pedidoId, String justificativa) {
         Farmacia farmacia = authenticationService.getFarmaciaAdminLogada();
         Pedido pedido = getPedidoValidadoLojista(pedidoId, farmacia.getId());
 
@@ -377,9 +544,9 @@ public class PedidoService {
             throw new ConflictException("Apenas pedidos aguardando confirmação podem ser recusados. Status atual: " + pedido.getStatus());
         }
 
-        estornarEstoquePedido(pedido);
-        pedido.setStatus(PedidoStatus.RECUSADO);
-        return pedidoRepository.save(pedido);
+        transicaoPedidoService.transicionar(pedido, PedidoStatus.RECUSADO);
+        reservaEstoqueService.liberarReserva(pedido);
+        return new PedidoDetalheResponse(pedido);
     }
 
 
@@ -388,16 +555,18 @@ public class PedidoService {
     // ========================================================================
 
     /**
-     * Estorna a quantidade de itens do pedido para o estoque da farmácia.
+     * Consolida os itens do carrinho por item de estoque, somando quantidades repetidas.
+     * O mapa é ordenado por ID, a mesma ordem em que a baixa bloqueia as linhas.
      *
-     * @param pedido O objeto {@link Pedido} cujos itens serão estornados.
+     * @param itens Os itens do carrinho.
+     * @return Mapa de ID do item de estoque para a quantidade total solicitada.
      */
-    private void estornarEstoquePedido(Pedido pedido) {
-        for (ItemPedido item : pedido.getItens()) {
-            EstoqueLojista estoque = item.getEstoqueLojista();
-            estoque.setQuantidade(estoque.getQuantidade() + item.getQuantidade());
-            estoqueLojistaRepository.save(estoque);
+    private Map<Long, Integer> agruparQuantidadesPorEstoque(List<ItemCarrinho> itens) {
+        Map<Long, Integer> quantidades = new TreeMap<>();
+        for (ItemCarrinho item : itens) {
+            quantidades.merge(item.getEstoqueLojistaId(), item.getQuantidade(), Integer::sum);
         }
+        return quantidades;
     }
 
     /**
@@ -416,7 +585,7 @@ public class PedidoService {
     }
 
     /**
-     * Busca um pedido e valida se ele pertence ao cliente especificado.
+     * Busca um pedido (com as associações do detalhe, em uma única consulta) e valida se ele pertence ao cliente especificado.
      *
      * @param pedidoId O ID do pedido.
      * @param clienteId O ID do cliente esperado.
@@ -425,7 +594,7 @@ public class PedidoService {
      * @throws ForbiddenException Se o pedido não pertencer ao cliente.
      */
     private Pedido getPedidoValidadoCliente(Long pedidoId, Long clienteId) {
-        Pedido pedido = pedidoRepository.findById(pedidoId)
+        Pedido pedido = pedidoRepository.findDetalheById(pedidoId)
                 .orElseThrow(() -> new ResourceNotFoundException("Pedido " + pedidoId + " não encontrado."));
         if (!pedido.getCliente().getId().equals(clienteId)) {
             throw new ForbiddenException("Você não tem permissão para modificar este pedido.");
@@ -434,7 +603,7 @@ public class PedidoService {
     }
 
     /**
-     * Busca um pedido e valida se ele pertence à farmácia do farmacêutico especificado.
+     * Busca um pedido (com as associações do detalhe) e valida se ele pertence à farmácia do farmacêutico especificado.
      *
      * @param pedidoId O ID do pedido.
      * @param farmaceutico O objeto {@link Farmaceutico} logado.
@@ -443,13 +612,10 @@ public class PedidoService {
      */
     private Pedido getPedidoValidadoFarmaceutico(Long pedidoId, Farmaceutico farmaceutico) {
         Long farmaciaId = farmaceutico.getFarmacia().getId();
-        Pedido pedido = pedidoRepository.findById(pedidoId)
+        Pedido pedido = pedidoRepository.findDetalheById(pedidoId)
                 .orElseThrow(() -> new ResourceNotFoundException("Pedido " + pedidoId + " não encontrado."));
 
-        boolean isFarmaciaOwner = pedido.getItens().stream()
-                .anyMatch(i -> Objects.equals(i.getEstoqueLojista().getFarmacia().getId(), farmaciaId));
-
-        if (!isFarmaciaOwner) {
+        if (!Objects.equals(pedido.getFarmacia().getId(), farmaciaId)) {
             throw new ResourceNotFoundException("Pedido não encontrado ou não pertence à sua farmácia.");
         }
 
@@ -457,7 +623,7 @@ public class PedidoService {
     }
 
     /**
-     * Busca um pedido e valida se ele pertence à farmácia do lojista especificado.
+     * Busca um pedido (com as associações do detalhe) e valida se ele pertence à farmácia do lojista especificado.
      *
      * @param pedidoId O ID do pedido.
      * @param farmaciaId O ID da farmácia esperada.
@@ -466,15 +632,16 @@ public class PedidoService {
      * @throws ForbiddenException Se o pedido não pertencer à farmácia.
      */
     private Pedido getPedidoValidadoLojista(Long pedidoId, Long farmaciaId) {
-        Pedido pedido = pedidoRepository.findById(pedidoId)
+        Pedido pedido = pedidoRepository.findDetalheById(pedidoId)
                 .orElseThrow(() -> new ResourceNotFoundException("Pedido com ID " + pedidoId + " não encontrado."));
 
-        boolean isFarmaciaOwner = pedido.getItens().stream()
-                .anyMatch(i -> Objects.equals(i.getEstoqueLojista().getFarmacia().getId(), farmaciaId));
-
-        if (!isFarmaciaOwner) {
+        if (!Objects.equals(pedido.getFarmacia().getId(), farmaciaId)) {
             throw new ForbiddenException("Você não tem permissão para gerenciar este pedido.");
         }
         return pedido;
     }
-}
\ No newline at end of file
+
+    private static String cursorDoPedido(PedidoResumoResponse pedido) {
+        return CursorCodec.codificar(pedido.getDataPedido(), pedido.getId());
+    }
+}
@@ -0,0 +1,35 @@
+package ucb.app.esculapy.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tarefa agendada que libera periodicamente as reservas de estoque vencidas.
+ * Cada lote é processado em sua própria transação, mantendo os bloqueios curtos.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReservaEstoqueScheduler {
+
+    private final ReservaEstoqueService reservaEstoqueService;
+
+    /**
+     * Processa lotes de reservas vencidas até que não restem mais reservas a liberar. Um lote
+     * com reservas mantidas (pedidos que mudaram de status por outro fluxo) encerra a execução,
+     * e as restantes ficam para a próxima.
+     */
+    @Scheduled(fixedDelayString = "${estoque.reserva.intervalo-ms:60000}")
+    public void liberarReservasExpiradas() {
+        int total = 0;
+        int liberadas;
+        do {
+            liberadas = reservaEstoqueService.liberarLoteExpirado();
+            total += liberadas;
+        } while (liberadas == reservaEstoqueService.getTamanhoLote());
+
+        if (total > 0) {
+            System.out.println("LOG: [ReservaEstoqueScheduler] " + total + " reserva(s) vencida(s) liberada(s).");
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ucb.app.esculapy.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ucb.app.esculapy.estoque.MotorEstoque;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
+import ucb.app.esculapy.exception.ConflictException;
+import ucb.app.esculapy.model.Pedido;
+import ucb.app.esculapy.model.ReservaEstoque;
+import ucb.app.esculapy.model.enums.PedidoStatus;
+import ucb.app.esculapy.model.enums.ReservaStatus;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.ItemPedidoRepository;
+import ucb.app.esculapy.repository.ReservaEstoqueRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serviço responsável pelas reservas de estoque com prazo de validade.
+ * Um pedido criado retém o estoque baixado até ser pago; se o prazo vencer antes disso,
+ * a reserva é liberada, o estoque é estornado e o pedido é cancelado.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReservaEstoqueService {
+
+    private static final List<PedidoStatus> STATUS_COM_RESERVA_ATIVA =
+            List.of(PedidoStatus.AGUARDANDO_RECEITA, PedidoStatus.AGUARDANDO_PAGAMENTO);
+
+    private final ReservaEstoqueRepository reservaEstoqueRepository;
+    private final ItemPedidoRepository itemPedidoRepository;
+    private final EstoqueLojistaRepository estoqueLojistaRepository;
+    private final TransicaoPedidoService transicaoPedidoService;
+    private final MotorEstoque motorEstoque;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${estoque.reserva.ttl-minutos:30}")
+    private long ttlMinutos;
+
+    @Value("${estoque.reserva.tamanho-lote:200}")
+    private int tamanhoLote;
+
+    /**
+     * Cria a reserva ativa do estoque de um pedido recém-criado.
+     *
+     * @param pedido O pedido já persistido.
+     * @return A {@link ReservaEstoque} criada.
+     */
+    @Transactional
+    public ReservaEstoque criarReserva(Pedido pedido) {
+        ReservaEstoque reserva = new ReservaEstoque();
+        reserva.setPedido(pedido);
+        reserva.setStatus(ReservaStatus.ATIVA);
+        reserva.setExpiraEm(LocalDateTime.now().plusMinutes(ttlMinutos));
+        return reservaEstoqueRepository.save(reserva);
+    }
+
+    /**
+     * Converte a reserva ativa de um pedido em baixa definitiva (pagamento confirmado).
+     *
+     * @param pedidoId O ID do pedido.
+     * @return False se a reserva já tiver sido liberada (ex: expirou antes do pagamento), true caso contrário.
+     */
+    @Transactional
+    public boolean confirmarReserva(Long pedidoId) {
+        int confirmadas = reservaEstoqueRepository.atualizarStatusPorPedidoId(pedidoId, ReservaStatus.ATIVA, ReservaStatus.CONFIRMADA);
+        return confirmadas > 0 || !reservaEstoqueRepository.existsByPedidoIdAndStatus(pedidoId, ReservaStatus.LIBERADA);
+    }
+
+    /**
+     * Libera a reserva de um pedido e estorna seus itens para o estoque da farmácia.
+     * Usado nos fluxos de cancelamento, rejeição de receita e recusa pela farmácia.
+     *
+     * @param pedido O pedido cujo estoque será estornado.
+     * @throws ConflictException Se a reserva do pedido já tiver sido liberada (o estoque já foi estornado).
+     */
+    @Transactional
+    public void liberarReserva(Pedido pedido) {
+        int liberadas = reservaEstoqueRepository.liberarPorPedidoId(pedido.getId());
+        if (liberadas == 0 && reservaEstoqueRepository.existsByPedidoId(pedido.getId())) {
+            throw new ConflictException("A reserva de estoque do pedido " + pedido.getId() + " já foi liberada.");
+        }
+        estornarEstoque(List.of(pedido.getId()));
+    }
+
+    /**
+     * Libera um lote de reservas vencidas: cancela os pedidos que ainda aguardam receita ou pagamento,
+     * estorna o estoque dos cancelados em um único lote JDBC e marca as reservas deles como LIBERADAS.
+     * Um pedido que mudou de status por outro fluxo (ex.: pago no último instante) não é cancelado e
+     * mantém a reserva, que esse fluxo confirma ou libera.
+     *
+     * @return O número de reservas liberadas (menor que o tamanho do lote quando não há mais reservas vencidas).
+     */
+    @Transactional
+    public int liberarLoteExpirado() {
+        List<ReservaEstoque> reservas = reservaEstoqueRepository.findAtivasExpiradas(LocalDateTime.now(), PageRequest.of(0, tamanhoLote));
+        if (reservas.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> pedidoIds = reservas.stream().map(r -> r.getPedido().getId()).toList();
+        Set<Long> cancelados = Set.copyOf(
+                transicaoPedidoService.transicionarEmLote(pedidoIds, STATUS_COM_RESERVA_ATIVA, PedidoStatus.CANCELADO));
+        if (cancelados.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> reservaIds = reservas.stream()
+                .filter(r -> cancelados.contains(r.getPedido().getId()))
+                .map(ReservaEstoque::getId)
+                .toList();
+        estornarEstoque(cancelados);
+        reservaEstoqueRepository.liberarEmLote(reservaIds);
+
+        return reservaIds.size();
+    }
+
+    /**
+     * Retorna o tamanho de lote configurado para a liberação de reservas vencidas.
+     *
+     * @return O tamanho do lote.
+     */
+    public int getTamanhoLote() {
+        return tamanhoLote;
+    }
+
+    /**
+     * Estorna para o estoque a soma das quantidades dos itens dos pedidos informados.
+     * Com o motor de estoque habilitado, o estorno é submetido à fila de cada farmácia após o commit.
+     *
+     * @param pedidoIds Os IDs dos pedidos.
+     */
+    private void estornarEstoque(Collection<Long> pedidoIds) {
+        Map<Long, Map<Long, Integer>> quantidadesPorFarmacia = new LinkedHashMap<>();
+        Map<Long, Set<Long>> produtoIdsPorFarmacia = new HashMap<>();
+        for (ItemPedidoRepository.QuantidadePorEstoque linha : itemPedidoRepository.somarQuantidadesPorEstoque(pedidoIds)) {
+            quantidadesPorFarmacia.computeIfAbsent(linha.getFarmaciaId(), id -> new LinkedHashMap<>())
+                    .put(linha.getEstoqueLojistaId(), linha.getQuantidade().intValue());
+            produtoIdsPorFarmacia.computeIfAbsent(linha.getFarmaciaId(), id -> new HashSet<>()).add(linha.getProdutoId());
+        }
+        if (quantidadesPorFarmacia.isEmpty()) {
+            return;
+        }
+
+        if (motorEstoque.isHabilitado()) {
+            quantidadesPorFarmacia.forEach((farmaciaId, quantidades) ->
+                    motorEstoque.estornarAposCommit(farmaciaId, quantidades, produtoIdsPorFarmacia.get(farmaciaId)));
+            return;
+        }
+
+        Map<Long, Integer> quantidadesPorEstoque = new LinkedHashMap<>();
+        Set<Long> produtoIds = new HashSet<>();
+        quantidadesPorFarmacia.values().forEach(quantidadesPorEstoque::putAll);
+        produtoIdsPorFarmacia.values().forEach(produtoIds::addAll);
+        estoqueLojistaRepository.estornarEstoqueEmLote(quantidadesPorEstoque);
+        eventPublisher.publishEvent(new EstoqueAlteradoEvent(Set.copyOf(quantidadesPorEstoque.keySet()), produtoIds));
+    }
+}
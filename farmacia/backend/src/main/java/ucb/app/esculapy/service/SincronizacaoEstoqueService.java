@@ -0,0 +1,268 @@
+package ucb.app.esculapy.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ucb.app.esculapy.cache.CatalogoCache;
+import ucb.app.esculapy.dto.EstoqueSincronizacaoItem;
+import ucb.app.esculapy.dto.ImportacaoStatusResponse;
+import ucb.app.esculapy.dto.SincronizacaoEstoqueResponse;
+import ucb.app.esculapy.estoque.MotorEstoque;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
+import ucb.app.esculapy.exception.BadRequestException;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.EstoqueLojistaRepositoryCustom.LinhaEstoque;
+import ucb.app.esculapy.repository.ProdutoRepository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Serviço de sincronização em lote do estoque de uma farmácia a partir do feed do seu ERP.
+ * O feed (array JSON ou NDJSON) é lido em streaming; os EANs são resolvidos pelo cache do catálogo
+ * e os itens são gravados em lotes JDBC (insert ou update pela chave única farmácia + produto),
+ * cada lote em sua própria transação. Itens idênticos ao estoque atual não são regravados.
+ * Itens ausentes do feed não são alterados.
+ */
+@Service
+@RequiredArgsConstructor
+public class SincronizacaoEstoqueService {
+
+    private static final int MAXIMO_ERROS_REPORTADOS = 1000;
+
+    private final EstoqueLojistaRepository estoqueLojistaRepository;
+    private final ProdutoRepository produtoRepository;
+    private final CatalogoCache catalogoCache;
+    private final AuthenticationService authenticationService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MotorEstoque motorEstoque;
+
+    @Value("${estoque.sincronizacao.tamanho-lote:1000}")
+    private int tamanhoLote;
+
+    private record ItemLido(long posicao, EstoqueSincronizacaoItem item) {
+    }
+
+    /**
+     * Estado de uma sincronização em andamento.
+     */
+    private static final class Sincronizacao {
+        private final Long farmaciaId;
+        private final SincronizacaoEstoqueResponse resumo = new SincronizacaoEstoqueResponse();
+        private final List<ItemLido> lote = new ArrayList<>();
+        private final Map<String, Long> posicaoPorEan = new HashMap<>();
+
+        Sincronizacao(Long farmaciaId) {
+            this.farmaciaId = farmaciaId;
+        }
+
+        void registrarErro(long posicao, String mensagem) {
+            resumo.setComErro(resumo.getComErro() + 1);
+            if (resumo.getErros().size() < MAXIMO_ERROS_REPORTADOS) {
+                resumo.getErros().add(new ImportacaoStatusResponse.ErroLinha(posicao, mensagem));
+            }
+        }
+    }
+
+    /**
+     * Sincroniza o estoque da farmácia logada a partir de um array JSON de itens, lido item a item.
+     * Um erro de sintaxe interrompe a leitura; os itens anteriores a ele são gravados normalmente.
+     *
+     * @param entrada O corpo da requisição.
+     * @return O resumo da sincronização (posição do item no array nos erros).
+     * @throws BadRequestException Se o corpo não for um array JSON.
+     */
+    public SincronizacaoEstoqueResponse sincronizarJson(InputStream entrada) {
+        Sincronizacao sincronizacao = new Sincronizacao(authenticationService.getFarmaciaAdminLogada().getId());
+        long posicao = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(entrada)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BadRequestException("O corpo da sincronização deve ser um array JSON de itens.");
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                posicao++;
+                if (token == null) {
+                    sincronizacao.registrarErro(posicao, "Array JSON não finalizado; sincronização interrompida.");
+                    break;
+                }
+                aceitar(sincronizacao, posicao, objectMapper.readValue(parser, EstoqueSincronizacaoItem.class));
+            }
+        } catch (IOException e) {
+            sincronizacao.registrarErro(posicao, "JSON inválido; sincronização interrompida: " + MensagensErro.primeiraLinha(e.getMessage()));
+        }
+        gravarLote(sincronizacao);
+        return sincronizacao.resumo;
+    }
+
+    /**
+     * Sincroniza o estoque da farmácia logada a partir de um feed NDJSON (um item JSON por linha).
+     * Linhas inválidas são reportadas e a leitura continua.
+     *
+     * @param entrada O corpo da requisição.
+     * @return O resumo da sincronização (número da linha nos erros).
+     */
+    public SincronizacaoEstoqueResponse sincronizarNdjson(InputStream entrada) {
+        Sincronizacao sincronizacao = new Sincronizacao(authenticationService.getFarmaciaAdminLogada().getId());
+        long numero = 0;
+        try (BufferedReader leitor = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            String linha;
+            while ((linha = leitor.readLine()) != null) {
+                numero++;
+                if (linha.isBlank()) {
+                    continue;
+                }
+                try {
+                    aceitar(sincronizacao, numero, objectMapper.readValue(linha, EstoqueSincronizacaoItem.class));
+                } catch (IOException e) {
+                    sincronizacao.resumo.setRecebidos(sincronizacao.resumo.getRecebidos() + 1);
+                    sincronizacao.registrarErro(numero, "Registro inválido: " + MensagensErro.primeiraLinha(e.getMessage()));
+                }
+            }
+        } catch (IOException e) {
+            sincronizacao.registrarErro(numero, "Falha na leitura do feed; sincronização interrompida: " + e.getMessage());
+        }
+        gravarLote(sincronizacao);
+        return sincronizacao.resumo;
+    }
+
+    // ========================================================================
+    // --- Processamento ---
+    // ========================================================================
+
+    private void aceitar(Sincronizacao sincronizacao, long posicao, EstoqueSincronizacaoItem item) {
+        sincronizacao.resumo.setRecebidos(sincronizacao.resumo.getRecebidos() + 1);
+
+        Set<ConstraintViolation<EstoqueSincronizacaoItem>> violacoes = validator.validate(item);
+        if (!violacoes.isEmpty()) {
+            sincronizacao.registrarErro(posicao, violacoes.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(" ")));
+            return;
+        }
+        String ean = item.getEan().strip();
+        Long posicaoAnterior = sincronizacao.posicaoPorEan.putIfAbsent(ean, posicao);
+        if (posicaoAnterior != null) {
+            sincronizacao.registrarErro(posicao, "EAN " + ean + " repetido no feed (item " + posicaoAnterior + ").");
+            return;
+        }
+
+        item.setEan(ean);
+        sincronizacao.lote.add(new ItemLido(posicao, item));
+        if (sincronizacao.lote.size() >= tamanhoLote) {
+            gravarLote(sincronizacao);
+        }
+    }
+
+    /**
+     * Resolve os EANs do lote, compara com o estoque atual e grava apenas os itens novos ou alterados.
+     * Se o banco rejeitar o lote, todos os seus itens são reportados com erro.
+     */
+    private void gravarLote(Sincronizacao sincronizacao) {
+        List<ItemLido> lote = sincronizacao.lote;
+        if (lote.isEmpty()) {
+            return;
+        }
+
+        Map<String, Long> produtoIds = catalogoCache.getProdutoIdsPorEan(
+                lote.stream().map(l -> l.item().getEan()).toList(),
+                eans -> produtoRepository.findIdsByEanIn(eans).stream()
+                        .collect(Collectors.toMap(ProdutoRepository.IdPorEan::getEan, ProdutoRepository.IdPorEan::getId)));
+
+        Map<Long, LinhaEstoque> linhas = new LinkedHashMap<>();
+        for (ItemLido lido : lote) {
+            Long produtoId = produtoIds.get(lido.item().getEan());
+            if (produtoId == null) {
+                sincronizacao.registrarErro(lido.posicao(), "EAN " + lido.item().getEan() + " não encontrado no catálogo.");
+                continue;
+            }
+            EstoqueSincronizacaoItem item = lido.item();
+            linhas.put(produtoId, new LinhaEstoque(produtoId, item.getPreco(), item.getQuantidade(),
+                    !Boolean.FALSE.equals(item.getAtivo())));
+        }
+
+        if (!linhas.isEmpty()) {
+            try {
+                long[] diff = transactionTemplate.execute(status -> gravar(sincronizacao.farmaciaId, linhas));
+                SincronizacaoEstoqueResponse resumo = sincronizacao.resumo;
+                resumo.setInseridos(resumo.getInseridos() + diff[0]);
+                resumo.setAtualizados(resumo.getAtualizados() + diff[1]);
+                resumo.setInalterados(resumo.getInalterados() + diff[2]);
+            } catch (DataAccessException e) {
+                String mensagem = "Falha ao gravar o lote: " + MensagensErro.primeiraLinha(e.getMostSpecificCause().getMessage());
+                lote.stream()
+                        .filter(l -> produtoIds.containsKey(l.item().getEan()))
+                        .forEach(l -> sincronizacao.registrarErro(l.posicao(), mensagem));
+            }
+        }
+        lote.clear();
+    }
+
+    /**
+     * Grava o lote dentro da transação corrente e sinaliza os itens alterados para os índices em memória.
+     *
+     * @return Os contadores {inseridos, atualizados, inalterados}.
+     */
+    private long[] gravar(Long farmaciaId, Map<Long, LinhaEstoque> linhas) {
+        Map<Long, EstoqueLojistaRepository.EstadoEstoque> atuais = estoqueLojistaRepository
+                .findEstadoByFarmaciaIdAndProdutoIdIn(farmaciaId, linhas.keySet()).stream()
+                .collect(Collectors.toMap(EstoqueLojistaRepository.EstadoEstoque::getProdutoId, e -> e));
+
+        long inseridos = 0;
+        long atualizados = 0;
+        List<LinhaEstoque> alteradas = new ArrayList<>();
+        Set<Long> estoqueIds = new HashSet<>();
+        List<Long> produtosNovos = new ArrayList<>();
+        List<EstoqueLojistaRepository.EstadoEstoque> fracionadosAlterados = new ArrayList<>();
+        for (LinhaEstoque linha : linhas.values()) {
+            EstoqueLojistaRepository.EstadoEstoque atual = atuais.get(linha.produtoId());
+            if (atual == null) {
+                inseridos++;
+                alteradas.add(linha);
+                produtosNovos.add(linha.produtoId());
+            } else if (atual.getPreco().compareTo(linha.preco()) != 0
+                    || atual.getQuantidade() != linha.quantidade()
+                    || atual.getAtivo() != linha.ativo()) {
+                atualizados++;
+                alteradas.add(linha);
+                estoqueIds.add(atual.getId());
+                if (atual.getFracoes() > 0 && atual.getQuantidade() != linha.quantidade()) {
+                    fracionadosAlterados.add(atual);
+                }
+            }
+        }
+
+        if (!alteradas.isEmpty()) {
+            estoqueLojistaRepository.upsertEmLote(farmaciaId, alteradas);
+            for (EstoqueLojistaRepository.EstadoEstoque fracionado : fracionadosAlterados) {
+                estoqueLojistaRepository.redistribuirFracoes(fracionado.getId(), fracionado.getFracoes(),
+                        linhas.get(fracionado.getProdutoId()).quantidade());
+            }
+            if (!produtosNovos.isEmpty()) {
+                estoqueLojistaRepository.findEstadoByFarmaciaIdAndProdutoIdIn(farmaciaId, produtosNovos)
+                        .forEach(e -> estoqueIds.add(e.getId()));
+            }
+            eventPublisher.publishEvent(new EstoqueAlteradoEvent(estoqueIds,
+                    alteradas.stream().map(LinhaEstoque::produtoId).collect(Collectors.toSet())));
+            motorEstoque.invalidarAposCommit(farmaciaId, estoqueIds);
+        }
+        return new long[]{inseridos, atualizados, linhas.size() - alteradas.size()};
+    }
+}
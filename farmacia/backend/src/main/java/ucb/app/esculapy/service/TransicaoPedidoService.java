@@ -0,0 +1,119 @@
+package ucb.app.esculapy.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ucb.app.esculapy.event.PedidoStatusAlteradoEvent;
+import ucb.app.esculapy.exception.ConflictException;
+import ucb.app.esculapy.model.Pedido;
+import ucb.app.esculapy.model.enums.PedidoStatus;
+import ucb.app.esculapy.repository.PedidoRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Serviço que centraliza as transições de status dos pedidos.
+ * <p>
+ * Cada transição é validada pela tabela de {@link PedidoStatus} e gravada por um UPDATE condicional
+ * ({@code WHERE id = ? AND status = ?}): se outro fluxo (ex.: webhook de pagamento e cancelamento
+ * simultâneos) alterou o status depois da leitura, a transição perde a corrida em vez de sobrescrever
+ * o status. Toda transição efetivada publica um {@link PedidoStatusAlteradoEvent}.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransicaoPedidoService {
+
+    private final PedidoRepository pedidoRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Muda o status de um pedido, falhando se a transição não for permitida ou se o status
+     * tiver sido alterado por outro fluxo desde a leitura.
+     *
+     * @param pedido O pedido, com o status lido na transação atual.
+     * @param novoStatus O novo status.
+     * @throws ConflictException Se a transição não for permitida ou se outro fluxo alterou o status antes.
+     */
+    @Transactional
+    public void transicionar(Pedido pedido, PedidoStatus novoStatus) {
+        if (!tentarTransicionar(pedido, novoStatus)) {
+            throw new ConflictException("O pedido " + pedido.getId() + " foi alterado por outra operação. Consulte o status atual e tente novamente.");
+        }
+    }
+
+    /**
+     * Tenta mudar o status de um pedido, sem falhar quando outro fluxo já alterou o status.
+     * Em caso de sucesso, o status do objeto informado também é atualizado.
+     *
+     * @param pedido O pedido, com o status lido na transação atual.
+     * @param novoStatus O novo status.
+     * @return True se a transição foi efetivada, false se outro fluxo alterou o status antes.
+     * @throws ConflictException Se a transição não for permitida pela tabela de status.
+     */
+    @Transactional
+    public boolean tentarTransicionar(Pedido pedido, PedidoStatus novoStatus) {
+        PedidoStatus statusAnterior = pedido.getStatus();
+        validarTransicao(statusAnterior, novoStatus);
+
+        if (pedidoRepository.atualizarStatus(pedido.getId(), statusAnterior, novoStatus) == 0) {
+            return false;
+        }
+        pedido.setStatus(novoStatus);
+        eventPublisher.publishEvent(new PedidoStatusAlteradoEvent(
+                pedido.getId(), pedido.getFarmaciaId(), pedido.getCliente().getId(), statusAnterior, novoStatus));
+        return true;
+    }
+
+    /**
+     * Muda o status de um lote de pedidos que estejam em um dos status de origem, com um UPDATE
+     * condicional por status de origem. Pedidos em outros status são ignorados.
+     *
+     * @param pedidoIds Os IDs dos pedidos.
+     * @param statusOrigem Os status a partir dos quais a transição deve ser feita.
+     * @param novoStatus O novo status.
+     * @return Os IDs dos pedidos efetivamente alterados.
+     * @throws ConflictException Se a transição não for permitida a partir de algum dos status de origem.
+     */
+    @Transactional
+    public List<Long> transicionarEmLote(Collection<Long> pedidoIds, Collection<PedidoStatus> statusOrigem, PedidoStatus novoStatus) {
+        statusOrigem.forEach(origem -> validarTransicao(origem, novoStatus));
+
+        Map<PedidoStatus, List<PedidoRepository.SituacaoPedido>> porStatus = pedidoRepository.findSituacoesByIdIn(pedidoIds).stream()
+                .filter(situacao -> statusOrigem.contains(situacao.getStatus()))
+                .collect(Collectors.groupingBy(PedidoRepository.SituacaoPedido::getStatus));
+
+        List<Long> alterados = new ArrayList<>();
+        for (Map.Entry<PedidoStatus, List<PedidoRepository.SituacaoPedido>> grupo : porStatus.entrySet()) {
+            List<PedidoRepository.SituacaoPedido> situacoes = grupo.getValue();
+            List<Long> ids = situacoes.stream().map(PedidoRepository.SituacaoPedido::getId).toList();
+            int atualizados = pedidoRepository.atualizarStatusEmLote(ids, Set.of(grupo.getKey()), novoStatus);
+
+            if (atualizados < ids.size()) {
+                // Parte do grupo mudou de status entre a leitura e o UPDATE: relê para publicar só os alterados aqui.
+                Set<Long> alteradosAqui = pedidoRepository.findSituacoesByIdIn(ids).stream()
+                        .filter(situacao -> situacao.getStatus() == novoStatus)
+                        .map(PedidoRepository.SituacaoPedido::getId)
+                        .collect(Collectors.toSet());
+                situacoes = situacoes.stream().filter(situacao -> alteradosAqui.contains(situacao.getId())).toList();
+            }
+            for (PedidoRepository.SituacaoPedido situacao : situacoes) {
+                alterados.add(situacao.getId());
+                eventPublisher.publishEvent(new PedidoStatusAlteradoEvent(
+                        situacao.getId(), situacao.getFarmaciaId(), situacao.getClienteId(), grupo.getKey(), novoStatus));
+            }
+        }
+        return alterados;
+    }
+
+    private static void validarTransicao(PedidoStatus statusAnterior, PedidoStatus novoStatus) {
+        if (!statusAnterior.podeTransicionarPara(novoStatus)) {
+            throw new ConflictException("Transição de status inválida: " + statusAnterior + " -> " + novoStatus + ".");
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package ucb.app.esculapy.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ucb.app.esculapy.dto.PasswordUpdateRequest;
 import ucb.app.esculapy.dto.ProfileResponse;
 import ucb.app.esculapy.dto.ProfileUpdateRequest;
+import ucb.app.esculapy.event.UsuarioAlteradoEvent;
 import ucb.app.esculapy.exception.ConflictException;
 import ucb.app.esculapy.exception.ForbiddenException;
 import ucb.app.esculapy.exception.ResourceNotFoundException;
@@ -26,6 +28,7 @@ public class UserService {
     private final ClienteRepository clienteRepository;
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Obtém o perfil completo do cliente logado.
@@ -53,6 +56,7 @@ public class UserService {
         cliente.setNome(request.getNome());
         cliente.setNumeroCelular(request.getNumeroCelular());
         Cliente clienteSalvo = clienteRepository.save(cliente);
+        eventPublisher.publishEvent(new UsuarioAlteradoEvent(usuario.getId()));
 
         return new ProfileResponse(usuario, clienteSalvo);
     }
@@ -78,6 +82,7 @@ public class UserService {
 
         usuario.setSenha(passwordEncoder.encode(request.getNovaSenha()));
         usuarioRepository.save(usuario);
+        eventPublisher.publishEvent(new UsuarioAlteradoEvent(usuario.getId()));
     }
 
     /**
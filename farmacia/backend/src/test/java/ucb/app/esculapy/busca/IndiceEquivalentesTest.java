@@ -0,0 +1,75 @@
+package ucb.app.esculapy.busca;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import ucb.app.esculapy.event.ProdutoCatalogoAlteradoEvent;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.model.enums.TipoReceita;
+import ucb.app.esculapy.repository.ProdutoRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndiceEquivalentesTest {
+
+    private ProdutoRepository produtoRepository;
+    private IndiceEquivalentes indice;
+
+    @BeforeEach
+    void setUp() {
+        produtoRepository = mock(ProdutoRepository.class);
+        when(produtoRepository.findAllByAtivoTrue(any())).thenReturn(new PageImpl<>(List.of(
+                produto(1L, "Dipirona Sódica", TipoReceita.NAO_EXIGIDO),
+                produto(2L, "dipirona sodica", TipoReceita.NAO_EXIGIDO),
+                produto(3L, "DIPIRONA-SÓDICA", TipoReceita.NAO_EXIGIDO),
+                produto(4L, "Dipirona Sódica", TipoReceita.BRANCA_SIMPLES),
+                produto(5L, null, TipoReceita.NAO_EXIGIDO))));
+
+        indice = new IndiceEquivalentes(produtoRepository);
+        indice.construir();
+    }
+
+    @Test
+    @DisplayName("Deve agrupar pelo princípio ativo normalizado e pelo tipo de receita, sem o próprio produto")
+    void agrupaPorPrincipioAtivoETipoDeReceita() {
+        assertThat(indice.getEquivalentes(1L)).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(indice.getEquivalentes(4L)).isEmpty();
+        assertThat(indice.getEquivalentes(5L)).isEmpty();
+        assertThat(indice.getEquivalentes(99L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve mover o produto alterado de grupo e retirar o desativado")
+    void moveERetiraProdutos() {
+        when(produtoRepository.findById(4L)).thenReturn(Optional.of(produto(4L, "Dipirona sódica", TipoReceita.NAO_EXIGIDO)));
+        indice.onProdutoCatalogoAlterado(new ProdutoCatalogoAlteradoEvent(4L, true));
+        assertThat(indice.getEquivalentes(1L)).containsExactlyInAnyOrder(2L, 3L, 4L);
+
+        Produto inativo = produto(2L, "Dipirona Sódica", TipoReceita.NAO_EXIGIDO);
+        inativo.setAtivo(false);
+        when(produtoRepository.findById(2L)).thenReturn(Optional.of(inativo));
+        when(produtoRepository.findById(3L)).thenReturn(Optional.empty());
+        indice.onProdutoCatalogoAlterado(new ProdutoCatalogoAlteradoEvent(2L, true));
+        indice.onProdutoCatalogoAlterado(new ProdutoCatalogoAlteradoEvent(3L, true));
+
+        assertThat(indice.getEquivalentes(1L)).containsExactly(4L);
+        assertThat(indice.getEquivalentes(2L)).isEmpty();
+    }
+
+    private static Produto produto(Long id, String principioAtivo, TipoReceita tipoReceita) {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setNome("Produto " + id);
+        produto.setPrincipioAtivo(principioAtivo);
+        produto.setTipoReceita(tipoReceita);
+        produto.setAtivo(true);
+        return produto;
+    }
+}
@@ -0,0 +1,127 @@
+package ucb.app.esculapy.busca;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import ucb.app.esculapy.dto.CatalogoFacetadoResponse.ContagemFaceta;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
+import ucb.app.esculapy.event.ProdutoCatalogoAlteradoEvent;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.model.enums.TipoProduto;
+import ucb.app.esculapy.model.enums.TipoReceita;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository.OfertasPorProduto;
+import ucb.app.esculapy.repository.ProdutoRepository;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndiceFacetasTest {
+
+    private final Set<Long> comOferta = new HashSet<>(Set.of(1L, 2L));
+
+    private ProdutoRepository produtoRepository;
+    private IndiceFacetas indice;
+
+    @BeforeEach
+    void setUp() {
+        produtoRepository = mock(ProdutoRepository.class);
+        EstoqueLojistaRepository estoqueLojistaRepository = mock(EstoqueLojistaRepository.class);
+        when(estoqueLojistaRepository.contarOfertasDisponiveisPorProduto())
+                .thenAnswer(invocation -> contar(comOferta));
+        when(estoqueLojistaRepository.contarOfertasDisponiveisPorProduto(anyCollection()))
+                .thenAnswer(invocation -> contar(invocation.getArgument(0)));
+        when(produtoRepository.findAllByAtivoTrue(any())).thenReturn(new PageImpl<>(List.of(
+                produto(1L, TipoProduto.MEDICAMENTO, TipoReceita.NAO_EXIGIDO, "EMS"),
+                produto(2L, TipoProduto.MEDICAMENTO, TipoReceita.BRANCA_SIMPLES, "Eurofarma"),
+                produto(3L, TipoProduto.PERFUMARIA, TipoReceita.NAO_EXIGIDO, " ems. "),
+                produto(4L, TipoProduto.MEDICAMENTO, TipoReceita.NAO_EXIGIDO, null))));
+
+        indice = new IndiceFacetas(produtoRepository, estoqueLojistaRepository);
+        indice.construir();
+    }
+
+    @Test
+    @DisplayName("Deve filtrar pela interseção e contar cada faceta sem o filtro da própria faceta")
+    void filtraEContaFacetas() {
+        IndiceFacetas.Resultado resultado = indice.filtrar(
+                new IndiceFacetas.Filtro(TipoProduto.MEDICAMENTO, null, null, true), 0, 10);
+
+        assertThat(resultado.produtoIds()).containsExactly(1L, 2L);
+        assertThat(resultado.total()).isEqualTo(2);
+        assertThat(resultado.facetas().get(IndiceFacetas.FACETA_TIPO_PRODUTO))
+                .containsExactly(new ContagemFaceta("MEDICAMENTO", 2));
+        assertThat(resultado.facetas().get(IndiceFacetas.FACETA_TIPO_RECEITA))
+                .containsExactly(new ContagemFaceta("BRANCA_SIMPLES", 1), new ContagemFaceta("NAO_EXIGIDO", 1));
+        assertThat(resultado.facetas().get(IndiceFacetas.FACETA_LABORATORIO))
+                .containsExactly(new ContagemFaceta("EMS", 1), new ContagemFaceta("Eurofarma", 1));
+        assertThat(resultado.facetas().get(IndiceFacetas.FACETA_EM_ESTOQUE))
+                .containsExactly(new ContagemFaceta("true", 2), new ContagemFaceta("false", 1));
+    }
+
+    @Test
+    @DisplayName("Deve normalizar o laboratório e paginar em ordem de ID")
+    void normalizaLaboratorioEPagina() {
+        IndiceFacetas.Resultado porLaboratorio = indice.filtrar(new IndiceFacetas.Filtro(null, null, "Ems", null), 0, 10);
+        assertThat(porLaboratorio.produtoIds()).containsExactly(1L, 3L);
+
+        IndiceFacetas.Resultado pagina = indice.filtrar(new IndiceFacetas.Filtro(null, null, null, null), 1, 2);
+        assertThat(pagina.produtoIds()).containsExactly(2L, 3L);
+        assertThat(pagina.total()).isEqualTo(4);
+
+        assertThat(indice.filtrar(new IndiceFacetas.Filtro(TipoProduto.SUPLEMENTO, null, null, null), 0, 10).total()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve atualizar o estoque e retirar o produto desativado das facetas")
+    void atualizaEstoqueERetiraProdutos() {
+        comOferta.add(3L);
+        comOferta.remove(2L);
+        indice.onEstoqueAlterado(new EstoqueAlteradoEvent(Set.of(20L, 30L), Set.of(2L, 3L)));
+        assertThat(indice.filtrar(new IndiceFacetas.Filtro(null, null, null, true), 0, 10).produtoIds())
+                .containsExactly(1L, 3L);
+
+        when(produtoRepository.findById(1L)).thenReturn(Optional.empty());
+        when(produtoRepository.findById(3L)).thenReturn(Optional.empty());
+        indice.onProdutoCatalogoAlterado(new ProdutoCatalogoAlteradoEvent(1L, true));
+        indice.onProdutoCatalogoAlterado(new ProdutoCatalogoAlteradoEvent(3L, true));
+
+        IndiceFacetas.Resultado resultado = indice.filtrar(new IndiceFacetas.Filtro(null, null, null, null), 0, 10);
+        assertThat(resultado.produtoIds()).containsExactly(2L, 4L);
+        assertThat(resultado.facetas().get(IndiceFacetas.FACETA_LABORATORIO))
+                .containsExactly(new ContagemFaceta("Eurofarma", 1));
+        assertThat(resultado.facetas().get(IndiceFacetas.FACETA_EM_ESTOQUE))
+                .containsExactly(new ContagemFaceta("false", 2));
+    }
+
+    private List<OfertasPorProduto> contar(Collection<Long> produtoIds) {
+        return produtoIds.stream()
+                .filter(comOferta::contains)
+                .map(id -> (OfertasPorProduto) new OfertasPorProduto() {
+                    public Long getProdutoId() { return id; }
+                    public Long getOfertas() { return 1L; }
+                })
+                .toList();
+    }
+
+    private static Produto produto(Long id, TipoProduto tipoProduto, TipoReceita tipoReceita, String laboratorio) {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setNome("Produto " + id);
+        produto.setTipoProduto(tipoProduto);
+        produto.setTipoReceita(tipoReceita);
+        produto.setLaboratorio(laboratorio);
+        produto.setAtivo(true);
+        return produto;
+    }
+}
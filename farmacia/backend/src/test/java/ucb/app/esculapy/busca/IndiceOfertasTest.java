@@ -0,0 +1,158 @@
+package ucb.app.esculapy.busca;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
+import ucb.app.esculapy.event.ProdutoCatalogoAlteradoEvent;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository.OfertaResumo;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndiceOfertasTest {
+
+    private static final LocalDateTime INICIO = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    /** Os itens de estoque no banco, disponíveis ou não, por ID. */
+    private final TreeMap<Long, OfertaResumo> banco = new TreeMap<>();
+
+    /** Relógio das datas de atualização, avançado a cada gravação. */
+    private int segundos;
+
+    private EstoqueLojistaRepository repository;
+    private IndiceOfertas indice;
+
+    /**
+     * Monta o índice sobre um repositório falso que responde às consultas a partir de {@link #banco}.
+     */
+    @BeforeEach
+    void setUp() {
+        repository = mock(EstoqueLojistaRepository.class);
+        when(repository.findOfertasResumoAposId(anyLong(), any())).thenAnswer(invocation -> {
+            Long ultimoId = invocation.getArgument(0);
+            Pageable pagina = invocation.getArgument(1);
+            return banco.tailMap(ultimoId, false).values().stream()
+                    .filter(OfertaResumo::getDisponivel)
+                    .limit(pagina.getPageSize())
+                    .toList();
+        });
+        when(repository.findOfertasResumoByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return banco.values().stream().filter(o -> ids.contains(o.getId())).toList();
+        });
+        when(repository.findOfertasResumoByProdutoId(anyLong())).thenAnswer(invocation -> {
+            Long produtoId = invocation.getArgument(0);
+            return banco.values().stream().filter(o -> o.getProdutoId().equals(produtoId)).toList();
+        });
+
+        oferta(10L, 1L, 100L, "12.00");
+        oferta(11L, 1L, 101L, "9.50");
+        oferta(12L, 1L, 102L, "9.50");
+        oferta(20L, 2L, 100L, "7.00");
+        oferta(21L, 2L, 103L, "15.00");
+
+        indice = new IndiceOfertas(repository);
+        indice.construir();
+    }
+
+    @Test
+    @DisplayName("Deve paginar as ofertas de um produto por menor preço e depois por farmácia")
+    void paginaPorMenorPreco() {
+        assertThat(indice.getPagina(1L, 0, 2)).isEqualTo(new IndiceOfertas.Pagina(List.of(11L, 12L), 3));
+        assertThat(indice.getPagina(1L, 2, 2)).isEqualTo(new IndiceOfertas.Pagina(List.of(10L), 3));
+        assertThat(indice.getPagina(9L, 0, 2)).isEqualTo(new IndiceOfertas.Pagina(List.of(), 0));
+        assertThat(indice.getPagina(List.of(2L, 1L), 1, 3)).isEqualTo(new IndiceOfertas.Pagina(List.of(21L, 11L, 12L), 5));
+        assertThat(indice.getMenorPreco(1L)).isEqualByComparingTo("9.50");
+        assertThat(indice.getOfertasPorFarmacia(2L)).isEqualTo(Map.of(100L, 20L, 103L, 21L));
+    }
+
+    @Test
+    @DisplayName("Deve retornar as ofertas mais baratas entre produtos, abaixo do preço de referência")
+    void retornaMaisBaratasAbaixoDaReferencia() {
+        assertThat(indice.getOfertasMaisBaratas(Set.of(1L, 2L), new BigDecimal("12.00"), 10)).containsExactly(20L, 11L, 12L);
+        assertThat(indice.getOfertasMaisBaratas(Set.of(1L, 2L), null, 2)).containsExactly(20L, 11L);
+    }
+
+    @Test
+    @DisplayName("Deve reposicionar a oferta cujo preço mudou e remover a que ficou indisponível")
+    void atualizaAposAlteracaoDeEstoque() {
+        oferta(10L, 1L, 100L, "5.00");
+        indisponivel(11L);
+
+        indice.onEstoqueAlterado(new EstoqueAlteradoEvent(Set.of(10L, 11L), Set.of(1L)));
+
+        assertThat(indice.getPagina(1L, 0, 10)).isEqualTo(new IndiceOfertas.Pagina(List.of(10L, 12L), 2));
+        assertThat(indice.getMenorPreco(1L)).isEqualByComparingTo("5.00");
+    }
+
+    @Test
+    @DisplayName("Deve retirar e devolver as ofertas de um produto desativado e reativado")
+    void recarregaOfertasDoProduto() {
+        List<OfertaResumo> doProduto = List.of(banco.get(20L), banco.get(21L));
+        indisponivel(20L);
+        indisponivel(21L);
+        indice.onProdutoCatalogoAlterado(new ProdutoCatalogoAlteradoEvent(2L, true));
+        assertThat(indice.getMenorPreco(2L)).isNull();
+
+        doProduto.forEach(o -> oferta(o.getId(), o.getProdutoId(), o.getFarmaciaId(), o.getPreco().toPlainString()));
+        indice.onProdutoCatalogoAlterado(new ProdutoCatalogoAlteradoEvent(2L, false));
+        assertThat(indice.getMenorPreco(2L)).isNull();
+
+        indice.onProdutoCatalogoAlterado(new ProdutoCatalogoAlteradoEvent(2L, true));
+        assertThat(indice.getPagina(2L, 0, 10).estoqueIds()).containsExactly(20L, 21L);
+    }
+
+    @Test
+    @DisplayName("Deve descartar o estado lido antes de outro já aplicado, inclusive de um item excluído")
+    void descartaLeiturasForaDeOrdem() {
+        OfertaResumo antigo10 = banco.get(10L);
+        OfertaResumo antigo11 = banco.get(11L);
+        oferta(10L, 1L, 100L, "5.00");
+        banco.remove(11L);
+        indice.onEstoqueAlterado(new EstoqueAlteradoEvent(Set.of(10L, 11L), Set.of(1L)));
+
+        // Um listener que leu antes das alterações acima é aplicado só agora.
+        when(repository.findOfertasResumoByIdIn(anyCollection())).thenReturn(List.of(antigo10, antigo11));
+        indice.onEstoqueAlterado(new EstoqueAlteradoEvent(Set.of(10L, 11L), Set.of(1L)));
+
+        assertThat(indice.getPagina(1L, 0, 10)).isEqualTo(new IndiceOfertas.Pagina(List.of(10L, 12L), 2));
+        assertThat(indice.getMenorPreco(1L)).isEqualByComparingTo("5.00");
+    }
+
+    private void oferta(Long id, Long produtoId, Long farmaciaId, String preco) {
+        gravar(id, produtoId, farmaciaId, new BigDecimal(preco), true);
+    }
+
+    private void indisponivel(Long id) {
+        OfertaResumo atual = banco.get(id);
+        gravar(id, atual.getProdutoId(), atual.getFarmaciaId(), atual.getPreco(), false);
+    }
+
+    private void gravar(Long id, Long produtoId, Long farmaciaId, BigDecimal preco, boolean disponivel) {
+        LocalDateTime dataAtualizacao = INICIO.plusSeconds(++segundos);
+        banco.put(id, new OfertaResumo() {
+            public Long getId() { return id; }
+            public Long getProdutoId() { return produtoId; }
+            public Long getFarmaciaId() { return farmaciaId; }
+            public BigDecimal getPreco() { return preco; }
+            public Boolean getDisponivel() { return disponivel; }
+            public LocalDateTime getDataAtualizacao() { return dataAtualizacao; }
+            public LocalDateTime getDataAtualizacaoProduto() { return INICIO; }
+        });
+    }
+}
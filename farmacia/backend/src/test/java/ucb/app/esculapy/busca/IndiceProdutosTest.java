@@ -0,0 +1,98 @@
+package ucb.app.esculapy.busca;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.repository.ProdutoRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndiceProdutosTest {
+
+    private ProdutoRepository produtoRepository;
+    private IndiceProdutos indice;
+
+    @BeforeEach
+    void setUp() {
+        produtoRepository = mock(ProdutoRepository.class);
+        indice = new IndiceProdutos(produtoRepository);
+        ReflectionTestUtils.setField(indice, "maximoResultados", 500);
+    }
+
+    @Test
+    @DisplayName("Deve ranquear acima o produto com o termo no nome do que o com o termo só na descrição")
+    void ranqueiaPeloPesoDoCampo() {
+        indice.indexar(produto(1L, "Analgésico Genérico", null, "Contém dipirona monoidratada."));
+        indice.indexar(produto(2L, "Dipirona Sódica 500mg", "Dipirona", null));
+        indice.indexar(produto(3L, "Ibuprofeno 400mg", "Ibuprofeno", null));
+
+        assertThat(indice.buscar("DIPIRONA")).containsExactly(2L, 1L);
+    }
+
+    @Test
+    @DisplayName("Deve expandir o último termo por prefixo, com o termo exato à frente")
+    void expandePrefixoDoUltimoTermo() {
+        indice.indexar(produto(1L, "Paracetamol Dor", null, null));
+        indice.indexar(produto(2L, "Dorflex", null, null));
+        indice.indexar(produto(3L, "Dipirona", null, null));
+
+        assertThat(indice.buscar("dor")).containsExactly(1L, 2L);
+        assertThat(indice.buscar("dorf")).containsExactly(2L);
+        // Termos anteriores ao último só casam por inteiro.
+        assertThat(indice.buscar("par dor")).containsExactly(1L, 2L);
+        assertThat(indice.buscar("paracetamol dor")).first().isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Deve reindexar e remover produtos sem deixar termos antigos")
+    void reindexaERemove() {
+        indice.indexar(produto(1L, "Dipirona", null, null));
+        indice.indexar(produto(1L, "Novalgina", null, null));
+
+        assertThat(indice.buscar("dipirona")).isEmpty();
+        assertThat(indice.buscar("novalgina")).containsExactly(1L);
+
+        indice.remover(1L);
+        assertThat(indice.buscar("novalgina")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve manter o índice anterior nas buscas durante a reconstrução e reaplicar alterações concorrentes")
+    void reconstroiSemExporIndiceParcial() {
+        indice.indexar(produto(1L, "Dipirona", null, null));
+        indice.indexar(produto(2L, "Dorflex", null, null));
+
+        List<List<Long>> buscasDuranteACarga = new ArrayList<>();
+        when(produtoRepository.findAllByAtivoTrue(any())).thenAnswer(invocation -> {
+            buscasDuranteACarga.add(indice.buscar("dipirona"));
+            // Alterações confirmadas enquanto a carga lê uma versão anterior do catálogo.
+            indice.remover(2L);
+            indice.indexar(produto(3L, "Dipirona Gotas", null, null));
+            return new PageImpl<>(List.of(produto(1L, "Dipirona", null, null), produto(2L, "Dorflex", null, null)));
+        });
+
+        indice.construir();
+
+        assertThat(buscasDuranteACarga).containsExactly(List.of(1L));
+        assertThat(indice.buscar("dorflex")).isEmpty();
+        assertThat(indice.buscar("dipirona")).containsExactlyInAnyOrder(1L, 3L);
+    }
+
+    private static Produto produto(Long id, String nome, String principioAtivo, String descricao) {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setNome(nome);
+        produto.setPrincipioAtivo(principioAtivo);
+        produto.setDescricao(descricao);
+        return produto;
+    }
+}
@@ -0,0 +1,127 @@
+package ucb.app.esculapy.busca;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import ucb.app.esculapy.dto.SugestaoResponse;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
+import ucb.app.esculapy.event.ProdutoCatalogoAlteradoEvent;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository.OfertasPorProduto;
+import ucb.app.esculapy.repository.ProdutoRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndiceSugestoesTest {
+
+    private final Map<Long, Integer> ofertas = new HashMap<>();
+
+    private ProdutoRepository produtoRepository;
+    private IndiceSugestoes indice;
+
+    @BeforeEach
+    void setUp() {
+        produtoRepository = mock(ProdutoRepository.class);
+        EstoqueLojistaRepository estoqueLojistaRepository = mock(EstoqueLojistaRepository.class);
+        when(estoqueLojistaRepository.contarOfertasDisponiveisPorProduto())
+                .thenAnswer(invocation -> contar(ofertas.keySet()));
+        when(estoqueLojistaRepository.contarOfertasDisponiveisPorProduto(anyCollection()))
+                .thenAnswer(invocation -> contar(invocation.getArgument(0)));
+
+        ofertas.put(1L, 2);
+        ofertas.put(2L, 5);
+        ofertas.put(3L, 1);
+        when(produtoRepository.findAllByAtivoTrue(any())).thenReturn(new PageImpl<>(List.of(
+                produto(1L, "Dipirona Sódica 500mg", "Dipirona"),
+                produto(2L, "Dorflex", "Dipirona"),
+                produto(3L, "Dorônio", null))));
+
+        indice = new IndiceSugestoes(produtoRepository, estoqueLojistaRepository);
+        indice.construir();
+    }
+
+    @Test
+    @DisplayName("Deve sugerir por prefixo de qualquer palavra, ignorando acentos, das mais ofertadas para as menos")
+    void sugerePorPrefixoDeQualquerPalavra() {
+        assertThat(textos(indice.sugerir("DOR", 10))).containsExactly("Dorflex", "Dorônio");
+        assertThat(textos(indice.sugerir("sod", 10))).containsExactly("Dipirona Sódica 500mg");
+        assertThat(indice.sugerir("xarope", 10)).isEmpty();
+        assertThat(indice.sugerir("  ", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve sugerir o princípio ativo com a soma das ofertas dos seus produtos")
+    void sugerePrincipioAtivo() {
+        List<SugestaoResponse> sugestoes = indice.sugerir("dip", 10);
+
+        assertThat(sugestoes).extracting(SugestaoResponse::getTipo).containsExactly("PRINCIPIO_ATIVO", "PRODUTO");
+        assertThat(sugestoes.get(0).getOfertas()).isEqualTo(7);
+        assertThat(sugestoes.get(0).getProdutoId()).isNull();
+        assertThat(indice.sugerir("dip", 1)).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("Deve reordenar as sugestões quando o estoque muda")
+    void reordenaAoMudarOEstoque() {
+        indice.sugerir("dor", 10);
+
+        ofertas.put(3L, 9);
+        indice.onEstoqueAlterado(new EstoqueAlteradoEvent(Set.of(30L), Set.of(3L)));
+
+        assertThat(textos(indice.sugerir("dor", 10))).containsExactly("Dorônio", "Dorflex");
+        assertThat(indice.sugerir("dip", 10).get(0).getOfertas()).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("Deve renomear e remover produtos, descartando o princípio ativo sem produtos")
+    void atualizaERemoveProdutos() {
+        indice.sugerir("dor", 10);
+
+        when(produtoRepository.findById(2L)).thenReturn(Optional.of(produto(2L, "Neosaldina", "Dipirona")));
+        indice.onProdutoCatalogoAlterado(new ProdutoCatalogoAlteradoEvent(2L, true));
+        assertThat(textos(indice.sugerir("dor", 10))).containsExactly("Dorônio");
+        assertThat(textos(indice.sugerir("neo", 10))).containsExactly("Neosaldina");
+
+        when(produtoRepository.findById(1L)).thenReturn(Optional.empty());
+        when(produtoRepository.findById(2L)).thenReturn(Optional.empty());
+        indice.onProdutoCatalogoAlterado(new ProdutoCatalogoAlteradoEvent(1L, true));
+        indice.onProdutoCatalogoAlterado(new ProdutoCatalogoAlteradoEvent(2L, true));
+        assertThat(indice.sugerir("dip", 10)).isEmpty();
+    }
+
+    private List<OfertasPorProduto> contar(Collection<Long> produtoIds) {
+        return produtoIds.stream()
+                .filter(ofertas::containsKey)
+                .map(id -> (OfertasPorProduto) new OfertasPorProduto() {
+                    public Long getProdutoId() { return id; }
+                    public Long getOfertas() { return ofertas.get(id).longValue(); }
+                })
+                .toList();
+    }
+
+    private static List<String> textos(List<SugestaoResponse> sugestoes) {
+        return sugestoes.stream().map(SugestaoResponse::getTexto).toList();
+    }
+
+    private static Produto produto(Long id, String nome, String principioAtivo) {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setNome(nome);
+        produto.setPrincipioAtivo(principioAtivo);
+        produto.setAtivo(true);
+        return produto;
+    }
+}
@@ -0,0 +1,80 @@
+package ucb.app.esculapy.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ucb.app.esculapy.dto.CacheEstatisticasResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheLocalTest {
+
+    @Test
+    @DisplayName("Deve carregar na falta, servir do cache no acerto e não guardar valores nulos")
+    void carregaUmaVezPorChave() {
+        CacheLocal<Long, String> cache = new CacheLocal<>("teste", 10, Duration.ofMinutes(1));
+        AtomicInteger cargas = new AtomicInteger();
+
+        assertThat(cache.get(1L, id -> "produto-" + cargas.incrementAndGet())).isEqualTo("produto-1");
+        assertThat(cache.get(1L, id -> "produto-" + cargas.incrementAndGet())).isEqualTo("produto-1");
+        assertThat(cache.get(2L, id -> null)).isNull();
+        assertThat(cache.getSePresente(2L)).isNull();
+
+        CacheEstatisticasResponse estatisticas = cache.getEstatisticas();
+        assertThat(cargas).hasValue(1);
+        assertThat(estatisticas.getTamanho()).isEqualTo(1);
+        assertThat(estatisticas.getAcertos()).isEqualTo(1);
+        assertThat(estatisticas.getFaltas()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve remover a entrada menos usada recentemente ao exceder o tamanho máximo")
+    void removeMenosUsadaRecentemente() {
+        CacheLocal<Long, String> cache = new CacheLocal<>("teste", 2, Duration.ofMinutes(1));
+        cache.put(1L, "um");
+        cache.put(2L, "dois");
+        cache.getSePresente(1L);
+        cache.put(3L, "três");
+
+        assertThat(cache.getSePresente(1L)).isEqualTo("um");
+        assertThat(cache.getSePresente(2L)).isNull();
+        assertThat(cache.getSePresente(3L)).isEqualTo("três");
+        assertThat(cache.getEstatisticas().getRemocoes()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve descartar a entrada vencida e carregá-la de novo")
+    void expiraPeloTempoDeVida() throws InterruptedException {
+        CacheLocal<Long, String> cache = new CacheLocal<>("teste", 10, Duration.ofMillis(20));
+        cache.put(1L, "antigo");
+
+        Thread.sleep(40);
+
+        assertThat(cache.getSePresente(1L)).isNull();
+        assertThat(cache.get(1L, id -> "novo")).isEqualTo("novo");
+        assertThat(cache.getEstatisticas().getRemocoes()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve invalidar pelo valor e não guardar um carregamento que cruzou a invalidação")
+    void invalidaPeloValor() {
+        CacheLocal<Long, String> cache = new CacheLocal<>("teste", 10, Duration.ofMinutes(1));
+        cache.put(1L, "farmacia-7");
+        cache.put(2L, "farmacia-8");
+
+        cache.invalidarSe(valor -> valor.endsWith("-7"));
+        assertThat(cache.getSePresente(1L)).isNull();
+        assertThat(cache.getSePresente(2L)).isEqualTo("farmacia-8");
+
+        // Uma alteração confirmada durante a leitura da origem: o valor lido pode estar velho.
+        String lido = cache.get(3L, id -> {
+            cache.invalidarSe(valor -> valor.endsWith("-8"));
+            return "farmacia-9";
+        });
+        assertThat(lido).isEqualTo("farmacia-9");
+        assertThat(cache.getSePresente(3L)).isNull();
+        assertThat(cache.getSePresente(2L)).isNull();
+    }
+}
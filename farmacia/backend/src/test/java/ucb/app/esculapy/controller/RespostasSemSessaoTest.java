@@ -0,0 +1,343 @@
+package ucb.app.esculapy.controller;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionTemplate;
+import ucb.app.esculapy.busca.IndiceEquivalentes;
+import ucb.app.esculapy.busca.IndiceFacetas;
+import ucb.app.esculapy.busca.IndiceOfertas;
+import ucb.app.esculapy.busca.IndiceProdutos;
+import ucb.app.esculapy.busca.IndiceSugestoes;
+import ucb.app.esculapy.cache.CatalogoCache;
+import ucb.app.esculapy.dto.PedidoResumoResponse;
+import ucb.app.esculapy.estoque.MotorEstoque;
+import ucb.app.esculapy.geo.CentroidesCep;
+import ucb.app.esculapy.geo.IndiceGeografico;
+import ucb.app.esculapy.model.Cliente;
+import ucb.app.esculapy.model.ContaBancaria;
+import ucb.app.esculapy.model.Endereco;
+import ucb.app.esculapy.model.EstoqueLojista;
+import ucb.app.esculapy.model.Farmaceutico;
+import ucb.app.esculapy.model.Farmacia;
+import ucb.app.esculapy.model.ItemPedido;
+import ucb.app.esculapy.model.Pedido;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.model.Role;
+import ucb.app.esculapy.model.Usuario;
+import ucb.app.esculapy.model.enums.LojistaStatus;
+import ucb.app.esculapy.model.enums.PedidoStatus;
+import ucb.app.esculapy.outbox.RelayOutbox;
+import ucb.app.esculapy.repository.EnderecoRepository;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.ExclusaoExportacaoRepository;
+import ucb.app.esculapy.repository.FarmaceuticoRepository;
+import ucb.app.esculapy.repository.FarmaciaRepository;
+import ucb.app.esculapy.repository.PedidoRepository;
+import ucb.app.esculapy.repository.ProdutoRepository;
+import ucb.app.esculapy.repository.ReceitaRepository;
+import ucb.app.esculapy.repository.RoleRepository;
+import ucb.app.esculapy.repository.UsuarioRepository;
+import ucb.app.esculapy.service.AdminService;
+import ucb.app.esculapy.service.AuthenticationService;
+import ucb.app.esculapy.service.CatalogoService;
+import ucb.app.esculapy.service.ExportacaoService;
+import ucb.app.esculapy.service.FarmaciaService;
+import ucb.app.esculapy.service.NotificacaoPedidoService;
+import ucb.app.esculapy.service.PedidoService;
+import ucb.app.esculapy.service.ReservaEstoqueService;
+import ucb.app.esculapy.service.SincronizacaoEstoqueService;
+import ucb.app.esculapy.service.StorageService;
+import ucb.app.esculapy.service.TransicaoPedidoService;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Garante que as leituras dos controllers funcionam sem open-session-in-view: os serviços reais rodam
+ * com a sessão aberta (como na transação) e a resposta é serializada depois de ela fechar. As entidades
+ * devolvidas pelos repositórios trazem as associações LAZY como proxies não inicializados do Hibernate,
+ * e o principal vem como referência de {@code getReferenceById}; qualquer carregamento durante a
+ * serialização falha com {@link LazyInitializationException}.
+ */
+class RespostasSemSessaoTest {
+
+    private static final Long FARMACIA_ID = 1L;
+
+    private final SessaoSimulada sessao = new SessaoSimulada();
+
+    private final EstoqueLojistaRepository estoqueLojistaRepository = mock(EstoqueLojistaRepository.class);
+    private final FarmaciaRepository farmaciaRepository = mock(FarmaciaRepository.class);
+    private final FarmaceuticoRepository farmaceuticoRepository = mock(FarmaceuticoRepository.class);
+    private final UsuarioRepository usuarioRepository = mock(UsuarioRepository.class);
+    private final PedidoRepository pedidoRepository = mock(PedidoRepository.class);
+    private final AuthenticationService authenticationService = mock(AuthenticationService.class);
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        IndiceGeografico indiceGeografico = mock(IndiceGeografico.class);
+        MotorEstoque motorEstoque = mock(MotorEstoque.class);
+
+        CatalogoService catalogoService = sessao.transacional(new CatalogoService(mock(ProdutoRepository.class),
+                estoqueLojistaRepository, farmaciaRepository, mock(ExclusaoExportacaoRepository.class), authenticationService,
+                mock(CatalogoCache.class), eventPublisher, mock(IndiceProdutos.class), mock(IndiceSugestoes.class),
+                mock(IndiceOfertas.class), mock(IndiceEquivalentes.class), mock(IndiceFacetas.class), indiceGeografico,
+                motorEstoque));
+        FarmaciaService farmaciaService = sessao.transacional(new FarmaciaService(usuarioRepository, farmaceuticoRepository,
+                farmaciaRepository, mock(RoleRepository.class), mock(PasswordEncoder.class), authenticationService,
+                eventPublisher, mock(CentroidesCep.class), indiceGeografico));
+        AdminService adminService = sessao.transacional(new AdminService(farmaciaRepository, usuarioRepository, eventPublisher));
+        PedidoService pedidoService = sessao.transacional(new PedidoService(pedidoRepository, estoqueLojistaRepository,
+                mock(ReceitaRepository.class), mock(EnderecoRepository.class), authenticationService, mock(StorageService.class),
+                mock(ReservaEstoqueService.class), mock(TransicaoPedidoService.class), motorEstoque,
+                mock(TransactionTemplate.class), eventPublisher));
+        NotificacaoPedidoService notificacaoPedidoService = mock(NotificacaoPedidoService.class);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                        new EstoqueController(catalogoService, mock(ExportacaoService.class)),
+                        new AdminController(adminService, mock(RelayOutbox.class)),
+                        new FarmaciaAdminController(farmaciaService, catalogoService, pedidoService,
+                                notificacaoPedidoService, mock(SincronizacaoEstoqueService.class)),
+                        new FarmaceuticoController(pedidoService, notificacaoPedidoService))
+                .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
+                .build();
+
+        when(authenticationService.getFarmaciaAdminLogada())
+                .thenAnswer(invocation -> sessao.referencia(Farmacia.class, FARMACIA_ID, farmacia()));
+        when(authenticationService.getFarmaceuticoLogado())
+                .thenAnswer(invocation -> sessao.referencia(Farmaceutico.class, 5L, farmaceutico()));
+    }
+
+    @Test
+    @DisplayName("Deve serializar o estoque público sem carregar a farmácia nem o produto")
+    void estoquePublico() throws Exception {
+        when(farmaciaRepository.existsById(FARMACIA_ID)).thenReturn(true);
+        when(estoqueLojistaRepository.findPublicoByFarmaciaId(eq(FARMACIA_ID), any()))
+                .thenAnswer(invocation -> pagina(estoque()));
+        when(estoqueLojistaRepository.findPublicoByFarmaciaIdAposId(eq(FARMACIA_ID), any(), any()))
+                .thenAnswer(invocation -> fatia(estoque()));
+        when(estoqueLojistaRepository.findPublicoById(10L)).thenAnswer(invocation -> Optional.of(estoque()));
+
+        mockMvc.perform(get("/api/estoque/farmacia/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].produtoId").value(3));
+        mockMvc.perform(get("/api/estoque/farmacia/1/cursor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].id").value(10));
+        mockMvc.perform(get("/api/estoque/10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.produtoId").value(3));
+
+        assertThat(sessao.getCarregadas()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve serializar as farmácias e o usuário do admin sem carregar as associações")
+    void leiturasDoAdmin() throws Exception {
+        when(farmaciaRepository.findByStatus(eq(LojistaStatus.ATIVO), any()))
+                .thenAnswer(invocation -> pagina(farmacia()));
+        when(usuarioRepository.findByEmail("admin@farmacia.com")).thenAnswer(invocation -> Optional.of(usuario()));
+
+        mockMvc.perform(get("/api/admin/farmacias").param("status", "ativo"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].nomeFantasia").value("Farmácia Central"));
+        mockMvc.perform(get("/api/admin/usuarios/buscar").param("email", "admin@farmacia.com"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.roles[0].nome").value("ROLE_LOJISTA_ADMIN"));
+
+        assertThat(sessao.getCarregadas()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve carregar a farmácia do principal dentro do serviço e serializar as leituras do lojista")
+    void leiturasDoLojista() throws Exception {
+        when(farmaceuticoRepository.findAllByFarmaciaId(eq(FARMACIA_ID), any()))
+                .thenAnswer(invocation -> pagina(farmaceutico()));
+        when(estoqueLojistaRepository.findByFarmaciaId(eq(FARMACIA_ID), any()))
+                .thenAnswer(invocation -> pagina(estoque()));
+        when(estoqueLojistaRepository.findByFarmaciaIdAposId(eq(FARMACIA_ID), any(), any()))
+                .thenAnswer(invocation -> fatia(estoque()));
+        when(pedidoRepository.findResumosByFarmaciaId(eq(FARMACIA_ID), any()))
+                .thenAnswer(invocation -> pagina(resumo()));
+
+        mockMvc.perform(get("/api/farmacia-admin/farmaceuticos"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].nome").value("Farmacêutico"));
+        mockMvc.perform(get("/api/farmacia-admin/estoque"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].produtoId").value(3));
+        mockMvc.perform(get("/api/farmacia-admin/estoque/cursor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].id").value(10));
+        mockMvc.perform(get("/api/farmacia-admin/pedidos"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].id").value(42));
+        // As leituras acima só usam o ID do principal, que a referência conhece sem carregar.
+        assertThat(sessao.getCarregadas()).isEmpty();
+
+        mockMvc.perform(get("/api/farmacia-admin/minha-farmacia"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.nomeFantasia").value("Farmácia Central"));
+        assertThat(sessao.getCarregadas()).containsExactly(Farmacia.class.getName() + "#" + FARMACIA_ID);
+    }
+
+    @Test
+    @DisplayName("Deve carregar o farmacêutico do principal dentro do serviço e serializar os pedidos")
+    void leiturasDoFarmaceutico() throws Exception {
+        when(pedidoRepository.findResumosPorStatusEFarmacia(eq(PedidoStatus.AGUARDANDO_PAGAMENTO), eq(FARMACIA_ID), any()))
+                .thenAnswer(invocation -> pagina(resumo()));
+        when(pedidoRepository.findResumosPorStatusEFarmaciaAntesDe(
+                eq(PedidoStatus.AGUARDANDO_PAGAMENTO), eq(FARMACIA_ID), any(), any(), any()))
+                .thenAnswer(invocation -> fatia(resumo()));
+        when(pedidoRepository.findDetalheById(42L)).thenAnswer(invocation -> Optional.of(pedido()));
+
+        mockMvc.perform(get("/api/farmaceutico/pedidos/pendentes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].id").value(42));
+        mockMvc.perform(get("/api/farmaceutico/pedidos/pendentes/cursor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.content[0].id").value(42));
+        mockMvc.perform(get("/api/farmaceutico/pedidos/42"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.itens[0].produtoNome").value("Dipirona"));
+
+        assertThat(sessao.getCarregadas()).containsOnly(Farmaceutico.class.getName() + "#5");
+    }
+
+    @Test
+    @DisplayName("Deve falhar ao serializar, depois da transação, uma referência do principal não carregada")
+    void referenciaForaDaSessaoFalha() {
+        Farmacia referencia = sessao.referencia(Farmacia.class, FARMACIA_ID, farmacia());
+
+        JsonMappingException erro = assertThrows(JsonMappingException.class,
+                () -> new ObjectMapper().findAndRegisterModules().writeValueAsString(referencia));
+        assertThat(erro).hasRootCauseInstanceOf(LazyInitializationException.class);
+    }
+
+    private Farmacia farmacia() {
+        Farmacia farmacia = new Farmacia();
+        farmacia.setId(FARMACIA_ID);
+        farmacia.setCnpj("12345678000190");
+        farmacia.setRazaoSocial("Farmácia Central Ltda");
+        farmacia.setNomeFantasia("Farmácia Central");
+        farmacia.setStatus(LojistaStatus.ATIVO);
+        farmacia.setUsuarioAdmin(sessao.referencia(Usuario.class, 2L));
+        farmacia.setEnderecoComercial(sessao.referencia(Endereco.class, 3L));
+        farmacia.setContaBancaria(sessao.referencia(ContaBancaria.class, 4L));
+        farmacia.setFarmaceuticos(sessao.colecao());
+        farmacia.setEstoques(sessao.colecao());
+        return farmacia;
+    }
+
+    private Farmaceutico farmaceutico() {
+        Farmaceutico farmaceutico = new Farmaceutico();
+        farmaceutico.setId(5L);
+        farmaceutico.setNome("Farmacêutico");
+        farmaceutico.setUsuario(sessao.referencia(Usuario.class, 6L));
+        farmaceutico.setFarmacia(sessao.referencia(Farmacia.class, FARMACIA_ID));
+        return farmaceutico;
+    }
+
+    private Usuario usuario() {
+        Role role = new Role();
+        role.setId(1L);
+        role.setNome("ROLE_LOJISTA_ADMIN");
+        Usuario usuario = new Usuario();
+        usuario.setId(2L);
+        usuario.setEmail("admin@farmacia.com");
+        usuario.setRoles(Set.of(role));
+        // Os setters dos perfis ajustam o lado inverso, o que carregaria as referências.
+        ReflectionTestUtils.setField(usuario, "cliente", sessao.referencia(Cliente.class, 7L));
+        ReflectionTestUtils.setField(usuario, "farmaciaAdmin", sessao.referencia(Farmacia.class, FARMACIA_ID));
+        ReflectionTestUtils.setField(usuario, "farmaceutico", sessao.referencia(Farmaceutico.class, 5L));
+        return usuario;
+    }
+
+    private EstoqueLojista estoque() {
+        EstoqueLojista estoque = new EstoqueLojista();
+        estoque.setId(10L);
+        estoque.setFarmacia(sessao.referencia(Farmacia.class, FARMACIA_ID));
+        estoque.setProduto(sessao.referencia(Produto.class, 3L));
+        estoque.setPreco(new BigDecimal("4.50"));
+        estoque.setQuantidade(8);
+        estoque.setDataAtualizacao(LocalDateTime.of(2024, 1, 1, 0, 0));
+        return estoque;
+    }
+
+    /**
+     * Pedido como devolvido por {@code findDetalheById}: cliente, itens, estoque e produto carregados
+     * pela consulta; farmácia, receita e endereço de entrega como referências.
+     */
+    private Pedido pedido() {
+        Cliente cliente = new Cliente();
+        cliente.setId(7L);
+        cliente.setNome("Cliente");
+        cliente.setUsuario(sessao.referencia(Usuario.class, 8L));
+        cliente.setEnderecos(sessao.colecao());
+        cliente.setPedidos(sessao.colecao());
+
+        Produto produto = new Produto();
+        produto.setId(3L);
+        produto.setNome("Dipirona");
+        EstoqueLojista estoque = estoque();
+        estoque.setProduto(produto);
+
+        Pedido pedido = new Pedido();
+        pedido.setId(42L);
+        pedido.setCliente(cliente);
+        pedido.setFarmacia(sessao.referencia(Farmacia.class, FARMACIA_ID));
+        pedido.setStatus(PedidoStatus.AGUARDANDO_PAGAMENTO);
+        pedido.setValorTotal(new BigDecimal("9.00"));
+        ItemPedido item = new ItemPedido();
+        item.setId(11L);
+        item.setPedido(pedido);
+        item.setEstoqueLojista(estoque);
+        item.setQuantidade(2);
+        item.setPrecoUnitario(new BigDecimal("4.50"));
+        pedido.setItens(List.of(item));
+        return pedido;
+    }
+
+    private static PedidoResumoResponse resumo() {
+        return new PedidoResumoResponse(42L, PedidoStatus.AGUARDANDO_PAGAMENTO, new BigDecimal("9.00"),
+                LocalDateTime.of(2024, 1, 1, 0, 0), FARMACIA_ID, 7L, "Cliente", 1L, null);
+    }
+
+    private static <T> Page<T> pagina(T elemento) {
+        return new PageImpl<>(List.of(elemento), PageRequest.of(0, 20), 1);
+    }
+
+    private static <T> Slice<T> fatia(T elemento) {
+        return new SliceImpl<>(List.of(elemento), PageRequest.of(0, 20), false);
+    }
+}
@@ -0,0 +1,121 @@
+package ucb.app.esculapy.controller;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.hibernate.bytecode.internal.bytebuddy.BytecodeProviderImpl;
+import org.hibernate.collection.spi.PersistentBag;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.jpa.spi.JpaCompliance;
+import org.hibernate.proxy.HibernateProxy;
+import org.hibernate.proxy.pojo.bytebuddy.ByteBuddyProxyFactory;
+import org.mockito.MockMakers;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Sessão do Hibernate simulada, sem banco, para verificar onde as associações LAZY são carregadas.
+ * As referências e coleções criadas aqui são proxies reais do Hibernate ligados a esta sessão: carregam
+ * a entidade registrada enquanto a sessão está aberta (dentro de um serviço envolvido por
+ * {@link #transacional}) e falham com {@link org.hibernate.LazyInitializationException} depois, como
+ * acontece com o open-session-in-view desligado quando a serialização da resposta toca uma associação.
+ */
+final class SessaoSimulada {
+
+    private static final BytecodeProviderImpl BYTECODE = new BytecodeProviderImpl();
+
+    private final SharedSessionContractImplementor sessao = mock(SharedSessionContractImplementor.class);
+    private final Map<String, Object> entidades = new HashMap<>();
+    private final List<String> carregadas = new ArrayList<>();
+    private boolean aberta;
+
+    SessaoSimulada() {
+        when(sessao.isOpen()).thenAnswer(invocation -> aberta);
+        when(sessao.isOpenOrWaitingForAutoClose()).thenAnswer(invocation -> aberta);
+        when(sessao.isConnected()).thenAnswer(invocation -> aberta);
+        when(sessao.isTransactionInProgress()).thenReturn(true);
+        // Fábrica sem carregamento fora de transação (hibernate.enable_lazy_load_no_trans=false, o padrão).
+        SessionFactoryImplementor fabrica = mock(SessionFactoryImplementor.class, withSettings().mockMaker(MockMakers.PROXY));
+        SessionFactoryOptions opcoes = mock(SessionFactoryOptions.class, withSettings().mockMaker(MockMakers.PROXY));
+        when(sessao.getFactory()).thenReturn(fabrica);
+        when(fabrica.getSessionFactoryOptions()).thenReturn(opcoes);
+        when(opcoes.getJpaCompliance()).thenReturn(mock(JpaCompliance.class, withSettings().mockMaker(MockMakers.PROXY)));
+        when(sessao.immediateLoad(anyString(), any())).thenAnswer(invocation -> {
+            String chave = invocation.getArgument(0) + "#" + invocation.getArgument(1);
+            carregadas.add(chave);
+            return entidades.get(chave);
+        });
+    }
+
+    /**
+     * Cria uma referência não inicializada (como a de {@code getReferenceById} ou de uma associação LAZY)
+     * para uma entidade com apenas o ID preenchido.
+     */
+    <T> T referencia(Class<T> tipo, Long id) {
+        T entidade = BeanUtils.instantiateClass(tipo);
+        ReflectionTestUtils.setField(entidade, "id", id);
+        return referencia(tipo, id, entidade);
+    }
+
+    /**
+     * Cria uma referência não inicializada que, carregada dentro da sessão, devolve a entidade informada.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T referencia(Class<T> tipo, Long id, T entidade) {
+        entidades.put(tipo.getName() + "#" + id, entidade);
+        ByteBuddyProxyFactory fabrica = new ByteBuddyProxyFactory(BYTECODE.getByteBuddyProxyHelper());
+        fabrica.postInstantiate(tipo.getName(), tipo, Set.of(HibernateProxy.class),
+                ReflectionUtils.findMethod(tipo, "getId"), ReflectionUtils.findMethod(tipo, "setId", Long.class), null);
+        // Criado sem sessão e ligado a ela depois: a associação pelo Hibernate consultaria os metadados da fábrica.
+        HibernateProxy proxy = fabrica.getProxy(id, null);
+        ReflectionTestUtils.setField(proxy.getHibernateLazyInitializer(), "session", sessao);
+        return (T) proxy;
+    }
+
+    /**
+     * Cria uma coleção LAZY não inicializada.
+     */
+    <E> List<E> colecao() {
+        return new PersistentBag<>(sessao);
+    }
+
+    /**
+     * Envolve um serviço de modo que a sessão fique aberta apenas durante as chamadas aos seus
+     * métodos, como a transação aberta por {@code @Transactional}.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T transacional(T servico) {
+        ProxyFactory fabrica = new ProxyFactory(servico);
+        fabrica.setProxyTargetClass(true);
+        fabrica.addAdvice((MethodInterceptor) invocacao -> {
+            aberta = true;
+            try {
+                return invocacao.proceed();
+            } finally {
+                aberta = false;
+            }
+        });
+        return (T) fabrica.getProxy();
+    }
+
+    /**
+     * As entidades carregadas pelas referências, como "nome da entidade#ID".
+     */
+    List<String> getCarregadas() {
+        return carregadas;
+    }
+}
@@ -0,0 +1,81 @@
+package ucb.app.esculapy.dto;
+
+import org.hibernate.LazyInitializationException;
+import org.hibernate.collection.spi.PersistentBag;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ucb.app.esculapy.model.Cliente;
+import ucb.app.esculapy.model.EstoqueLojista;
+import ucb.app.esculapy.model.Farmacia;
+import ucb.app.esculapy.model.ItemPedido;
+import ucb.app.esculapy.model.Pedido;
+import ucb.app.esculapy.model.Produto;
+import ucb.app.esculapy.model.enums.PedidoStatus;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Garante que o DTO de detalhe do pedido não esconde um carregamento preguiçoso: montado fora de
+ * uma sessão, a partir de um pedido cujos itens não foram carregados, ele falha com
+ * {@link LazyInitializationException} em vez de disparar consultas depois da transação.
+ */
+class PedidoDetalheResponseTest {
+
+    @Test
+    @DisplayName("Deve falhar ao mapear, fora da sessão, um pedido com os itens não carregados")
+    void falhaComItensNaoCarregados() {
+        Pedido pedido = pedido();
+        pedido.setItens(new PersistentBag<>((SharedSessionContractImplementor) null));
+
+        assertThrows(LazyInitializationException.class, () -> new PedidoDetalheResponse(pedido));
+    }
+
+    @Test
+    @DisplayName("Deve mapear um pedido com as associações do detalhe já carregadas")
+    void mapeiaPedidoCarregado() {
+        Produto produto = new Produto();
+        produto.setId(3L);
+        produto.setNome("Dipirona");
+
+        EstoqueLojista estoque = new EstoqueLojista();
+        estoque.setId(7L);
+        estoque.setProduto(produto);
+
+        Pedido pedido = pedido();
+        ItemPedido item = new ItemPedido();
+        item.setPedido(pedido);
+        item.setEstoqueLojista(estoque);
+        item.setQuantidade(2);
+        item.setPrecoUnitario(new BigDecimal("4.50"));
+        pedido.setItens(List.of(item));
+
+        PedidoDetalheResponse response = new PedidoDetalheResponse(pedido);
+
+        assertThat(response.getFarmaciaId()).isEqualTo(1L);
+        assertThat(response.getItens()).singleElement().satisfies(i -> {
+            assertThat(i.getProdutoNome()).isEqualTo("Dipirona");
+            assertThat(i.getSubtotal()).isEqualByComparingTo("9.00");
+        });
+    }
+
+    private static Pedido pedido() {
+        Cliente cliente = new Cliente();
+        cliente.setId(1L);
+        cliente.setNome("Cliente");
+        Farmacia farmacia = new Farmacia();
+        farmacia.setId(1L);
+
+        Pedido pedido = new Pedido();
+        pedido.setId(42L);
+        pedido.setCliente(cliente);
+        pedido.setFarmacia(farmacia);
+        pedido.setStatus(PedidoStatus.AGUARDANDO_PAGAMENTO);
+        pedido.setValorTotal(new BigDecimal("9.00"));
+        return pedido;
+    }
+}
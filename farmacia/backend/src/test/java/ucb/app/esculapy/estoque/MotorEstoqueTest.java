@@ -0,0 +1,207 @@
+package ucb.app.esculapy.estoque;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ucb.app.esculapy.exception.ConflictException;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository.SaldoEstoque;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MotorEstoqueTest {
+
+    private static final Long FARMACIA_ID = 1L;
+
+    private final Map<Long, Integer> banco = new ConcurrentHashMap<>();
+    private final List<Map<Long, Integer>> gravacoes = new ArrayList<>();
+    private final AtomicInteger tentativas = new AtomicInteger();
+    private volatile CountDownLatch liberarGravacao;
+
+    private MotorEstoque motorEstoque;
+
+    /**
+     * Monta o motor sobre um repositório falso: um mapa de quantidades que aplica as variações
+     * de um lote inteiro ou, se alguma falhar, nenhuma (como o rollback da transação do motor).
+     * Como no repositório real, só variações negativas falham (item ausente ou sem quantidade);
+     * um estorno de item ausente do mapa é ignorado, como o que segue pelas frações.
+     */
+    @BeforeEach
+    void setUp() {
+        EstoqueLojistaRepository repository = mock(EstoqueLojistaRepository.class);
+        when(repository.findSaldosByFarmaciaIdAndIdIn(eq(FARMACIA_ID), anyCollection()))
+                .thenAnswer(invocation -> saldos(invocation.getArgument(1)));
+        when(repository.aplicarVariacoesEmLote(any())).thenAnswer(invocation -> {
+            Map<Long, Integer> variacoes = invocation.getArgument(0);
+            tentativas.incrementAndGet();
+            CountDownLatch latch = liberarGravacao;
+            if (latch != null) {
+                latch.await(5, TimeUnit.SECONDS);
+            }
+            return aplicar(variacoes);
+        });
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+        motorEstoque = new MotorEstoque(repository, new TransactionTemplate(transactionManager),
+                mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(motorEstoque, "habilitado", true);
+        ReflectionTestUtils.setField(motorEstoque, "intervaloMs", 20L);
+        ReflectionTestUtils.setField(motorEstoque, "tamanhoMaximoLote", 500);
+        ReflectionTestUtils.setField(motorEstoque, "timeoutMs", 2000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        motorEstoque.encerrar();
+    }
+
+    @Test
+    @DisplayName("Deve recusar apenas a baixa sem estoque de um lote, gravando as demais juntas")
+    void recusaUmaBaixaDoLote() throws Exception {
+        banco.put(10L, 5);
+
+        CompletableFuture<List<Long>> primeira = motorEstoque.baixar(FARMACIA_ID, Map.of(10L, 3));
+        CompletableFuture<List<Long>> segunda = motorEstoque.baixar(FARMACIA_ID, Map.of(10L, 3));
+        CompletableFuture<List<Long>> terceira = motorEstoque.baixar(FARMACIA_ID, Map.of(10L, 2));
+
+        assertThat(primeira.get(2, TimeUnit.SECONDS)).isEmpty();
+        assertThat(segunda.get(2, TimeUnit.SECONDS)).containsExactly(10L);
+        assertThat(terceira.get(2, TimeUnit.SECONDS)).isEmpty();
+        assertThat(banco).containsEntry(10L, 0);
+    }
+
+    @Test
+    @DisplayName("Deve estornar uma baixa gravada depois do prazo de espera")
+    void estornaBaixaGravadaAposTimeout() {
+        banco.put(10L, 5);
+        ReflectionTestUtils.setField(motorEstoque, "timeoutMs", 50L);
+        liberarGravacao = new CountDownLatch(1);
+
+        assertThrows(ConflictException.class,
+                () -> motorEstoque.aguardarBaixa(FARMACIA_ID, Map.of(10L, 2), Set.of(100L)));
+
+        liberarGravacao.countDown();
+        await().atMost(Duration.ofSeconds(2)).until(() -> gravacoes().size() == 2);
+        assertThat(gravacoes()).containsExactly(Map.of(10L, -2), Map.of(10L, 2));
+        assertThat(banco).containsEntry(10L, 5);
+    }
+
+    @Test
+    @DisplayName("Deve recusar a baixa divergente e gravar o estorno do mesmo item que dividia o lote com ela")
+    void mantemEstornoDoLoteDeUmaBaixaRecusada() throws Exception {
+        banco.put(10L, 5);
+        liberarGravacao = new CountDownLatch(1);
+
+        CompletableFuture<List<Long>> primeira = motorEstoque.baixar(FARMACIA_ID, Map.of(10L, 1));
+        await().atMost(Duration.ofSeconds(2)).until(() -> tentativas.get() == 1);
+        // O lojista zera o item no banco; o saldo em memória do motor ainda é 4.
+        banco.put(10L, 1);
+        CompletableFuture<List<Long>> baixa = motorEstoque.baixar(FARMACIA_ID, Map.of(10L, 3));
+        CompletableFuture<Void> estorno = motorEstoque.estornar(FARMACIA_ID, Map.of(10L, 2), Set.of(100L));
+        CountDownLatch latch = liberarGravacao;
+        liberarGravacao = null;
+        latch.countDown();
+
+        assertThat(primeira.get(2, TimeUnit.SECONDS)).isEmpty();
+        assertThat(baixa.get(2, TimeUnit.SECONDS)).containsExactly(10L);
+        estorno.get(2, TimeUnit.SECONDS);
+        assertThat(gravacoes()).containsExactly(Map.of(10L, -1), Map.of(10L, 2));
+        assertThat(banco).containsEntry(10L, 2);
+    }
+
+    @Test
+    @DisplayName("Deve recusar a espera pela baixa dentro de uma transação")
+    void recusaEsperaDentroDeTransacao() {
+        banco.put(10L, 5);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThrows(IllegalStateException.class,
+                    () -> motorEstoque.aguardarBaixa(FARMACIA_ID, Map.of(10L, 1), Set.of(100L)));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        assertThat(banco).containsEntry(10L, 5);
+    }
+
+    @Test
+    @DisplayName("Deve devolver ao estoque a baixa de um pedido cuja gravação falhou")
+    void estornoCompensaBaixaDePedidoNaoGravado() throws Exception {
+        banco.put(10L, 5);
+
+        assertThat(motorEstoque.aguardarBaixa(FARMACIA_ID, Map.of(10L, 4), Set.of(100L))).isEmpty();
+        assertThat(banco).containsEntry(10L, 1);
+
+        // A gravação do pedido falhou: o chamador submete o estorno, e o saldo em memória volta a aceitar a baixa.
+        motorEstoque.estornar(FARMACIA_ID, Map.of(10L, 4), Set.of(100L)).get(2, TimeUnit.SECONDS);
+        assertThat(banco).containsEntry(10L, 5);
+        assertThat(motorEstoque.aguardarBaixa(FARMACIA_ID, Map.of(10L, 5), Set.of(100L))).isEmpty();
+    }
+
+    private List<SaldoEstoque> saldos(Collection<Long> ids) {
+        List<SaldoEstoque> saldos = new ArrayList<>();
+        for (Long id : ids) {
+            Integer quantidade = banco.get(id);
+            if (quantidade != null) {
+                saldos.add(saldo(id, quantidade));
+            }
+        }
+        return saldos;
+    }
+
+    private synchronized List<Long> aplicar(Map<Long, Integer> variacoes) {
+        List<Long> falhas = new ArrayList<>();
+        variacoes.forEach((id, variacao) -> {
+            Integer quantidade = banco.get(id);
+            if (variacao < 0 && (quantidade == null || quantidade + variacao < 0)) {
+                falhas.add(id);
+            }
+        });
+        if (falhas.isEmpty()) {
+            variacoes.forEach((id, variacao) -> banco.computeIfPresent(id, (chave, quantidade) -> quantidade + variacao));
+            gravacoes.add(Map.copyOf(variacoes));
+        }
+        return falhas;
+    }
+
+    private synchronized List<Map<Long, Integer>> gravacoes() {
+        return List.copyOf(gravacoes);
+    }
+
+    private static SaldoEstoque saldo(Long id, int quantidade) {
+        return new SaldoEstoque() {
+            public Long getId() { return id; }
+            public Long getProdutoId() { return id * 10; }
+            public Integer getQuantidade() { return quantidade; }
+            public Boolean getAtivo() { return true; }
+            public Integer getFracoes() { return 0; }
+        };
+    }
+}
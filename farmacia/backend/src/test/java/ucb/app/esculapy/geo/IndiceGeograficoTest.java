@@ -0,0 +1,96 @@
+package ucb.app.esculapy.geo;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import ucb.app.esculapy.event.FarmaciaAlteradaEvent;
+import ucb.app.esculapy.exception.BadRequestException;
+import ucb.app.esculapy.model.Endereco;
+import ucb.app.esculapy.model.Farmacia;
+import ucb.app.esculapy.model.enums.LojistaStatus;
+import ucb.app.esculapy.repository.FarmaciaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndiceGeograficoTest {
+
+    private static final double LAT = -15.7939;
+    private static final double LON = -47.8828;
+
+    private FarmaciaRepository farmaciaRepository;
+    private IndiceGeografico indice;
+
+    @BeforeEach
+    void setUp() {
+        farmaciaRepository = mock(FarmaciaRepository.class);
+        when(farmaciaRepository.findAllByStatusComEndereco(eq(LojistaStatus.ATIVO), any())).thenReturn(new PageImpl<>(List.of(
+                farmacia(1L, LAT + 0.01, LON),
+                // Na célula vizinha da grade (a fronteira fica em -15.80), a cerca de 1,8 km.
+                farmacia(2L, LAT - 0.0161, LON),
+                farmacia(3L, LAT, LON + 0.03),
+                farmacia(4L, LAT + 0.2, LON),
+                farmacia(5L, null, null))));
+
+        indice = new IndiceGeografico(farmaciaRepository);
+        ReflectionTestUtils.setField(indice, "tamanhoCelula", 0.05);
+        ReflectionTestUtils.setField(indice, "raioPadraoKm", 5.0);
+        ReflectionTestUtils.setField(indice, "raioMaximoKm", 50.0);
+        indice.construir();
+    }
+
+    @Test
+    @DisplayName("Deve retornar as farmácias dentro do raio, inclusive de células vizinhas, da mais próxima para a mais distante")
+    void buscaPorRaioEmVariasCelulas() {
+        List<IndiceGeografico.Proxima> proximas = indice.buscarProximas(LAT, LON, null);
+
+        assertThat(proximas).extracting(IndiceGeografico.Proxima::farmaciaId).containsExactly(1L, 2L, 3L);
+        assertThat(proximas.get(0).distanciaKm()).isBetween(1.0, 1.2);
+        assertThat(indice.buscarProximas(LAT, LON, 1.5)).extracting(IndiceGeografico.Proxima::farmaciaId).containsExactly(1L);
+    }
+
+    @Test
+    @DisplayName("Deve limitar o raio ao máximo configurado e recusar parâmetros inválidos")
+    void limitaRaioEValidaParametros() {
+        assertThat(indice.buscarProximas(LAT, LON, 500.0)).extracting(IndiceGeografico.Proxima::farmaciaId)
+                .containsExactly(1L, 2L, 3L, 4L);
+        assertThat(indice.buscarProximas(LAT + 1, LON, 500.0)).isEmpty();
+
+        assertThrows(BadRequestException.class, () -> indice.buscarProximas(91.0, LON, null));
+        assertThrows(BadRequestException.class, () -> indice.buscarProximas(LAT, null, null));
+        assertThrows(BadRequestException.class, () -> indice.buscarProximas(LAT, LON, 0.0));
+    }
+
+    @Test
+    @DisplayName("Deve reposicionar a farmácia que mudou de endereço e retirar a desativada")
+    void reposicionaERetiraFarmacias() {
+        when(farmaciaRepository.findPublicaById(4L)).thenReturn(Optional.of(farmacia(4L, LAT, LON + 0.001)));
+        when(farmaciaRepository.findPublicaById(1L)).thenReturn(Optional.empty());
+
+        indice.onFarmaciaAlterada(new FarmaciaAlteradaEvent(4L));
+        indice.onFarmaciaAlterada(new FarmaciaAlteradaEvent(1L));
+
+        assertThat(indice.buscarProximas(LAT, LON, null)).extracting(IndiceGeografico.Proxima::farmaciaId)
+                .containsExactly(4L, 2L, 3L);
+    }
+
+    private static Farmacia farmacia(Long id, Double latitude, Double longitude) {
+        Endereco endereco = new Endereco();
+        endereco.setLatitude(latitude);
+        endereco.setLongitude(longitude);
+        Farmacia farmacia = new Farmacia();
+        farmacia.setId(id);
+        farmacia.setStatus(LojistaStatus.ATIVO);
+        farmacia.setEnderecoComercial(endereco);
+        return farmacia;
+    }
+}
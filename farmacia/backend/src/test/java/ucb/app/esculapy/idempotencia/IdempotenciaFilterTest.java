@@ -0,0 +1,164 @@
+package ucb.app.esculapy.idempotencia;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import ucb.app.esculapy.repository.ChaveIdempotenciaRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Exercita o filtro sobre o {@link IdempotenciaService} real, sem persistência: a cadeia de filtros
+ * falsa conta as execuções e responde com um corpo diferente a cada uma.
+ */
+class IdempotenciaFilterTest {
+
+    private final AtomicInteger execucoes = new AtomicInteger();
+    private volatile int statusResposta = 201;
+    private volatile CountDownLatch liberarExecucao;
+
+    private IdempotenciaFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        IdempotenciaService service = new IdempotenciaService(mock(ChaveIdempotenciaRepository.class), 100, 24, 2000, false);
+        filter = new IdempotenciaFilter(service, new ObjectMapper().findAndRegisterModules());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Deve devolver a mesma resposta, byte a byte, à repetição de uma requisição concluída")
+    void repeteRespostaGuardada() throws Exception {
+        MockHttpServletResponse primeira = executar("/api/pedidos", "{\"itens\":[]}");
+        MockHttpServletResponse segunda = executar("/api/pedidos", "{\"itens\":[]}");
+
+        assertThat(execucoes).hasValue(1);
+        assertThat(primeira.getStatus()).isEqualTo(201);
+        assertThat(primeira.getHeader(IdempotenciaFilter.CABECALHO_REPETIDA)).isNull();
+        assertThat(segunda.getStatus()).isEqualTo(201);
+        assertThat(segunda.getContentType()).isEqualTo(MediaType.APPLICATION_JSON_VALUE);
+        assertThat(segunda.getContentAsByteArray()).isEqualTo(primeira.getContentAsByteArray());
+        assertThat(segunda.getHeader(IdempotenciaFilter.CABECALHO_REPETIDA)).isEqualTo("true");
+    }
+
+    @Test
+    @DisplayName("Deve fazer a repetição concorrente aguardar a original e devolver a resposta dela")
+    void repeticaoConcorrenteAguardaOriginal() throws Exception {
+        liberarExecucao = new CountDownLatch(1);
+        AtomicReference<Thread> segundaThread = new AtomicReference<>();
+
+        CompletableFuture<MockHttpServletResponse> primeira = CompletableFuture.supplyAsync(
+                () -> executarSemFalha("/api/pedidos/5/pagar", "{}"));
+        await().atMost(Duration.ofSeconds(2)).until(() -> execucoes.get() == 1);
+        CompletableFuture<MockHttpServletResponse> segunda = CompletableFuture.supplyAsync(() -> {
+            segundaThread.set(Thread.currentThread());
+            return executarSemFalha("/api/pedidos/5/pagar", "{}");
+        });
+        await().atMost(Duration.ofSeconds(2)).until(() -> segundaThread.get() != null
+                && segundaThread.get().getState() == Thread.State.TIMED_WAITING);
+
+        liberarExecucao.countDown();
+
+        MockHttpServletResponse original = primeira.get(2, TimeUnit.SECONDS);
+        MockHttpServletResponse repetida = segunda.get(2, TimeUnit.SECONDS);
+        assertThat(execucoes).hasValue(1);
+        assertThat(repetida.getContentAsByteArray()).isEqualTo(original.getContentAsByteArray());
+        assertThat(repetida.getHeader(IdempotenciaFilter.CABECALHO_REPETIDA)).isEqualTo("true");
+    }
+
+    @Test
+    @DisplayName("Deve recusar com 400 a mesma chave enviada com outro corpo")
+    void recusaChaveComOutroCorpo() throws Exception {
+        executar("/api/pedidos", "{\"itens\":[1]}");
+        MockHttpServletResponse divergente = executar("/api/pedidos", "{\"itens\":[2]}");
+
+        assertThat(execucoes).hasValue(1);
+        assertThat(divergente.getStatus()).isEqualTo(400);
+        assertThat(divergente.getContentAsString(StandardCharsets.UTF_8)).contains("requisição diferente");
+    }
+
+    @Test
+    @DisplayName("Deve executar de novo a repetição de uma requisição que falhou")
+    void reexecutaAposFalha() throws Exception {
+        statusResposta = 409;
+        MockHttpServletResponse falha = executar("/api/pedidos", "{}");
+        statusResposta = 201;
+        MockHttpServletResponse nova = executar("/api/pedidos", "{}");
+
+        assertThat(execucoes).hasValue(2);
+        assertThat(falha.getStatus()).isEqualTo(409);
+        assertThat(nova.getStatus()).isEqualTo(201);
+        assertThat(nova.getHeader(IdempotenciaFilter.CABECALHO_REPETIDA)).isNull();
+        assertThat(nova.getContentAsString()).isEqualTo("{\"execucao\":2}");
+    }
+
+    @Test
+    @DisplayName("Deve ignorar as rotas fora da criação de pedidos e de pagamentos")
+    void ignoraOutrasRotas() throws Exception {
+        executar("/api/pedidos/5/cancelar", "{}");
+        executar("/api/pedidos/5/cancelar", "{}");
+
+        assertThat(execucoes).hasValue(2);
+    }
+
+    private MockHttpServletResponse executarSemFalha(String caminho, String corpo) {
+        try {
+            return executar(caminho, corpo);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private MockHttpServletResponse executar(String caminho, String corpo) throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("cliente@esculapy.com", null, List.of()));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", caminho);
+        request.addHeader(IdempotenciaFilter.CABECALHO_CHAVE, "chave-1");
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(corpo.getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        FilterChain chain = (req, res) -> {
+            int execucao = execucoes.incrementAndGet();
+            assertThat(req.getInputStream().readAllBytes()).isEqualTo(corpo.getBytes(StandardCharsets.UTF_8));
+            CountDownLatch latch = liberarExecucao;
+            if (latch != null) {
+                try {
+                    latch.await(2, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            ((HttpServletResponse) res).setStatus(statusResposta);
+            res.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            res.getOutputStream().write(("{\"execucao\":" + execucao + "}").getBytes(StandardCharsets.UTF_8));
+        };
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
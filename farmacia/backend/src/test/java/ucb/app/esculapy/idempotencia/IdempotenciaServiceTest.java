@@ -0,0 +1,120 @@
+package ucb.app.esculapy.idempotencia;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import ucb.app.esculapy.exception.BadRequestException;
+import ucb.app.esculapy.exception.ConflictException;
+import ucb.app.esculapy.model.ChaveIdempotencia;
+import ucb.app.esculapy.repository.ChaveIdempotenciaRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cobre a reserva persistida das chaves ({@code idempotencia.persistencia.habilitada=true}),
+ * com o repositório simulado no papel de outra instância.
+ */
+class IdempotenciaServiceTest {
+
+    private static final String CHAVE = "cliente@esculapy.com:chave-1";
+
+    private ChaveIdempotenciaRepository repository;
+    private IdempotenciaService service;
+    private String hash;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(ChaveIdempotenciaRepository.class);
+        service = new IdempotenciaService(repository, 100, 24, 2000, true);
+        hash = service.calcularHash("POST", "/api/pedidos", "{}".getBytes(StandardCharsets.UTF_8));
+        when(repository.findById(CHAVE)).thenReturn(Optional.empty());
+    }
+
+    @Test
+    @DisplayName("Deve reservar a chave na tabela e gravar a resposta ao concluir")
+    void reservaEGravaResposta() {
+        assertThat(service.reservar(CHAVE, hash)).isEmpty();
+
+        ArgumentCaptor<ChaveIdempotencia> reserva = ArgumentCaptor.forClass(ChaveIdempotencia.class);
+        verify(repository).saveAndFlush(reserva.capture());
+        assertThat(reserva.getValue().getHashRequisicao()).isEqualTo(hash);
+        assertThat(reserva.getValue().getStatusResposta()).isNull();
+
+        when(repository.findById(CHAVE)).thenReturn(Optional.of(reserva.getValue()));
+        service.concluir(CHAVE, resposta(hash));
+
+        ArgumentCaptor<ChaveIdempotencia> gravada = ArgumentCaptor.forClass(ChaveIdempotencia.class);
+        verify(repository).save(gravada.capture());
+        assertThat(gravada.getValue().getStatusResposta()).isEqualTo(201);
+        assertThat(gravada.getValue().getExpiraEm()).isAfter(LocalDateTime.now().plusHours(23));
+        // Repetições desta instância saem do cache, sem consultar a tabela de novo.
+        assertThat(service.reservar(CHAVE, hash)).get().extracting(IdempotenciaService.Resposta::status).isEqualTo(201);
+    }
+
+    @Test
+    @DisplayName("Deve devolver a resposta gravada por outra instância")
+    void repeteRespostaDeOutraInstancia() {
+        ChaveIdempotencia registro = registro(hash, LocalDateTime.now().plusHours(1));
+        registro.setStatusResposta(201);
+        registro.setTipoConteudo("application/json");
+        registro.setCorpoResposta("{\"id\":7}".getBytes(StandardCharsets.UTF_8));
+        when(repository.findById(CHAVE)).thenReturn(Optional.of(registro));
+
+        Optional<IdempotenciaService.Resposta> resposta = service.reservar(CHAVE, hash);
+
+        assertThat(resposta).get().extracting(IdempotenciaService.Resposta::corpo).isEqualTo(registro.getCorpoResposta());
+        verify(repository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("Deve recusar a chave em execução em outra instância ou usada com outra requisição")
+    void recusaChaveReservadaPorOutraInstancia() {
+        when(repository.findById(CHAVE)).thenReturn(Optional.of(registro(hash, LocalDateTime.now().plusMinutes(5))));
+        assertThrows(ConflictException.class, () -> service.reservar(CHAVE, hash));
+
+        when(repository.findById(CHAVE)).thenReturn(Optional.of(registro("outro", LocalDateTime.now().plusMinutes(5))));
+        assertThrows(BadRequestException.class, () -> service.reservar(CHAVE, hash));
+
+        when(repository.findById(CHAVE)).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("chave duplicada"));
+        assertThrows(ConflictException.class, () -> service.reservar(CHAVE, hash));
+    }
+
+    @Test
+    @DisplayName("Deve substituir a reserva vencida e apagar a chave de uma requisição que falhou")
+    void substituiReservaVencidaELiberaAposFalha() {
+        ChaveIdempotencia vencida = registro("outro", LocalDateTime.now().minusMinutes(1));
+        when(repository.findById(CHAVE)).thenReturn(Optional.of(vencida));
+
+        assertThat(service.reservar(CHAVE, hash)).isEmpty();
+        verify(repository).delete(vencida);
+
+        service.concluir(CHAVE, null);
+        verify(repository).deleteById(CHAVE);
+        verify(repository, never()).save(any());
+    }
+
+    private static ChaveIdempotencia registro(String hash, LocalDateTime expiraEm) {
+        ChaveIdempotencia registro = new ChaveIdempotencia();
+        registro.setChave(CHAVE);
+        registro.setHashRequisicao(hash);
+        registro.setExpiraEm(expiraEm);
+        return registro;
+    }
+
+    private static IdempotenciaService.Resposta resposta(String hash) {
+        return new IdempotenciaService.Resposta(hash, 201, "application/json", "{\"id\":7}".getBytes(StandardCharsets.UTF_8));
+    }
+}
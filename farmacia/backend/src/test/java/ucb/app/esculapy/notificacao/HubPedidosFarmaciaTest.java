@@ -0,0 +1,60 @@
+package ucb.app.esculapy.notificacao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ucb.app.esculapy.exception.ConflictException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HubPedidosFarmaciaTest {
+
+    private HubPedidosFarmacia hub;
+
+    @BeforeEach
+    void setUp() {
+        hub = new HubPedidosFarmacia(new ObjectMapper());
+        ReflectionTestUtils.setField(hub, "timeoutMs", 60000L);
+        ReflectionTestUtils.setField(hub, "keepAliveMs", 25000L);
+        ReflectionTestUtils.setField(hub, "maximoConexoes", 3);
+        ReflectionTestUtils.setField(hub, "maximoConexoesPorFarmacia", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(hub, "encerrar");
+    }
+
+    @Test
+    @DisplayName("Deve recusar a conexão acima do limite da farmácia sem consumir o limite total")
+    void recusaAcimaDoLimiteDaFarmacia() {
+        hub.assinar(1L);
+        hub.assinar(1L);
+
+        assertThrows(ConflictException.class, () -> hub.assinar(1L));
+
+        // A recusa devolveu a vaga do limite total: ainda cabe uma conexão de outra farmácia.
+        hub.assinar(2L);
+        assertThrows(ConflictException.class, () -> hub.assinar(3L));
+    }
+
+    @Test
+    @DisplayName("Deve liberar as vagas das conexões fechadas no keep-alive")
+    void liberaVagasDeConexoesFechadas() {
+        SseEmitter primeira = hub.assinar(1L);
+        hub.assinar(1L);
+        hub.assinar(2L);
+        assertThrows(ConflictException.class, () -> hub.assinar(2L));
+
+        primeira.complete();
+        ReflectionTestUtils.invokeMethod(hub, "enviarKeepAlive");
+
+        assertThat(hub.assinar(1L)).isNotNull();
+        assertThrows(ConflictException.class, () -> hub.assinar(3L));
+    }
+}
@@ -0,0 +1,169 @@
+package ucb.app.esculapy.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import ucb.app.esculapy.dto.OutboxEstatisticasResponse;
+import ucb.app.esculapy.model.EventoOutbox;
+import ucb.app.esculapy.repository.EventoOutboxRepository;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RelayOutboxTest {
+
+    private final List<EventoOutbox> caixa = new ArrayList<>();
+    private final Map<Long, String> erros = new HashMap<>();
+    private final DestinoFalso destino = new DestinoFalso();
+
+    private RelayOutbox relay;
+
+    /**
+     * Monta o relay sobre uma caixa de saída em memória: os pendentes saem em ordem de ID, no
+     * tamanho da página pedida, e a marcação de publicados e de falhas altera os próprios registros.
+     */
+    @BeforeEach
+    void setUp() {
+        EventoOutboxRepository repository = mock(EventoOutboxRepository.class);
+        when(repository.findPendentes(any())).thenAnswer(invocation -> {
+            Pageable pagina = invocation.getArgument(0);
+            return pendentes().stream().limit(pagina.getPageSize()).toList();
+        });
+        when(repository.marcarPublicados(anyCollection(), any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            LocalDateTime agora = invocation.getArgument(1);
+            caixa.stream().filter(e -> ids.contains(e.getId())).forEach(e -> e.setPublicadoEm(agora));
+            return ids.size();
+        });
+        when(repository.registrarFalha(anyCollection(), anyString())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            ids.forEach(id -> erros.put(id, invocation.getArgument(1)));
+            return ids.size();
+        });
+        when(repository.countByPublicadoEmIsNull()).thenAnswer(invocation -> (long) pendentes().size());
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+        relay = new RelayOutbox(repository, List.of(destino), new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(relay, "habilitado", false);
+        ReflectionTestUtils.setField(relay, "tamanhoLote", 2);
+    }
+
+    @Test
+    @DisplayName("Deve entregar a caixa de saída em lotes ordenados até esvaziá-la")
+    void entregaEmLotes() {
+        evento(1L, 10L);
+        evento(2L, 20L);
+        evento(3L, 10L);
+        evento(4L, 30L);
+        evento(5L, 20L);
+
+        relay.drenar();
+
+        assertThat(destino.lotes).containsExactly(List.of(1L, 2L), List.of(3L, 4L), List.of(5L));
+        assertThat(pendentes()).isEmpty();
+        OutboxEstatisticasResponse estatisticas = relay.getEstatisticas();
+        assertThat(estatisticas.getPublicados()).isEqualTo(5);
+        assertThat(estatisticas.getPendentes()).isZero();
+        assertThat(estatisticas.getDestinos()).containsExactly("falso");
+    }
+
+    @Test
+    @DisplayName("Deve reenviar um a um o lote que falhou, adiando só os eventos seguintes do pedido do evento com falha")
+    void reenviaUmAUmPreservandoAOrdemPorPedido() {
+        ReflectionTestUtils.setField(relay, "tamanhoLote", 10);
+        evento(1L, 10L);
+        evento(2L, 20L);
+        evento(3L, 20L);
+        evento(4L, 30L);
+        destino.falharSe = lote -> lote.contains(2L);
+
+        relay.drenar();
+
+        assertThat(destino.lotes).containsExactly(List.of(1L), List.of(4L));
+        assertThat(pendentes()).extracting(EventoOutbox::getId).containsExactly(2L, 3L);
+        assertThat(erros).containsOnlyKeys(2L);
+        assertThat(erros.get(2L)).startsWith("Destino 'falso'");
+        assertThat(relay.getEstatisticas().getFalhas()).isEqualTo(1);
+
+        destino.falharSe = lote -> false;
+        relay.drenar();
+
+        assertThat(destino.lotes).last().isEqualTo(List.of(2L, 3L));
+        assertThat(pendentes()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Não deve ler a caixa de saída sem destinos habilitados")
+    void ignoraSemDestinosHabilitados() {
+        evento(1L, 10L);
+        destino.habilitado = false;
+
+        relay.drenar();
+
+        assertThat(destino.lotes).isEmpty();
+        assertThat(pendentes()).hasSize(1);
+    }
+
+    private List<EventoOutbox> pendentes() {
+        return caixa.stream().filter(e -> e.getPublicadoEm() == null).toList();
+    }
+
+    private void evento(Long id, Long pedidoId) {
+        EventoOutbox evento = new EventoOutbox();
+        evento.setId(id);
+        evento.setTipo("PEDIDO_CRIADO");
+        evento.setPedidoId(pedidoId);
+        evento.setPayload("{}");
+        evento.setCriadoEm(LocalDateTime.now());
+        caixa.add(evento);
+    }
+
+    /**
+     * Destino que registra os IDs de cada lote entregue e recusa os lotes indicados.
+     */
+    private static class DestinoFalso implements DestinoOutbox {
+
+        private final List<List<Long>> lotes = new ArrayList<>();
+        private Predicate<List<Long>> falharSe = lote -> false;
+        private boolean habilitado = true;
+
+        @Override
+        public String getNome() {
+            return "falso";
+        }
+
+        @Override
+        public boolean isHabilitado() {
+            return habilitado;
+        }
+
+        @Override
+        public void publicar(List<MensagemOutbox> mensagens) throws IOException {
+            List<Long> ids = mensagens.stream().map(MensagemOutbox::id).toList();
+            if (falharSe.test(ids)) {
+                throw new IOException("recusado");
+            }
+            lotes.add(ids);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package ucb.app.esculapy.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class EstoqueLojistaRepositoryCustomImplTest {
+
+    private JdbcFalso jdbc;
+    private EstoqueLojistaRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcFalso();
+        repository = new EstoqueLojistaRepositoryCustomImpl(jdbc);
+    }
+
+    @Test
+    @DisplayName("Deve baixar de uma única fração, lida sem bloqueio, sem bloquear as demais")
+    void baixaEmUmaFracao() {
+        jdbc.item(1L, 20, 4, 5, 5, 5, 5);
+
+        List<Long> semEstoque = repository.baixarEstoqueEmLote(Map.of(1L, 3));
+
+        assertThat(semEstoque).isEmpty();
+        assertThat(jdbc.totalFracoes(1L)).isEqualTo(17);
+        assertThat(jdbc.fracoes.get(1L).values()).containsOnlyOnce(2);
+        assertThat(jdbc.comandos).noneMatch(sql -> sql.contains("FOR UPDATE"));
+    }
+
+    @Test
+    @DisplayName("Deve bloquear as frações em ordem e baixar de várias quando nenhuma basta sozinha")
+    void baixaEmVariasFracoes() {
+        jdbc.item(1L, 8, 4, 2, 2, 2, 2);
+
+        List<Long> semEstoque = repository.baixarEstoqueEmLote(Map.of(1L, 7));
+
+        assertThat(semEstoque).isEmpty();
+        assertThat(jdbc.fracoes.get(1L)).containsExactly(Map.entry(0, 0), Map.entry(1, 0), Map.entry(2, 0), Map.entry(3, 1));
+        assertThat(jdbc.comandos).anyMatch(sql -> sql.contains("FOR UPDATE"));
+    }
+
+    @Test
+    @DisplayName("Deve cair no caminho ordenado se a fração sorteada for consumida por outra baixa")
+    void baixaAposPerderAFracaoSorteada() {
+        jdbc.item(1L, 3, 4, 3, 0, 0, 0);
+        // Outra baixa consome a fração lida e um estorno abastece a seguinte antes da baixa condicional.
+        jdbc.aposLeitura = () -> {
+            jdbc.fracoes.get(1L).put(0, 1);
+            jdbc.fracoes.get(1L).put(1, 3);
+        };
+
+        List<Long> semEstoque = repository.baixarEstoqueEmLote(Map.of(1L, 3));
+
+        assertThat(semEstoque).isEmpty();
+        assertThat(jdbc.fracoes.get(1L)).containsExactly(Map.entry(0, 0), Map.entry(1, 1), Map.entry(2, 0), Map.entry(3, 0));
+    }
+
+    @Test
+    @DisplayName("Deve recusar a baixa de um item fracionado quando a soma das frações não basta")
+    void recusaBaixaFracionadaSemEstoque() {
+        jdbc.item(1L, 2, 2, 1, 1);
+
+        List<Long> semEstoque = repository.baixarEstoqueEmLote(Map.of(1L, 3));
+
+        assertThat(semEstoque).containsExactly(1L);
+        assertThat(jdbc.totalFracoes(1L)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve redistribuir a quantidade entre as frações, com o resto nas primeiras")
+    void redistribuiFracoes() {
+        jdbc.item(1L, 10, 2, 5, 5);
+
+        repository.redistribuirFracoes(1L, 3, 10);
+        assertThat(jdbc.fracoes.get(1L)).containsExactly(Map.entry(0, 4), Map.entry(1, 3), Map.entry(2, 3));
+
+        repository.redistribuirFracoes(1L, 0, 10);
+        assertThat(jdbc.fracoes.get(1L)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve alinhar à soma das frações apenas os agregados divergentes")
+    void reconciliaAgregadosFracionados() {
+        jdbc.item(1L, 10, 2, 3, 4);
+        jdbc.item(2L, 6, 2, 3, 3);
+
+        Map<Long, Long> corrigidos = repository.reconciliarAgregadosFracionados();
+
+        assertThat(corrigidos).containsExactly(Map.entry(1L, 10L));
+        assertThat(jdbc.quantidades).containsEntry(1L, 7).containsEntry(2L, 6);
+    }
+
+    /**
+     * {@link JdbcTemplate} falso que interpreta as instruções do repositório sobre mapas em memória
+     * e registra cada instrução executada.
+     */
+    private static class JdbcFalso extends JdbcTemplate {
+
+        private final Map<Long, Integer> quantidades = new HashMap<>();
+        private final Map<Long, Integer> numeroDeFracoes = new HashMap<>();
+        private final Map<Long, TreeMap<Integer, Integer>> fracoes = new HashMap<>();
+        private final List<String> comandos = new ArrayList<>();
+        private Runnable aposLeitura = () -> { };
+
+        void item(Long id, int quantidade, int numero, int... porFracao) {
+            quantidades.put(id, quantidade);
+            numeroDeFracoes.put(id, numero);
+            TreeMap<Integer, Integer> mapa = new TreeMap<>();
+            for (int i = 0; i < porFracao.length; i++) {
+                mapa.put(i, porFracao[i]);
+            }
+            fracoes.put(id, mapa);
+        }
+
+        int totalFracoes(Long id) {
+            return fracoes.get(id).values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+            return query(sql, rowMapper, new Object[0]);
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            comandos.add(sql);
+            List<Map<String, Object>> linhas = new ArrayList<>();
+            if (sql.startsWith("SELECT indice, quantidade FROM estoque_fracoes")) {
+                fracoes.get((Long) args[0]).forEach((indice, quantidade) -> linhas.add(Map.of("indice", indice, "quantidade", quantidade)));
+                if (!sql.contains("FOR UPDATE")) {
+                    aposLeitura.run();
+                }
+            } else if (sql.contains("HAVING total <> e.quantidade")) {
+                fracoes.forEach((id, mapa) -> {
+                    int total = totalFracoes(id);
+                    if (numeroDeFracoes.get(id) > 0 && total != quantidades.get(id)) {
+                        linhas.add(Map.of("id", id, "produto_id", id * 10, "total", total));
+                    }
+                });
+            } else {
+                throw new IllegalArgumentException(sql);
+            }
+            List<T> resultado = new ArrayList<>();
+            try {
+                for (int i = 0; i < linhas.size(); i++) {
+                    resultado.add(rowMapper.mapRow(linha(linhas.get(i)), i));
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return resultado;
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch, Object... args) {
+            comandos.add(sql);
+            try {
+                for (Object arg : args) {
+                    Long id = (Long) arg;
+                    if (numeroDeFracoes.getOrDefault(id, 0) > 0) {
+                        rch.processRow(linha(Map.of("id", id, "fracoes", numeroDeFracoes.get(id), "ativo", true)));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            comandos.add(sql);
+            if (sql.startsWith("DELETE FROM estoque_fracoes")) {
+                int removidas = fracoes.get((Long) args[0]).size();
+                fracoes.get((Long) args[0]).clear();
+                return removidas;
+            }
+            int quantidade = (Integer) args[0];
+            TreeMap<Integer, Integer> mapa = fracoes.get((Long) args[1]);
+            int indice = (Integer) args[2];
+            if (sql.contains("quantidade >= ?") && mapa.get(indice) < quantidade) {
+                return 0;
+            }
+            mapa.merge(indice, sql.contains("quantidade - ?") ? -quantidade : quantidade, Integer::sum);
+            return 1;
+        }
+
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            comandos.add(sql);
+            int[] afetadas = new int[batchArgs.size()];
+            int i = 0;
+            try {
+                for (T arg : batchArgs) {
+                    Map<Integer, Object> parametros = new HashMap<>();
+                    pss.setValues(instrucao(parametros), arg);
+                    if (sql.startsWith("INSERT INTO estoque_fracoes")) {
+                        fracoes.get((Long) parametros.get(1)).put((Integer) parametros.get(2), (Integer) parametros.get(3));
+                    } else if (sql.startsWith("UPDATE estoque_lojista SET quantidade = ?")) {
+                        quantidades.put((Long) parametros.get(3), (Integer) parametros.get(1));
+                    } else {
+                        throw new IllegalArgumentException(sql);
+                    }
+                    afetadas[i++] = 1;
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            return new int[][]{afetadas};
+        }
+
+        private static ResultSet linha(Map<String, Object> colunas) {
+            return mock(ResultSet.class, invocation -> {
+                Object valor = colunas.get((String) invocation.getArgument(0));
+                return switch (invocation.getMethod().getName()) {
+                    case "getInt" -> ((Number) valor).intValue();
+                    case "getLong" -> ((Number) valor).longValue();
+                    case "getBoolean" -> valor;
+                    default -> throw new UnsupportedOperationException(invocation.getMethod().getName());
+                };
+            });
+        }
+
+        private static PreparedStatement instrucao(Map<Integer, Object> parametros) {
+            return mock(PreparedStatement.class, invocation -> {
+                if (invocation.getMethod().getName().startsWith("set")) {
+                    parametros.put(invocation.getArgument(0), invocation.getArgument(1));
+                }
+                return null;
+            });
+        }
+    }
+}
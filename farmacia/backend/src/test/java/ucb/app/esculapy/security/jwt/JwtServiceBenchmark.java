@@ -0,0 +1,85 @@
+package ucb.app.esculapy.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import ucb.app.esculapy.model.Role;
+import ucb.app.esculapy.model.Usuario;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH do custo por requisição da verificação do JWT no filtro de autenticação.
+ * Compara o fluxo anterior (chave e parser recriados a cada chamada, token analisado três vezes)
+ * com {@link JwtService#verificarToken(String)} (chave e parser pré-calculados, um único parse).
+ *
+ * Execução: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=ucb.app.esculapy.security.jwt.JwtServiceBenchmark}
+ * ou pela IDE, executando o método {@code main}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SEGREDO = "sua_chave_secreta_super_longa_e_segura_com_pelo_menos_256_bits";
+
+    private JwtService jwtService;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "jwtSecret", SEGREDO);
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 86400000L);
+        jwtService.init();
+
+        Role role = new Role("ROLE_CLIENTE");
+        Usuario usuario = new Usuario("cliente@esculapy.com", "senha");
+        usuario.setId(42L);
+        usuario.setRoles(Set.of(role));
+        token = jwtService.generateToken(usuario);
+    }
+
+    /**
+     * Fluxo anterior: extractUsername + isTokenValid (que repetia extractUsername) + isTokenExpired,
+     * cada um recriando a chave HMAC e o parser.
+     */
+    @Benchmark
+    public boolean fluxoAnterior() {
+        String username = parseRecriandoParser(token).getSubject();
+        boolean mesmoUsuario = parseRecriandoParser(token).getSubject().equals(username);
+        return mesmoUsuario && !parseRecriandoParser(token).getExpiration().before(new Date());
+    }
+
+    /**
+     * Fluxo atual: um único parse com chave e parser reaproveitados.
+     */
+    @Benchmark
+    public JwtClaims verificarToken() {
+        return jwtService.verificarToken(token);
+    }
+
+    private Claims parseRecriandoParser(String jwt) {
+        Key key = Keys.hmacShaKeyFor(SEGREDO.getBytes(StandardCharsets.UTF_8));
+        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(jwt).getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtServiceBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,81 @@
+package ucb.app.esculapy.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ucb.app.esculapy.model.ExclusaoExportacao;
+import ucb.app.esculapy.model.enums.TipoRegistroExportado;
+import ucb.app.esculapy.repository.EstoqueLojistaRepository;
+import ucb.app.esculapy.repository.EstoqueLojistaRepositoryCustom.OfertaExportada;
+import ucb.app.esculapy.repository.ExclusaoExportacaoRepository;
+import ucb.app.esculapy.repository.ProdutoRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ExportacaoServiceTest {
+
+    private static final LocalDateTime DESDE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private ExclusaoExportacaoRepository exclusaoExportacaoRepository;
+    private ExportacaoService service;
+
+    @BeforeEach
+    void setUp() {
+        EstoqueLojistaRepository estoqueLojistaRepository = mock(EstoqueLojistaRepository.class);
+        when(estoqueLojistaRepository.findOfertasParaExportacao(any(), any(), any(), anyBoolean(), anyInt()))
+                .thenReturn(List.of(new OfertaExportada(1L, 10L, 7L, BigDecimal.TEN, 3, true, DESDE.plusHours(1))));
+        exclusaoExportacaoRepository = mock(ExclusaoExportacaoRepository.class);
+        ExclusaoExportacao exclusao = new ExclusaoExportacao(TipoRegistroExportado.OFERTA, 2L, 7L);
+        exclusao.setId(1L);
+        exclusao.setDataExclusao(DESDE.plusHours(2));
+        when(exclusaoExportacaoRepository.findParaExportacao(eq(TipoRegistroExportado.OFERTA), eq(7L), any(), any(), any()))
+                .thenReturn(List.of(exclusao));
+
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        service = new ExportacaoService(mock(ProdutoRepository.class), estoqueLojistaRepository,
+                exclusaoExportacaoRepository, objectMapper);
+        ReflectionTestUtils.setField(service, "tamanhoLote", 1000);
+    }
+
+    @Test
+    @DisplayName("Deve entregar as exclusões depois das alterações na exportação incremental")
+    void exportaExclusoesNoDelta() throws Exception {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        service.exportarOfertas(DESDE, 7L, false, saida);
+
+        List<String> linhas = saida.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(linhas).hasSize(2);
+        assertThat(linhas.get(0)).contains("\"id\":1").doesNotContain("excluido");
+        assertThat(linhas.get(1)).isEqualTo("{\"id\":2,\"excluido\":true,\"dataExclusao\":\"2024-01-01T02:00:00\"}");
+    }
+
+    @Test
+    @DisplayName("Não deve ler as exclusões na carga completa")
+    void ignoraExclusoesNaCargaCompleta() throws Exception {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        service.exportarOfertas(null, 7L, false, saida);
+
+        assertThat(saida.toString(StandardCharsets.UTF_8).lines()).hasSize(1);
+        verifyNoInteractions(exclusaoExportacaoRepository);
+    }
+}
@@ -5,9 +5,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ucb.app.esculapy.dto.CriarPedidoRequest;
+import ucb.app.esculapy.dto.CursorPage;
 import ucb.app.esculapy.dto.ItemCarrinho;
+import ucb.app.esculapy.dto.PedidoDetalheResponse;
+import ucb.app.esculapy.dto.PedidoResumoResponse;
+import ucb.app.esculapy.estoque.MotorEstoque;
+import ucb.app.esculapy.event.EstoqueAlteradoEvent;
 import ucb.app.esculapy.exception.ConflictException;
 import ucb.app.esculapy.model.*;
 import ucb.app.esculapy.model.enums.PedidoStatus;
@@ -18,11 +29,15 @@ import ucb.app.esculapy.repository.PedidoRepository;
 import ucb.app.esculapy.repository.ReceitaRepository;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -40,6 +55,11 @@ class PedidoServiceTest {
     @Mock private AuthenticationService authenticationService;
     @Mock private StorageService storageService;
     @Mock private ReceitaRepository receitaRepository;
+    @Mock private ReservaEstoqueService reservaEstoqueService;
+    @Mock private TransicaoPedidoService transicaoPedidoService;
+    @Mock private MotorEstoque motorEstoque;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Spy private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
 
     // ------------------------------------------------------------------------
     // CENÁRIO 1: Compra de Medicamento Controlado (Exige Receita)
@@ -73,8 +93,10 @@ class PedidoServiceTest {
         estoqueMock.setPreco(precoUnitario);
         estoqueMock.setQuantidade(10); // Tem 10 no estoque
         estoqueMock.setProduto(produtoControlado);
+        estoqueMock.setFarmacia(farmacia(1L));
 
-        when(estoqueLojistaRepository.findById(estoqueId)).thenReturn(Optional.of(estoqueMock));
+        when(estoqueLojistaRepository.findAllComProdutoByIdIn(any())).thenReturn(List.of(estoqueMock));
+        when(estoqueLojistaRepository.baixarEstoqueEmLote(any())).thenReturn(List.of());
 
         // 5. Simula o salvamento (Retorna o próprio objeto passado)
         when(pedidoRepository.save(any(Pedido.class))).thenAnswer(invocation -> invocation.getArgument(0));
@@ -87,17 +109,26 @@ class PedidoServiceTest {
         item.setQuantidade(quantidadeSolicitada);
         request.setItens(List.of(item));
 
-        Pedido pedidoCriado = pedidoService.criarPedido(request);
+        PedidoDetalheResponse pedidoCriado = pedidoService.criarPedido(request);
 
         // --- ASSERT (VERIFICAÇÃO) ---
         // Valida Cálculo: 50.00 * 2 = 100.00
         assertThat(pedidoCriado.getValorTotal()).isEqualByComparingTo(new BigDecimal("100.00"));
 
+        // Valida Farmácia: o pedido herda a farmácia dona dos itens
+        assertThat(pedidoCriado.getFarmaciaId()).isEqualTo(1L);
+
         // Valida Fluxo: Deve exigir receita
         assertThat(pedidoCriado.getStatus()).isEqualTo(PedidoStatus.AGUARDANDO_RECEITA);
 
-        // Valida Baixa de Estoque em Memória: 10 - 2 = 8
-        assertThat(estoqueMock.getQuantidade()).isEqualTo(8);
+        // Valida Reserva: o estoque baixado fica retido até o pagamento
+        verify(reservaEstoqueService).criarReserva(argThat(pedido -> pedido.getStatus() == PedidoStatus.AGUARDANDO_RECEITA));
+
+        // Valida Baixa de Estoque: feita no banco, em lote, com a quantidade solicitada
+        verify(estoqueLojistaRepository).baixarEstoqueEmLote(Map.of(estoqueId, quantidadeSolicitada));
+
+        // Valida Índices: a baixa é sinalizada para as ofertas e sugestões em memória
+        verify(eventPublisher).publishEvent(any(EstoqueAlteradoEvent.class));
     }
 
     // ------------------------------------------------------------------------
@@ -115,11 +146,14 @@ class PedidoServiceTest {
         produtoLivre.setTipoReceita(TipoReceita.NAO_EXIGIDO);
 
         EstoqueLojista estoqueMock = new EstoqueLojista();
+        estoqueMock.setId(1L);
         estoqueMock.setPreco(BigDecimal.TEN);
         estoqueMock.setQuantidade(100);
         estoqueMock.setProduto(produtoLivre);
+        estoqueMock.setFarmacia(farmacia(1L));
 
-        when(estoqueLojistaRepository.findById(any())).thenReturn(Optional.of(estoqueMock));
+        when(estoqueLojistaRepository.findAllComProdutoByIdIn(any())).thenReturn(List.of(estoqueMock));
+        when(estoqueLojistaRepository.baixarEstoqueEmLote(any())).thenReturn(List.of());
         when(pedidoRepository.save(any(Pedido.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // --- ACT ---
@@ -130,7 +164,7 @@ class PedidoServiceTest {
         item.setQuantidade(1);
         request.setItens(List.of(item));
 
-        Pedido pedidoCriado = pedidoService.criarPedido(request);
+        PedidoDetalheResponse pedidoCriado = pedidoService.criarPedido(request);
 
         // --- ASSERT ---
         // Status deve pular a etapa de receita
@@ -149,10 +183,12 @@ class PedidoServiceTest {
 
         // Estoque Baixo
         EstoqueLojista estoqueBaixo = new EstoqueLojista();
+        estoqueBaixo.setId(1L);
         estoqueBaixo.setQuantidade(5); // Só tem 5
         estoqueBaixo.setProduto(new Produto());
+        estoqueBaixo.setFarmacia(farmacia(1L));
 
-        when(estoqueLojistaRepository.findById(any())).thenReturn(Optional.of(estoqueBaixo));
+        when(estoqueLojistaRepository.findAllComProdutoByIdIn(any())).thenReturn(List.of(estoqueBaixo));
 
         // --- ACT ---
         CriarPedidoRequest request = new CriarPedidoRequest();
@@ -171,13 +207,95 @@ class PedidoServiceTest {
 
         // Garante que NADA foi salvo no banco
         verify(pedidoRepository, never()).save(any());
+        verify(estoqueLojistaRepository, never()).baixarEstoqueEmLote(any());
+    }
+
+    // ------------------------------------------------------------------------
+    // CENÁRIO 3.1: Corrida entre carrinhos pelo mesmo estoque
+    // ------------------------------------------------------------------------
+    @Test
+    @DisplayName("CENÁRIO 03.1: Deve falhar o pedido inteiro se a baixa condicional não afetar alguma linha")
+    void erroBaixaConcorrente() {
+        // --- ARRANGE ---
+        when(authenticationService.getClienteLogado()).thenReturn(new Cliente());
+        when(enderecoRepository.findByIdAndClienteId(any(), any())).thenReturn(Optional.of(new Endereco()));
+
+        Produto produto = new Produto();
+        produto.setNome("Dipirona");
+        produto.setTipoReceita(TipoReceita.NAO_EXIGIDO);
+
+        // Leitura indica estoque suficiente, mas outro pedido consome antes da baixa
+        EstoqueLojista estoque = new EstoqueLojista();
+        estoque.setId(7L);
+        estoque.setPreco(BigDecimal.ONE);
+        estoque.setQuantidade(3);
+        estoque.setProduto(produto);
+        estoque.setFarmacia(farmacia(1L));
+
+        when(estoqueLojistaRepository.findAllComProdutoByIdIn(any())).thenReturn(List.of(estoque));
+        when(estoqueLojistaRepository.baixarEstoqueEmLote(any())).thenReturn(List.of(7L));
+
+        // --- ACT ---
+        CriarPedidoRequest request = new CriarPedidoRequest();
+        request.setEnderecoId(1L);
+        ItemCarrinho item = new ItemCarrinho();
+        item.setEstoqueLojistaId(7L);
+        item.setQuantidade(2);
+        request.setItens(List.of(item));
+
+        // --- ASSERT ---
+        ConflictException exception = assertThrows(ConflictException.class, () -> pedidoService.criarPedido(request));
+        assertThat(exception.getMessage()).contains("Estoque insuficiente para o produto Dipirona");
+        verify(pedidoRepository, never()).save(any());
+    }
+
+    // ------------------------------------------------------------------------
+    // CENÁRIO 3.2: Baixa pelo motor de estoque, fora da transação do pedido
+    // ------------------------------------------------------------------------
+    @Test
+    @DisplayName("CENÁRIO 03.2: Com o motor, deve estornar a baixa se a gravação do pedido falhar")
+    void estornoDaBaixaDoMotorQuandoGravacaoFalha() {
+        // --- ARRANGE ---
+        Cliente cliente = new Cliente();
+        cliente.setId(1L);
+        when(authenticationService.getClienteLogado()).thenReturn(cliente);
+        when(enderecoRepository.findByIdAndClienteId(any(), any())).thenReturn(Optional.of(new Endereco()));
+
+        Produto produto = new Produto();
+        produto.setId(3L);
+        produto.setNome("Dipirona");
+        produto.setTipoReceita(TipoReceita.NAO_EXIGIDO);
+
+        EstoqueLojista estoque = new EstoqueLojista();
+        estoque.setId(7L);
+        estoque.setPreco(BigDecimal.ONE);
+        estoque.setQuantidade(3);
+        estoque.setProduto(produto);
+        estoque.setFarmacia(farmacia(1L));
+
+        when(motorEstoque.isHabilitado()).thenReturn(true);
+        when(estoqueLojistaRepository.findAllComProdutoByIdIn(any())).thenReturn(List.of(estoque));
+        when(motorEstoque.aguardarBaixa(1L, Map.of(7L, 2), Set.of(3L))).thenReturn(List.of());
+        when(pedidoRepository.save(any(Pedido.class))).thenThrow(new IllegalStateException("falha na gravação"));
+
+        CriarPedidoRequest request = new CriarPedidoRequest();
+        request.setEnderecoId(1L);
+        ItemCarrinho item = new ItemCarrinho();
+        item.setEstoqueLojistaId(7L);
+        item.setQuantidade(2);
+        request.setItens(List.of(item));
+
+        // --- ACT & ASSERT ---
+        assertThrows(IllegalStateException.class, () -> pedidoService.criarPedido(request));
+        verify(motorEstoque).estornar(1L, Map.of(7L, 2), Set.of(3L));
+        verify(estoqueLojistaRepository, never()).baixarEstoqueEmLote(any());
     }
 
     // ------------------------------------------------------------------------
     // CENÁRIO 4: Cancelamento e Estorno
     // ------------------------------------------------------------------------
     @Test
-    @DisplayName("CENÁRIO 04: Ao cancelar, deve devolver itens ao estoque")
+    @DisplayName("CENÁRIO 04: Ao cancelar, deve liberar a reserva e devolver itens ao estoque")
     void cancelarPedidoComEstorno() {
         // --- ARRANGE ---
         Long clienteId = 1L;
@@ -187,6 +305,7 @@ class PedidoServiceTest {
         EstoqueLojista estoqueNoBanco = new EstoqueLojista();
         estoqueNoBanco.setId(99L);
         estoqueNoBanco.setQuantidade(90); // Tem 90 lá na loja
+        estoqueNoBanco.setProduto(new Produto());
 
         // O Pedido que será cancelado
         Pedido pedidoParaCancelar = new Pedido();
@@ -197,25 +316,29 @@ class PedidoServiceTest {
         // O item dentro do pedido (comprou 10 unidades)
         ItemPedido itemPedido = new ItemPedido();
         itemPedido.setQuantidade(10);
+        itemPedido.setPrecoUnitario(new BigDecimal("5.00"));
         itemPedido.setEstoqueLojista(estoqueNoBanco);
         pedidoParaCancelar.setItens(List.of(itemPedido));
 
         when(authenticationService.getClienteLogado()).thenReturn(cliente);
-        when(pedidoRepository.findById(100L)).thenReturn(Optional.of(pedidoParaCancelar));
-        when(pedidoRepository.save(any())).thenReturn(pedidoParaCancelar);
+        when(pedidoRepository.findDetalheById(100L)).thenReturn(Optional.of(pedidoParaCancelar));
+        // A transição condicional (UPDATE ... WHERE status = ?) venceu: o status do objeto é atualizado
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Pedido.class).setStatus(invocation.getArgument(1));
+            return null;
+        }).when(transicaoPedidoService).transicionar(any(Pedido.class), any(PedidoStatus.class));
 
         // --- ACT ---
         pedidoService.cancelarPedido(100L);
 
         // --- ASSERT ---
-        // 1. Status mudou?
+        // 1. Status mudou pela transição central?
         assertThat(pedidoParaCancelar.getStatus()).isEqualTo(PedidoStatus.CANCELADO);
+        verify(transicaoPedidoService).transicionar(pedidoParaCancelar, PedidoStatus.CANCELADO);
 
-        // 2. Estoque voltou? (90 que tinha + 10 do pedido = 100)
-        assertThat(estoqueNoBanco.getQuantidade()).isEqualTo(100);
-
-        // 3. Salvou a alteração do estoque no banco?
-        verify(estoqueLojistaRepository).save(estoqueNoBanco);
+        // 2. O estorno é delegado à liberação da reserva (atualização em lote no banco)
+        verify(reservaEstoqueService).liberarReserva(pedidoParaCancelar);
+        verify(estoqueLojistaRepository, never()).save(any());
     }
 
     // ------------------------------------------------------------------------
@@ -234,7 +357,7 @@ class PedidoServiceTest {
         pedidoEntregue.setStatus(PedidoStatus.ENTREGUE); // Já finalizado
 
         when(authenticationService.getClienteLogado()).thenReturn(cliente);
-        when(pedidoRepository.findById(200L)).thenReturn(Optional.of(pedidoEntregue));
+        when(pedidoRepository.findDetalheById(200L)).thenReturn(Optional.of(pedidoEntregue));
 
         // --- ACT & ASSERT ---
         ConflictException exception = assertThrows(ConflictException.class, () -> {
@@ -245,5 +368,83 @@ class PedidoServiceTest {
 
         // Verifica que o status NÃO mudou
         assertThat(pedidoEntregue.getStatus()).isEqualTo(PedidoStatus.ENTREGUE);
+        verify(transicaoPedidoService, never()).transicionar(any(), any());
+    }
+
+    // ------------------------------------------------------------------------
+    // CENÁRIO 6: Itens de farmácias diferentes
+    // ------------------------------------------------------------------------
+    @Test
+    @DisplayName("CENÁRIO 06: Não deve permitir um pedido com itens de farmácias diferentes")
+    void erroPedidoComMaisDeUmaFarmacia() {
+        // --- ARRANGE ---
+        when(authenticationService.getClienteLogado()).thenReturn(new Cliente());
+        when(enderecoRepository.findByIdAndClienteId(any(), any())).thenReturn(Optional.of(new Endereco()));
+
+        EstoqueLojista daFarmaciaA = new EstoqueLojista();
+        daFarmaciaA.setId(1L);
+        daFarmaciaA.setPreco(BigDecimal.ONE);
+        daFarmaciaA.setQuantidade(10);
+        daFarmaciaA.setProduto(new Produto());
+        daFarmaciaA.setFarmacia(farmacia(1L));
+
+        EstoqueLojista daFarmaciaB = new EstoqueLojista();
+        daFarmaciaB.setId(2L);
+        daFarmaciaB.setPreco(BigDecimal.ONE);
+        daFarmaciaB.setQuantidade(10);
+        daFarmaciaB.setProduto(new Produto());
+        daFarmaciaB.setFarmacia(farmacia(2L));
+
+        when(estoqueLojistaRepository.findAllComProdutoByIdIn(any())).thenReturn(List.of(daFarmaciaA, daFarmaciaB));
+
+        // --- ACT ---
+        CriarPedidoRequest request = new CriarPedidoRequest();
+        request.setEnderecoId(1L);
+        ItemCarrinho itemA = new ItemCarrinho();
+        itemA.setEstoqueLojistaId(1L);
+        itemA.setQuantidade(1);
+        ItemCarrinho itemB = new ItemCarrinho();
+        itemB.setEstoqueLojistaId(2L);
+        itemB.setQuantidade(1);
+        request.setItens(List.of(itemA, itemB));
+
+        // --- ASSERT ---
+        ConflictException exception = assertThrows(ConflictException.class, () -> pedidoService.criarPedido(request));
+        assertThat(exception.getMessage()).contains("mesma farmácia");
+        verify(estoqueLojistaRepository, never()).baixarEstoqueEmLote(any());
+    }
+
+    // ------------------------------------------------------------------------
+    // CENÁRIO 7: Paginação por cursor
+    // ------------------------------------------------------------------------
+    @Test
+    @DisplayName("CENÁRIO 07: O cursor da página deve continuar a partir do último pedido entregue")
+    void paginacaoPorCursorDosPedidosDoCliente() {
+        // --- ARRANGE ---
+        Cliente cliente = new Cliente();
+        cliente.setId(1L);
+        when(authenticationService.getClienteLogado()).thenReturn(cliente);
+
+        LocalDateTime data = LocalDateTime.of(2025, 3, 10, 14, 30, 15, 123456000);
+        PedidoResumoResponse ultimo = new PedidoResumoResponse(42L, PedidoStatus.ENTREGUE, BigDecimal.TEN, data,
+                1L, 1L, "Cliente", 1L, null);
+
+        when(pedidoRepository.findResumosByClienteIdAntesDe(eq(1L), any(), any(), any()))
+                .thenReturn(new SliceImpl<>(List.of(ultimo), PageRequest.of(0, 1), true));
+
+        // --- ACT ---
+        CursorPage<PedidoResumoResponse> primeiraPagina = pedidoService.getMeusPedidos(null, 1);
+        pedidoService.getMeusPedidos(primeiraPagina.getNextCursor(), 1);
+
+        // --- ASSERT ---
+        assertThat(primeiraPagina.isHasNext()).isTrue();
+        verify(pedidoRepository).findResumosByClienteIdAntesDe(1L, CursorCodec.DATA_INICIAL, Long.MAX_VALUE, PageRequest.of(0, 1));
+        verify(pedidoRepository).findResumosByClienteIdAntesDe(1L, data, 42L, PageRequest.of(0, 1));
+    }
+
+    private static Farmacia farmacia(Long id) {
+        Farmacia farmacia = new Farmacia();
+        farmacia.setId(id);
+        return farmacia;
     }
-}
\ No newline at end of file
+}